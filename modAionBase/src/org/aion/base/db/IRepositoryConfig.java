@@ -79,4 +79,11 @@ public interface IRepositoryConfig {
     int getWriteBufferSize();
 
     int getCacheSize();
+
+    /**
+     * @return whether the log index database is opened
+     */
+    default boolean isLogIndexEnabled() {
+        return false;
+    }
 }
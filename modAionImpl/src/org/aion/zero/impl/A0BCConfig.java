@@ -63,4 +63,11 @@ public interface A0BCConfig {
      * Retrieves the selected energy strategy algorithm
      */
     AbstractEnergyStrategyLimit getEnergyLimitStrategy();
+
+    /**
+     * Retrieves whether the logs are indexed by contract address and topic
+     */
+    default boolean isLogIndexEnabled() {
+        return false;
+    }
 }
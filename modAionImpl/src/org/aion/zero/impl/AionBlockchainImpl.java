@@ -24,6 +24,8 @@
 
 package org.aion.zero.impl;
 
+import org.aion.base.Constant;
+import org.aion.base.db.IByteArrayKeyValueDatabase;
 import org.aion.base.db.IRepository;
 import org.aion.base.db.IRepositoryCache;
 import org.aion.base.type.Address;
@@ -48,8 +50,10 @@ import org.aion.mcf.types.BlockIdentifier;
 import org.aion.mcf.valid.BlockHeaderValidator;
 import org.aion.mcf.valid.GrandParentBlockHeaderValidator;
 import org.aion.mcf.valid.ParentBlockHeaderValidator;
+import org.aion.mcf.vm.Constants;
 import org.aion.mcf.vm.types.Bloom;
 import org.aion.rlp.RLP;
+import org.aion.txpool.ITxPool;
 import org.aion.vm.TransactionExecutor;
 import org.aion.zero.impl.blockchain.ChainConfiguration;
 import org.aion.zero.impl.config.CfgAion;
@@ -58,12 +62,12 @@ import org.aion.zero.impl.core.energy.EnergyStrategies;
 import org.aion.zero.impl.core.IAionBlockchain;
 import org.aion.zero.impl.db.AionBlockStore;
 import org.aion.zero.impl.db.AionRepositoryImpl;
+import org.aion.zero.impl.db.LogIndex;
 import org.aion.zero.impl.db.RecoveryUtils;
 import org.aion.zero.impl.sync.SyncMgr;
 import org.aion.zero.impl.types.AionBlock;
 import org.aion.zero.impl.types.AionBlockSummary;
 import org.aion.zero.impl.types.AionTxInfo;
-import org.aion.zero.impl.types.RetValidPreBlock;
 import org.aion.zero.impl.valid.TXValidator;
 import org.aion.zero.types.*;
 import org.slf4j.Logger;
@@ -73,6 +77,7 @@ import java.math.BigInteger;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 import static java.lang.Math.max;
 import static java.lang.Runtime.getRuntime;
@@ -103,6 +108,8 @@ public class AionBlockchainImpl implements IAionBlockchain {
     private static final Logger LOG = LoggerFactory.getLogger(LogEnum.CONS.name());
     private static final int THOUSAND_MS = 1000;
     private static final int DIFFICULTY_BYTES = 16;
+    // a template whose timestamp is this much behind gets rebuilt rather than extended
+    private static final long TEMPLATE_MAX_AGE_SECONDS = 10;
 
     private A0BCConfig config;
     private long exitOn = Long.MAX_VALUE;
@@ -110,6 +117,7 @@ public class AionBlockchainImpl implements IAionBlockchain {
     private IRepository repository;
     private IRepositoryCache track;
     private TransactionStore<AionTransaction, AionTxReceipt, org.aion.zero.impl.types.AionTxInfo> transactionStore;
+    private LogIndex logIndex;
     private AionBlock bestBlock;
 
     /**
@@ -141,6 +149,9 @@ public class AionBlockchainImpl implements IAionBlockchain {
     private Stack<State> stateStack = new Stack<>();
     private IEventMgr evtMgr = null;
 
+    // the executed state of the last template handed to the miners
+    private TemplateState template;
+
     private AbstractEnergyStrategyLimit energyLimitStrategy;
 
     /**
@@ -196,6 +207,11 @@ public class AionBlockchainImpl implements IAionBlockchain {
                         cfgAion.getConsensus().getEnergyStrategy(),
                         config);
             }
+
+            @Override
+            public boolean isLogIndexEnabled() {
+                return cfgAion.getDb().isLogIndexEnabled();
+            }
         };
     }
 
@@ -222,6 +238,13 @@ public class AionBlockchainImpl implements IAionBlockchain {
 
         this.transactionStore = ((AionRepositoryImpl) this.repository).getTransactionStore();
 
+        // the repository only opens the log index database when its config enables it
+        IByteArrayKeyValueDatabase logIndexDb = ((AionRepositoryImpl) this.repository).getLogIndexDatabase();
+        if (config.isLogIndexEnabled() && logIndexDb != null) {
+            this.logIndex = new LogIndex(logIndexDb);
+            getBlockStore().addBranchListener(logIndex::revertTo);
+        }
+
         this.minerCoinbase = this.config.getMinerCoinbase();
 
         if (minerCoinbase.equals(Address.EMPTY_ADDRESS())) {
@@ -499,6 +522,9 @@ public class AionBlockchainImpl implements IAionBlockchain {
             // cause we proved that total difficulty
             // is greater
             getBlockStore().reBranch(block);
+            if (logIndex != null) {
+                indexChainLogs(block.getNumber());
+            }
 
             // The main repository rebranch
             this.repository = savedState.savedRepo;
@@ -614,6 +640,53 @@ public class AionBlockchainImpl implements IAionBlockchain {
     }
 
     protected AionBlock createNewBlockInternal(AionBlock parent, List<AionTransaction> txs, boolean waitUntilBlockTime, long currTimeSeconds) {
+        // a fixed list keeps every tx it can, a failing tx does not drop the later ones of its sender
+        return createNewBlockInternal(parent, visitor -> {
+            for (AionTransaction tx : txs) {
+                if (visitor.visit(tx) == ITxPool.Pick.STOP) {
+                    return;
+                }
+            }
+        }, waitUntilBlockTime, currTimeSeconds);
+    }
+
+    protected AionBlock createNewBlockInternal(AionBlock parent, Consumer<ITxPool.TxVisitor<AionTransaction>> txs,
+            boolean waitUntilBlockTime, long currTimeSeconds) {
+        TemplateState ts = newTemplate(parent, waitUntilBlockTime, currTimeSeconds);
+        appendTemplate(ts, txs);
+        return sealTemplate(ts);
+    }
+
+    @Override
+    public synchronized AionBlock createBlockTemplate(AionBlock parent,
+            Consumer<ITxPool.TxVisitor<AionTransaction>> pendingTxs) {
+        return createBlockTemplateInternal(parent, pendingTxs, System.currentTimeMillis() / THOUSAND_MS);
+    }
+
+    protected AionBlock createBlockTemplateInternal(AionBlock parent,
+            Consumer<ITxPool.TxVisitor<AionTransaction>> pendingTxs, long now) {
+        TemplateState ts = this.template;
+        // the txs executed against the old timestamp can't be carried over to a new one
+        if (ts == null || !Arrays.equals(ts.header.getParentHash(), parent.getHash())
+                || now - ts.header.getTimestamp() >= TEMPLATE_MAX_AGE_SECONDS) {
+            ts = newTemplate(parent, false, now);
+            appendTemplate(ts, pendingTxs);
+            this.template = ts;
+            return sealTemplate(ts);
+        }
+
+        // same parent, only the txs arrived since the last template get executed
+        if (appendTemplate(ts, pendingTxs)) {
+            return sealTemplate(ts);
+        }
+        return ts.block;
+    }
+
+    /**
+     * Starts an empty template on top of the parent, the template state is a
+     * snapshot of the parent state that the appended txs are executed on.
+     */
+    private TemplateState newTemplate(AionBlock parent, boolean waitUntilBlockTime, long currTimeSeconds) {
         long time = currTimeSeconds;
 
         if (parent.getTimestamp() >= time) {
@@ -634,53 +707,141 @@ public class AionBlockchainImpl implements IAionBlockchain {
                 .withCoinbase(minerCoinbase)
                 .withNumber(parent.getNumber() + 1)
                 .withTimestamp(time).withExtraData(minerExtraData)
-                .withTxTrieRoot(calcTxTrie(txs))
+                .withTxTrieRoot(calcTxTrie(emptyList()))
                 .withEnergyLimit(energyLimit);
-        AionBlock block = new AionBlock(headerBuilder.build(), txs);
+        A0BlockHeader header = headerBuilder.build();
 
 
         IAionBlock grandParent = this.getParent(parent.getHeader());
-        block.getHeader().setDifficulty(
+        header.setDifficulty(
                 ByteUtil.bigIntegerToBytes(this.chainConfiguration.getDifficultyCalculator()
                 .calculateDifficulty(
                         parent.getHeader(),
                         grandParent == null ? null : grandParent.getHeader()),
                 DIFFICULTY_BYTES));
 
+        return new TemplateState(header, repository.getSnapshotTo(parent.getStateRoot()), parent.getStateRoot());
+    }
+
+    /**
+     * Executes the txs handed out by the source on top of the template state.
+     * The txs already in the template are passed over, a rejected tx skips the
+     * rest of its sender and the source is stopped once the block can't fit
+     * another tx.
+     *
+     * @return whether any tx got into the template
+     */
+    private boolean appendTemplate(TemplateState ts, Consumer<ITxPool.TxVisitor<AionTransaction>> source) {
+        if (ts.energyRemaining < Constants.NRG_TRANSACTION) {
+            return false;
+        }
+
+        long saveTime = System.nanoTime();
+        int txCount = ts.txs.size();
+
         /*
          * Begin execution phase
          */
-        pushState(parent.getHash());
+        pushTemplateState(ts);
 
         track = repository.startTracking();
         track.rollback();
-        RetValidPreBlock preBlock = generatePreBlock(block);
 
-        /*
-         * Calculate the gas used for the included transactions
-         */
-        long totalEnergyUsed = 0;
-        for (AionTxExecSummary summary : preBlock.summaries) {
-            totalEnergyUsed = totalEnergyUsed + summary.getNrgUsed().longValueExact();
-        }
+        AionBlock block = new AionBlock(ts.header, ts.txs);
+        source.accept(candidate -> {
+            if (ts.energyRemaining < Constants.NRG_TRANSACTION) {
+                return ITxPool.Pick.STOP;
+            }
+
+            ByteArrayWrapper hash = ByteArrayWrapper.wrap(candidate.getHash());
+            if (ts.txHashes.contains(hash)) {
+                return ITxPool.Pick.NEXT;
+            }
+
+            int size = candidate.getEncoded().length;
+            if (size > ts.sizeRemaining) {
+                return ITxPool.Pick.NEXT;
+            }
+
+            // the source may hand out the pool's own instance
+            AionTransaction tx = candidate.clone();
+
+            TransactionExecutor executor = new TransactionExecutor(tx, block, track, false, ts.energyRemaining);
+            AionTxExecSummary summary = executor.execute();
+
+            if (summary.isRejected()) {
+                // the later nonces of this sender can't be valid on top of this state
+                return ITxPool.Pick.SKIP_SENDER;
+            }
+
+            track.flush();
+
+            AionTxReceipt receipt = summary.getReceipt();
+            receipt.setPostTxState(repository.getRoot());
+            receipt.setTransaction(tx);
+
+            // otherwise, assuming we don't have timeouts, add the
+            // transaction
+            ts.txs.add(tx);
+            ts.txHashes.add(hash);
 
-        byte[] stateRoot = getRepository().getRoot();
+            ts.receipts.add(receipt);
+            ts.summaries.add(summary);
+            ts.energyRemaining -= receipt.getEnergyUsed();
+            ts.energyUsed += receipt.getEnergyUsed();
+            ts.sizeRemaining -= size;
+            return ITxPool.Pick.NEXT;
+        });
+
+        track.flush();
+        ts.root = repository.getRoot();
         popState();
 
         /*
          * End execution phase
          */
+        long totalTime = System.nanoTime() - saveTime;
+        chainStats.addBlockExecTime(totalTime);
+        return ts.txs.size() > txCount;
+    }
+
+    /**
+     * Seals a fresh block out of the template. The rewards go on top of the
+     * executed txs and are taken back out of the template state afterwards, so
+     * later txs still execute on the same state as when importing the block.
+     */
+    private AionBlock sealTemplate(TemplateState ts) {
+        AionBlock block = new AionBlock(new A0BlockHeader(ts.header), new ArrayList<>());
+
+        pushTemplateState(ts);
+
+        track = repository.startTracking();
+        addReward(block, ts.summaries);
+        byte[] stateRoot = repository.getRoot();
+        repository.syncToRoot(ts.root);
+
+        popState();
+
         Bloom logBloom = new Bloom();
-        for (AionTxReceipt receipt : preBlock.receipts) {
+        for (AionTxReceipt receipt : ts.receipts) {
             logBloom.or(receipt.getBloomFilter());
         }
 
-        block.seal(preBlock.txs, calcTxTrie(preBlock.txs), stateRoot, logBloom.getData(),
-                calcReceiptsTrie(preBlock.receipts), totalEnergyUsed);
+        List<AionTransaction> txs = new ArrayList<>(ts.txs);
+        block.seal(txs, calcTxTrie(txs), stateRoot, logBloom.getData(),
+                calcReceiptsTrie(ts.receipts), ts.energyUsed);
 
+        ts.block = block;
         return block;
     }
 
+    private void pushTemplateState(TemplateState ts) {
+        stateStack.push(new State());
+        this.bestBlock = getBlockStore().getBlockByHash(ts.header.getParentHash());
+        totalDifficulty = getBlockStore().getTotalDifficultyForHash(ts.header.getParentHash());
+        this.repository = ts.repo;
+    }
+
     @Override
     public synchronized AionBlockSummary add(AionBlock block) {
         // typical use without rebuild
@@ -897,9 +1058,11 @@ public class AionBlockchainImpl implements IAionBlockchain {
 
                 Map<Address, BigInteger> nonceCache = new HashMap<>();
 
-                if (txs.parallelStream().anyMatch(tx -> !TXValidator.isValid(tx))) {
-                    LOG.error("Some transactions in the block are invalid");
-                    return false;
+                for (boolean valid : TXValidator.isValid(txs)) {
+                    if (!valid) {
+                        LOG.error("Some transactions in the block are invalid");
+                        return false;
+                    }
                 }
 
                 for (AionTransaction tx : txs) {
@@ -953,51 +1116,6 @@ public class AionBlockchainImpl implements IAionBlockchain {
         }
     }
 
-    /**
-     * For generating the necessary transactions for a block
-     *
-     * @param block
-     * @return
-     */
-    private RetValidPreBlock generatePreBlock(IAionBlock block) {
-
-        long saveTime = System.nanoTime();
-
-        List<AionTxReceipt> receipts = new ArrayList<>();
-        List<AionTxExecSummary> summaries = new ArrayList<>();
-        List<AionTransaction> transactions = new ArrayList<>();
-
-        long energyRemaining = block.getNrgLimit();
-        for (AionTransaction tx : block.getTransactionsList()) {
-            TransactionExecutor executor = new TransactionExecutor(tx, block, track, false, energyRemaining);
-            AionTxExecSummary summary = executor.execute();
-
-            if (!summary.isRejected()) {
-                track.flush();
-
-                AionTxReceipt receipt = summary.getReceipt();
-                receipt.setPostTxState(repository.getRoot());
-                receipt.setTransaction(tx);
-
-                // otherwise, assuming we don't have timeouts, add the
-                // transaction
-                transactions.add(tx);
-
-                receipts.add(receipt);
-                summaries.add(summary);
-                energyRemaining -= receipt.getEnergyUsed();
-            }
-        }
-
-        Map<Address, BigInteger> rewards = addReward(block, summaries);
-
-        track.flush();
-
-        long totalTime = System.nanoTime() - saveTime;
-        chainStats.addBlockExecTime(totalTime);
-        return new RetValidPreBlock(transactions, rewards, receipts, summaries);
-    }
-
     private AionBlockSummary applyBlock(IAionBlock block) {
         long saveTime = System.nanoTime();
 
@@ -1049,6 +1167,80 @@ public class AionBlockchainImpl implements IAionBlockchain {
         return rewards;
     }
 
+    /**
+     * The log index by contract address and topic, {@code null} unless enabled.
+     */
+    public LogIndex getLogIndex() {
+        return logIndex;
+    }
+
+    /**
+     * Brings the log index up to the given main chain block after a re-branch
+     * took the postings of the old branch out.
+     */
+    private void indexChainLogs(long number) {
+        if (logIndex.isEmpty()) {
+            return;
+        }
+
+        for (long n = logIndex.getHead() + 1; n <= number; n++) {
+            if (!indexChainBlock(n)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Replays the stored receipts of the main chain blocks the log index is
+     * behind on, those imported while it was disabled or not yet written when
+     * the kernel stopped. Runs in the background one block at a time, so the
+     * blocks imported meanwhile are picked up as well; it stops once the index
+     * reaches the best block.
+     */
+    public void catchUpLogIndex() {
+        if (logIndex == null || logIndex.isEmpty() || logIndex.getHead() >= getBestBlock().getNumber()) {
+            return;
+        }
+
+        Thread t = new Thread(() -> {
+            long start = logIndex.getHead();
+            while (true) {
+                synchronized (this) {
+                    long next = logIndex.getHead() + 1;
+                    if (next > getBestBlock().getNumber() || !indexChainBlock(next)) {
+                        break;
+                    }
+                }
+            }
+
+            if (LOG.isInfoEnabled()) {
+                LOG.info("logindex: caught up from block {} to {}", start + 1, logIndex.getHead());
+            }
+        }, "logindex-catchup");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    // indexes the main chain block of the given number from its stored receipts
+    private boolean indexChainBlock(long number) {
+        AionBlock block = getBlockStore().getChainBlockByNumber(number);
+        if (block == null) {
+            return false;
+        }
+
+        List<AionTxReceipt> receipts = new ArrayList<>();
+        for (AionTransaction tx : block.getTransactionsList()) {
+            AionTxInfo info = transactionStore.get(tx.getHash(), block.getHash());
+            if (info == null) {
+                LOG.warn("logindex: no receipt for tx {} of block {}", toHexString(tx.getHash()), number);
+                return false;
+            }
+            receipts.add(info.getReceipt());
+        }
+        logIndex.addBlock(number, receipts);
+        return true;
+    }
+
     public ChainConfiguration getChainConfiguration() {
         return chainConfiguration;
     }
@@ -1066,6 +1258,10 @@ public class AionBlockchainImpl implements IAionBlockchain {
             transactionStore.put(new AionTxInfo(receipts.get(i), block.getHash(), i));
         }
 
+        if (!fork && logIndex != null) {
+            logIndex.addBlock(block.getNumber(), receipts);
+        }
+
         ((AionRepositoryImpl) repository).commitBlock(block.getHeader());
 
         if (LOG.isDebugEnabled())
@@ -1314,6 +1510,36 @@ public class AionBlockchainImpl implements IAionBlockchain {
         BigInteger savedTD = totalDifficulty;
     }
 
+    /**
+     * A block template along with the state its txs were executed on, so that
+     * more txs can be appended without executing the ones already in.
+     */
+    private static class TemplateState {
+
+        final A0BlockHeader header;
+        final IRepository repo;
+        // the state root after the txs, before the rewards
+        byte[] root;
+
+        final List<AionTransaction> txs = new ArrayList<>();
+        final Set<ByteArrayWrapper> txHashes = new HashSet<>();
+        final List<AionTxReceipt> receipts = new ArrayList<>();
+        final List<AionTxExecSummary> summaries = new ArrayList<>();
+        long energyRemaining;
+        long energyUsed;
+        long sizeRemaining = Constant.MAX_BLK_SIZE;
+
+        // the last block sealed out of this template
+        AionBlock block;
+
+        TemplateState(A0BlockHeader header, IRepository repo, byte[] root) {
+            this.header = header;
+            this.repo = repo;
+            this.root = root;
+            this.energyRemaining = header.getEnergyLimit();
+        }
+    }
+
     private void updateBestKnownBlock(AionBlock block) {
         updateBestKnownBlock(block.getHeader());
     }
@@ -51,9 +51,11 @@ import org.aion.zero.impl.config.CfgAion;
 import org.aion.zero.impl.core.IAionBlockchain;
 import org.aion.zero.impl.db.AionRepositoryImpl;
 import org.aion.zero.impl.pow.AionPoW;
+import org.aion.zero.impl.sync.CompactBlockAssembler;
 import org.aion.zero.impl.sync.SyncMgr;
 import org.aion.zero.impl.sync.handler.*;
 import org.aion.zero.impl.tx.AionTransactionExecThread;
+import org.aion.zero.impl.tx.TxGossip;
 import org.aion.zero.impl.types.AionBlock;
 import org.aion.zero.types.A0BlockHeader;
 import org.aion.zero.types.AionTransaction;
@@ -81,6 +83,8 @@ public class AionHub {
 
 	private BlockPropagationHandler propHandler;
 
+	private TxGossip txGossip;
+
 	private IPendingStateInternal<AionBlock, AionTransaction> mempool;
 
 	private IAionBlockchain blockchain;
@@ -134,6 +138,9 @@ public class AionHub {
 
 		loadBlockchain();
 
+		// the log index may be behind the chain it was reopened on
+		blockchain.catchUpLogIndex();
+
         this.startingBlock = this.blockchain.getBestBlock();
         if (!cfg.getConsensus().isSeed()) {
             this.mempool.updateBest();
@@ -166,12 +173,15 @@ public class AionHub {
 		this.syncMgr.init(this.p2pMgr, this.eventMgr,this.cfg.getSync().getBlocksBackwardMin(),
 				this.cfg.getSync().getBlocksBackwardMax(), this.cfg.getSync().getBlocksRequestMax(),
 				this.cfg.getSync().getBlocksResponseMax(), this.cfg.getSync().getBlocksQueueMax(),
+				this.cfg.getSync().getBlocksQueueMemMax(),
 				this.cfg.getSync().getShowStatus(), this.cfg.getReports().isEnabled(), reportsFolder);
 
 		ChainConfiguration chainConfig = new ChainConfiguration();
 		this.propHandler = new BlockPropagationHandler(1024, this.blockchain, this.p2pMgr,
 				chainConfig.createBlockHeaderValidator());
 
+		this.txGossip = new TxGossip();
+
 		registerCallback();
 		this.p2pMgr.run();
 
@@ -192,8 +202,15 @@ public class AionHub {
         cbs.add(new ResBlocksHeadersHandler(syncLog, this.syncMgr, this.p2pMgr));
         cbs.add(new ReqBlocksBodiesHandler(syncLog, this.blockchain, this.p2pMgr, cfg.getSync().getBlocksResponseMax()));
         cbs.add(new ResBlocksBodiesHandler(syncLog, this.syncMgr, this.p2pMgr));
-        cbs.add(new BroadcastTxHandler(syncLog, this.mempool, this.p2pMgr, cfg.getNet().getP2p().getTxBroadcastbuffer()));
+        cbs.add(new BroadcastTxHandler(syncLog, this.mempool, this.p2pMgr, this.txGossip,
+                cfg.getNet().getP2p().getTxBroadcastbuffer()));
+        cbs.add(new BroadcastTxHashesHandler(syncLog, this.p2pMgr, this.txGossip));
+        cbs.add(new ReqTxsHandler(syncLog, this.p2pMgr, this.txGossip));
         cbs.add(new BroadcastNewBlockHandler(syncLog, this.propHandler, this.p2pMgr));
+        CompactBlockAssembler assembler = new CompactBlockAssembler(this.mempool, this.syncMgr);
+        cbs.add(new BroadcastCompactBlockHandler(syncLog, this.propHandler, assembler, this.p2pMgr));
+        cbs.add(new ReqBlockTxsHandler(syncLog, this.propHandler, this.p2pMgr));
+        cbs.add(new ResBlockTxsHandler(syncLog, this.propHandler, assembler, this.p2pMgr));
         this.p2pMgr.register(cbs);
     }
 
@@ -252,6 +269,10 @@ public class AionHub {
         return propHandler;
     }
 
+    public TxGossip getTxGossip() {
+        return txGossip;
+    }
+
     private void loadBlockchain() {
 
         this.repository.getBlockStore().load();
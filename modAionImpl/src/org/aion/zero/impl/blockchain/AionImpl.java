@@ -80,7 +80,7 @@ public class AionImpl implements IAionChain {
         LOG_GEN.info("<node-started endpoint=p2p://" + cfg.getId() + "@" + cfg.getNet().getP2p().getIp() + ":"
                 + cfg.getNet().getP2p().getPort() + ">");
 
-        collector = new TxCollector(this.aionHub.getP2pMgr());
+        collector = new TxCollector(this.aionHub.getP2pMgr(), this.aionHub.getTxGossip());
     }
 
 
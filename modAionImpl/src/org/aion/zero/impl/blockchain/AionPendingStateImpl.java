@@ -29,6 +29,7 @@ import org.aion.base.db.IRepository;
 import org.aion.base.db.IRepositoryCache;
 import org.aion.base.type.Address;
 import org.aion.base.type.Hash256;
+import org.aion.base.util.ByteArrayWrapper;
 import org.aion.base.util.ByteUtil;
 import org.aion.base.util.FastByteComparisons;
 import org.aion.base.util.Hex;
@@ -57,9 +58,15 @@ import org.aion.zero.impl.valid.TXValidator;
 import org.aion.zero.types.*;
 import org.slf4j.Logger;
 
+import java.io.File;
+import java.io.IOException;
 import java.math.BigInteger;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -84,8 +91,36 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
 
     private static final int MAX_VALIDATED_PENDING_TXS = 8192;
 
+    private static final long MAX_VALIDATED_PENDING_BYTES = 16L * Constant.MAX_BLK_SIZE;
+
     private final int MAX_TXCACHE_FLUSH_SIZE = MAX_VALIDATED_PENDING_TXS >> 2;
 
+    private static final int SENDER_LOCK_STRIPES = 64;
+
+    /**
+     * Admission holds the read side plus the lock stripe of the sender, so the
+     * nonce, cache and pool checks of different senders run concurrently; the
+     * swap of a rebased pending state, the tx buffer flush and the backup take
+     * the write side.
+     */
+    private final ReentrantReadWriteLock stateLock = new ReentrantReadWriteLock();
+
+    private final ReentrantLock[] senderLocks = new ReentrantLock[SENDER_LOCK_STRIPES];
+
+    /**
+     * Admitted txs are executed under the lock stripe of their sender against
+     * a {@link PendingStateTrack} of the pending state, and merged into it
+     * under this lock. Txs that run contract code, and txs whose track can't
+     * be merged, are executed under it instead.
+     */
+    private final Object mergeLock = new Object();
+
+    // guarded by mergeLock, counts the merges into the pending state
+    private long mergeVersion;
+
+    // guarded by mergeLock, the merge version that last wrote each account
+    private final Map<Address, Long> mergedAt = new HashMap<>();
+
     private IAionBlockchain blockchain;
 
     private TransactionStore<AionTransaction, AionTxReceipt, AionTxInfo> transactionStore;
@@ -96,7 +131,24 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
 
     private IEventMgr evtMgr = null;
 
-    private IRepositoryCache pendingState;
+    /**
+     * Rebuilt off to the side on every new best block and then swapped in, so
+     * readers only ever see a complete pending state.
+     */
+    private volatile IRepositoryCache pendingState;
+
+    /**
+     * The on-chain nonce and balance each sender's txs in the pending state
+     * were executed on. Senders for which they are still the same on the next
+     * best block keep their executed txs through the rebase.
+     */
+    private volatile Map<Address, SenderBase> senderBase = new ConcurrentHashMap<>();
+
+    // summaries of the txs executed into the pending state, by tx hash
+    private volatile Map<ByteArrayWrapper, AionTxExecSummary> pendingSummaries = new ConcurrentHashMap<>();
+
+    // txs executed into the pending state while a rebase is building its successor
+    private volatile Queue<AionTransaction> rebaseLog;
 
     private AtomicReference<AionBlock> best;
 
@@ -124,13 +176,24 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
     private Map<byte[], byte[]> backupPendingCacheAdd;
     private Set<byte[]> backupPendingPoolRemove;
 
+    private PendingTxJournal journal;
+
     class TxBuffTask extends TimerTask {
         @Override public void run() {
             processTxBuffer();
         }
     }
 
-    private synchronized void processTxBuffer() {
+    private void processTxBuffer() {
+        stateLock.writeLock().lock();
+        try {
+            processTxBufferImpl();
+        } finally {
+            stateLock.writeLock().unlock();
+        }
+    }
+
+    private void processTxBufferImpl() {
         if (!txBuffer.isEmpty()) {
             List<AionTransaction> txs = new ArrayList<>();
             for (AionTxExecSummary s : txBuffer) {
@@ -143,15 +206,22 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
                 LOG.trace("txBufferSize {} return size {}", txs.size(), newPending.size());
             }
 
-            int cnt = 0;
-            for (AionTxExecSummary summary : txBuffer) {
-                if (newPending.get(cnt) != null && !newPending.get(cnt).equals(summary.getTransaction())) {
+            // the pool returns the pool tx it replaced in place of the new one, and
+            // leaves out the txs it rejected or evicted, so only the hash ties them
+            Set<ByteArrayWrapper> buffered = new HashSet<>();
+            for (AionTransaction tx : txs) {
+                buffered.add(ByteArrayWrapper.wrap(tx.getHash()));
+            }
+
+            for (AionTransaction tx : newPending) {
+                if (tx != null && !buffered.contains(ByteArrayWrapper.wrap(tx.getHash()))) {
                     AionTxReceipt rp = new AionTxReceipt();
-                    rp.setTransaction(newPending.get(cnt));
+                    rp.setTransaction(tx);
                     fireTxUpdate(rp, PendingTransactionState.DROPPED, best.get());
                 }
-                cnt++;
+            }
 
+            for (AionTxExecSummary summary : txBuffer) {
                 fireTxUpdate(summary.getReceipt(), PendingTransactionState.NEW_PENDING, best.get());
             }
 
@@ -161,6 +231,24 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
             }
 
             txBuffer.clear();
+            clearEvicted();
+        }
+    }
+
+    /**
+     * Drop the txs the pool evicted to stay within its budgets. The pending
+     * state still carries their execution until it is rebuilt on the next
+     * best block. The caller holds the state lock, so a backup can't flush and
+     * clear the backup records in between.
+     */
+    private void clearEvicted() {
+        for (AionTransaction tx : this.txPool.getEvictedList()) {
+            if (poolBackUp) {
+                backupPendingPoolRemove.add(tx.getHash().clone());
+            }
+
+            fireTxUpdate(createDroppedReceipt(tx, "Tx was evicted by higher paying transactions"),
+                    PendingTransactionState.DROPPED, best.get());
         }
     }
 
@@ -207,28 +295,71 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
         }
     }
 
-    private synchronized void backupPendingTx() {
-
-        if (!backupPendingPoolAdd.isEmpty()) {
-            repository.addTxBatch(backupPendingPoolAdd, true);
+    private void backupPendingTx() {
+        stateLock.writeLock().lock();
+        try {
+            backupPendingTxImpl();
+        } finally {
+            stateLock.writeLock().unlock();
         }
+    }
 
-        if (!backupPendingCacheAdd.isEmpty()) {
-            repository.addTxBatch(backupPendingCacheAdd, false);
-        }
+    private void backupPendingTxImpl() {
 
-        if (!backupPendingPoolRemove.isEmpty()) {
-            repository.removeTxBatch(backupPendingPoolRemove, true);
+        try {
+            journal.append(backupPendingPoolAdd, backupPendingCacheAdd, backupPendingPoolRemove,
+                    pendingTxCache.getClearTxHash());
+        } catch (IOException e) {
+            // the records stay queued for the next backup, replaying a record twice is harmless
+            LOG.error("Pending tx journal append error {}", e.toString());
+            return;
         }
 
-        repository.removeTxBatch(pendingTxCache.getClearTxHash(), false);
-        repository.flush();
-
         backupPendingPoolAdd.clear();
         backupPendingCacheAdd.clear();
         backupPendingPoolRemove.clear();
         pendingTxCache.clearCacheTxHash();
 
+        if (journal.needsCompaction(txPool.size() + pendingTxCache.cacheTxSize())) {
+            compactJournal();
+        }
+    }
+
+    /**
+     * Rewrite the journal from the current pool and cache content. The caller
+     * holds the write side of the state lock.
+     */
+    private void compactJournal() {
+        long t1 = System.currentTimeMillis();
+
+        Map<byte[], byte[]> pool = new LinkedHashMap<>();
+        for (AionTransaction tx : txPool.snapshotAll()) {
+            pool.put(tx.getHash(), tx.getEncoded());
+        }
+
+        Map<byte[], byte[]> cache = new LinkedHashMap<>();
+        synchronized (pendingTxCache) {
+            for (Address addr : pendingTxCache.getCacheTxAccount()) {
+                Map<BigInteger, AionTransaction> txs = pendingTxCache.geCacheTx(addr);
+                if (txs != null) {
+                    for (AionTransaction tx : txs.values()) {
+                        cache.put(tx.getHash(), tx.getEncoded());
+                    }
+                }
+            }
+        }
+
+        try {
+            journal.rewrite(pool, cache);
+        } catch (IOException e) {
+            LOG.error("Pending tx journal compaction error {}", e.toString());
+            return;
+        }
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Pending tx journal compacted, pool#[{}] cache#[{}] {} ms", pool.size(), cache.size(),
+                    System.currentTimeMillis() - t1);
+        }
     }
 
     public synchronized static AionPendingStateImpl inst() {
@@ -242,6 +373,10 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
     private AionPendingStateImpl(AionRepositoryImpl repository) {
         this.repository = repository;
 
+        for (int i = 0; i < SENDER_LOCK_STRIPES; i++) {
+            senderLocks[i] = new ReentrantLock();
+        }
+
         this.isSeed = CfgAion.inst().getConsensus().isSeed();
 
         if (!isSeed) {
@@ -261,6 +396,9 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
                     String.valueOf(CfgAion.inst().getConsensus().getEnergyStrategy().getUpperBound()));
             prop.put(ITxPool.PROP_BLOCK_SIZE_LIMIT, String.valueOf(Constant.MAX_BLK_SIZE));
             prop.put(ITxPool.PROP_TX_TIMEOUT, "86400");
+            prop.put(ITxPool.PROP_POOL_SIZE_MAX, String.valueOf(MAX_VALIDATED_PENDING_TXS));
+            prop.put(ITxPool.PROP_POOL_BYTES_MAX, String.valueOf(MAX_VALIDATED_PENDING_BYTES));
+            prop.put(ITxPool.PROP_TX_PRICE_BUMP, String.valueOf(CfgAion.inst().getTx().getPriceBump()));
             TxPoolModule txPoolModule;
             try {
                 txPoolModule = TxPoolModule.getSingleton(prop);
@@ -283,7 +421,9 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
 
             this.evtMgr = blockchain.getEventMgr();
             this.poolBackUp = CfgAion.inst().getTx().getPoolBackup();
-            this.pendingTxCache = new PendingTxCache(CfgAion.inst().getTx().getCacheMax(), poolBackUp);
+            // a single account may hold up to 1/16 of the cache budget
+            int cacheMax = CfgAion.inst().getTx().getCacheMax();
+            this.pendingTxCache = new PendingTxCache(cacheMax, Math.max(1, cacheMax >> 4), poolBackUp);
             this.pendingState = repository.startTracking();
 
             this.dumpPool = CfgAion.inst().getTx().getPoolDump();
@@ -299,9 +439,12 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
             }
 
             if (poolBackUp) {
-                this.backupPendingPoolAdd = new HashMap<>();
-                this.backupPendingCacheAdd = new HashMap<>();
-                this.backupPendingPoolRemove = new HashSet<>();
+                this.backupPendingPoolAdd = new ConcurrentHashMap<>();
+                this.backupPendingCacheAdd = new ConcurrentHashMap<>();
+                this.backupPendingPoolRemove = ConcurrentHashMap.newKeySet();
+                this.journal = new PendingTxJournal(
+                        new File(new File(CfgAion.inst().getBasePath(), CfgAion.inst().getDb().getPath()),
+                                "pendingtx.journal"));
 
                 regTxEvents();
                 IHandler txHandler = this.evtMgr.getHandler(IHandler.TYPE.TX0.getValue());
@@ -352,7 +495,7 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
         this.evtMgr.registerEvent(evts);
     }
 
-    @Override public synchronized IRepositoryCache<?, ?, ?> getRepository() {
+    @Override public IRepositoryCache<?, ?, ?> getRepository() {
         // Todo : no class use this method.
         return pendingState;
     }
@@ -361,12 +504,27 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
         return isSeed ? 0 : this.txPool.size();
     }
 
-    @Override public synchronized List<AionTransaction> getPendingTransactions() {
+    @Override public List<AionTransaction> getPendingTransactions() {
         return isSeed ? new ArrayList<>() : this.txPool.snapshot();
 
     }
 
-    public synchronized AionBlock getBestBlock() {
+    @Override public AionTransaction getPendingTxByShortId(long shortId) {
+        return isSeed ? null : this.txPool.getByShortId(shortId);
+    }
+
+    /**
+     * Hands the pending txs to the visitor in the same order as
+     * {@link #getPendingTransactions()}. The txs are the pool's own instances,
+     * the visitor has to copy the ones it keeps.
+     */
+    @Override public void streamPendingTransactions(ITxPool.TxVisitor<AionTransaction> visitor) {
+        if (!isSeed) {
+            this.txPool.streamSnapshot(visitor);
+        }
+    }
+
+    public AionBlock getBestBlock() {
         best.set(blockchain.getBestBlock());
         return best.get();
     }
@@ -375,102 +533,49 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
      * TODO: when we removed libNc, timers were not introduced yet, we must
      * rework the model that libAion uses to work with timers
      */
-    @Override public synchronized List<AionTransaction> addPendingTransaction(AionTransaction tx) {
+    @Override public List<AionTransaction> addPendingTransaction(AionTransaction tx) {
 
         return addPendingTransactions(Collections.singletonList(tx));
     }
 
-    @Override public synchronized List<AionTransaction> addPendingTransactions(List<AionTransaction> transactions) {
+    @Override public List<AionTransaction> addPendingTransactions(List<AionTransaction> transactions) {
 
         if (isSeed) {
             return seedProcess(transactions);
         } else {
+            // the stateless checks (format, energy bounds, signature) run outside of any lock
+            Map<Address, List<AionTransaction>> senderTxs = new LinkedHashMap<>();
+            boolean[] valid = TXValidator.isValid(transactions);
+            for (int i = 0; i < valid.length; i++) {
+                AionTransaction tx = transactions.get(i);
+                if (valid[i]) {
+                    senderTxs.computeIfAbsent(tx.getFrom(), k -> new ArrayList<>()).add(tx);
+                } else {
+                    LOG.error("tx sig does not match with the tx raw data, tx[{}]", tx.toString());
+                }
+            }
+
             List<AionTransaction> newPending = new ArrayList<>();
             List<AionTransaction> newLargeNonceTx = new ArrayList<>();
 
-            for (AionTransaction tx : transactions) {
-                BigInteger txNonce = tx.getNonceBI();
-                BigInteger bestPSNonce = bestPendingStateNonce(tx.getFrom());
-
-                int cmp = txNonce.compareTo(bestPSNonce);
-
-                if (cmp > 0) {
-                    if (!isInTxCache(tx.getFrom(), tx.getNonceBI())) {
-                        newLargeNonceTx.add(tx);
-                        addToTxCache(tx);
-
-                        if (poolBackUp) {
-                            backupPendingCacheAdd.put(tx.getHash(), tx.getEncoded());
-                        }
-
-                        if (LOG.isTraceEnabled()) {
-                            LOG.trace("Adding transaction to cache: from = {}, nonce = {}", tx.getFrom(), txNonce);
-                        }
-                    }
-                } else if (cmp == 0) {
-                    if (txPool.size() > MAX_VALIDATED_PENDING_TXS) {
-
-                        if (!isInTxCache(tx.getFrom(), tx.getNonceBI())) {
-                            newLargeNonceTx.add(tx);
-                            addToTxCache(tx);
-
-                            if (poolBackUp) {
-                                backupPendingCacheAdd.put(tx.getHash(), tx.getEncoded());
-                            }
-
-                            if (LOG.isTraceEnabled()) {
-                                LOG.trace("Adding transaction to cache: from = {}, nonce = {}", tx.getFrom(), txNonce);
-                            }
-                        }
-
-                        continue;
-                    }
-
-                    // TODO: need to implement better cache return Strategy
-                    Map<BigInteger, AionTransaction> cache = pendingTxCache.geCacheTx(tx.getFrom());
-
-                    int limit = 0;
-                    Set<Address> addr = pendingTxCache.getCacheTxAccount();
-                    if (!addr.isEmpty()) {
-                        limit = MAX_TXCACHE_FLUSH_SIZE / addr.size();
-
-                        if (limit == 0) {
-                            limit = 1;
-                        }
-                    }
-
-                    if (LOG.isTraceEnabled()) {
-                        LOG.trace("cache: from {}, size {}", tx.getFrom(), cache.size());
-                    }
-
-                    do {
-                        if (addPendingTransactionImpl(tx, txNonce)) {
-                            newPending.add(tx);
-
-                            if (poolBackUp) {
-                                backupPendingPoolAdd.put(tx.getHash(), tx.getEncoded());
-                            }
-                        } else {
-                            break;
-                        }
-
-                        if (LOG.isTraceEnabled()) {
-                            LOG.trace("cache: from {}, nonce {}", tx.getFrom(), txNonce.toString());
-                        }
-
-                        txNonce = txNonce.add(BigInteger.ONE);
-                    } while (cache != null && (tx = cache.get(txNonce)) != null && (limit-- > 0)
-                            && txPool.size() < MAX_VALIDATED_PENDING_TXS);
-                } else if (bestRepoNonce(tx.getFrom()).compareTo(txNonce) < 1) {
-                    // repay Tx
-                    if (addPendingTransactionImpl(tx, txNonce)) {
-                        newPending.add(tx);
-
-                        if (poolBackUp) {
-                            backupPendingPoolAdd.put(tx.getHash(), tx.getEncoded());
+            stateLock.readLock().lock();
+            try {
+                for (Map.Entry<Address, List<AionTransaction>> e : senderTxs.entrySet()) {
+                    ReentrantLock senderLock = getSenderLock(e.getKey());
+                    senderLock.lock();
+                    try {
+                        for (AionTransaction tx : e.getValue()) {
+                            addPendingTransaction(tx, newPending, newLargeNonceTx);
                         }
+                    } finally {
+                        senderLock.unlock();
                     }
                 }
+
+                // the removals have to reach the backup records before a backup can flush them
+                clearEvicted();
+            } finally {
+                stateLock.readLock().unlock();
             }
 
             if (LOG.isTraceEnabled()) {
@@ -506,10 +611,159 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
         }
     }
 
+    /**
+     * Admit a single tx against the pending state. The caller holds the read
+     * side of the state lock and the lock stripe of the sender.
+     */
+    private void addPendingTransaction(AionTransaction tx, List<AionTransaction> newPending,
+            List<AionTransaction> newLargeNonceTx) {
+        BigInteger txNonce = tx.getNonceBI();
+        BigInteger bestPSNonce = bestPendingStateNonce(tx.getFrom());
+
+        int cmp = txNonce.compareTo(bestPSNonce);
+
+        if (cmp > 0) {
+            if (!isInTxCache(tx.getFrom(), tx.getNonceBI())) {
+                newLargeNonceTx.add(tx);
+                addToTxCache(tx);
+
+                if (poolBackUp) {
+                    backupPendingCacheAdd.put(tx.getHash(), tx.getEncoded());
+                }
+
+                if (LOG.isTraceEnabled()) {
+                    LOG.trace("Adding transaction to cache: from = {}, nonce = {}", tx.getFrom(), txNonce);
+                }
+            }
+        } else if (cmp == 0) {
+            // a full pool only takes the tx if it outbids the lowest paying pool tx, otherwise it waits in the cache;
+            // until it is executed its charge is taken at the least it can cost
+            if (tx.getNrgConsume() == 0) {
+                tx.setNrgConsume(tx.transactionCost(best.get().getNumber()));
+            }
+            if (!txPool.hasRoom(tx)) {
+
+                if (!isInTxCache(tx.getFrom(), tx.getNonceBI())) {
+                    newLargeNonceTx.add(tx);
+                    addToTxCache(tx);
+
+                    if (poolBackUp) {
+                        backupPendingCacheAdd.put(tx.getHash(), tx.getEncoded());
+                    }
+
+                    if (LOG.isTraceEnabled()) {
+                        LOG.trace("Adding transaction to cache: from = {}, nonce = {}", tx.getFrom(), txNonce);
+                    }
+                }
+
+                return;
+            }
+
+            if (!addPendingTransactionImpl(tx, txNonce)) {
+                return;
+            }
+
+            newPending.add(tx);
+            if (poolBackUp) {
+                backupPendingPoolAdd.put(tx.getHash(), tx.getEncoded());
+            }
+
+            // TODO: need to implement better cache return Strategy
+            int limit = 0;
+            int accounts = getCacheTxAccount().size();
+            if (accounts > 0) {
+                limit = MAX_TXCACHE_FLUSH_SIZE / accounts;
+
+                if (limit == 0) {
+                    limit = 1;
+                }
+            }
+
+            limit = Math.min(limit, MAX_VALIDATED_PENDING_TXS - txPool.size());
+            if (limit > 0) {
+                promoteCachedTxs(tx.getFrom(), txNonce.add(BigInteger.ONE), limit, newPending);
+            }
+        } else if (bestRepoNonce(tx.getFrom()).compareTo(txNonce) < 1) {
+            // repay Tx
+            if (addPendingTransactionImpl(tx, txNonce)) {
+                newPending.add(tx);
+
+                if (poolBackUp) {
+                    backupPendingPoolAdd.put(tx.getHash(), tx.getEncoded());
+                }
+            }
+        }
+    }
+
+    /**
+     * Move the run of cached txs that follows a newly admitted tx into the
+     * pool as one batch. The caller holds the read side of the state lock and
+     * the lock stripe of the sender.
+     */
+    private void promoteCachedTxs(Address from, BigInteger nonce, int limit, List<AionTransaction> newPending) {
+        List<AionTransaction> run;
+        synchronized (pendingTxCache) {
+            run = pendingTxCache.getRun(from, nonce, limit);
+        }
+
+        if (run.isEmpty()) {
+            return;
+        }
+
+        // the txs behind a rejected tx can't execute either, they stay in the cache
+        List<AionTransaction> promoted = new ArrayList<>();
+        List<AionTxReceipt> receipts = new ArrayList<>();
+        for (AionTransaction tx : run) {
+            AionTxExecSummary txSum = executeTx(tx, false);
+            if (txSum.isRejected()) {
+                if (LOG.isErrorEnabled()) {
+                    LOG.error("promoteCachedTxs tx is rejected due to: {}", txSum.getReceipt().getError());
+                }
+                break;
+            }
+
+            tx.setNrgConsume(txSum.getReceipt().getEnergyUsed());
+            if (bufferEnable) {
+                txBuffer.add(txSum);
+            } else {
+                receipts.add(txSum.getReceipt());
+            }
+            promoted.add(tx);
+        }
+
+        if (promoted.isEmpty()) {
+            return;
+        }
+
+        synchronized (pendingTxCache) {
+            pendingTxCache.promote(from, nonce, promoted.size());
+        }
+
+        if (!bufferEnable) {
+            this.txPool.add(promoted);
+            for (AionTxReceipt rp : receipts) {
+                fireTxUpdate(rp, PendingTransactionState.NEW_PENDING, best.get());
+            }
+        }
+
+        newPending.addAll(promoted);
+        if (poolBackUp) {
+            for (AionTransaction tx : promoted) {
+                backupPendingPoolAdd.put(tx.getHash(), tx.getEncoded());
+            }
+        }
+
+        if (LOG.isTraceEnabled()) {
+            LOG.trace("promoteCachedTxs: from {}, nonce {}, promoted {}", from, nonce, promoted.size());
+        }
+    }
+
     private List<AionTransaction> seedProcess(List<AionTransaction> transactions) {
         List<AionTransaction> newTx = new ArrayList<>();
-        for (AionTransaction tx : transactions) {
-            if (TXValidator.isValid(tx)) {
+        boolean[] valid = TXValidator.isValid(transactions);
+        for (int i = 0; i < valid.length; i++) {
+            AionTransaction tx = transactions.get(i);
+            if (valid[i]) {
                 newTx.add(tx);
             } else {
                 LOG.error("tx sig does not match with the tx raw data, tx[{}]", tx.toString());
@@ -568,8 +822,7 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
                         tx.getFrom().toString(), txNonce.toString(), Hash256.wrap(tx.getHash()).toString());
                 return false;
             } else {
-                long price = (poolTx.getNrgPrice() << 1);
-                if (price > 0 && price <= tx.getNrgPrice()) {
+                if (txPool.isReplaceable(poolTx, tx)) {
                     txSum = executeTx(tx, true);
                 } else {
                     return false;
@@ -637,14 +890,25 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
         return b1;
     }
 
-    @Override public synchronized void processBest(AionBlock newBlock, List receipts) {
+    @Override public void processBest(AionBlock newBlock, List receipts) {
 
         if (isSeed) {
             // seed mode doesn't need to update the pendingState
             return;
         }
 
-        if (best.get() != null && !best.get().isParentOf(newBlock)) {
+        processBestImpl(newBlock, receipts);
+    }
+
+    /**
+     * Runs on the event thread. Admission keeps going on the current pending
+     * state while its successor is built; only the swap takes the write side
+     * of the state lock.
+     */
+    private void processBestImpl(AionBlock newBlock, List receipts) {
+
+        boolean forked = best.get() != null && !best.get().isParentOf(newBlock);
+        if (forked) {
 
             // need to switch the state to another fork
 
@@ -668,9 +932,6 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
                 rollback = blockchain.getBlockByHash(rollback.getParentHash());
             }
 
-            // rollback the state snapshot to the ancestor
-            pendingState = repository.getSnapshotTo(commonAncestor.getStateRoot()).startTracking();
-
             // next process blocks from new fork
             IAionBlock main = newBlock;
             List<IAionBlock> mainFork = new ArrayList<>();
@@ -694,11 +955,9 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
             processBestInternal(newBlock, receipts);
         }
 
-        best.set(newBlock);
-
-        updateState(best.get());
+        updateState(newBlock, forked);
 
-        txPool.updateBlkNrgLimit(best.get().getNrgLimit());
+        txPool.updateBlkNrgLimit(newBlock.getNrgLimit());
 
         flushCachePendingTx();
 
@@ -718,7 +977,7 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
     }
 
     private void flushCachePendingTx() {
-        Set<Address> cacheTxAccount = this.pendingTxCache.getCacheTxAccount();
+        Set<Address> cacheTxAccount = getCacheTxAccount();
 
         if (cacheTxAccount.isEmpty()) {
             return;
@@ -733,7 +992,10 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
             nonceMap.put(addr, bestPendingStateNonce(addr));
         }
 
-        List<AionTransaction> newPendingTx = this.pendingTxCache.flush(nonceMap);
+        List<AionTransaction> newPendingTx;
+        synchronized (pendingTxCache) {
+            newPendingTx = this.pendingTxCache.flush(nonceMap);
+        }
 
         if (LOG.isTraceEnabled()) {
             LOG.trace("PendingStateImpl.flushCachePendingTx: newPendingTx_size[{}]", newPendingTx.size());
@@ -824,42 +1086,251 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
         return info;
     }
 
-    private List<AionTransaction> updateState(IAionBlock block) {
+    /**
+     * Rebase the pending state onto the new best block. The new state is built
+     * off to the side while admission goes on against the current one; the
+     * txs admitted in the meantime are replayed onto it before it is published
+     * under a short write section. Only the txs of senders whose on-chain
+     * nonce or balance changed are executed again.
+     *
+     * @param forked the new best block is on another branch, every pending tx
+     *               is executed again
+     */
+    private List<AionTransaction> updateState(IAionBlock block, boolean forked) {
 
-        pendingState = repository.startTracking();
+        // every tx executed from here on against the current state is logged; the
+        // ones executed before are in the pool once the write lock is granted
+        stateLock.writeLock().lock();
+        try {
+            if (bufferEnable) {
+                processTxBufferImpl();
+            }
+            rebaseLog = new ConcurrentLinkedQueue<>();
+        } finally {
+            stateLock.writeLock().unlock();
+        }
+
+        IRepositoryCache newState = repository.startTracking();
 
-        processTxBuffer();
         List<AionTransaction> pendingTxl = this.txPool.snapshotAll();
-        List<AionTransaction> rtn = new ArrayList<>();
+
+        Map<Address, SenderBase> newBase = new ConcurrentHashMap<>();
+        Set<Address> touched = touchedSenders(repository, pendingTxl, senderBase, newBase);
+        if (forked) {
+            touched = null;
+        }
+
+        List<AionTxExecSummary> summaries = rebaseState(newState, block, pendingTxl, pendingSummaries, touched);
+
         if (LOG.isInfoEnabled()) {
-            LOG.info("updateState - snapshotAll tx[{}]", pendingTxl.size());
+            LOG.info("updateState - snapshotAll tx[{}] senders[{}] re-executed senders[{}]", pendingTxl.size(),
+                    newBase.size(), touched == null ? newBase.size() : touched.size());
         }
-        for (AionTransaction tx : pendingTxl) {
-            if (LOG.isTraceEnabled()) {
-                LOG.trace("updateState - loop: " + tx.toString());
+
+        Map<ByteArrayWrapper, AionTxExecSummary> newSummaries = new ConcurrentHashMap<>();
+        List<AionTransaction> rtn = new ArrayList<>();
+        for (int i = 0; i < pendingTxl.size(); i++) {
+            AionTransaction tx = pendingTxl.get(i);
+            if (applyRebased(tx, summaries.get(i), block, newSummaries)) {
+                rtn.add(tx);
             }
+        }
 
-            AionTxExecSummary txSum = executeTx(tx, false);
-            AionTxReceipt receipt = txSum.getReceipt();
-            receipt.setTransaction(tx);
+        stateLock.writeLock().lock();
+        try {
+            Queue<AionTransaction> admitted = rebaseLog;
+            rebaseLog = null;
 
-            if (txSum.isRejected()) {
-                LOG.warn("Invalid transaction in txpool: {}", tx);
-                txPool.remove(Collections.singletonList(tx));
+            for (AionTransaction tx : admitted) {
+                ByteArrayWrapper hash = ByteArrayWrapper.wrap(tx.getHash());
+                if (newSummaries.containsKey(hash)) {
+                    continue;
+                }
 
-                if (poolBackUp) {
-                    backupPendingPoolRemove.add(tx.getHash().clone());
+                newBase.computeIfAbsent(tx.getFrom(), a -> new SenderBase(repository, a));
+                // a same nonce replacement runs on top of the tx it replaced
+                boolean replaced = newState.getNonce(tx.getFrom()).compareTo(tx.getNonceBI()) > 0;
+                if (applyRebased(tx, executeTx(tx, replaced, block, newState), block, newSummaries)) {
+                    rtn.add(tx);
                 }
-                fireTxUpdate(receipt, PendingTransactionState.DROPPED, block);
-            } else {
-                fireTxUpdate(receipt, PendingTransactionState.PENDING, block);
-                rtn.add(tx);
             }
+
+            synchronized (mergeLock) {
+                mergedAt.clear();
+            }
+
+            pendingState = newState;
+            senderBase = newBase;
+            pendingSummaries = newSummaries;
+            best.set((AionBlock) block);
+        } finally {
+            stateLock.writeLock().unlock();
         }
 
         return rtn;
     }
 
+    /**
+     * Keep the rebased tx, or drop it from the pool if it can no longer execute.
+     *
+     * @return true if the tx stays pending
+     */
+    private boolean applyRebased(AionTransaction tx, AionTxExecSummary txSum, IAionBlock block,
+            Map<ByteArrayWrapper, AionTxExecSummary> summaries) {
+        AionTxReceipt receipt = txSum.getReceipt();
+        receipt.setTransaction(tx);
+
+        if (txSum.isRejected()) {
+            LOG.warn("Invalid transaction in txpool: {}", tx);
+            txPool.remove(Collections.singletonList(tx));
+
+            if (poolBackUp) {
+                backupPendingPoolRemove.add(tx.getHash().clone());
+            }
+            fireTxUpdate(receipt, PendingTransactionState.DROPPED, block);
+            return false;
+        }
+
+        summaries.put(ByteArrayWrapper.wrap(tx.getHash()), txSum);
+        fireTxUpdate(receipt, PendingTransactionState.PENDING, block);
+        return true;
+    }
+
+    /**
+     * The on-chain nonce and balance of a sender.
+     */
+    static final class SenderBase {
+        private final BigInteger nonce;
+        private final BigInteger balance;
+
+        SenderBase(IRepository repo, Address addr) {
+            this.nonce = repo.getNonce(addr);
+            this.balance = repo.getBalance(addr);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof SenderBase)) {
+                return false;
+            }
+            SenderBase sb = (SenderBase) o;
+            return nonce.equals(sb.nonce) && balance.equals(sb.balance);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(nonce, balance);
+        }
+    }
+
+    /**
+     * Collect the senders of txs whose on-chain nonce or balance is not the
+     * one their pending txs were executed on.
+     *
+     * @param recorded the base of each sender at execution
+     * @param base     takes the current base of each sender
+     */
+    static Set<Address> touchedSenders(IRepository repo, List<AionTransaction> txs,
+            Map<Address, SenderBase> recorded, Map<Address, SenderBase> base) {
+        Set<Address> touched = new HashSet<>();
+        for (AionTransaction tx : txs) {
+            SenderBase sb = base.computeIfAbsent(tx.getFrom(), a -> new SenderBase(repo, a));
+            if (!sb.equals(recorded.get(tx.getFrom()))) {
+                touched.add(tx.getFrom());
+            }
+        }
+        return touched;
+    }
+
+    /**
+     * Execute the pending txs on top of a new base state. The txs of the
+     * senders in touched, and of every sender with a tx that runs contract
+     * code or has no previous summary, run through the VM again in pool order,
+     * so they see the effects of the pending txs they depend on the same way
+     * the block including them will. The txs of every other sender are carried
+     * over from their previous summary: the nonce, the value to the recipient
+     * and the fee to the coinbase are applied without executing them. If a
+     * carried tx is out of nonce order on the new state, or a carried sender
+     * ends up short of funds because a tx it was paid by is now rejected,
+     * every tx is executed again.
+     *
+     * @param state tracking cache of the new base state, takes the effects of
+     *              the txs that are not rejected
+     * @param previous summaries of the txs as executed on the previous state, by hash
+     * @param touched senders whose on-chain nonce or balance changed, null for all
+     * @return the execution summaries, in the order of txs; a carried tx keeps
+     *         its previous summary
+     */
+    static List<AionTxExecSummary> rebaseState(IRepositoryCache state, IAionBlock best,
+            List<AionTransaction> txs, Map<ByteArrayWrapper, AionTxExecSummary> previous, Set<Address> touched) {
+
+        AionTxExecSummary[] rtn = new AionTxExecSummary[txs.size()];
+        Set<Address> rerun = new HashSet<>();
+        Set<Address> carried = new HashSet<>();
+        for (int i = 0; i < rtn.length; i++) {
+            AionTransaction tx = txs.get(i);
+            rtn[i] = previous.get(ByteArrayWrapper.wrap(tx.getHash()));
+            if (touched == null || touched.contains(tx.getFrom()) || rtn[i] == null || rtn[i].isRejected()
+                    || runsCode(tx, state)) {
+                rerun.add(tx.getFrom());
+            }
+        }
+
+        IRepositoryCache track = state.startTracking();
+        for (int i = 0; i < rtn.length; i++) {
+            AionTransaction tx = txs.get(i);
+            if (!rerun.contains(tx.getFrom())) {
+                if (track.getNonce(tx.getFrom()).compareTo(tx.getNonceBI()) != 0) {
+                    track.rollback();
+                    return rebaseState(state, best, txs, previous, null);
+                }
+                carryTx(track, best, tx, rtn[i]);
+                carried.add(tx.getFrom());
+            }
+        }
+
+        for (int i = 0; i < rtn.length; i++) {
+            AionTransaction tx = txs.get(i);
+            if (rerun.contains(tx.getFrom())) {
+                if (LOG.isTraceEnabled()) {
+                    LOG.trace("updateState - loop: " + tx.toString());
+                }
+                rtn[i] = executeTx(tx, false, best, track);
+            }
+        }
+
+        for (Address addr : carried) {
+            if (track.getBalance(addr).signum() < 0) {
+                track.rollback();
+                return rebaseState(state, best, txs, previous, null);
+            }
+        }
+
+        track.flush();
+        return Arrays.asList(rtn);
+    }
+
+    /**
+     * @return true if the tx creates a contract or calls one
+     */
+    private static boolean runsCode(AionTransaction tx, IRepositoryCache state) {
+        return tx.isContractCreation() || state.getCode(tx.getTo()).length > 0;
+    }
+
+    /**
+     * Apply a plain transfer the way its previous execution did.
+     */
+    private static void carryTx(IRepositoryCache state, IAionBlock best, AionTransaction tx,
+            AionTxExecSummary txSum) {
+        BigInteger fee = txSum.getFee();
+        BigInteger value = txSum.isFailed() ? BigInteger.ZERO : new BigInteger(1, tx.getValue());
+
+        state.incrementNonce(tx.getFrom());
+        state.addBalance(tx.getFrom(), fee.add(value).negate());
+        state.addBalance(tx.getTo(), value);
+        state.addBalance(best.getCoinbase(), fee);
+    }
+
     private Set<Address> getTxsAccounts(List<AionTransaction> txn) {
         Set<Address> rtn = new HashSet<>();
         for (AionTransaction tx : txn) {
@@ -871,14 +1342,61 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
     }
 
     private AionTxExecSummary executeTx(AionTransaction tx, boolean inPool) {
+        senderBase.computeIfAbsent(tx.getFrom(), a -> new SenderBase(repository, a));
 
+        IRepositoryCache state = pendingState;
         IAionBlock bestBlk = best.get();
 
+        AionTxExecSummary txSum = null;
+        if (!runsCode(tx, state)) {
+            PendingStateTrack track;
+            synchronized (mergeLock) {
+                track = new PendingStateTrack(state, mergeVersion);
+            }
+
+            txSum = executeTx(tx, inPool, bestBlk, track);
+
+            if (!txSum.isRejected()) {
+                synchronized (mergeLock) {
+                    if (track.merge(mergedAt, mergeVersion + 1)) {
+                        mergeVersion++;
+                    } else {
+                        // the track read an account a concurrent merge changed, run it again in turn
+                        txSum = null;
+                    }
+                }
+            }
+        }
+
+        if (txSum == null) {
+            synchronized (mergeLock) {
+                PendingStateTrack track = new PendingStateTrack(state, mergeVersion);
+                txSum = executeTx(tx, inPool, bestBlk, track);
+                if (!txSum.isRejected()) {
+                    track.merge(mergedAt, ++mergeVersion);
+                }
+            }
+        }
+
+        if (!txSum.isRejected()) {
+            pendingSummaries.put(ByteArrayWrapper.wrap(tx.getHash()), txSum);
+
+            Queue<AionTransaction> log = rebaseLog;
+            if (log != null) {
+                log.add(tx);
+            }
+        }
+        return txSum;
+    }
+
+    private static AionTxExecSummary executeTx(AionTransaction tx, boolean inPool, IAionBlock bestBlk,
+            IRepositoryCache state) {
+
         if (LOG.isTraceEnabled()) {
             LOG.trace("executeTx: {}", Hex.toHexString(tx.getHash()));
         }
 
-        TransactionExecutor executor = new TransactionExecutor(tx, bestBlk, pendingState);
+        TransactionExecutor executor = new TransactionExecutor(tx, bestBlk, state);
 
         if (inPool) {
             executor.setBypassNonce(true);
@@ -887,7 +1405,7 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
         return executor.execute();
     }
 
-    @Override public synchronized BigInteger bestPendingStateNonce(Address addr) {
+    @Override public BigInteger bestPendingStateNonce(Address addr) {
         return isSeed ? BigInteger.ZERO : this.pendingState.getNonce(addr);
     }
 
@@ -895,12 +1413,33 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
         return this.repository.getNonce(addr);
     }
 
+    private ReentrantLock getSenderLock(Address addr) {
+        return senderLocks[(addr.hashCode() & Integer.MAX_VALUE) % SENDER_LOCK_STRIPES];
+    }
+
+    // the PendingTxCache is not thread safe, admission of different senders shares it
     private void addToTxCache(AionTransaction tx) {
-        this.pendingTxCache.addCacheTx(tx);
+        synchronized (pendingTxCache) {
+            this.pendingTxCache.addCacheTx(tx);
+        }
     }
 
     private boolean isInTxCache(Address addr, BigInteger nonce) {
-        return this.pendingTxCache.isInCache(addr, nonce);
+        synchronized (pendingTxCache) {
+            return this.pendingTxCache.isInCache(addr, nonce);
+        }
+    }
+
+    private Map<BigInteger, AionTransaction> getCacheTx(Address addr) {
+        synchronized (pendingTxCache) {
+            return new TreeMap<>(this.pendingTxCache.geCacheTx(addr));
+        }
+    }
+
+    private Set<Address> getCacheTxAccount() {
+        synchronized (pendingTxCache) {
+            return this.pendingTxCache.getCacheTxAccount();
+        }
     }
 
     @Override public void shutDown() {
@@ -911,9 +1450,17 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
         if (ees != null) {
             ees.shutdown();
         }
+
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                LOG.error("Pending tx journal close error {}", e.toString());
+            }
+        }
     }
 
-    @Override public synchronized void DumpPool() {
+    @Override public void DumpPool() {
         List<AionTransaction> txn = txPool.snapshotAll();
         Set<Address> addrs = new HashSet<>();
         LOG.info("");
@@ -938,9 +1485,9 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
 
         LOG.info("");
         LOG.info("=========== Cache pending tx");
-        Set<Address> cacheAddr = pendingTxCache.getCacheTxAccount();
+        Set<Address> cacheAddr = getCacheTxAccount();
         for (Address addr : cacheAddr) {
-            Map<BigInteger, AionTransaction> cacheMap = pendingTxCache.geCacheTx(addr);
+            Map<BigInteger, AionTransaction> cacheMap = getCacheTx(addr);
             if (cacheMap != null) {
                 for (AionTransaction tx : cacheMap.values()) {
                     LOG.info("{}", tx.toString());
@@ -965,88 +1512,91 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
 
     @Override public void loadPendingTx() {
 
+        if (isSeed || journal == null) {
+            return;
+        }
+
+        LOG.info("pendingTx loading");
+        long t1 = System.currentTimeMillis();
+
+        List<byte[]> pendingPoolTxBytes;
+        List<byte[]> pendingCacheTxBytes;
+        if (journal.exists()) {
+            Map<ByteArrayWrapper, byte[]> pool = new LinkedHashMap<>();
+            Map<ByteArrayWrapper, byte[]> cache = new LinkedHashMap<>();
+            journal.load(pool, cache);
+            pendingPoolTxBytes = new ArrayList<>(pool.values());
+            pendingCacheTxBytes = new ArrayList<>(cache.values());
+        } else {
+            // first start after the upgrade, the backup still lives in the pendingtx database
+            pendingPoolTxBytes = repository.getPoolTx();
+            pendingCacheTxBytes = repository.getCacheTx();
+        }
+
         loadPendingTx = true;
-        recoverPool();
-        recoverCache();
+        recoverPool(pendingPoolTxBytes);
+        recoverCache(pendingCacheTxBytes);
         loadPendingTx = false;
 
-    }
-
-    private void recoverCache() {
+        // the recovered txs are already on disk, start the journal over from what got admitted
+        stateLock.writeLock().lock();
+        try {
+            backupPendingPoolAdd.clear();
+            backupPendingCacheAdd.clear();
+            backupPendingPoolRemove.clear();
+            pendingTxCache.clearCacheTxHash();
+            compactJournal();
+        } finally {
+            stateLock.writeLock().unlock();
+        }
 
-        LOG.info("pendingCacheTx loading from DB");
-        long t1 = System.currentTimeMillis();
-        List<byte[]> pendingCacheTxBytes = repository.getCacheTx();
+        LOG.info("pendingTx loaded, pool#[{}] cache#[{}] {} ms", txPool.size(), pendingTxCache.cacheTxSize(),
+                System.currentTimeMillis() - t1);
+    }
 
-        List<AionTransaction> pendingTx = new ArrayList<>();
-        for (byte[] b : pendingCacheTxBytes) {
+    private static Map<Address, SortedMap<BigInteger, AionTransaction>> decodeBySender(List<byte[]> encoded) {
+        List<AionTransaction> txs = encoded.parallelStream().map(b -> {
             try {
-                pendingTx.add(new AionTransaction(b));
+                AionTransaction tx = new AionTransaction(b);
+                // force the rlp decode and the sender recovery while still in parallel
+                tx.getFrom();
+                return tx;
             } catch (Throwable e) {
-                LOG.error("loadingPendingCacheTx error {}", e.toString());
+                LOG.error("loadingPendingTx error {}", e.toString());
+                return null;
             }
-        }
+        }).filter(Objects::nonNull).collect(Collectors.toList());
 
         Map<Address, SortedMap<BigInteger, AionTransaction>> sortedMap = new HashMap<>();
-        for (AionTransaction tx : pendingTx) {
-            if (sortedMap.get(tx.getFrom()) == null) {
-                SortedMap<BigInteger, AionTransaction> accountSortedMap = new TreeMap<>();
-                accountSortedMap.put(tx.getNonceBI(), tx);
-
-                sortedMap.put(tx.getFrom(), accountSortedMap);
-            } else {
-                sortedMap.get(tx.getFrom()).put(tx.getNonceBI(), tx);
-            }
+        for (AionTransaction tx : txs) {
+            sortedMap.computeIfAbsent(tx.getFrom(), k -> new TreeMap<>()).put(tx.getNonceBI(), tx);
         }
+        return sortedMap;
+    }
+
+    private void recoverCache(List<byte[]> pendingCacheTxBytes) {
 
         int cnt = 0;
-        for (Map.Entry<Address, SortedMap<BigInteger, AionTransaction>> e : sortedMap.entrySet()) {
-            for (AionTransaction tx : e.getValue().values()) {
-                pendingTxCache.addCacheTx(tx);
+        for (SortedMap<BigInteger, AionTransaction> accountTxs : decodeBySender(pendingCacheTxBytes).values()) {
+            for (AionTransaction tx : accountTxs.values()) {
+                addToTxCache(tx);
                 cnt++;
             }
         }
 
-        long t2 = System.currentTimeMillis() - t1;
-        LOG.info("{} pendingCacheTx loaded from DB into the pendingCache, {} ms", cnt, t2);
+        LOG.info("{} pendingCacheTx loaded into the pendingCache", cnt);
     }
 
-    private void recoverPool() {
-
-        LOG.info("pendingPoolTx loading from DB");
-        long t1 = System.currentTimeMillis();
-        List<byte[]> pendingPoolTxBytes = repository.getPoolTx();
-
-        List<AionTransaction> pendingTx = new ArrayList<>();
-        for (byte[] b : pendingPoolTxBytes) {
-            try {
-                pendingTx.add(new AionTransaction(b));
-            } catch (Throwable e) {
-                LOG.error("loadingCachePendingTx error {}", e.toString());
-            }
-        }
-
-        Map<Address, SortedMap<BigInteger, AionTransaction>> sortedMap = new HashMap<>();
-        for (AionTransaction tx : pendingTx) {
-            if (sortedMap.get(tx.getFrom()) == null) {
-                SortedMap<BigInteger, AionTransaction> accountSortedMap = new TreeMap<>();
-                accountSortedMap.put(tx.getNonceBI(), tx);
-
-                sortedMap.put(tx.getFrom(), accountSortedMap);
-            } else {
-                sortedMap.get(tx.getFrom()).put(tx.getNonceBI(), tx);
-            }
-        }
+    private void recoverPool(List<byte[]> pendingPoolTxBytes) {
 
         List<AionTransaction> pendingPoolTx = new ArrayList<>();
-
-        for (Map.Entry<Address, SortedMap<BigInteger, AionTransaction>> e : sortedMap.entrySet()) {
-            pendingPoolTx.addAll(e.getValue().values());
+        for (SortedMap<BigInteger, AionTransaction> accountTxs : decodeBySender(pendingPoolTxBytes).values()) {
+            pendingPoolTx.addAll(accountTxs.values());
         }
 
+        // loadPendingTx keeps addPendingTransactions from re-broadcasting the recovered txs
         addPendingTransactions(pendingPoolTx);
-        long t2 = System.currentTimeMillis() - t1;
-        LOG.info("{} pendingPoolTx loaded from DB loaded into the txpool, {} ms", pendingPoolTx.size(), t2);
+        LOG.info("{} pendingPoolTx loaded into the txpool", pendingPoolTx.size());
     }
 
     @Override public String getVersion() {
@@ -0,0 +1,159 @@
+/*******************************************************************************
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ *
+ ******************************************************************************/
+
+package org.aion.zero.impl.blockchain;
+
+import org.aion.base.db.IContractDetails;
+import org.aion.base.db.IRepositoryCache;
+import org.aion.base.type.Address;
+import org.aion.mcf.core.AccountState;
+import org.aion.mcf.vm.types.DataWord;
+import org.aion.zero.db.AionRepositoryCache;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tracking cache a single admitted tx is executed against, on top of the
+ * pending state. It remembers every account as it was when first loaded, so
+ * that it can be merged into the pending state even if other merges changed
+ * some of the same accounts in the meantime, as long as this tx only moved
+ * their balance (a transfer recipient, the coinbase).
+ */
+final class PendingStateTrack extends AionRepositoryCache {
+
+    private final IRepositoryCache pendingState;
+
+    private final long version;
+
+    // the accounts as this track first loaded them from the pending state
+    private final Map<Address, AccountState> origins = new HashMap<>();
+
+    /**
+     * @param pendingState the pending state
+     * @param version the merge version of the pending state when the track is opened
+     */
+    PendingStateTrack(final IRepositoryCache pendingState, long version) {
+        super(pendingState);
+        this.pendingState = pendingState;
+        this.version = version;
+    }
+
+    @Override
+    public AccountState createAccount(Address address) {
+        loadOrigin(address);
+        return super.createAccount(address);
+    }
+
+    @Override
+    public AccountState getAccountState(Address address) {
+        loadOrigin(address);
+        return super.getAccountState(address);
+    }
+
+    @Override
+    public IContractDetails<DataWord> getContractDetails(Address address) {
+        loadOrigin(address);
+        return super.getContractDetails(address);
+    }
+
+    @Override
+    public void loadAccountState(Address address, Map<Address, AccountState> accounts,
+            Map<Address, IContractDetails<DataWord>> details) {
+        loadOrigin(address);
+        super.loadAccountState(address, accounts, details);
+    }
+
+    private void loadOrigin(Address address) {
+        if (origins.containsKey(address)) {
+            return;
+        }
+
+        Map<Address, AccountState> accounts = new HashMap<>();
+        Map<Address, IContractDetails<DataWord>> details = new HashMap<>();
+        repository.loadAccountState(address, accounts, details);
+
+        fullyWriteLock();
+        try {
+            cachedAccounts.put(address, accounts.get(address));
+            cachedDetails.put(address, details.get(address));
+        } finally {
+            fullyWriteUnlock();
+        }
+        origins.put(address, new AccountState(accounts.get(address)));
+    }
+
+    /**
+     * Flush into the pending state. An account another merge wrote since this
+     * track was opened is only combined with it when this track did nothing
+     * but move its balance; the balance difference is then added on top. The
+     * caller holds the merge lock of the pending state.
+     *
+     * @param mergedAt the version of the merge that last wrote each account,
+     *                 updated with the accounts of this merge
+     * @param mergeVersion the version of this merge
+     * @return false if an account was changed in a way that can't be combined,
+     *         nothing is written then
+     */
+    boolean merge(Map<Address, Long> mergedAt, long mergeVersion) {
+        Map<Address, BigInteger> credits = new HashMap<>();
+        for (Map.Entry<Address, AccountState> e : cachedAccounts.entrySet()) {
+            Long at = mergedAt.get(e.getKey());
+            if (at == null || at <= version) {
+                continue;
+            }
+
+            AccountState origin = origins.get(e.getKey());
+            AccountState account = e.getValue();
+            IContractDetails<DataWord> details = cachedDetails.get(e.getKey());
+            if (origin == null || (details != null && details.isDirty())
+                    || account.isDeleted() != origin.isDeleted()
+                    || !account.getNonce().equals(origin.getNonce())
+                    || !Arrays.equals(account.getCodeHash(), origin.getCodeHash())) {
+                return false;
+            }
+            credits.put(e.getKey(), account.getBalance().subtract(origin.getBalance()));
+        }
+
+        for (Address addr : cachedAccounts.keySet()) {
+            mergedAt.put(addr, mergeVersion);
+        }
+
+        for (Address addr : credits.keySet()) {
+            cachedAccounts.remove(addr);
+            cachedDetails.remove(addr);
+        }
+
+        flush();
+
+        for (Map.Entry<Address, BigInteger> e : credits.entrySet()) {
+            if (e.getValue().signum() != 0) {
+                pendingState.addBalance(e.getKey(), e.getValue());
+            }
+        }
+        return true;
+    }
+}
@@ -28,61 +28,116 @@ import org.aion.base.type.Address;
 import org.aion.log.AionLoggerFactory;
 import org.aion.log.LogEnum;
 import org.aion.zero.types.AionTransaction;
-import org.apache.commons.collections4.map.LRUMap;
 import org.slf4j.Logger;
 
 import java.math.BigInteger;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Future nonce txs waiting for their gap to close. The cache is bounded by a
+ * global memory budget, a per-account memory budget and an account count.
+ * Accounts are kept in LRU order of their last added tx; when the global
+ * budget runs out the least recently used accounts give up their highest
+ * nonce txs first.
+ */
 public class PendingTxCache {
 
-    private Map<Address, TreeMap<BigInteger, AionTransaction>> cacheTxMap;
-    private Map<Address, Integer> cachedAccountSize;
+    private static final class AccountTxs {
+        private final TreeMap<BigInteger, AionTransaction> txs = new TreeMap<>();
+        private int size;
+    }
+
+    /**
+     * Insertion ordered, an account is moved to the tail whenever it gets a
+     * tx, so the head is always the least recently used account.
+     */
+    private final LinkedHashMap<Address, AccountTxs> cacheTxMap = new LinkedHashMap<>();
     protected static final Logger LOG = AionLoggerFactory.getLogger(LogEnum.TX.name());
-    private static int CacheMax;
-    private AtomicInteger currentSize = new AtomicInteger(0);
+    private final int cacheMax;
+    private final int accountMax;
+    private int currentSize;
+    private int currentTxSize;
     private int cacheAccountLimit = 100_000;
 
     private Set<byte[]> cacheClearTxHash;
     private boolean isPoolBackup;
 
     PendingTxCache() {
-        CacheMax = 256 * 100_000; //25.6MB
-        cacheTxMap = new LRUMap<>(cacheAccountLimit);
-        cachedAccountSize = new LRUMap<>(cacheAccountLimit);
+        this.cacheMax = 256 * 100_000; //25.6MB
+        this.accountMax = cacheMax;
         cacheClearTxHash = new HashSet<>();
         this.isPoolBackup = true;
     }
 
     PendingTxCache(final int cacheMax) {
-        cacheTxMap = new LRUMap<>(cacheAccountLimit);
-        cachedAccountSize = new LRUMap<>(cacheAccountLimit);
-        PendingTxCache.CacheMax = cacheMax * 100_000;
-        cacheClearTxHash = new HashSet<>();
-        this.isPoolBackup = true;
+        this(cacheMax, true);
     }
 
     PendingTxCache(final int cacheMax, boolean poolBackup) {
-        cacheTxMap = new LRUMap<>(cacheAccountLimit);
-        cachedAccountSize = new LRUMap<>(cacheAccountLimit);
-        PendingTxCache.CacheMax = cacheMax * 100_000;
+        this(cacheMax, cacheMax, poolBackup);
+    }
+
+    /**
+     * @param cacheMax the global budget, by 0.1M
+     * @param accountMax the budget of a single account, by 0.1M
+     * @param poolBackup tracks the removed txs for the pool backup
+     */
+    PendingTxCache(final int cacheMax, final int accountMax, boolean poolBackup) {
+        this.cacheMax = cacheMax * 100_000;
+        this.accountMax = Math.min(accountMax, cacheMax) * 100_000;
         this.isPoolBackup = poolBackup;
         if (isPoolBackup) {
             cacheClearTxHash = new HashSet<>();
         }
     }
 
-    private int getAccountSize(Address addr) {
-        return cachedAccountSize.get(addr) == null ? 0 : cachedAccountSize.get(addr);
+    private static int sizeOf(AionTransaction tx) {
+        return tx.getEncoded().length;
     }
 
-    private boolean isCacheMax(int txSize) {
+    private void touch(Address addr, AccountTxs acc) {
+        cacheTxMap.remove(addr);
+        cacheTxMap.put(addr, acc);
+    }
 
-        if (LOG.isTraceEnabled()) {
-            LOG.trace("isCacheMax [{}] [{}]", currentSize.get(), txSize);
+    private void removeTx(Address addr, AccountTxs acc, BigInteger nonce) {
+        AionTransaction remove = acc.txs.remove(nonce);
+        if (remove != null) {
+            int txSize = sizeOf(remove);
+            acc.size -= txSize;
+            currentSize -= txSize;
+            currentTxSize--;
+            if (isPoolBackup) {
+                cacheClearTxHash.add(remove.getHash().clone());
+            }
+        }
+
+        if (acc.txs.isEmpty()) {
+            cacheTxMap.remove(addr);
+        }
+    }
+
+    private void removeAccount(Address addr, AccountTxs acc) {
+        while (!acc.txs.isEmpty()) {
+            removeTx(addr, acc, acc.txs.lastKey());
+        }
+    }
+
+    /**
+     * Collect the txs of the account above the given nonce, highest nonce
+     * first, until the given size is released or the txs run out.
+     */
+    private static List<BigInteger> collectHigherNonces(AccountTxs acc, BigInteger nonce, long release) {
+        List<BigInteger> removeTx = new ArrayList<>();
+        long released = 0;
+        for (Map.Entry<BigInteger, AionTransaction> e : acc.txs.descendingMap().entrySet()) {
+            if (released >= release || e.getKey().compareTo(nonce) <= 0) {
+                break;
+            }
+            removeTx.add(e.getKey());
+            released += sizeOf(e.getValue());
         }
-        return (currentSize.get() + txSize) > CacheMax;
+        return removeTx;
     }
 
     void addCacheTx(AionTransaction tx) {
@@ -90,131 +145,110 @@ public class PendingTxCache {
             throw new NullPointerException();
         }
 
-        int txSize = tx.getEncoded().length;
-        if (isCacheMax(txSize)) {
+        Address from = tx.getFrom();
+        BigInteger nonce = tx.getNonceBI();
+        int txSize = sizeOf(tx);
+
+        AccountTxs acc = cacheTxMap.get(from);
+        AionTransaction old = acc == null ? null : acc.txs.get(nonce);
+        int sizeDiff = old == null ? txSize : txSize - sizeOf(old);
+
+        // the sizes to release so that the new tx fits strictly below each budget
+        int accSize = acc == null ? 0 : acc.size;
+        long accRelease = Math.max(0, (long) accSize + sizeDiff - accountMax + 1);
+        long release = (long) currentSize + sizeDiff > cacheMax ? (long) currentSize + sizeDiff - cacheMax + 1 : 0;
+
+        // the account's own higher nonce txs go first, they are the furthest from being executable
+        List<BigInteger> removeTx = acc == null
+                ? Collections.emptyList()
+                : collectHigherNonces(acc, nonce, Math.max(accRelease, release));
+        long released = 0;
+        for (BigInteger n : removeTx) {
+            released += sizeOf(acc.txs.get(n));
+        }
+
+        if (released < accRelease) {
+            if (LOG.isTraceEnabled()) {
+                LOG.trace("PendingTx reached the max account Memory settings");
+            }
+            return;
+        }
+
+        if (released < release) {
             if (LOG.isTraceEnabled()) {
                 LOG.trace("PendingTx reached the max Memory settings");
             }
 
-            if (cacheTxMap.get(tx.getFrom()) == null) {
-                // no tx belong to the account, return directly
+            if (currentSize - accSize < release - released) {
+                // the other accounts can't make up the difference, keep the cache as it is
                 return;
-            } else {
-                // calculate replaced nonce tx size
-                BigInteger nonce = tx.getNonceBI();
-                List<BigInteger> removeTx;
-                boolean findPosition = false;
-
-                removeTx = new ArrayList<>();
-                int tempCacheSize = currentSize.get();
-                if (cacheTxMap.get(tx.getFrom()).get(nonce) != null) {
-                    // case 1: found tx has same nonce in the cachemap
-                    removeTx.add(nonce);
-                    int oldTxSize = cacheTxMap.get(tx.getFrom()).get(nonce).getEncoded().length;
-                    tempCacheSize -= oldTxSize;
-                    if (!isCacheMax(txSize - oldTxSize)) {
-                        //case 1a: replace nonce within the cachelimit, replace it
-                        findPosition = true;
-                    } else {
-                        //case 1b: replace nonce still over the cachelimit, replace it and find the best remove list
-                        for (Map.Entry<BigInteger, AionTransaction> e : cacheTxMap.get(tx.getFrom()).descendingMap()
-                                .entrySet()) {
-                            if (e.getKey().compareTo(nonce) > 0) {
-                                removeTx.add(e.getKey());
-                                tempCacheSize -= e.getValue().getEncoded().length;
-                                if (tempCacheSize + txSize < CacheMax) {
-                                    findPosition = true;
-                                    break;
-                                }
-                            }
-                        }
-                    }
-                } else {
-                    // case 2: backward iterate the cache to remove bigger nonce tx until find the enough cache size
-                    for (Map.Entry<BigInteger, AionTransaction> e : cacheTxMap.get(tx.getFrom()).descendingMap()
-                            .entrySet()) {
-                        if (e.getKey().compareTo(nonce) > 0) {
-                            removeTx.add(e.getKey());
-                            tempCacheSize -= e.getValue().getEncoded().length;
-                            if (tempCacheSize + txSize < CacheMax) {
-                                findPosition = true;
-                                break;
-                            }
-                        }
-                    }
-                }
-
-                if (findPosition) {
-                    for (BigInteger bi : removeTx) {
-                        AionTransaction remove = cacheTxMap.get(tx.getFrom()).get(bi);
-                        if (isPoolBackup) {
-                            cacheClearTxHash.add(remove.getHash().clone());
-                        }
-
-                        subAccountSize(remove.getFrom(), remove.getEncoded().length);
-                        cacheTxMap.get(tx.getFrom()).remove(bi);
-                    }
+            }
 
-                    cacheTxMap.get(tx.getFrom()).put(nonce, tx);
-                    currentSize.set(tempCacheSize + txSize);
-                    addAccountSize(tx.getFrom(), txSize);
+            // then the least recently used accounts, highest nonce first
+            Iterator<Map.Entry<Address, AccountTxs>> it = cacheTxMap.entrySet().iterator();
+            while (released < release && it.hasNext()) {
+                Map.Entry<Address, AccountTxs> e = it.next();
+                if (e.getKey().equals(from)) {
+                    continue;
                 }
-            }
 
-        } else {
-            if (cacheTxMap.size() == cacheAccountLimit) {
-                //remove firstAccount in pendingTxCache
-                Iterator<Map.Entry<Address, TreeMap<BigInteger, AionTransaction>>> it = cacheTxMap.entrySet()
-                        .iterator();
-                if (it.hasNext()) {
-                    Map.Entry<Address, TreeMap<BigInteger, AionTransaction>> e = it.next();
-                    currentSize.addAndGet(-getAccountSize(e.getKey()));
-                    cachedAccountSize.remove(tx.getFrom());
+                AccountTxs victim = e.getValue();
+                while (released < release && !victim.txs.isEmpty()) {
+                    AionTransaction remove = victim.txs.pollLastEntry().getValue();
+                    int removeSize = sizeOf(remove);
+                    victim.size -= removeSize;
+                    currentSize -= removeSize;
+                    currentTxSize--;
+                    released += removeSize;
                     if (isPoolBackup) {
-                        for (AionTransaction removeTx : e.getValue().values()) {
-                            cacheClearTxHash.add(removeTx.getHash().clone());
-                        }
+                        cacheClearTxHash.add(remove.getHash().clone());
                     }
+                }
+
+                if (victim.txs.isEmpty()) {
                     it.remove();
                 }
             }
+        }
 
-            cacheTxMap.computeIfAbsent(tx.getFrom(), k -> new TreeMap<>());
-
-            if (cacheTxMap.get(tx.getFrom()).get(tx.getNonceBI()) != null) {
-                int oldTxSize = cacheTxMap.get(tx.getFrom()).get(tx.getNonceBI()).getEncoded().length;
-                cacheTxMap.get(tx.getFrom()).put(tx.getNonceBI(), tx);
+        if (acc == null) {
+            if (cacheTxMap.size() >= cacheAccountLimit) {
+                //remove the least recently used account in pendingTxCache
+                Map.Entry<Address, AccountTxs> eldest = cacheTxMap.entrySet().iterator().next();
+                removeAccount(eldest.getKey(), eldest.getValue());
+            }
+            acc = new AccountTxs();
+        } else {
+            for (BigInteger bi : removeTx) {
+                removeTx(from, acc, bi);
+            }
+        }
 
-                int sizeDiff = txSize - oldTxSize;
-                currentSize.set(currentSize.get() + sizeDiff);
-                addAccountSize(tx.getFrom(), sizeDiff);
-            } else {
-                cacheTxMap.get(tx.getFrom()).put(tx.getNonceBI(), tx);
-                currentSize.addAndGet(txSize);
-                addAccountSize(tx.getFrom(), txSize);
+        old = acc.txs.put(nonce, tx);
+        if (old != null) {
+            acc.size -= sizeOf(old);
+            currentSize -= sizeOf(old);
+            currentTxSize--;
+            if (isPoolBackup) {
+                cacheClearTxHash.add(old.getHash().clone());
             }
         }
+        acc.size += txSize;
+        currentSize += txSize;
+        currentTxSize++;
+        touch(from, acc);
 
         if (LOG.isTraceEnabled()) {
-            LOG.trace("PendingTx add {}, size{}", tx.toString(), cacheTxMap.get(tx.getFrom()).values().size());
+            LOG.trace("PendingTx add {}, size{}", tx.toString(), acc.txs.size());
         }
     }
 
-    private void addAccountSize(Address from, int txSize) {
-        cachedAccountSize.merge(from, txSize, (a, b) -> (a + b));
-    }
-
-    private void subAccountSize(Address from, int txSize) {
-        if (cachedAccountSize.get(from) != null)
-            cachedAccountSize.put(from, (cachedAccountSize.get(from) - txSize));
-    }
-
     public List<AionTransaction> flush(Map<Address, BigInteger> nonceMap) {
         if (nonceMap == null) {
             throw new NullPointerException();
         }
 
-        if (currentSize.get() == 0) {
+        if (currentSize == 0) {
             return new ArrayList<>();
         }
 
@@ -222,68 +256,81 @@ public class PendingTxCache {
             LOG.debug("cacheTx.flush cacheTx# {}", cacheTxSize());
         }
 
-        int cacheTxNumber = 0;
-        for (Address addr : nonceMap.keySet()) {
-            BigInteger bn = nonceMap.get(addr);
-            if (LOG.isDebugEnabled()) {
-                LOG.debug("cacheTx.flush addr[{}] bn[{}] tx#[{}] accSize[{}] cacheSize[{}]", addr.toString(),
-                        bn.toString(), cacheTxMap.get(addr).size(), cachedAccountSize.get(addr), currentSize.get());
-            }
-
-            if (cacheTxMap.get(addr) != null) {
-                currentSize.addAndGet(-getAccountSize(addr));
-
-                Map<BigInteger, AionTransaction> headmap = cacheTxMap.get(addr).headMap(bn);
-                for (AionTransaction tx : headmap.values()) {
-                    subAccountSize(addr, tx.getEncoded().length);
-                    if (isPoolBackup) {
-                        cacheClearTxHash.add(tx.getHash().clone());
-                    }
+        for (Map.Entry<Address, BigInteger> e : nonceMap.entrySet()) {
+            Address addr = e.getKey();
+            AccountTxs acc = cacheTxMap.get(addr);
+            if (acc != null) {
+                Map<BigInteger, AionTransaction> headmap = acc.txs.headMap(e.getValue());
+                while (!headmap.isEmpty()) {
+                    removeTx(addr, acc, acc.txs.firstKey());
                 }
 
-                cacheTxMap.get(addr).headMap(bn).clear();
-                currentSize.addAndGet(getAccountSize(addr));
-
-                cacheTxNumber += cacheTxMap.get(addr).size();
                 if (LOG.isDebugEnabled()) {
                     LOG.debug("cacheTx.flush after addr[{}] tx#[{}] accSize[{}] cacheSize[{}]", addr.toString(),
-                            cacheTxMap.get(addr).size(), cachedAccountSize.get(addr), currentSize.get());
+                            acc.txs.size(), acc.size, currentSize);
                 }
             }
         }
 
         if (LOG.isDebugEnabled()) {
-            LOG.debug("cacheTx.flush after cacheTx# {}", cacheTxNumber);
+            LOG.debug("cacheTx.flush after cacheTx# {}", cacheTxSize());
         }
 
-        Map<BigInteger, AionTransaction> timeMap = new LinkedHashMap<>();
-        for (TreeMap<BigInteger, AionTransaction> e : cacheTxMap.values()) {
-            if (!e.isEmpty()) {
-                BigInteger ts = e.firstEntry().getValue().getTimeStampBI();
-                while (timeMap.get(ts) != null) {
-                    ts = ts.add(BigInteger.ONE);
-                }
+        List<AionTransaction> rtn = new ArrayList<>();
+        for (AccountTxs acc : cacheTxMap.values()) {
+            rtn.add(acc.txs.firstEntry().getValue());
+        }
 
-                timeMap.put(ts, e.firstEntry().getValue());
-            }
+        return rtn;
+    }
+
+    /**
+     * @param addr the account
+     * @param nonce the first nonce of the run
+     * @param limit the max number of txs to return
+     * @return the account's run of consecutive nonce txs starting at the
+     * given nonce, in nonce order; empty if the nonce isn't cached
+     */
+    public List<AionTransaction> getRun(Address addr, BigInteger nonce, int limit) {
+        AccountTxs acc = cacheTxMap.get(addr);
+        if (acc == null) {
+            return Collections.emptyList();
         }
 
-        return timeMap.values().isEmpty() ? new ArrayList<>() : new ArrayList<>(timeMap.values());
+        List<AionTransaction> run = new ArrayList<>();
+        AionTransaction tx;
+        while (run.size() < limit && (tx = acc.txs.get(nonce)) != null) {
+            run.add(tx);
+            nonce = nonce.add(BigInteger.ONE);
+        }
+        return run;
+    }
+
+    /**
+     * Take the account's run of consecutive nonce txs starting at the given
+     * nonce out of the cache, once they have moved into the pool.
+     *
+     * @param addr the account
+     * @param nonce the first nonce of the run
+     * @param limit the max number of txs to take
+     * @return the run in nonce order, empty if the nonce isn't cached
+     */
+    public List<AionTransaction> promote(Address addr, BigInteger nonce, int limit) {
+        List<AionTransaction> run = getRun(addr, nonce, limit);
+        AccountTxs acc = cacheTxMap.get(addr);
+        for (AionTransaction tx : run) {
+            removeTx(addr, acc, tx.getNonceBI());
+        }
+        return run;
     }
 
     public boolean isInCache(Address addr, BigInteger nonce) {
-        return this.cacheTxMap.get(addr) != null && (this.cacheTxMap.get(addr).get(nonce) != null);
+        AccountTxs acc = cacheTxMap.get(addr);
+        return acc != null && acc.txs.containsKey(nonce);
     }
 
     Set<Address> getCacheTxAccount() {
-        Set<Address> acc = new HashSet<>();
-        for (Map.Entry<Address, TreeMap<BigInteger, AionTransaction>> e : this.cacheTxMap.entrySet()) {
-            if (!e.getValue().isEmpty()) {
-                acc.add(e.getKey());
-            }
-        }
-
-        return acc;
+        return new HashSet<>(cacheTxMap.keySet());
     }
 
     Map<BigInteger, AionTransaction> geCacheTx(Address from) {
@@ -291,19 +338,16 @@ public class PendingTxCache {
             throw new NullPointerException();
         }
 
-        cacheTxMap.computeIfAbsent(from, k -> new TreeMap<>());
-
-        return cacheTxMap.get(from);
+        AccountTxs acc = cacheTxMap.get(from);
+        return acc == null ? Collections.emptyMap() : Collections.unmodifiableMap(acc.txs);
     }
 
     public int cacheSize() {
-        return currentSize.get();
+        return currentSize;
     }
 
     public int cacheTxSize() {
-        AtomicInteger size = new AtomicInteger();
-        cacheTxMap.forEach((key, value) -> size.addAndGet(value.size()));
-        return size.get();
+        return currentTxSize;
     }
 
     public Set<byte[]> getClearTxHash() {
@@ -0,0 +1,293 @@
+/*******************************************************************************
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ *
+ ******************************************************************************/
+
+package org.aion.zero.impl.blockchain;
+
+import org.aion.base.util.ByteArrayWrapper;
+import org.aion.log.AionLoggerFactory;
+import org.aion.log.LogEnum;
+import org.slf4j.Logger;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Append-only journal of the pending pool and the pending cache. Every
+ * backup appends the adds/removes since the previous backup; once the
+ * journal holds much more records than there are live txs, it is rewritten
+ * from the live set. Recovery replays the file into the live set.
+ */
+public class PendingTxJournal implements Closeable {
+
+    protected static final Logger LOG = AionLoggerFactory.getLogger(LogEnum.TX.name());
+
+    private static final byte OP_ADD_POOL = 1;
+    private static final byte OP_ADD_CACHE = 2;
+    private static final byte OP_REMOVE_POOL = 3;
+    private static final byte OP_REMOVE_CACHE = 4;
+
+    /**
+     * Hard bound of a record payload, guards the recovery against a corrupted length.
+     */
+    private static final int MAX_RECORD_SIZE = 16 * 1024 * 1024;
+
+    private static final int COMPACT_MIN_RECORDS = 64 * 1024;
+
+    private final File file;
+
+    private FileOutputStream fos;
+
+    private DataOutputStream out;
+
+    private long records;
+
+    /**
+     * Offset just past the last complete record, -1 until known. Anything
+     * beyond it is a torn record and is cut off before the next append.
+     */
+    private long length = -1;
+
+    PendingTxJournal(File file) {
+        this.file = file;
+    }
+
+    public boolean exists() {
+        return file.exists();
+    }
+
+    /**
+     * Replay the journal into the given maps. A torn record at the tail (the
+     * kernel died in the middle of a backup) ends the replay, and is dropped
+     * from the file by the next append.
+     *
+     * @param pool receives the live pool txs, keyed by tx hash
+     * @param cache receives the live cache txs, keyed by tx hash
+     */
+    public void load(Map<ByteArrayWrapper, byte[]> pool, Map<ByteArrayWrapper, byte[]> cache) {
+        if (!file.exists()) {
+            return;
+        }
+
+        long cnt = 0;
+        long valid = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while (true) {
+                byte op;
+                byte[] hash;
+                byte[] encoded = null;
+                try {
+                    op = in.readByte();
+                    if (op < OP_ADD_POOL || op > OP_REMOVE_CACHE) {
+                        LOG.warn("pending tx journal unknown record type {}, replay stopped", op);
+                        break;
+                    }
+                    hash = readBytes(in);
+                    if (op == OP_ADD_POOL || op == OP_ADD_CACHE) {
+                        encoded = readBytes(in);
+                    }
+                } catch (EOFException e) {
+                    break;
+                }
+
+                if (hash == null || (encoded == null && (op == OP_ADD_POOL || op == OP_ADD_CACHE))) {
+                    LOG.warn("pending tx journal record length out of range, replay stopped");
+                    break;
+                }
+
+                cnt++;
+                valid += 1 + 4 + hash.length + (encoded == null ? 0 : 4 + encoded.length);
+                switch (op) {
+                    case OP_ADD_POOL:
+                        pool.put(ByteArrayWrapper.wrap(hash), encoded);
+                        break;
+                    case OP_ADD_CACHE:
+                        cache.put(ByteArrayWrapper.wrap(hash), encoded);
+                        break;
+                    case OP_REMOVE_POOL:
+                        pool.remove(ByteArrayWrapper.wrap(hash));
+                        break;
+                    default:
+                        cache.remove(ByteArrayWrapper.wrap(hash));
+                        break;
+                }
+            }
+        } catch (IOException e) {
+            LOG.error("pending tx journal load error {}", e.toString());
+            // not known to be torn, leave the file as it is
+            valid = -1;
+        }
+        records = cnt;
+        length = valid;
+    }
+
+    /**
+     * @return the length prefixed bytes, or null if the length is corrupted
+     */
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        int len = in.readInt();
+        if (len < 0 || len > MAX_RECORD_SIZE) {
+            return null;
+        }
+        byte[] b = new byte[len];
+        in.readFully(b);
+        return b;
+    }
+
+    private void open() throws IOException {
+        if (out == null) {
+            File dir = file.getAbsoluteFile().getParentFile();
+            if (dir != null && !dir.exists()) {
+                dir.mkdirs();
+            }
+            fos = new FileOutputStream(file, true);
+            if (length >= 0 && fos.getChannel().size() > length) {
+                LOG.warn("pending tx journal drops {} bytes of torn record", fos.getChannel().size() - length);
+                fos.getChannel().truncate(length);
+            } else {
+                length = fos.getChannel().size();
+            }
+            out = new DataOutputStream(new BufferedOutputStream(fos, 64 * 1024));
+        }
+    }
+
+    /**
+     * Cut the file back to the last complete record after a failed append;
+     * the buffered part of the round is thrown away with the stream.
+     */
+    private void discard(long cnt) {
+        records = cnt;
+        try {
+            fos.getChannel().truncate(length);
+        } catch (IOException e) {
+            // left for open() to cut off
+            LOG.error("pending tx journal truncate error {}", e.toString());
+        }
+        try {
+            fos.close();
+        } catch (IOException e) {
+            LOG.error("pending tx journal close error {}", e.toString());
+        }
+        out = null;
+        fos = null;
+    }
+
+    /**
+     * A record is the type, the tx hash and, for adds, the encoded tx; both
+     * length prefixed.
+     */
+    private void write(byte op, byte[] hash) throws IOException {
+        out.writeByte(op);
+        out.writeInt(hash.length);
+        out.write(hash);
+        records++;
+    }
+
+    private void write(byte op, byte[] hash, byte[] encoded) throws IOException {
+        write(op, hash);
+        out.writeInt(encoded.length);
+        out.write(encoded);
+    }
+
+    /**
+     * Append one backup round and sync it to disk. On failure the file is cut
+     * back to where the round started, so it never ends in a torn record.
+     */
+    public void append(Map<byte[], byte[]> poolAdd, Map<byte[], byte[]> cacheAdd, Collection<byte[]> poolRemove,
+            Collection<byte[]> cacheRemove) throws IOException {
+        open();
+        long cnt = records;
+        try {
+            for (Map.Entry<byte[], byte[]> e : poolAdd.entrySet()) {
+                write(OP_ADD_POOL, e.getKey(), e.getValue());
+            }
+            for (Map.Entry<byte[], byte[]> e : cacheAdd.entrySet()) {
+                write(OP_ADD_CACHE, e.getKey(), e.getValue());
+            }
+            for (byte[] hash : poolRemove) {
+                write(OP_REMOVE_POOL, hash);
+            }
+            for (byte[] hash : cacheRemove) {
+                write(OP_REMOVE_CACHE, hash);
+            }
+            out.flush();
+            fos.getChannel().force(false);
+        } catch (IOException e) {
+            discard(cnt);
+            throw e;
+        }
+        length = fos.getChannel().size();
+    }
+
+    /**
+     * @param live the number of txs currently held by the pool and the cache
+     * @return true when the journal should be rewritten from the live set
+     */
+    public boolean needsCompaction(int live) {
+        return records > Math.max(COMPACT_MIN_RECORDS, 2L * live);
+    }
+
+    /**
+     * Rewrite the journal so that it holds exactly the given txs. The new
+     * file is written next to the journal and moved over it atomically.
+     */
+    public void rewrite(Map<byte[], byte[]> pool, Map<byte[], byte[]> cache) throws IOException {
+        close();
+
+        File tmp = new File(file.getPath() + ".tmp");
+        records = 0;
+        fos = new FileOutputStream(tmp, false);
+        out = new DataOutputStream(new BufferedOutputStream(fos, 64 * 1024));
+        try {
+            for (Map.Entry<byte[], byte[]> e : pool.entrySet()) {
+                write(OP_ADD_POOL, e.getKey(), e.getValue());
+            }
+            for (Map.Entry<byte[], byte[]> e : cache.entrySet()) {
+                write(OP_ADD_CACHE, e.getKey(), e.getValue());
+            }
+            out.flush();
+            fos.getChannel().force(false);
+        } finally {
+            close();
+        }
+
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        length = -1;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (out != null) {
+            try {
+                out.close();
+            } finally {
+                out = null;
+                fos = null;
+            }
+        }
+    }
+}
@@ -25,9 +25,11 @@
 package org.aion.zero.impl.core;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 import org.aion.base.db.IRepository;
 import org.aion.mcf.core.IBlockchain;
+import org.aion.txpool.ITxPool;
 import org.aion.zero.impl.types.AionBlock;
 import org.aion.zero.impl.types.AionTxInfo;
 import org.aion.zero.types.A0BlockHeader;
@@ -43,6 +45,15 @@ public interface IAionBlockchain
 
     AionBlock createNewBlock(AionBlock parent, List<AionTransaction> transactions, boolean waitUntilBlockTime);
 
+    /**
+     * Returns a block template on top of the given parent. While the parent
+     * stays the same the executed state of the previous template is kept and
+     * only the txs it doesn't hold yet get executed and appended; the previous
+     * template is returned as is when none of them fit. A new parent rebuilds
+     * the template from scratch.
+     */
+    AionBlock createBlockTemplate(AionBlock parent, Consumer<ITxPool.TxVisitor<AionTransaction>> pendingTxs);
+
     AionBlock getBestBlock();
 
     AionBlock getBlockByNumber(long num);
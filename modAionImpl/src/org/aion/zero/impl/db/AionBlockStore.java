@@ -46,8 +46,10 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongConsumer;
 
 import static java.math.BigInteger.ZERO;
 import static org.aion.crypto.HashUtil.shortHash;
@@ -63,6 +65,9 @@ public class AionBlockStore extends AbstractPowBlockstore<AionBlock, A0BlockHead
     private IByteArrayKeyValueDatabase blocksDS;
     private ObjectDataSource<AionBlock> blocks;
 
+    // told the highest level left untouched whenever the main chain above it is rewritten
+    private final List<LongConsumer> branchListeners = new CopyOnWriteArrayList<>();
+
     public AionBlockStore(IByteArrayKeyValueDatabase index, IByteArrayKeyValueDatabase blocks) {
         init(index, blocks);
     }
@@ -440,21 +445,39 @@ public class AionBlockStore extends AbstractPowBlockstore<AionBlock, A0BlockHead
             }
 
             // 2. Loop back on each level until common block
-            loopBackToCommonBlock(bestLine, forkLine);
+            long commonLevel = loopBackToCommonBlock(bestLine, forkLine);
+            notifyBranch(commonLevel);
         } finally {
             lock.writeLock().unlock();
         }
     }
 
+    /**
+     * Registers a listener called with the highest level that stayed on the
+     * main chain each time a re-branch or a revert rewrites the levels above
+     * it. The listener runs under the store lock and must not block.
+     */
+    public void addBranchListener(LongConsumer listener) {
+        branchListeners.add(listener);
+    }
+
+    private void notifyBranch(long commonLevel) {
+        for (LongConsumer listener : branchListeners) {
+            listener.accept(commonLevel);
+        }
+    }
+
     /**
      * @implNote The method calling this method must handle the locking.
+     *
+     * @return the level of the common block
      */
-    private void loopBackToCommonBlock(IAionBlock bestLine, IAionBlock forkLine) {
+    private long loopBackToCommonBlock(IAionBlock bestLine, IAionBlock forkLine) {
         long currentLevel = bestLine.getNumber();
 
         if (forkLine.getNumber() != currentLevel) {
             LOG.error("Illegal parameters for loopBackToCommonBlock method.");
-            return;
+            return Math.min(currentLevel, forkLine.getNumber());
         }
 
         while (!bestLine.isEqual(forkLine)) {
@@ -484,6 +507,7 @@ public class AionBlockStore extends AbstractPowBlockstore<AionBlock, A0BlockHead
 
         AionLoggerFactory.getLogger(LogEnum.CONS.name())
                 .info("branching: common block = {}/{}", forkLine.getNumber(), Hex.toHexString(forkLine.getHash()));
+        return currentLevel;
     }
 
     @Override
@@ -500,6 +524,8 @@ public class AionBlockStore extends AbstractPowBlockstore<AionBlock, A0BlockHead
                 return;
             }
 
+            long commonLevel = previousLevel;
+
             // walk back removing blocks greater than the given level value
             IAionBlock bestLine = bestBlock;
             while (currentLevel > previousLevel) {
@@ -562,9 +588,10 @@ public class AionBlockStore extends AbstractPowBlockstore<AionBlock, A0BlockHead
 
                     // 2. Loop back on each level until common block
                     IAionBlock forkLine = getBlockByHash(maxTDInfo.getHash());
-                    loopBackToCommonBlock(bestLine, forkLine);
+                    commonLevel = loopBackToCommonBlock(bestLine, forkLine);
                 }
             }
+            notifyBranch(commonLevel);
         } finally {
             lock.writeLock().unlock();
         }
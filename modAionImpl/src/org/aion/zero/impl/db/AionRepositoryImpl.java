@@ -56,6 +56,8 @@ public class AionRepositoryImpl extends AbstractRepository<AionBlock, A0BlockHea
 
     private TransactionStore<AionTransaction, AionTxReceipt, AionTxInfo> transactionStore;
 
+    private BloomBitsIndex bloomBits;
+
     /**
      * used by getSnapShotTo
      *
@@ -82,7 +84,7 @@ public class AionRepositoryImpl extends AbstractRepository<AionBlock, A0BlockHea
                         config.getDb().isHeapCacheEnabled(), config.getDb().getMaxHeapCacheSize(),
                         config.getDb().isHeapCacheStatsEnabled(), config.getDb().getFdOpenAllocSize(),
                         config.getDb().getBlockSize(), config.getDb().getWriteBufferSize(),
-                        config.getDb().getCacheSize()));
+                        config.getDb().getCacheSize(), config.getDb().isLogIndexEnabled()));
     }
 
     public static AionRepositoryImpl inst() {
@@ -104,6 +106,13 @@ public class AionRepositoryImpl extends AbstractRepository<AionBlock, A0BlockHea
             // Setup block store.
             this.blockStore = new AionBlockStore(indexDatabase, blockDatabase);
 
+            // Setup the log bloom index, kept in line with the main chain of the block store.
+            this.bloomBits = new BloomBitsIndex(bloomBitsDatabase, number -> {
+                AionBlock block = blockStore.getChainBlockByNumber(number);
+                return block == null ? null : block.getLogBloom();
+            });
+            this.blockStore.addBranchListener(bloomBits::onReBranch);
+
             // Setup world trie.
             worldState = createStateTrie();
         } catch (Exception e) { // TODO - If any of the connections failed.
@@ -111,6 +120,20 @@ public class AionRepositoryImpl extends AbstractRepository<AionBlock, A0BlockHea
         }
     }
 
+    /**
+     * The log bloom index of the main chain, {@code null} for a snapshot.
+     */
+    public BloomBitsIndex getBloomBits() {
+        return this.bloomBits;
+    }
+
+    /**
+     * The database of the optional log index, see {@link LogIndex}.
+     */
+    public IByteArrayKeyValueDatabase getLogIndexDatabase() {
+        return this.logIndexDatabase;
+    }
+
     /**
      * @implNote The transaction store is not locked within the repository implementation.
      */
@@ -495,6 +518,10 @@ public class AionRepositoryImpl extends AbstractRepository<AionBlock, A0BlockHea
             worldState.sync();
             detailsDS.syncLargeStorage();
 
+            if (bloomBits != null) {
+                bloomBits.onBlock(blockHeader.getNumber());
+            }
+
             // temporarily removed since never used
         /* if (pruneBlockCount >= 0) {
             stateDSPrune.storeBlockChanges(blockHeader);
@@ -647,6 +674,30 @@ public class AionRepositoryImpl extends AbstractRepository<AionBlock, A0BlockHea
                 LOGGEN.error("Exception occurred while closing the txPoolDatabase store.", e);
             }
 
+            try {
+                if (bloomBits != null) {
+                    bloomBits.close();
+                    bloomBits = null;
+                }
+                if (bloomBitsDatabase != null) {
+                    bloomBitsDatabase.close();
+                    LOGGEN.info("bloomBitsDatabase store closed.");
+                    bloomBitsDatabase = null;
+                }
+            } catch (Exception e) {
+                LOGGEN.error("Exception occurred while closing the bloomBitsDatabase store.", e);
+            }
+
+            try {
+                if (logIndexDatabase != null) {
+                    logIndexDatabase.close();
+                    LOGGEN.info("logIndexDatabase store closed.");
+                    logIndexDatabase = null;
+                }
+            } catch (Exception e) {
+                LOGGEN.error("Exception occurred while closing the logIndexDatabase store.", e);
+            }
+
             try {
                 if (pendingTxCacheDatabase != null) {
                     pendingTxCacheDatabase.close();
@@ -0,0 +1,318 @@
+/*******************************************************************************
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ ******************************************************************************/
+
+package org.aion.zero.impl.db;
+
+import org.aion.base.db.IByteArrayKeyValueDatabase;
+import org.aion.base.util.ByteUtil;
+import org.aion.log.AionLoggerFactory;
+import org.aion.log.LogEnum;
+import org.aion.mcf.vm.types.Bloom;
+import org.slf4j.Logger;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongFunction;
+import java.util.function.LongPredicate;
+
+/**
+ * Column oriented index of the block log blooms. The chain is cut in sections
+ * of {@link #SECTION_SIZE} blocks and each of the 2048 bloom bits of a section
+ * is stored as one bit vector over its blocks, so a range query reads a few
+ * vectors per section instead of every block header.
+ *
+ * <p>A section is only indexed once its last block is {@link #CONFIRMATIONS}
+ * deep, the blocks past the last indexed section are reported as candidates
+ * and have to be checked one by one. A re-branch reaching into an indexed
+ * section drops it and the sections after it, they get rebuilt in the
+ * background.
+ */
+public class BloomBitsIndex {
+
+    private static final Logger LOG = AionLoggerFactory.getLogger(LogEnum.DB.name());
+
+    public static final int SECTION_SIZE = 4096;
+    public static final int CONFIRMATIONS = 256;
+
+    private static final int BLOOM_BITS = 2048;
+    private static final int VECTOR_SIZE = SECTION_SIZE / 8;
+
+    // the vector keys are 10 bytes long, this one can't collide with them
+    private static final byte[] KEY_SECTIONS = "sections".getBytes();
+
+    private final IByteArrayKeyValueDatabase db;
+    private final LongFunction<byte[]> blooms;
+
+    // the number of indexed sections and a counter of the re-branches dropping some, guarded by this
+    private long sections;
+    private long generation;
+
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+    private final ExecutorService indexer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "bloombits");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+
+    /**
+     * @param db
+     *            the database holding the index
+     * @param blooms
+     *            the log bloom of the main chain block with the given number,
+     *            {@code null} when there is no such block
+     */
+    public BloomBitsIndex(IByteArrayKeyValueDatabase db, LongFunction<byte[]> blooms) {
+        this.db = db;
+        this.blooms = blooms;
+        this.sections = db.get(KEY_SECTIONS).map(ByteUtil::byteArrayToLong).orElse(0L);
+    }
+
+    /**
+     * The sections below this one are indexed.
+     */
+    public synchronized long getSections() {
+        return sections;
+    }
+
+    /**
+     * Called as blocks are stored, schedules the indexing of the sections the
+     * block has buried deep enough.
+     */
+    public void onBlock(long number) {
+        if (confirmedSections(number) > getSections() && scheduled.compareAndSet(false, true)) {
+            try {
+                indexer.execute(() -> {
+                    try {
+                        catchUp(number);
+                    } finally {
+                        scheduled.set(false);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                scheduled.set(false);
+            }
+        }
+    }
+
+    /**
+     * Drops the sections holding blocks above the common level of a re-branch.
+     */
+    public synchronized void onReBranch(long commonLevel) {
+        long valid = (commonLevel + 1) / SECTION_SIZE;
+        if (valid < sections) {
+            if (LOG.isInfoEnabled()) {
+                LOG.info("bloombits: re-branch at {} drops sections {} to {}", commonLevel, valid, sections - 1);
+            }
+            sections = valid;
+            generation++;
+            db.put(KEY_SECTIONS, ByteUtil.longToBytes(sections));
+        }
+    }
+
+    private static long confirmedSections(long head) {
+        return Math.max(0, head + 1 - CONFIRMATIONS) / SECTION_SIZE;
+    }
+
+    /**
+     * Indexes the sections confirmed by the given head.
+     */
+    void catchUp(long head) {
+        long target = confirmedSections(head);
+        while (true) {
+            long section;
+            long gen;
+            synchronized (this) {
+                section = sections;
+                gen = generation;
+            }
+            if (section >= target || !buildSection(section, gen)) {
+                return;
+            }
+        }
+    }
+
+    private boolean buildSection(long section, long gen) {
+        long start = System.currentTimeMillis();
+
+        // rotate the block blooms, bit i of the bloom of block j goes to bit j of vector i
+        byte[][] vectors = new byte[BLOOM_BITS][];
+        long first = section * SECTION_SIZE;
+        for (int j = 0; j < SECTION_SIZE; j++) {
+            byte[] bloom = blooms.apply(first + j);
+            if (bloom == null) {
+                LOG.warn("bloombits: missing block {}, section {} not indexed", first + j, section);
+                return false;
+            }
+
+            for (int b = 0; b < bloom.length; b++) {
+                int v = bloom[b] & 0xff;
+                while (v != 0) {
+                    int bit = Integer.numberOfTrailingZeros(v);
+                    v &= v - 1;
+
+                    int i = b * 8 + bit;
+                    if (vectors[i] == null) {
+                        vectors[i] = new byte[VECTOR_SIZE];
+                    }
+                    vectors[i][j >>> 3] |= 0x80 >>> (j & 7);
+                }
+            }
+        }
+
+        Map<byte[], byte[]> puts = new HashMap<>();
+        List<byte[]> deletes = new ArrayList<>();
+        for (int i = 0; i < BLOOM_BITS; i++) {
+            // an all zero vector is left out, a rebuilt section must not keep the old one
+            if (vectors[i] == null) {
+                deletes.add(vectorKey(section, i));
+            } else {
+                puts.put(vectorKey(section, i), vectors[i]);
+            }
+        }
+
+        synchronized (this) {
+            if (gen != generation || section != sections) {
+                // a re-branch got in between, the blocks read may be stale
+                return false;
+            }
+            db.deleteBatch(deletes);
+            db.putBatch(puts);
+            sections = section + 1;
+            db.put(KEY_SECTIONS, ByteUtil.longToBytes(sections));
+        }
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("bloombits: section {} indexed in {} ms", section, System.currentTimeMillis() - start);
+        }
+        return true;
+    }
+
+    private static byte[] vectorKey(long section, int bit) {
+        byte[] key = new byte[10];
+        System.arraycopy(ByteUtil.longToBytes(section), 0, key, 0, 8);
+        key[8] = (byte) (bit >>> 8);
+        key[9] = (byte) bit;
+        return key;
+    }
+
+    /**
+     * Matches an indexed section against a filter given as the AND of groups
+     * of OR-ed blooms.
+     *
+     * @return the offsets in the section of the blocks that may match
+     */
+    public BitSet matchSection(long section, Bloom[][] filter) {
+        byte[] result = null;
+        for (Bloom[] group : filter) {
+            byte[] any = new byte[VECTOR_SIZE];
+            for (Bloom bloom : group) {
+                byte[] all = matchBloom(section, bloom);
+                for (int k = 0; k < VECTOR_SIZE; k++) {
+                    any[k] |= all[k];
+                }
+            }
+
+            if (result == null) {
+                result = any;
+            } else {
+                for (int k = 0; k < VECTOR_SIZE; k++) {
+                    result[k] &= any[k];
+                }
+            }
+        }
+
+        BitSet offsets = new BitSet(SECTION_SIZE);
+        for (int j = 0; j < SECTION_SIZE; j++) {
+            if (result == null || (result[j >>> 3] & (0x80 >>> (j & 7))) != 0) {
+                offsets.set(j);
+            }
+        }
+        return offsets;
+    }
+
+    // the blocks having every bit of the bloom set
+    private byte[] matchBloom(long section, Bloom bloom) {
+        byte[] all = new byte[VECTOR_SIZE];
+        Arrays.fill(all, (byte) 0xff);
+
+        byte[] data = bloom.getData();
+        for (int b = 0; b < data.length; b++) {
+            int v = data[b] & 0xff;
+            while (v != 0) {
+                int bit = Integer.numberOfTrailingZeros(v);
+                v &= v - 1;
+
+                Optional<byte[]> vector = db.get(vectorKey(section, b * 8 + bit));
+                if (!vector.isPresent()) {
+                    return new byte[VECTOR_SIZE];
+                }
+                byte[] vec = vector.get();
+                for (int k = 0; k < VECTOR_SIZE; k++) {
+                    all[k] &= vec[k];
+                }
+            }
+        }
+        return all;
+    }
+
+    /**
+     * Walks the numbers of the blocks in {@code [from, to]} that may match the
+     * filter in ascending order. The indexed sections only yield the blocks
+     * their bits match, the blocks past them are all yielded.
+     *
+     * @param visitor
+     *            returns {@code false} to stop the walk
+     */
+    public void forEachCandidate(long from, long to, Bloom[][] filter, LongPredicate visitor) {
+        long n = from;
+        while (n <= to) {
+            long section = n / SECTION_SIZE;
+            if (section >= getSections()) {
+                if (!visitor.test(n)) {
+                    return;
+                }
+                n++;
+                continue;
+            }
+
+            long first = section * SECTION_SIZE;
+            long last = Math.min(to, first + SECTION_SIZE - 1);
+            BitSet offsets = matchSection(section, filter);
+            for (int j = offsets.nextSetBit((int) (n - first)); j >= 0 && first + j <= last;
+                    j = offsets.nextSetBit(j + 1)) {
+                if (!visitor.test(first + j)) {
+                    return;
+                }
+            }
+            n = last + 1;
+        }
+    }
+
+    public void close() {
+        indexer.shutdownNow();
+    }
+}
@@ -0,0 +1,342 @@
+/*******************************************************************************
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ ******************************************************************************/
+
+package org.aion.zero.impl.db;
+
+import org.aion.base.db.IByteArrayKeyValueDatabase;
+import org.aion.base.util.ByteArrayWrapper;
+import org.aion.base.util.ByteUtil;
+import org.aion.log.AionLoggerFactory;
+import org.aion.log.LogEnum;
+import org.aion.mcf.vm.types.Log;
+import org.aion.zero.types.AionTxReceipt;
+import org.slf4j.Logger;
+
+import java.io.ByteArrayOutputStream;
+import java.util.*;
+
+/**
+ * Inverted index of the main chain logs. Each log is posted under its
+ * contract address, its first topic and the pair of both, a posting being the
+ * (block number, tx index, log index) of the log.
+ *
+ * <p>The postings of a term are kept in chunks of {@link #CHUNK_SIZE} blocks,
+ * appended to as blocks get indexed, and every {@link #CHUNK_SIZE} chunks share
+ * a bitmap of the chunks holding any posting, so a query only reads the chunks
+ * that have something for it. Every indexed block also records the terms it
+ * posted under, which is what a re-branch uses to take its postings back out.
+ */
+public class LogIndex {
+
+    private static final Logger LOG = AionLoggerFactory.getLogger(LogEnum.DB.name());
+
+    static final int CHUNK_SIZE = 256;
+
+    // record kinds
+    private static final byte KIND_META = 0;
+    private static final byte KIND_CHUNK = 1;
+    private static final byte KIND_SUMMARY = 2;
+    private static final byte KIND_UNDO = 3;
+
+    // term kinds
+    private static final byte TERM_ADDRESS = 1;
+    private static final byte TERM_TOPIC = 2;
+    private static final byte TERM_ADDRESS_TOPIC = 3;
+
+    private static final byte[] KEY_BASE = { KIND_META, 'b' };
+    private static final byte[] KEY_HEAD = { KIND_META, 'h' };
+
+    public interface PostingVisitor {
+        /**
+         * @return {@code false} to stop the query
+         */
+        boolean visit(long blockNumber, int txIndex, int logIndex);
+    }
+
+    private final IByteArrayKeyValueDatabase db;
+
+    // the indexed blocks are [base, head], head is below base while empty
+    private volatile long base;
+    private volatile long head;
+
+    public LogIndex(IByteArrayKeyValueDatabase db) {
+        this.db = db;
+        this.base = db.get(KEY_BASE).map(ByteUtil::byteArrayToLong).orElse(0L);
+        this.head = db.get(KEY_HEAD).map(ByteUtil::byteArrayToLong).orElse(-1L);
+    }
+
+    public long getHead() {
+        return head;
+    }
+
+    public boolean isEmpty() {
+        return head < base;
+    }
+
+    /**
+     * Whether all the blocks of {@code [from, to]} are indexed.
+     */
+    public boolean covers(long from, long to) {
+        return from >= base && to <= head && from <= to;
+    }
+
+    /**
+     * Indexes the next main chain block. An empty index starts at the first
+     * block it is given, any other block has to follow the head; a block past
+     * the head is left to the catch-up of the chain, see
+     * {@link org.aion.zero.impl.AionBlockchainImpl#catchUpLogIndex()}.
+     */
+    public synchronized void addBlock(long number, List<AionTxReceipt> receipts) {
+        if (head >= base && number != head + 1) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("logindex: block {} doesn't follow the head {}, skipped", number, head);
+            }
+            return;
+        }
+
+        // the postings of this block by term
+        Map<ByteArrayWrapper, ByteArrayOutputStream> postings = new LinkedHashMap<>();
+        for (int txIndex = 0; txIndex < receipts.size(); txIndex++) {
+            List<Log> logs = receipts.get(txIndex).getLogInfoList();
+            for (int logIndex = 0; logIndex < logs.size(); logIndex++) {
+                Log log = logs.get(logIndex);
+                byte[] address = log.getAddress().toBytes();
+                byte[] topic = log.getTopics().isEmpty() ? null : log.getTopics().get(0);
+
+                post(postings, term(address, null), number, txIndex, logIndex);
+                if (topic != null) {
+                    post(postings, term(null, topic), number, txIndex, logIndex);
+                    post(postings, term(address, topic), number, txIndex, logIndex);
+                }
+            }
+        }
+
+        Map<byte[], byte[]> batch = new HashMap<>();
+        ByteArrayOutputStream undo = new ByteArrayOutputStream();
+        for (Map.Entry<ByteArrayWrapper, ByteArrayOutputStream> e : postings.entrySet()) {
+            byte[] term = e.getKey().getData();
+
+            byte[] chunkKey = key(KIND_CHUNK, term, number / CHUNK_SIZE);
+            byte[] chunk = db.get(chunkKey).orElse(ByteUtil.EMPTY_BYTE_ARRAY);
+            batch.put(chunkKey, ByteUtil.merge(chunk, e.getValue().toByteArray()));
+
+            if (chunk.length == 0) {
+                long chunkNr = number / CHUNK_SIZE;
+                byte[] summaryKey = key(KIND_SUMMARY, term, chunkNr / CHUNK_SIZE);
+                byte[] summary = db.get(summaryKey).orElseGet(() -> new byte[CHUNK_SIZE / 8]);
+                int bit = (int) (chunkNr % CHUNK_SIZE);
+                summary[bit >>> 3] |= 0x80 >>> (bit & 7);
+                batch.put(summaryKey, summary);
+            }
+
+            writeVarint(undo, term.length);
+            undo.write(term, 0, term.length);
+        }
+        if (undo.size() > 0) {
+            batch.put(key(KIND_UNDO, ByteUtil.EMPTY_BYTE_ARRAY, number), undo.toByteArray());
+        }
+
+        if (head < base) {
+            base = number;
+            batch.put(KEY_BASE, ByteUtil.longToBytes(base));
+        }
+        head = number;
+        batch.put(KEY_HEAD, ByteUtil.longToBytes(head));
+        db.putBatch(batch);
+    }
+
+    /**
+     * Takes the postings of the blocks above the given level back out.
+     */
+    public synchronized void revertTo(long level) {
+        if (level >= head) {
+            return;
+        }
+
+        long start = head;
+        long number = head;
+        while (number > level && number >= base) {
+            byte[] undoKey = key(KIND_UNDO, ByteUtil.EMPTY_BYTE_ARRAY, number);
+            Optional<byte[]> undo = db.get(undoKey);
+            if (undo.isPresent()) {
+                Map<byte[], byte[]> puts = new HashMap<>();
+                List<byte[]> deletes = new ArrayList<>();
+                deletes.add(undoKey);
+
+                int[] pos = { 0 };
+                byte[] terms = undo.get();
+                while (pos[0] < terms.length) {
+                    int len = (int) readVarint(terms, pos);
+                    byte[] term = Arrays.copyOfRange(terms, pos[0], pos[0] + len);
+                    pos[0] += len;
+                    dropTail(term, number, puts, deletes);
+                }
+
+                db.putBatch(puts);
+                db.deleteBatch(deletes);
+            }
+            number--;
+        }
+
+        head = Math.max(level, base - 1);
+        db.put(KEY_HEAD, ByteUtil.longToBytes(head));
+
+        if (LOG.isInfoEnabled()) {
+            LOG.info("logindex: reverted blocks {} to {}", head + 1, start);
+        }
+    }
+
+    // removes the postings of the block, the last one of the chunk, from the chunk of the term
+    private void dropTail(byte[] term, long number, Map<byte[], byte[]> puts, List<byte[]> deletes) {
+        long chunkNr = number / CHUNK_SIZE;
+        byte[] chunkKey = key(KIND_CHUNK, term, chunkNr);
+        byte[] chunk = db.get(chunkKey).orElse(ByteUtil.EMPTY_BYTE_ARRAY);
+
+        // the postings are in block order, the ones of this block start at the first of its offset
+        int offset = (int) (number % CHUNK_SIZE);
+        int end = 0;
+        int[] pos = { 0 };
+        while (pos[0] < chunk.length) {
+            if (readVarint(chunk, pos) == offset) {
+                break;
+            }
+            readVarint(chunk, pos);
+            readVarint(chunk, pos);
+            end = pos[0];
+        }
+
+        if (end == chunk.length) {
+            return;
+        }
+        if (end > 0) {
+            puts.put(chunkKey, Arrays.copyOf(chunk, end));
+            return;
+        }
+
+        // the chunk is empty, so goes its bit
+        deletes.add(chunkKey);
+        byte[] summaryKey = key(KIND_SUMMARY, term, chunkNr / CHUNK_SIZE);
+        Optional<byte[]> summary = db.get(summaryKey);
+        if (summary.isPresent()) {
+            byte[] bits = summary.get();
+            int bit = (int) (chunkNr % CHUNK_SIZE);
+            bits[bit >>> 3] &= ~(0x80 >>> (bit & 7));
+            boolean empty = true;
+            for (byte b : bits) {
+                empty &= b == 0;
+            }
+            if (empty) {
+                deletes.add(summaryKey);
+            } else {
+                puts.put(summaryKey, bits);
+            }
+        }
+    }
+
+    /**
+     * Streams the postings of the logs in {@code [from, to]} of the given
+     * contract address and/or first topic in block order. At least one of
+     * {@code address} and {@code topic} has to be given.
+     */
+    public void find(byte[] address, byte[] topic, long from, long to, PostingVisitor visitor) {
+        byte[] term = term(address, topic);
+        long firstChunk = Math.max(from, 0) / CHUNK_SIZE;
+        long lastChunk = to / CHUNK_SIZE;
+
+        for (long group = firstChunk / CHUNK_SIZE; group <= lastChunk / CHUNK_SIZE; group++) {
+            Optional<byte[]> summary = db.get(key(KIND_SUMMARY, term, group));
+            if (!summary.isPresent()) {
+                continue;
+            }
+
+            byte[] bits = summary.get();
+            for (int bit = 0; bit < CHUNK_SIZE; bit++) {
+                long chunkNr = group * CHUNK_SIZE + bit;
+                if (chunkNr < firstChunk || chunkNr > lastChunk || (bits[bit >>> 3] & (0x80 >>> (bit & 7))) == 0) {
+                    continue;
+                }
+
+                Optional<byte[]> chunk = db.get(key(KIND_CHUNK, term, chunkNr));
+                if (!chunk.isPresent()) {
+                    continue;
+                }
+
+                byte[] data = chunk.get();
+                int[] pos = { 0 };
+                while (pos[0] < data.length) {
+                    long number = chunkNr * CHUNK_SIZE + readVarint(data, pos);
+                    int txIndex = (int) readVarint(data, pos);
+                    int logIndex = (int) readVarint(data, pos);
+                    if (number > to) {
+                        return;
+                    }
+                    if (number >= from && !visitor.visit(number, txIndex, logIndex)) {
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    private static void post(Map<ByteArrayWrapper, ByteArrayOutputStream> postings, byte[] term, long number,
+            int txIndex, int logIndex) {
+        ByteArrayOutputStream out = postings.computeIfAbsent(new ByteArrayWrapper(term),
+                k -> new ByteArrayOutputStream());
+        writeVarint(out, number % CHUNK_SIZE);
+        writeVarint(out, txIndex);
+        writeVarint(out, logIndex);
+    }
+
+    private static byte[] term(byte[] address, byte[] topic) {
+        if (address == null && topic == null) {
+            throw new IllegalArgumentException("neither an address nor a topic given");
+        }
+        byte kind = address == null ? TERM_TOPIC : topic == null ? TERM_ADDRESS : TERM_ADDRESS_TOPIC;
+        return ByteUtil.merge(new byte[] { kind }, address == null ? ByteUtil.EMPTY_BYTE_ARRAY : address,
+                topic == null ? ByteUtil.EMPTY_BYTE_ARRAY : topic);
+    }
+
+    private static byte[] key(byte kind, byte[] term, long number) {
+        return ByteUtil.merge(new byte[] { kind }, term, ByteUtil.longToBytes(number));
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarint(byte[] data, int[] pos) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = data[pos[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+}
@@ -50,6 +50,8 @@ public class RepositoryConfig implements IRepositoryConfig {
     private final int write_buffer_size;
     private final int cache_size;
 
+    private final boolean enable_log_index;
+
     @Override
     public String[] getVendorList() {
         return vendorList;
@@ -125,6 +127,11 @@ public class RepositoryConfig implements IRepositoryConfig {
         return this.cache_size;
     }
 
+    @Override
+    public boolean isLogIndexEnabled() {
+        return this.enable_log_index;
+    }
+
     public RepositoryConfig(final String[] vendorList, //
                             final String activeVendor, //
                             final String dbPath, //
@@ -139,7 +146,8 @@ public class RepositoryConfig implements IRepositoryConfig {
                             final int max_fd_alloc_size,
                             final int block_size,
                             final int write_buffer_size,
-                            final int cache_size) { //
+                            final int cache_size,
+                            final boolean enable_log_index) { //
 
         this.vendorList = vendorList;
         this.activeVendor = activeVendor;
@@ -162,6 +170,8 @@ public class RepositoryConfig implements IRepositoryConfig {
 
         this.write_buffer_size = write_buffer_size;
         this.cache_size = cache_size;
+
+        this.enable_log_index = enable_log_index;
     }
 
 }
@@ -61,6 +61,9 @@ public class AionPoW {
 
     private static final int syncLimit = 128;
 
+    // the template refresh delay after new pending txs, appending to the template is cheap so it can be short
+    private static final long TX_REFRESH_MS = 500;
+
     protected IAionBlockchain blockchain;
     protected IPendingState<AionTransaction> pendingState;
     protected IEventMgr eventMgr;
@@ -68,6 +71,7 @@ public class AionPoW {
     protected AtomicBoolean initialized = new AtomicBoolean(false);
     protected AtomicBoolean newPendingTxReceived = new AtomicBoolean(false);
     protected AtomicLong lastUpdate = new AtomicLong(0);
+    private AionBlock currentTemplate;
 
     private AtomicBoolean shutDown = new AtomicBoolean();
     private SyncMgr syncMgr;
@@ -143,7 +147,7 @@ public class AionPoW {
                         Thread.sleep(100);
 
                         long now = System.currentTimeMillis();
-                        if (now - lastUpdate.get() > 3000 && newPendingTxReceived.compareAndSet(true, false)
+                        if (now - lastUpdate.get() > TX_REFRESH_MS && newPendingTxReceived.compareAndSet(true, false)
                                 || now - lastUpdate.get() > 10000) { // fallback, when
                                                                // we never
                                                                // received any
@@ -268,16 +272,21 @@ public class AionPoW {
 
             AionBlock bestBlock = blockchain.getBlockByNumber(blockchain.getBestBlock().getNumber());
 
-            List<AionTransaction> txs = pendingState.getPendingTransactions();
+            // keeps the txs already executed for this parent, only the new ones get appended
+            AionBlock newBlock = blockchain.createBlockTemplate(bestBlock, pendingState::streamPendingTransactions);
 
-            AionBlock newBlock = blockchain.createNewBlock(bestBlock, txs, false);
+            // update last timestamp
+            lastUpdate.set(System.currentTimeMillis());
+
+            if (newBlock == currentTemplate) {
+                // nothing new fit in, the miners keep working on the current one
+                return;
+            }
+            currentTemplate = newBlock;
 
             EventConsensus ev = new EventConsensus(EventConsensus.CALLBACK.ON_BLOCK_TEMPLATE);
             ev.setFuncArgs(Collections.singletonList(newBlock));
             eventMgr.newEvent(ev);
-
-            // update last timestamp
-            lastUpdate.set(System.currentTimeMillis());
         }
     }
 
@@ -59,6 +59,16 @@ public final class Act {
 
     public static final byte BROADCAST_BLOCK = 7;
 
+    public static final byte BROADCAST_TX_HASHES = 8;
+
+    public static final byte REQ_TXS = 9;
+
+    public static final byte BROADCAST_COMPACT_BLOCK = 10;
+
+    public static final byte REQ_BLOCK_TXS = 11;
+
+    public static final byte RES_BLOCK_TXS = 12;
+
 //    private static final byte UNKNOWN = Byte.MAX_VALUE;
 
 //    private static Set<Byte> active = new HashSet<>() {{
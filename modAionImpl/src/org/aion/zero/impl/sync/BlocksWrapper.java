@@ -44,16 +44,27 @@ final class BlocksWrapper {
 
     private List<AionBlock> blocks;
 
+    private long size;
+
     /**
      *
      * @param _nodeIdHash int
      * @param _displayId String
      * @param _blocks List
+     * @param _size long estimated bytes of the blocks
      */
-    BlocksWrapper(int _nodeIdHash, String _displayId, final List<AionBlock> _blocks){
+    BlocksWrapper(int _nodeIdHash, String _displayId, final List<AionBlock> _blocks, long _size){
         this.nodeIdHash = _nodeIdHash;
         this.displayId = _displayId;
         this.blocks = _blocks;
+        this.size = _size;
+    }
+
+    /**
+     * @return long - estimated bytes, counted against the sync queue budget
+     */
+    long getSize(){
+        return this.size;
     }
 
     /**
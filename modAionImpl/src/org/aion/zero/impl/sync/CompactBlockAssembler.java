@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ * This file is part of the aion network project.
+ *
+ * The aion network project is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * The aion network project is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the aion network project source files.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * The aion network project leverages useful source code from other
+ * open source projects. We greatly appreciate the effort that was
+ * invested in these projects and we thank the individual contributors
+ * for their work. For provenance information and contributors
+ * please see <https://github.com/aionnetwork/aion/wiki/Contributors>.
+ *
+ * Contributors to the aion source files in decreasing order of code volume:
+ * Aion foundation.
+ * <ether.camp> team through the ethereumJ library.
+ * Ether.Camp Inc. (US) team through Ethereum Harmony.
+ * John Tromp through the Equihash solver.
+ * Samuel Neves through the BLAKE2 implementation.
+ * Zcash project team.
+ * Bitcoinj team.
+ */
+
+package org.aion.zero.impl.sync;
+
+import org.aion.base.util.ByteArrayWrapper;
+import org.aion.log.AionLoggerFactory;
+import org.aion.log.LogEnum;
+import org.aion.mcf.blockchain.IPendingStateInternal;
+import org.aion.rlp.RLP;
+import org.aion.zero.impl.sync.msg.BroadcastCompactBlock;
+import org.aion.zero.impl.types.AionBlock;
+import org.aion.zero.types.A0BlockHeader;
+import org.aion.zero.types.AionTransaction;
+import org.apache.commons.collections4.map.LRUMap;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+
+/**
+ * Rebuilds blocks relayed as {@link BroadcastCompactBlock} from the txs in the
+ * local pending pool, looked up through the pool's short id index. Blocks
+ * waiting for missing txs are kept until the sender answers the pull; when it
+ * does not answer in time, or the answer does not rebuild the block, the full
+ * body is requested through {@link SyncMgr}.
+ */
+public final class CompactBlockAssembler {
+
+    private final static Logger log = AionLoggerFactory.getLogger(LogEnum.SYNC.name());
+
+    private static final int PARTIAL_MAX = 64;
+
+    // how long the sender has to answer the pull of the missing txs
+    private static final int PULL_TIMEOUT = 3000;
+
+    private static final int SWEEP_INTERVAL = 500;
+
+    private static final class PartialBlock {
+
+        private final int nodeIdHash;
+
+        private final String displayId;
+
+        private final A0BlockHeader header;
+
+        private final byte[][] txs;
+
+        private final int[] missing;
+
+        private final long deadline;
+
+        private PartialBlock(int _nodeIdHash, final String _displayId, final A0BlockHeader _header,
+                final byte[][] _txs, final int[] _missing) {
+            this.nodeIdHash = _nodeIdHash;
+            this.displayId = _displayId;
+            this.header = _header;
+            this.txs = _txs;
+            this.missing = _missing;
+            this.deadline = System.currentTimeMillis() + PULL_TIMEOUT;
+        }
+    }
+
+    private final IPendingStateInternal<AionBlock, AionTransaction> pendingState;
+
+    private final SyncMgr syncMgr;
+
+    private final Map<ByteArrayWrapper, PartialBlock> partials = Collections.synchronizedMap(new LRUMap<>(PARTIAL_MAX));
+
+    private final Timer timer;
+
+    public CompactBlockAssembler(final IPendingStateInternal<AionBlock, AionTransaction> _pendingState,
+            final SyncMgr _syncMgr) {
+        this.pendingState = _pendingState;
+        this.syncMgr = _syncMgr;
+        this.timer = new Timer("CompactBlk", true);
+        this.timer.scheduleAtFixedRate(new SweepTask(), SWEEP_INTERVAL, SWEEP_INTERVAL);
+    }
+
+    /**
+     * falls back to the full body for the partial blocks whose pull timed out
+     */
+    private class SweepTask extends TimerTask {
+        @Override
+        public void run() {
+            List<PartialBlock> expired = new ArrayList<>();
+            long now = System.currentTimeMillis();
+            synchronized (partials) {
+                Iterator<PartialBlock> it = partials.values().iterator();
+                while (it.hasNext()) {
+                    PartialBlock partial = it.next();
+                    if (partial.missing.length > 0 && partial.deadline < now) {
+                        it.remove();
+                        expired.add(partial);
+                    }
+                }
+            }
+
+            for (PartialBlock partial : expired) {
+                fallback(partial, "pull-timeout");
+            }
+        }
+    }
+
+    /**
+     * asks the sender of the compact block for the full body
+     */
+    private void fallback(final PartialBlock _partial, final String _reason) {
+        try {
+            boolean sent = syncMgr.requestBody(_partial.nodeIdHash, _partial.displayId, _partial.header);
+            if (log.isDebugEnabled()) {
+                log.debug("<compact-block {} node={} number={} body-requested={}>", _reason,
+                        _partial.displayId, _partial.header.getNumber(), sent);
+            }
+        } catch (Throwable e) {
+            log.error("<compact-block {} exception={}>", _reason, e.toString());
+        }
+    }
+
+    /**
+     * Match the short ids against the pending pool and keep the partial block.
+     *
+     * @param _nodeIdHash int the sender, asked for the full body if the pull times out
+     * @param _displayId String
+     * @param _header A0BlockHeader
+     * @param _shortIds long[]
+     * @return int[] indexes of the txs not found locally, empty when the block
+     *         can be completed right away with {@link #fill}
+     */
+    public int[] assemble(int _nodeIdHash, final String _displayId, final A0BlockHeader _header,
+            final long[] _shortIds) {
+        byte[][] txs = new byte[_shortIds.length][];
+        int[] missing = new int[_shortIds.length];
+        int missingCnt = 0;
+        for (int i = 0; i < _shortIds.length; i++) {
+            AionTransaction tx = this.pendingState.getPendingTxByShortId(_shortIds[i]);
+            if (tx == null)
+                missing[missingCnt++] = i;
+            else
+                txs[i] = tx.getEncoded();
+        }
+
+        int[] rtn = new int[missingCnt];
+        System.arraycopy(missing, 0, rtn, 0, missingCnt);
+        this.partials.put(ByteArrayWrapper.wrap(_header.getHash()),
+                new PartialBlock(_nodeIdHash, _displayId, _header, txs, rtn));
+        return rtn;
+    }
+
+    /**
+     * Complete a partial block with the pulled txs, in the order of the
+     * indexes returned by {@link #assemble}. When the txs do not come from
+     * the sender of the compact block or do not rebuild it, the full body is
+     * requested from that sender instead.
+     *
+     * @param _nodeIdHash int the node the txs came from
+     * @param _blockHash byte[]
+     * @param _txs List encoded txs
+     * @return AionBlock null if the block is unknown, the responder is not the
+     *         sender, the tx count does not match or the rebuilt body fails
+     *         the tx trie root check (short id collision)
+     */
+    public AionBlock fill(int _nodeIdHash, final byte[] _blockHash, final List<byte[]> _txs) {
+        PartialBlock partial = this.partials.remove(ByteArrayWrapper.wrap(_blockHash));
+        if (partial == null)
+            return null;
+
+        if (partial.nodeIdHash != _nodeIdHash) {
+            fallback(partial, "unexpected-responder");
+            return null;
+        }
+
+        AionBlock block = null;
+        if (_txs.size() == partial.missing.length) {
+            for (int i = 0; i < partial.missing.length; i++) {
+                partial.txs[partial.missing[i]] = _txs.get(i);
+            }
+
+            try {
+                byte[] body = RLP.encodeList(RLP.encodeList(partial.txs));
+                block = AionBlock.createBlockFromNetwork(partial.header, body);
+            } catch (Exception e) {
+                block = null;
+            }
+        }
+
+        if (block == null)
+            fallback(partial, "rebuild-failed");
+        return block;
+    }
+}
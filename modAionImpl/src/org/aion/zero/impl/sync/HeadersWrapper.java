@@ -44,20 +44,33 @@ final class HeadersWrapper {
 
     private long timestamp;
 
+    private long sentTimestamp;
+
     private List<A0BlockHeader> headers;
 
+    private long size;
+
     /**
      *
      * @param _nodeIdHash int
      * @param _headers List
+     * @param _size long estimated bytes of the headers
      */
-    HeadersWrapper(int _nodeIdHash, String _displayId, final List<A0BlockHeader> _headers){
+    HeadersWrapper(int _nodeIdHash, String _displayId, final List<A0BlockHeader> _headers, long _size){
         this.nodeIdHash = _nodeIdHash;
         this.displayId = _displayId;
         this.headers = _headers;
+        this.size = _size;
         this.timestamp = System.currentTimeMillis();
     }
 
+    /**
+     * @return long - estimated bytes, counted against the sync queue budget
+     */
+    long getSize(){
+        return this.size;
+    }
+
     /**
      * @return int - node id hash
      */
@@ -78,6 +91,21 @@ final class HeadersWrapper {
         return this.timestamp;
     }
 
+    /**
+     * records when the bodies for these headers were requested
+     */
+    void markSent(){
+        this.sentTimestamp = System.currentTimeMillis();
+    }
+
+    /**
+     * @return long
+     * used to measure the bodies round trip
+     */
+    long getSentTimestamp(){
+        return this.sentTimestamp;
+    }
+
     /**
      * @return List
      */
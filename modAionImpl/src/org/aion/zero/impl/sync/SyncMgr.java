@@ -48,8 +48,10 @@ import org.aion.evtmgr.IEventMgr;
 import org.aion.evtmgr.impl.evt.EventConsensus;
 import org.aion.log.AionLoggerFactory;
 import org.aion.log.LogEnum;
+import org.aion.p2p.INode;
 import org.aion.p2p.IP2pMgr;
 import org.aion.zero.impl.AionBlockchainImpl;
+import org.aion.zero.impl.sync.msg.ReqBlocksBodies;
 import org.aion.zero.impl.types.AionBlock;
 import org.aion.zero.types.A0BlockHeader;
 
@@ -61,6 +63,12 @@ public final class SyncMgr {
     // interval - show status
     private static final int INTERVAL_SHOW_STATUS = 10000;
 
+    // headers queue gets this fraction of the blocks queue memory budget
+    private static final int HEADERS_QUEUE_MEM_RATIO = 8;
+
+    // single block bodies pulled for compact blocks that could not be completed
+    private static final int BODY_PULL_MAX = 64;
+
     private final static Logger log = AionLoggerFactory.getLogger(LogEnum.SYNC.name());
 
     private int syncBackwardMin;
@@ -69,8 +77,6 @@ public final class SyncMgr {
     private int syncRequestMax;
     private int syncResponseMax;
 
-    private int blocksQueueMax; // block header wrappers
-
     private AionBlockchainImpl chain;
 
     private IP2pMgr p2pMgr;
@@ -89,11 +95,19 @@ public final class SyncMgr {
     // store headers that has been sent to fetch block bodies
     private final ConcurrentHashMap<Integer, HeadersWrapper> sentHeaders = new ConcurrentHashMap<>();
 
+    // body pulls for compact blocks by block hash, apart from the per peer sync requests above
+    private final Map<ByteArrayWrapper, HeadersWrapper> sentBodyPulls = Collections.synchronizedMap(new LRUMap<>(BODY_PULL_MAX));
+
+    // send time of the outstanding status / headers request per peer, to measure round trip
+    private final ConcurrentHashMap<Integer, Long> sentStatus = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<Integer, Long> sentHeadersReq = new ConcurrentHashMap<>();
+
     // store validated headers from network
-    private final BlockingQueue<HeadersWrapper> importedHeaders = new LinkedBlockingQueue<>();
+    private SyncQueue<HeadersWrapper> importedHeaders;
 
     // store blocks that ready to save to db
-    private final BlockingQueue<BlocksWrapper> importedBlocks = new LinkedBlockingQueue<>();
+    private SyncQueue<BlocksWrapper> importedBlocks;
 
     //private ExecutorService workers = Executors.newFixedThreadPool(5);
     private ExecutorService workers = Executors.newCachedThreadPool(new ThreadFactory() {
@@ -181,7 +195,7 @@ public final class SyncMgr {
 
     public void init(final IP2pMgr _p2pMgr, final IEventMgr _evtMgr, final int _syncBackwardMin, final int _syncBackwardMax,
                      final int _syncRequestMax, final int _syncResponseMax, final int _blocksQueueMax,
-                     final boolean _showStatus, final boolean _printReport, final String _reportFolder) {
+                     final int _blocksQueueMemMax, final boolean _showStatus, final boolean _printReport, final String _reportFolder) {
         this.p2pMgr = _p2pMgr;
         this.chain = AionBlockchainImpl.inst();
         this.evtMgr = _evtMgr;
@@ -192,18 +206,21 @@ public final class SyncMgr {
         this.syncRequestMax = _syncRequestMax;
         this.syncResponseMax = _syncResponseMax;
 
-        this.blocksQueueMax = _blocksQueueMax;
+        long blocksQueueBytes = _blocksQueueMemMax * 1024L * 1024L;
+        this.importedBlocks = new SyncQueue<>(_blocksQueueMax, blocksQueueBytes, BlocksWrapper::getSize);
+        this.importedHeaders = new SyncQueue<>(_blocksQueueMax, blocksQueueBytes / HEADERS_QUEUE_MEM_RATIO,
+                HeadersWrapper::getSize);
 
         this.blockHeaderValidator = new ChainConfiguration().createBlockHeaderValidator();
 
         long selfBest = this.chain.getBestBlock().getNumber();
         SyncStatics statics = new SyncStatics(selfBest);
 
-        new Thread(new TaskGetBodies(this.p2pMgr, this.start, this.importedHeaders, this.sentHeaders, log), "sync-gb").start();
+        new Thread(new TaskGetBodies(this.p2pMgr, this.chain, this.start, this.importedHeaders, this.importedBlocks, this.sentHeaders, log), "sync-gb").start();
         new Thread(new TaskImportBlocks(this.p2pMgr, this.chain, this.start, this.importedBlocks, statics, log, importedBlockHashes), "sync-ib").start();
-        new Thread(new TaskGetStatus(this.start, this.p2pMgr, log), "sync-gs").start();
+        new Thread(new TaskGetStatus(this.start, this.p2pMgr, this.sentStatus, log), "sync-gs").start();
         if(_showStatus)
-            new Thread(new TaskShowStatus(this.start, INTERVAL_SHOW_STATUS, this.chain, this.networkStatus, statics, log, _printReport, _reportFolder), "sync-ss").start();
+            new Thread(new TaskShowStatus(this.start, INTERVAL_SHOW_STATUS, this.chain, this.networkStatus, statics, this.importedHeaders, this.importedBlocks, log, _printReport, _reportFolder), "sync-ss").start();
 
         setupEventHandler();
     }
@@ -215,13 +232,31 @@ public final class SyncMgr {
     }
 
     private void getHeaders(BigInteger _selfTd){
-        if (importedBlocks.size() > blocksQueueMax) {
-            log.debug("Imported blocks queue is full. Stop requesting headers");
+        if (importedBlocks.isFull() || importedHeaders.isFull()) {
+            log.debug("Sync queues are full. Stop requesting headers");
             return;
         }
 
         workers.submit(new TaskGetHeaders(p2pMgr, chain.getBestBlock().getNumber(), _selfTd,
-                syncBackwardMin, syncBackwardMax, syncRequestMax,  log));
+                syncBackwardMin, syncBackwardMax, syncRequestMax, this.sentHeadersReq, log));
+    }
+
+    /**
+     * @param _node INode
+     * status responses are small, only the round trip is fed into the peer score
+     */
+    public void recordStatusResponse(final INode _node) {
+        Long ts = this.sentStatus.remove(_node.getIdHash());
+        if (ts != null)
+            _node.recordResponse(System.currentTimeMillis() - ts, 0);
+    }
+
+    private void recordResponse(int _nodeIdHashcode, Long _sentTs, int _size) {
+        if (_sentTs == null)
+            return;
+        INode node = this.p2pMgr.getActiveNodes().get(_nodeIdHashcode);
+        if (node != null)
+            node.recordResponse(System.currentTimeMillis() - _sentTs, _size);
     }
 
     /**
@@ -229,12 +264,15 @@ public final class SyncMgr {
      * @param _nodeIdHashcode int
      * @param _displayId String
      * @param _headers List validate headers batch and add batch to imported headers
+     * @param _size int response size in bytes
      */
-    public void validateAndAddHeaders(int _nodeIdHashcode, String _displayId, List<A0BlockHeader> _headers) {
+    public void validateAndAddHeaders(int _nodeIdHashcode, String _displayId, List<A0BlockHeader> _headers, int _size) {
         if (_headers == null || _headers.isEmpty()) {
             return;
         }
 
+        Long sentTs = this.sentHeadersReq.remove(_nodeIdHashcode);
+
         if (log.isDebugEnabled()) {
             log.debug(
                     "<incoming-headers from-num={} to-num={} node={}>",
@@ -256,6 +294,7 @@ public final class SyncMgr {
                 // Print header to allow debugging
                 log.debug("Invalid header: {}", current.toString());
 
+                p2pMgr.getNodeMgr().recordInvalidResponse(_nodeIdHashcode);
                 return;
             }
 
@@ -267,6 +306,7 @@ public final class SyncMgr {
                         prev.getNumber() + 1,
                         ByteUtil.toHexString(current.getParentHash()),
                         ByteUtil.toHexString(prev.getHash()));
+                p2pMgr.getNodeMgr().recordInvalidResponse(_nodeIdHashcode);
                 return;
             }
 
@@ -277,25 +317,34 @@ public final class SyncMgr {
             prev = current;
         }
 
+        recordResponse(_nodeIdHashcode, sentTs, _size);
+
         // _headers.sort((h1, h2) -> (int) (h1.getNumber() - h2.getNumber()));
-        if(filtered.size() > 0)
-            importedHeaders.add(new HeadersWrapper(_nodeIdHashcode, _displayId, filtered));
+        if(filtered.size() > 0) {
+            long size = (long) _size * filtered.size() / _headers.size();
+            if (!importedHeaders.offer(new HeadersWrapper(_nodeIdHashcode, _displayId, filtered, size)))
+                log.debug("<imported-headers queue full, drop batch node={}>", _displayId);
+        }
     }
 
     /**
      * @param _nodeIdHashcode int
      * @param _displayId String
      * @param _bodies List<byte[]>
+     * @param _size int response size in bytes
      * Assemble and validate blocks batch and add batch
      * to import queue from network response blocks bodies
      */
-    public void validateAndAddBlocks(int _nodeIdHashcode, String _displayId, final List<byte[]> _bodies) {
+    public void validateAndAddBlocks(int _nodeIdHashcode, String _displayId, final List<byte[]> _bodies, int _size) {
 
-        if (importedBlocks.size() > blocksQueueMax) {
+        if (importedBlocks.isFull()) {
             log.debug("Imported blocks queue is full. Stop validating incoming bodies");
             return;
         }
 
+        if (_bodies != null && _bodies.size() == 1 && addPulledBody(_nodeIdHashcode, _displayId, _bodies.get(0), _size))
+            return;
+
         HeadersWrapper hw = this.sentHeaders.remove(_nodeIdHashcode);
         if (hw == null || _bodies == null)
             return;
@@ -309,6 +358,7 @@ public final class SyncMgr {
             AionBlock block = AionBlock.createBlockFromNetwork(headerIt.next(), bodyIt.next());
             if (block == null) {
                 log.error("<assemble-and-validate-blocks node={}>", _displayId);
+                p2pMgr.getNodeMgr().recordInvalidResponse(_nodeIdHashcode);
                 break;
             } else
                 blocks.add(block);
@@ -318,6 +368,9 @@ public final class SyncMgr {
         if (m == 0)
             return;
 
+        if (m == headers.size())
+            recordResponse(_nodeIdHashcode, hw.getSentTimestamp(), _size);
+
         if (log.isDebugEnabled()) {
             log.debug("<incoming-bodies from-num={} to-num={} node={}>",
                     blocks.get(0).getNumber(),
@@ -326,9 +379,99 @@ public final class SyncMgr {
         }
 
         // add batch
-        importedBlocks.add(new BlocksWrapper(_nodeIdHashcode, _displayId, blocks));
+        if (!importedBlocks.offer(new BlocksWrapper(_nodeIdHashcode, _displayId, blocks, _size)))
+            log.debug("<imported-blocks queue full, drop batch node={}>", _displayId);
     }
     
+    /**
+     * Match a single body response against the compact block pulls sent to
+     * the node; the tx trie root of the header tells which block it belongs to.
+     *
+     * @return boolean true if the body answered a pull and was queued for import
+     */
+    private boolean addPulledBody(int _nodeIdHashcode, String _displayId, final byte[] _body, int _size) {
+        List<Map.Entry<ByteArrayWrapper, HeadersWrapper>> candidates = new ArrayList<>();
+        synchronized (this.sentBodyPulls) {
+            for (Map.Entry<ByteArrayWrapper, HeadersWrapper> e : this.sentBodyPulls.entrySet()) {
+                if (e.getValue().getNodeIdHash() == _nodeIdHashcode)
+                    candidates.add(e);
+            }
+        }
+
+        for (Map.Entry<ByteArrayWrapper, HeadersWrapper> e : candidates) {
+            AionBlock block;
+            try {
+                block = AionBlock.createBlockFromNetwork(e.getValue().getHeaders().get(0), _body);
+            } catch (Exception ex) {
+                return false;
+            }
+            if (block == null || this.sentBodyPulls.remove(e.getKey()) == null)
+                continue;
+
+            recordResponse(_nodeIdHashcode, e.getValue().getSentTimestamp(), _size);
+
+            if (log.isDebugEnabled()) {
+                log.debug("<incoming-pulled-body num={} node={}>", block.getNumber(), _displayId);
+            }
+
+            if (!importedBlocks.offer(new BlocksWrapper(_nodeIdHashcode, _displayId, Collections.singletonList(block), _size)))
+                log.debug("<imported-blocks queue full, drop pulled body node={}>", _displayId);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Request the body of a block whose header is already known, the block
+     * then goes to the import queue like synced blocks. Used when the txs of
+     * a compact block never arrive or do not rebuild the block. Tracked by
+     * block hash, so it neither waits for nor holds back the sync requests
+     * to the same node.
+     *
+     * @param _nodeIdHashcode int
+     * @param _displayId String
+     * @param _header A0BlockHeader
+     * @return boolean false if the body of this block is already being pulled
+     */
+    public boolean requestBody(int _nodeIdHashcode, String _displayId, final A0BlockHeader _header) {
+        HeadersWrapper hw = new HeadersWrapper(_nodeIdHashcode, _displayId, Collections.singletonList(_header),
+                _header.getEncoded().length);
+        hw.markSent();
+        if (this.sentBodyPulls.putIfAbsent(ByteArrayWrapper.wrap(_header.getHash()), hw) != null)
+            return false;
+
+        this.p2pMgr.send(_nodeIdHashcode, new ReqBlocksBodies(Collections.singletonList(_header.getHash())));
+        return true;
+    }
+
+    /**
+     * @return int - header batches waiting for bodies to be requested
+     */
+    public int getHeadersQueueDepth() {
+        return this.importedHeaders.size();
+    }
+
+    /**
+     * @return long - estimated bytes of the queued header batches
+     */
+    public long getHeadersQueueBytes() {
+        return this.importedHeaders.bytes();
+    }
+
+    /**
+     * @return int - block batches waiting for import
+     */
+    public int getBlocksQueueDepth() {
+        return this.importedBlocks.size();
+    }
+
+    /**
+     * @return long - estimated bytes of the queued block batches
+     */
+    public long getBlocksQueueBytes() {
+        return this.importedBlocks.bytes();
+    }
+
     public long getNetworkBestBlockNumber() {
         synchronized (this.networkStatus){
             return this.networkStatus.getTargetBestBlockNumber();
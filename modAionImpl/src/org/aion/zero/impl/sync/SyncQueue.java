@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ * This file is part of the aion network project.
+ *
+ * The aion network project is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * The aion network project is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the aion network project source files.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * The aion network project leverages useful source code from other
+ * open source projects. We greatly appreciate the effort that was
+ * invested in these projects and we thank the individual contributors
+ * for their work. For provenance information and contributors
+ * please see <https://github.com/aionnetwork/aion/wiki/Contributors>.
+ *
+ * Contributors to the aion source files in decreasing order of code volume:
+ * Aion foundation.
+ * <ether.camp> team through the ethereumJ library.
+ * Ether.Camp Inc. (US) team through Ethereum Harmony.
+ * John Tromp through the Equihash solver.
+ * Samuel Neves through the BLAKE2 implementation.
+ * Zcash project team.
+ * Bitcoinj team.
+ */
+
+package org.aion.zero.impl.sync;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToLongFunction;
+
+/**
+ * Sync batch queue bounded by both item count and the estimated bytes of the
+ * batches it holds. A batch is always accepted into an empty queue so a single
+ * large batch cannot stall sync.
+ *
+ * Producers on network threads use {@link #offer} and drop the batch when the
+ * queue is full; request loops call {@link #awaitCapacity} or {@link #isFull}
+ * before asking peers for more.
+ *
+ * @param <E> batch type
+ */
+final class SyncQueue<E> {
+
+    private final int maxItems;
+
+    private final long maxBytes;
+
+    private final ToLongFunction<E> sizeOf;
+
+    private final ArrayDeque<E> items = new ArrayDeque<>();
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition notEmpty = lock.newCondition();
+
+    private final Condition notFull = lock.newCondition();
+
+    private long bytes;
+
+    /**
+     * @param _maxItems int
+     * @param _maxBytes long
+     * @param _sizeOf ToLongFunction estimated bytes of a batch
+     */
+    SyncQueue(int _maxItems, long _maxBytes, final ToLongFunction<E> _sizeOf) {
+        this.maxItems = _maxItems;
+        this.maxBytes = _maxBytes;
+        this.sizeOf = _sizeOf;
+    }
+
+    private boolean full() {
+        return !items.isEmpty() && (items.size() >= maxItems || bytes >= maxBytes);
+    }
+
+    /**
+     * @param _e E
+     * @return boolean false if the queue is full and the batch was not added
+     */
+    boolean offer(final E _e) {
+        lock.lock();
+        try {
+            if (full())
+                return false;
+            items.add(_e);
+            bytes += sizeOf.applyAsLong(_e);
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    E take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (items.isEmpty())
+                notEmpty.await();
+            E e = items.poll();
+            bytes -= sizeOf.applyAsLong(e);
+            notFull.signalAll();
+            return e;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * blocks until the queue has room for another batch or the timeout elapses
+     *
+     * @return boolean true if there is room
+     */
+    boolean awaitCapacity(long _timeout, final TimeUnit _unit) throws InterruptedException {
+        long nanos = _unit.toNanos(_timeout);
+        lock.lockInterruptibly();
+        try {
+            while (full()) {
+                if (nanos <= 0)
+                    return false;
+                nanos = notFull.awaitNanos(nanos);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    boolean isFull() {
+        lock.lock();
+        try {
+            return full();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int size() {
+        lock.lock();
+        try {
+            return items.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return long estimated bytes of the queued batches
+     */
+    long bytes() {
+        lock.lock();
+        try {
+            return bytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -30,14 +30,15 @@
 package org.aion.zero.impl.sync;
 
 import org.aion.p2p.IP2pMgr;
+import org.aion.zero.impl.AionBlockchainImpl;
 import org.aion.zero.impl.sync.msg.ReqBlocksBodies;
 import org.aion.zero.types.A0BlockHeader;
 import org.slf4j.Logger;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
@@ -50,11 +51,18 @@ final class TaskGetBodies implements Runnable {
     // timeout sent headers
     private final static int SENT_HEADERS_TIMEOUT = 10000;
 
+    // how long to wait for room in the blocks queue before checking run again
+    private final static int BACKPRESSURE_WAIT = 1000;
+
     private final IP2pMgr p2p;
 
+    private final AionBlockchainImpl chain;
+
     private final AtomicBoolean run;
 
-    private final BlockingQueue<HeadersWrapper> headersImported;
+    private final SyncQueue<HeadersWrapper> headersImported;
+
+    private final SyncQueue<BlocksWrapper> blocksImported;
 
     private final ConcurrentHashMap<Integer, HeadersWrapper> headersSent;
 
@@ -63,19 +71,25 @@ final class TaskGetBodies implements Runnable {
     /**
      *
      * @param _p2p IP2pMgr
+     * @param _chain AionBlockchainImpl
      * @param _run AtomicBoolean
-     * @param _headersImported BlockingQueue
+     * @param _headersImported SyncQueue
+     * @param _blocksImported SyncQueue bodies are only requested while it has room
      * @param _headersSent ConcurrentHashMap
      */
     TaskGetBodies(
             final IP2pMgr _p2p,
+            final AionBlockchainImpl _chain,
             final AtomicBoolean _run,
-            final BlockingQueue<HeadersWrapper> _headersImported,
+            final SyncQueue<HeadersWrapper> _headersImported,
+            final SyncQueue<BlocksWrapper> _blocksImported,
             final ConcurrentHashMap<Integer, HeadersWrapper> _headersSent,
             final Logger log){
         this.p2p = _p2p;
+        this.chain = _chain;
         this.run = _run;
         this.headersImported = _headersImported;
+        this.blocksImported = _blocksImported;
         this.headersSent = _headersSent;
         this.log = log;
     }
@@ -85,6 +99,10 @@ final class TaskGetBodies implements Runnable {
         while (run.get()) {
             HeadersWrapper hw;
             try {
+                // backpressure, hold body requests while import falls behind
+                if (!blocksImported.awaitCapacity(BACKPRESSURE_WAIT, TimeUnit.MILLISECONDS)) {
+                    continue;
+                }
                 hw = headersImported.take();
             } catch (InterruptedException e) {
                 continue;
@@ -96,8 +114,18 @@ final class TaskGetBodies implements Runnable {
                 continue;
             }
 
+            // stale, the whole batch got imported while it was queued
+            A0BlockHeader last = headers.get(headers.size() - 1);
+            if (last.getNumber() <= chain.getBestBlock().getNumber() && chain.isBlockExist(last.getHash())) {
+                if (log.isDebugEnabled()) {
+                    log.debug("<get-bodies drop-stale to-num={} node={}>", last.getNumber(), hw.getDisplayId());
+                }
+                continue;
+            }
+
             HeadersWrapper hwPrevious = headersSent.get(idHash);
             if (hwPrevious == null || (System.currentTimeMillis() - hwPrevious.getTimestamp()) > SENT_HEADERS_TIMEOUT) {
+                hw.markSent();
                 this.headersSent.put(idHash, hw);
 
                 if (log.isDebugEnabled()) {
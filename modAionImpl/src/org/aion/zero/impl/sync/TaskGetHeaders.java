@@ -31,13 +31,14 @@ package org.aion.zero.impl.sync;
 
 import org.aion.p2p.INode;
 import org.aion.p2p.IP2pMgr;
+import org.aion.p2p.NodePicker;
 import org.aion.zero.impl.sync.msg.ReqBlocksHeaders;
 import org.slf4j.Logger;
 
 import java.math.BigInteger;
 import java.util.Collection;
 import java.util.List;
-import java.util.Random;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -45,6 +46,9 @@ import java.util.stream.Collectors;
  */
 final class TaskGetHeaders implements Runnable {
 
+    // outstanding requests older than this no longer hold back a new send time
+    private final static int SENT_REQ_TIMEOUT = 10000;
+
     private final IP2pMgr p2p;
 
     private final long selfNumber;
@@ -57,18 +61,19 @@ final class TaskGetHeaders implements Runnable {
 
     private final int requestMax;
 
-    private final Logger log;
+    private final Map<Integer, Long> sentReq;
 
-    private final Random random = new Random(System.currentTimeMillis());
+    private final Logger log;
 
     TaskGetHeaders(IP2pMgr p2p, long selfNumber, BigInteger selfTd, int backwardMin, int backwardMax, int requestMax,
-            Logger log) {
+            Map<Integer, Long> sentReq, Logger log) {
         this.p2p = p2p;
         this.selfNumber = selfNumber;
         this.selfTd = selfTd;
         this.backwardMin = backwardMin;
         this.backwardMax = backwardMax;
         this.requestMax = requestMax;
+        this.sentReq = sentReq;
         this.log = log;
     }
 
@@ -92,7 +97,7 @@ final class TaskGetHeaders implements Runnable {
 
         // @TODO: when nodes TD highly distributed in wide range, simple way is only pick top 8 node for sync.
         // looking for better strategy here.
-        INode node = nodesFiltered.get(random.nextInt(Math.min(nodesFiltered.size(), 8)));
+        INode node = NodePicker.pickByScore(nodesFiltered.subList(0, Math.min(nodesFiltered.size(), 8)));
 
         if (log.isDebugEnabled()) {
             log.debug("<sync with={} BB={}>", node.getIdShort(), node.getBestBlockNumber());
@@ -114,6 +119,8 @@ final class TaskGetHeaders implements Runnable {
             log.debug("<get-headers from-num={} size={} node={}>", from, requestMax, node.getIdShort());
         }
         ReqBlocksHeaders rbh = new ReqBlocksHeaders(from, requestMax);
+        this.sentReq.merge(node.getIdHash(), System.currentTimeMillis(),
+                (prev, now) -> now - prev > SENT_REQ_TIMEOUT ? now : prev);
         this.p2p.send(node.getIdHash(), rbh);
     }
 }
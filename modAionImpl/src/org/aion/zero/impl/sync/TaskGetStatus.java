@@ -34,6 +34,7 @@ import org.aion.zero.impl.sync.msg.ReqStatus;
 import org.slf4j.Logger;
 
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -55,16 +56,20 @@ final class TaskGetStatus implements Runnable {
 
     private final IP2pMgr p2p;
 
+    private final Map<Integer, Long> sentStatus;
+
     private final Logger log;
 
     /**
      * @param _run      AtomicBoolean
      * @param _p2p      IP2pMgr
+     * @param _sentStatus Map send time per peer, read back on response
      * @param _log      Logger
      */
-    TaskGetStatus(final AtomicBoolean _run, final IP2pMgr _p2p, final Logger _log) {
+    TaskGetStatus(final AtomicBoolean _run, final IP2pMgr _p2p, final Map<Integer, Long> _sentStatus, final Logger _log) {
         this.run = _run;
         this.p2p = _p2p;
+        this.sentStatus = _sentStatus;
         this.log = _log;
     }
 
@@ -74,7 +79,9 @@ final class TaskGetStatus implements Runnable {
             Set<Integer> ids = new HashSet<>(p2p.getActiveNodes().keySet());
 
             try {
+                sentStatus.keySet().retainAll(ids);
                 for (int id : ids) {
+                    sentStatus.put(id, System.currentTimeMillis());
                     p2p.send(id, reqStatus);
                     Thread.sleep(1000L);
                 }
@@ -38,7 +38,6 @@ import org.slf4j.Logger;
 
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -54,7 +53,7 @@ final class TaskImportBlocks implements Runnable {
 
     private final AtomicBoolean start;
 
-    private final BlockingQueue<BlocksWrapper> importedBlocks;
+    private final SyncQueue<BlocksWrapper> importedBlocks;
 
     private final SyncStatics statis;
 
@@ -66,7 +65,7 @@ final class TaskImportBlocks implements Runnable {
             final IP2pMgr p2p,
             final AionBlockchainImpl _chain,
             final AtomicBoolean _start,
-            final BlockingQueue<BlocksWrapper> _importedBlocks,
+            final SyncQueue<BlocksWrapper> _importedBlocks,
             final SyncStatics _statis,
             final Logger _log,
             final Map<ByteArrayWrapper, Object> importedBlockHashes
@@ -93,6 +92,15 @@ final class TaskImportBlocks implements Runnable {
             }
 
             List<AionBlock> batch = bw.getBlocks();
+
+            // stale, the whole batch is already on chain
+            AionBlock last = batch.get(batch.size() - 1);
+            if (last.getNumber() <= this.chain.getBestBlock().getNumber() && this.chain.isBlockExist(last.getHash())) {
+                if (log.isDebugEnabled()) {
+                    log.debug("<import-blocks drop-stale to-num={} node={}>", last.getNumber(), bw.getDisplayId());
+                }
+                continue;
+            }
             for (AionBlock b : batch) {
                 if (importedBlockHashes.containsKey(ByteArrayWrapper.wrap(b.getHash()))) {
                     continue;
@@ -55,19 +55,26 @@ final class TaskShowStatus implements Runnable {
 
     private final SyncStatics statics;
 
+    private final SyncQueue<HeadersWrapper> headersQueue;
+
+    private final SyncQueue<BlocksWrapper> blocksQueue;
+
     private final Logger log;
 
     private final boolean printReport;
     private final String reportFolder;
 
     TaskShowStatus(final AtomicBoolean _start, int _interval, final AionBlockchainImpl _chain,
-            final NetworkStatus _networkStatus, final SyncStatics _statics, final Logger _log,
+            final NetworkStatus _networkStatus, final SyncStatics _statics,
+            final SyncQueue<HeadersWrapper> _headersQueue, final SyncQueue<BlocksWrapper> _blocksQueue, final Logger _log,
             final boolean _printReport, final String _reportFolder) {
         this.start = _start;
         this.interval = _interval;
         this.chain = _chain;
         this.networkStatus = _networkStatus;
         this.statics = _statics;
+        this.headersQueue = _headersQueue;
+        this.blocksQueue = _blocksQueue;
         this.log = _log;
         this.printReport = _printReport;
         this.reportFolder = _reportFolder;
@@ -85,7 +92,9 @@ final class TaskShowStatus implements Runnable {
                     + " td=" + selfTd + "/" + networkStatus.getTargetTotalDiff().toString(10) //
                     + " b-num=" + selfBest.getNumber() + "/" + this.networkStatus.getTargetBestBlockNumber() //
                     + " b-hash=" + Hex.toHexString(this.chain.getBestBlockHash()) //
-                    + "/" + this.networkStatus.getTargetBestBlockHash() + "]";
+                    + "/" + this.networkStatus.getTargetBestBlockHash() //
+                    + " q-headers=" + this.headersQueue.size() + "/" + (this.headersQueue.bytes() >> 10) + "KB" //
+                    + " q-blocks=" + this.blocksQueue.size() + "/" + (this.blocksQueue.bytes() >> 10) + "KB]";
 
             // print to std output
             System.out.println(status);
@@ -40,13 +40,20 @@ import org.aion.log.AionLoggerFactory;
 import org.aion.log.LogEnum;
 import org.aion.mcf.core.ImportResult;
 import org.aion.mcf.valid.BlockHeaderValidator;
+import org.aion.p2p.Ctrl;
+import org.aion.p2p.INode;
 import org.aion.p2p.IP2pMgr;
+import org.aion.p2p.Msg;
 import org.aion.zero.impl.core.IAionBlockchain;
+import org.aion.zero.impl.sync.msg.BroadcastCompactBlock;
 import org.aion.zero.impl.sync.msg.BroadcastNewBlock;
 import org.aion.zero.impl.types.AionBlock;
 import org.aion.zero.types.A0BlockHeader;
+import org.aion.zero.types.AionTransaction;
 import org.apache.commons.collections4.map.LRUMap;
 import org.slf4j.Logger;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -86,6 +93,12 @@ public class BlockPropagationHandler {
      */
     private final Map<ByteArrayWrapper, Boolean> cacheMap;
 
+    /**
+     * blocks relayed recently, to serve the txs peers could not rebuild from a
+     * compact block; they may not be imported yet when the pull arrives
+     */
+    private final Map<ByteArrayWrapper, AionBlock> relayedMap = Collections.synchronizedMap(new LRUMap<>(32));
+
     private final IP2pMgr p2pManager;
 
     private final BlockHeaderValidator<A0BlockHeader> blockHeaderValidator;
@@ -119,12 +132,52 @@ public class BlockPropagationHandler {
         synchronized(this.cacheMap) {
             this.cacheMap.put(hashWrapped, true);
         }
+        this.relayedMap.put(hashWrapped, block);
+
+        BroadcastNewBlock full = new BroadcastNewBlock(block);
+        BroadcastCompactBlock compact = compact(block);
+
+        // best scored peers first so the block reaches fast peers early
+        this.p2pManager.getActiveNodes().values()
+                .stream()
+                .sorted((n1, n2) -> Double.compare(n2.getScore(), n1.getScore()))
+                .forEach(n -> {
+                    if (log.isDebugEnabled())
+                        log.debug("<sending-new-block=" + block.getShortHash() + " to=" + n.getIdShort() + ">");
+                    this.p2pManager.send(n.getIdHash(), msgFor(n, full, compact));
+                });
+    }
+
+    /**
+     * @param _hash byte[]
+     * @return boolean true if the block was already seen and needs no rebuild
+     */
+    public boolean isKnownBlock(final byte[] _hash) {
+        synchronized(this.cacheMap) {
+            return this.cacheMap.get(ByteArrayWrapper.wrap(_hash)) != null;
+        }
+    }
+
+    /**
+     * @param _hash byte[]
+     * @return AionBlock recently relayed or stored block, null if unknown
+     */
+    public AionBlock getRelayedBlock(final byte[] _hash) {
+        AionBlock block = this.relayedMap.get(ByteArrayWrapper.wrap(_hash));
+        return block != null ? block : this.blockchain.getBlockByHash(_hash);
+    }
+
+    private static BroadcastCompactBlock compact(final AionBlock _block) {
+        List<AionTransaction> txs = _block.getTransactionsList();
+        long[] shortIds = new long[txs.size()];
+        for (int i = 0; i < shortIds.length; i++) {
+            shortIds[i] = BroadcastCompactBlock.shortId(txs.get(i).getHash());
+        }
+        return new BroadcastCompactBlock(_block.getHeader(), shortIds);
+    }
 
-        this.p2pManager.getActiveNodes().values().forEach(n -> {
-            if (log.isDebugEnabled())
-                log.debug("<sending-new-block=" + block.getShortHash() + " to=" + n.getIdShort() + ">");
-            this.p2pManager.send(n.getIdHash(), new BroadcastNewBlock(block));
-        });
+    private static Msg msgFor(final INode _node, final BroadcastNewBlock _full, final BroadcastCompactBlock _compact) {
+        return (_node.getCapabilities() & Ctrl.FLAG_COMPACT_BLOCK) != 0 ? _compact : _full;
     }
 
     public PropStatus processIncomingBlock(final int nodeId, final String _displayId, final AionBlock block) {
@@ -201,6 +254,9 @@ public class BlockPropagationHandler {
     private boolean send(AionBlock block, int nodeId) {
         // current proposal is to send to all peers with lower blockNumbers
         AtomicBoolean sent = new AtomicBoolean();
+        this.relayedMap.put(ByteArrayWrapper.wrap(block.getHash()), block);
+        BroadcastNewBlock full = new BroadcastNewBlock(block);
+        BroadcastCompactBlock compact = compact(block);
         this.p2pManager.getActiveNodes().values()
                 .stream()
                 .filter(n -> n.getIdHash() != nodeId)
@@ -209,10 +265,11 @@ public class BlockPropagationHandler {
                     long delta = block.getNumber() - n.getBestBlockNumber();
                     return (delta >= 0 && delta <= 100) || (n.getBestBlockNumber() == 0);
                 })
+                .sorted((n1, n2) -> Double.compare(n2.getScore(), n1.getScore()))
                 .forEach(n -> {
                     if (log.isDebugEnabled())
                         log.debug("<sending-new-block hash=" + block.getShortHash() + " to-node=" + n.getIdShort() + ">");
-                    this.p2pManager.send(n.getIdHash(), new BroadcastNewBlock(block));
+                    this.p2pManager.send(n.getIdHash(), msgFor(n, full, compact));
                     sent.getAndSet(true);
                 });
         return sent.get();
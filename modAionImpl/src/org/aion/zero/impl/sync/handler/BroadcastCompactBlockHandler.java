@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ * This file is part of the aion network project.
+ *
+ * The aion network project is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * The aion network project is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the aion network project source files.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * The aion network project leverages useful source code from other
+ * open source projects. We greatly appreciate the effort that was
+ * invested in these projects and we thank the individual contributors
+ * for their work. For provenance information and contributors
+ * please see <https://github.com/aionnetwork/aion/wiki/Contributors>.
+ *
+ * Contributors to the aion source files in decreasing order of code volume:
+ * Aion foundation.
+ * <ether.camp> team through the ethereumJ library.
+ * Ether.Camp Inc. (US) team through Ethereum Harmony.
+ * John Tromp through the Equihash solver.
+ * Samuel Neves through the BLAKE2 implementation.
+ * Zcash project team.
+ * Bitcoinj team.
+ */
+
+package org.aion.zero.impl.sync.handler;
+
+import org.aion.base.util.ByteUtil;
+import org.aion.p2p.Ctrl;
+import org.aion.p2p.Handler;
+import org.aion.p2p.IP2pMgr;
+import org.aion.p2p.Ver;
+import org.aion.zero.impl.sync.Act;
+import org.aion.zero.impl.sync.CompactBlockAssembler;
+import org.aion.zero.impl.sync.msg.BroadcastCompactBlock;
+import org.aion.zero.impl.sync.msg.ReqBlockTxs;
+import org.aion.zero.impl.types.AionBlock;
+import org.aion.zero.types.A0BlockHeader;
+import org.slf4j.Logger;
+
+import java.util.Collections;
+
+/**
+ * handler for compact blocks broadcasted from network, rebuilds the block from
+ * the pending pool and pulls the txs missing locally from the sender
+ */
+public final class BroadcastCompactBlockHandler extends Handler {
+
+    private final Logger log;
+
+    private final BlockPropagationHandler propHandler;
+
+    private final CompactBlockAssembler assembler;
+
+    private final IP2pMgr p2pMgr;
+
+    public BroadcastCompactBlockHandler(final Logger _log, final BlockPropagationHandler _propHandler,
+            final CompactBlockAssembler _assembler, final IP2pMgr _p2pMgr) {
+        super(Ver.V0, Ctrl.SYNC, Act.BROADCAST_COMPACT_BLOCK);
+        this.log = _log;
+        this.propHandler = _propHandler;
+        this.assembler = _assembler;
+        this.p2pMgr = _p2pMgr;
+    }
+
+    @Override
+    public void receive(int _nodeIdHashcode, String _displayId, final byte[] _msgBytes) {
+        BroadcastCompactBlock compact = BroadcastCompactBlock.decode(_msgBytes);
+        if (compact == null) {
+            p2pMgr.errCheck(_nodeIdHashcode, _displayId);
+            log.error("<compact-block decode-error from {} len: {}>", _displayId,
+                    _msgBytes == null ? 0 : _msgBytes.length);
+            if (log.isTraceEnabled() && _msgBytes != null) {
+                log.trace("compact-block dump: {}", ByteUtil.toHexString(_msgBytes));
+            }
+            return;
+        }
+
+        A0BlockHeader header = compact.getBlockHeader();
+        if (propHandler.isKnownBlock(header.getHash()))
+            return;
+
+        int[] missing = assembler.assemble(_nodeIdHashcode, _displayId, header, compact.getShortIds());
+
+        if (log.isDebugEnabled()) {
+            log.debug("<compact-block node={} number={} txs={} missing={}>", _displayId, header.getNumber(),
+                    compact.getShortIds().length, missing.length);
+        }
+
+        if (missing.length > 0) {
+            p2pMgr.send(_nodeIdHashcode, new ReqBlockTxs(header.getHash(), missing));
+            return;
+        }
+
+        AionBlock block = assembler.fill(_nodeIdHashcode, header.getHash(), Collections.emptyList());
+        if (block == null) {
+            log.debug("<compact-block rebuild-failed node={} number={}>", _displayId, header.getNumber());
+            return;
+        }
+
+        BlockPropagationHandler.PropStatus result = propHandler.processIncomingBlock(_nodeIdHashcode, _displayId, block);
+        if (log.isDebugEnabled()) {
+            log.debug("<block-prop node=" + _displayId + " block-hash=" + block.getShortHash() + " status=" + result.name() + ">");
+        }
+    }
+}
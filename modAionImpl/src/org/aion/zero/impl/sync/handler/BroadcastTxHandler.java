@@ -44,6 +44,7 @@ import org.aion.p2p.IP2pMgr;
 import org.aion.p2p.Ver;
 import org.aion.zero.impl.sync.Act;
 import org.aion.zero.impl.sync.msg.BroadcastTx;
+import org.aion.zero.impl.tx.TxGossip;
 import org.aion.zero.impl.valid.TXValidator;
 import org.aion.zero.types.AionTransaction;
 import org.slf4j.Logger;
@@ -66,17 +67,21 @@ public final class BroadcastTxHandler extends Handler {
 
     private final IP2pMgr p2pMgr;
 
+    private final TxGossip gossip;
+
     private final Timer timer;
 
     private LinkedBlockingQueue<AionTransaction> txQueue;
 
     private final boolean buffer;
 
-    public BroadcastTxHandler(final Logger _log, final IPendingStateInternal _pendingState, final IP2pMgr _p2pMgr, final boolean enableBuffer) {
+    public BroadcastTxHandler(final Logger _log, final IPendingStateInternal _pendingState, final IP2pMgr _p2pMgr,
+            final TxGossip _gossip, final boolean enableBuffer) {
         super(Ver.V0, Ctrl.SYNC, Act.BROADCAST_TX);
         this.log = _log;
         this.pendingState = _pendingState;
         this.p2pMgr = _p2pMgr;
+        this.gossip = _gossip;
         this.txQueue = new LinkedBlockingQueue<>(50_000);
         this.buffer = enableBuffer;
 
@@ -135,7 +140,7 @@ public final class BroadcastTxHandler extends Handler {
 
         if (this.buffer) {
             try {
-                for (AionTransaction tx : castRawTx(broadCastTx)) {
+                for (AionTransaction tx : castRawTx(_nodeIdHashcode, broadCastTx)) {
                     if (!txQueue.offer(tx)) {
                         if (log.isTraceEnabled()) {
                             log.trace("<BroadcastTxHandler txQueue full! {}>", _displayId);
@@ -148,21 +153,20 @@ public final class BroadcastTxHandler extends Handler {
                 log.error("BroadcastTxHandler throw {}", e.toString());
             }
         } else {
-            pendingState.addPendingTransactions(castRawTx(broadCastTx));
+            pendingState.addPendingTransactions(castRawTx(_nodeIdHashcode, broadCastTx));
         }
     }
 
-    private List<AionTransaction> castRawTx(List<byte[]> broadCastTx) {
-        List<AionTransaction> rtn = new ArrayList<>();
+    private List<AionTransaction> castRawTx(int _nodeIdHashcode, List<byte[]> broadCastTx) {
+        List<AionTransaction> txs = new ArrayList<>();
 
         for (byte[] raw : broadCastTx) {
             try {
                 AionTransaction tx = new AionTransaction(raw);
                 if (tx.getHash() != null) {
+                    gossip.received(_nodeIdHashcode, tx.getHash());
                     if (!TXValidator.isInCache(ByteArrayWrapper.wrap(tx.getHash()))) {
-                        if (TXValidator.isValid(tx)) {
-                            rtn.add(tx);
-                        }
+                        txs.add(tx);
                     }
                 }
             } catch (Exception e) {
@@ -170,6 +174,19 @@ public final class BroadcastTxHandler extends Handler {
             }
         }
 
+        // verify the signatures of the whole broadcast together
+        List<AionTransaction> rtn = new ArrayList<>();
+        try {
+            boolean[] valid = TXValidator.isValid(txs);
+            for (int i = 0; i < valid.length; i++) {
+                if (valid[i]) {
+                    rtn.add(txs.get(i));
+                }
+            }
+        } catch (Exception e) {
+            // do nothing, invalid transaction from bad peer
+        }
+
         return rtn;
     }
 
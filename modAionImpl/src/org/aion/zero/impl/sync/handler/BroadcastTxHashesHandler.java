@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ * This file is part of the aion network project.
+ *
+ * The aion network project is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * The aion network project is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the aion network project source files.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * The aion network project leverages useful source code from other
+ * open source projects. We greatly appreciate the effort that was
+ * invested in these projects and we thank the individual contributors
+ * for their work. For provenance information and contributors
+ * please see <https://github.com/aionnetwork/aion/wiki/Contributors>.
+ *
+ * Contributors to the aion source files in decreasing order of code volume:
+ * Aion foundation.
+ * <ether.camp> team through the ethereumJ library.
+ * Ether.Camp Inc. (US) team through Ethereum Harmony.
+ * John Tromp through the Equihash solver.
+ * Samuel Neves through the BLAKE2 implementation.
+ * Zcash project team.
+ * Bitcoinj team.
+ */
+
+package org.aion.zero.impl.sync.handler;
+
+import org.aion.base.util.ByteArrayWrapper;
+import org.aion.base.util.ByteUtil;
+import org.aion.p2p.Ctrl;
+import org.aion.p2p.Handler;
+import org.aion.p2p.IP2pMgr;
+import org.aion.p2p.Ver;
+import org.aion.zero.impl.sync.Act;
+import org.aion.zero.impl.sync.msg.BroadcastTxHashes;
+import org.aion.zero.impl.sync.msg.ReqTxs;
+import org.aion.zero.impl.tx.TxGossip;
+import org.aion.zero.impl.valid.TXValidator;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * handler for tx hashes announced from network, pulls the txs not seen yet
+ */
+public final class BroadcastTxHashesHandler extends Handler {
+
+    private final Logger log;
+
+    private final IP2pMgr p2pMgr;
+
+    private final TxGossip gossip;
+
+    public BroadcastTxHashesHandler(final Logger _log, final IP2pMgr _p2pMgr, final TxGossip _gossip) {
+        super(Ver.V0, Ctrl.SYNC, Act.BROADCAST_TX_HASHES);
+        this.log = _log;
+        this.p2pMgr = _p2pMgr;
+        this.gossip = _gossip;
+    }
+
+    @Override
+    public void receive(int _nodeIdHashcode, String _displayId, final byte[] _msgBytes) {
+        BroadcastTxHashes announce = BroadcastTxHashes.decode(_msgBytes);
+        if (announce == null || announce.getTxHashes().isEmpty()) {
+            p2pMgr.errCheck(_nodeIdHashcode, _displayId);
+            log.error("<broadcast-tx-hashes decode-error from {} len: {}>", _displayId,
+                    _msgBytes == null ? 0 : _msgBytes.length);
+            if (log.isTraceEnabled() && _msgBytes != null) {
+                log.trace("broadcast-tx-hashes dump: {}", ByteUtil.toHexString(_msgBytes));
+            }
+            return;
+        }
+
+        gossip.markAnnouncePeer(_nodeIdHashcode);
+
+        List<byte[]> missing = new ArrayList<>();
+        for (byte[] hash : announce.getTxHashes()) {
+            gossip.markKnown(_nodeIdHashcode, hash);
+
+            ByteArrayWrapper wrapped = ByteArrayWrapper.wrap(hash);
+            if (!TXValidator.isInCache(wrapped) && !gossip.isRecent(wrapped) && gossip.tryRequest(wrapped)) {
+                missing.add(hash);
+            }
+        }
+
+        if (log.isTraceEnabled()) {
+            log.trace("<broadcast-tx-hashes from: {} announced: {} requested: {}>", _displayId,
+                    announce.getTxHashes().size(), missing.size());
+        }
+
+        if (!missing.isEmpty()) {
+            p2pMgr.send(_nodeIdHashcode, new ReqTxs(missing));
+        }
+    }
+}
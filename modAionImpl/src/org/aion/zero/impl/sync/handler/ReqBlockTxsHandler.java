@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ * This file is part of the aion network project.
+ *
+ * The aion network project is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * The aion network project is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the aion network project source files.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * The aion network project leverages useful source code from other
+ * open source projects. We greatly appreciate the effort that was
+ * invested in these projects and we thank the individual contributors
+ * for their work. For provenance information and contributors
+ * please see <https://github.com/aionnetwork/aion/wiki/Contributors>.
+ *
+ * Contributors to the aion source files in decreasing order of code volume:
+ * Aion foundation.
+ * <ether.camp> team through the ethereumJ library.
+ * Ether.Camp Inc. (US) team through Ethereum Harmony.
+ * John Tromp through the Equihash solver.
+ * Samuel Neves through the BLAKE2 implementation.
+ * Zcash project team.
+ * Bitcoinj team.
+ */
+
+package org.aion.zero.impl.sync.handler;
+
+import org.aion.base.util.ByteUtil;
+import org.aion.p2p.Ctrl;
+import org.aion.p2p.Handler;
+import org.aion.p2p.IP2pMgr;
+import org.aion.p2p.Ver;
+import org.aion.zero.impl.sync.Act;
+import org.aion.zero.impl.sync.msg.ReqBlockTxs;
+import org.aion.zero.impl.sync.msg.ResBlockTxs;
+import org.aion.zero.impl.types.AionBlock;
+import org.aion.zero.types.AionTransaction;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * handler for txs of a relayed compact block pulled by peers
+ */
+public final class ReqBlockTxsHandler extends Handler {
+
+    private final Logger log;
+
+    private final BlockPropagationHandler propHandler;
+
+    private final IP2pMgr p2pMgr;
+
+    public ReqBlockTxsHandler(final Logger _log, final BlockPropagationHandler _propHandler, final IP2pMgr _p2pMgr) {
+        super(Ver.V0, Ctrl.SYNC, Act.REQ_BLOCK_TXS);
+        this.log = _log;
+        this.propHandler = _propHandler;
+        this.p2pMgr = _p2pMgr;
+    }
+
+    @Override
+    public void receive(int _nodeIdHashcode, String _displayId, final byte[] _msgBytes) {
+        ReqBlockTxs req = ReqBlockTxs.decode(_msgBytes);
+        if (req == null) {
+            p2pMgr.errCheck(_nodeIdHashcode, _displayId);
+            log.error("<req-block-txs decode-error from {} len: {}>", _displayId,
+                    _msgBytes == null ? 0 : _msgBytes.length);
+            if (log.isTraceEnabled() && _msgBytes != null) {
+                log.trace("req-block-txs dump: {}", ByteUtil.toHexString(_msgBytes));
+            }
+            return;
+        }
+
+        AionBlock block = propHandler.getRelayedBlock(req.getBlockHash());
+        if (block == null) {
+            log.debug("<req-block-txs unknown-block from {}>", _displayId);
+            return;
+        }
+
+        List<AionTransaction> blockTxs = block.getTransactionsList();
+        List<byte[]> txs = new ArrayList<>();
+        for (int index : req.getIndexes()) {
+            if (index < 0 || index >= blockTxs.size()) {
+                p2pMgr.errCheck(_nodeIdHashcode, _displayId);
+                log.debug("<req-block-txs index-out-of-range from {} index: {}>", _displayId, index);
+                return;
+            }
+            txs.add(blockTxs.get(index).getEncoded());
+        }
+
+        p2pMgr.send(_nodeIdHashcode, new ResBlockTxs(req.getBlockHash(), txs));
+    }
+}
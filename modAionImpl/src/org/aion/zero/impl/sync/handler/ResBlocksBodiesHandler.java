@@ -74,6 +74,7 @@ public final class ResBlocksBodiesHandler extends Handler {
         List<byte[]> bodies = resBlocksBodies.getBlocksBodies();
         if(bodies == null) {
             log.error("<res-bodies decoder-error from {}, len: {]>", _displayId, _msgBytes.length);
+            p2pMgr.getNodeMgr().recordInvalidResponse(_nodeIdHashcode);
             p2pMgr.errCheck(_nodeIdHashcode, _displayId);
             if (log.isTraceEnabled()) {
                 log.trace("res-bodies dump: {}", ByteUtil.toHexString(_msgBytes));
@@ -81,10 +82,11 @@ public final class ResBlocksBodiesHandler extends Handler {
 
         } else {
             if (bodies.isEmpty()) {
+                p2pMgr.getNodeMgr().recordInvalidResponse(_nodeIdHashcode);
                 p2pMgr.errCheck(_nodeIdHashcode, _displayId);
                 log.error("<res-bodies-empty node={}>", _displayId);
             } else {
-                syncMgr.validateAndAddBlocks(_nodeIdHashcode, _displayId, bodies);
+                syncMgr.validateAndAddBlocks(_nodeIdHashcode, _displayId, bodies, _msgBytes.length);
             }
         }
     }
@@ -81,8 +81,9 @@ public final class ResBlocksHeadersHandler extends Handler {
                     this.log.debug("<res-headers from-number={} size={} node={}>", headers.get(0).getNumber(), headers.size(),
                             _displayId);
                 }
-                this.syncMgr.validateAndAddHeaders(_nodeIdHashcode, _displayId, headers);
+                this.syncMgr.validateAndAddHeaders(_nodeIdHashcode, _displayId, headers, _msgBytes.length);
             } else {
+                p2pMgr.getNodeMgr().recordInvalidResponse(_nodeIdHashcode);
                 p2pMgr.errCheck(_nodeIdHashcode, _displayId);
                 this.log.error(
                     "<res-headers empty-headers node={} >",
@@ -91,6 +92,7 @@ public final class ResBlocksHeadersHandler extends Handler {
             }
         } else {
             //p2pMgr.errCheck(_nodeIdHashcode, _displayId);
+            p2pMgr.getNodeMgr().recordInvalidResponse(_nodeIdHashcode);
             this.log.error(
                     "<res-headers decode-error msg-bytes={} node={}>",
                     _msgBytes.length,
@@ -102,4 +104,4 @@ public final class ResBlocksHeadersHandler extends Handler {
             }
         }
     }
-}
\ No newline at end of file
+}
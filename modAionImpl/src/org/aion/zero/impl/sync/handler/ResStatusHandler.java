@@ -68,6 +68,8 @@ public final class ResStatusHandler extends Handler {
             return;
         ResStatus rs = ResStatus.decode(_msgBytes);
 
+        INode node = this.p2pMgr.getActiveNodes().get(_nodeIdHashcode);
+
         if (rs == null) {
             //p2pMgr.errCheck(_nodeIdHashcode, _displayId);
             this.log.error("<res-status decode-error from {} len: {}>", _displayId, _msgBytes.length);
@@ -75,10 +77,12 @@ public final class ResStatusHandler extends Handler {
             if (this.log.isTraceEnabled()) {
                 this.log.trace("res-status decode-error dump: {}", ByteUtil.toHexString(_msgBytes));
             }
+            p2pMgr.getNodeMgr().recordInvalidResponse(_nodeIdHashcode);
+            return;
         }
 
-        INode node = this.p2pMgr.getActiveNodes().get(_nodeIdHashcode);
         if (node != null) {
+            this.syncMgr.recordStatusResponse(node);
             if (log.isDebugEnabled()) {
                 this.log.debug("<res-status best-block={} node={}>", rs.getBestBlockNumber(), _displayId);
             }
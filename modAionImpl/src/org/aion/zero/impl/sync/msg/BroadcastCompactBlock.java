@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ * This file is part of the aion network project.
+ *
+ * The aion network project is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * The aion network project is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the aion network project source files.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * The aion network project leverages useful source code from other
+ * open source projects. We greatly appreciate the effort that was
+ * invested in these projects and we thank the individual contributors
+ * for their work. For provenance information and contributors
+ * please see <https://github.com/aionnetwork/aion/wiki/Contributors>.
+ *
+ * Contributors to the aion source files in decreasing order of code volume:
+ * Aion foundation.
+ * <ether.camp> team through the ethereumJ library.
+ * Ether.Camp Inc. (US) team through Ethereum Harmony.
+ * John Tromp through the Equihash solver.
+ * Samuel Neves through the BLAKE2 implementation.
+ * Zcash project team.
+ * Bitcoinj team.
+ */
+
+package org.aion.zero.impl.sync.msg;
+
+import java.nio.ByteBuffer;
+import org.aion.p2p.Ctrl;
+import org.aion.p2p.Msg;
+import org.aion.p2p.Ver;
+import org.aion.rlp.RLP;
+import org.aion.rlp.RLPList;
+import org.aion.zero.impl.sync.Act;
+import org.aion.zero.types.A0BlockHeader;
+
+/**
+ * new block announced as its header plus the short ids of its txs in block
+ * order, receivers rebuild the body from their own pool and pull the txs
+ * they miss with {@link ReqBlockTxs}
+ */
+public final class BroadcastCompactBlock extends Msg {
+
+    private final static int SHORT_ID_LEN = 8;
+
+    public final static int MAX_TXS = 16384;
+
+    private final A0BlockHeader header;
+
+    private final long[] shortIds;
+
+    public BroadcastCompactBlock(final A0BlockHeader _header, final long[] _shortIds) {
+        super(Ver.V0, Ctrl.SYNC, Act.BROADCAST_COMPACT_BLOCK);
+        this.header = _header;
+        this.shortIds = _shortIds;
+    }
+
+    /**
+     * @param _txHash byte[]
+     * @return long leading 8 bytes of the tx hash
+     */
+    public static long shortId(final byte[] _txHash) {
+        return ByteBuffer.wrap(_txHash, 0, SHORT_ID_LEN).getLong();
+    }
+
+    /**
+     * @param _msgBytes byte[]
+     * @return BroadcastCompactBlock null on malformed body or more than {@link #MAX_TXS} txs
+     */
+    public static BroadcastCompactBlock decode(final byte[] _msgBytes) {
+        if (_msgBytes == null || _msgBytes.length == 0)
+            return null;
+        try {
+            RLPList list = (RLPList) RLP.decode2(_msgBytes).get(0);
+            A0BlockHeader header = A0BlockHeader.fromRLP((RLPList) list.get(0), true);
+
+            byte[] ids = list.get(1).getRLPData();
+            ids = ids == null ? new byte[0] : ids;
+            if (ids.length % SHORT_ID_LEN != 0 || ids.length / SHORT_ID_LEN > MAX_TXS)
+                return null;
+
+            long[] shortIds = new long[ids.length / SHORT_ID_LEN];
+            ByteBuffer bb = ByteBuffer.wrap(ids);
+            for (int i = 0; i < shortIds.length; i++) {
+                shortIds[i] = bb.getLong();
+            }
+            return new BroadcastCompactBlock(header, shortIds);
+        } catch (Exception ex) {
+            return null;
+        }
+    }
+
+    public A0BlockHeader getBlockHeader() {
+        return this.header;
+    }
+
+    public long[] getShortIds() {
+        return this.shortIds;
+    }
+
+    @Override
+    public byte[] encode() {
+        ByteBuffer bb = ByteBuffer.allocate(this.shortIds.length * SHORT_ID_LEN);
+        for (long id : this.shortIds) {
+            bb.putLong(id);
+        }
+        return RLP.encodeList(this.header.getEncoded(), RLP.encodeElement(bb.array()));
+    }
+}
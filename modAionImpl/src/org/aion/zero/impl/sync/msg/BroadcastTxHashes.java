@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ * This file is part of the aion network project.
+ *
+ * The aion network project is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * The aion network project is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the aion network project source files.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * The aion network project leverages useful source code from other
+ * open source projects. We greatly appreciate the effort that was
+ * invested in these projects and we thank the individual contributors
+ * for their work. For provenance information and contributors
+ * please see <https://github.com/aionnetwork/aion/wiki/Contributors>.
+ *
+ * Contributors to the aion source files in decreasing order of code volume:
+ * Aion foundation.
+ * <ether.camp> team through the ethereumJ library.
+ * Ether.Camp Inc. (US) team through Ethereum Harmony.
+ * John Tromp through the Equihash solver.
+ * Samuel Neves through the BLAKE2 implementation.
+ * Zcash project team.
+ * Bitcoinj team.
+ */
+
+package org.aion.zero.impl.sync.msg;
+
+import java.util.List;
+import org.aion.p2p.Ctrl;
+import org.aion.p2p.Msg;
+import org.aion.p2p.Ver;
+import org.aion.zero.impl.sync.Act;
+
+/**
+ * announce hashes of transactions newly accepted into the local pool, peers pull
+ * the ones they lack through {@link ReqTxs}
+ */
+public final class BroadcastTxHashes extends Msg {
+
+    public final static int MAX_HASHES = TxHashList.MAX_HASHES;
+
+    private final List<byte[]> txHashes;
+
+    public BroadcastTxHashes(final List<byte[]> _txHashes) {
+        super(Ver.V0, Ctrl.SYNC, Act.BROADCAST_TX_HASHES);
+        this.txHashes = _txHashes;
+    }
+
+    /**
+     * @param _msgBytes byte[]
+     * @return BroadcastTxHashes null when body is not a whole number of hashes or exceeds {@link #MAX_HASHES}
+     */
+    public static BroadcastTxHashes decode(final byte[] _msgBytes) {
+        List<byte[]> txHashes = TxHashList.decode(_msgBytes);
+        return txHashes == null ? null : new BroadcastTxHashes(txHashes);
+    }
+
+    public List<byte[]> getTxHashes() {
+        return this.txHashes;
+    }
+
+    @Override
+    public byte[] encode() {
+        return TxHashList.encode(this.txHashes);
+    }
+}
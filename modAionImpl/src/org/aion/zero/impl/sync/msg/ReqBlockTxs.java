@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ * This file is part of the aion network project.
+ *
+ * The aion network project is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * The aion network project is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the aion network project source files.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * The aion network project leverages useful source code from other
+ * open source projects. We greatly appreciate the effort that was
+ * invested in these projects and we thank the individual contributors
+ * for their work. For provenance information and contributors
+ * please see <https://github.com/aionnetwork/aion/wiki/Contributors>.
+ *
+ * Contributors to the aion source files in decreasing order of code volume:
+ * Aion foundation.
+ * <ether.camp> team through the ethereumJ library.
+ * Ether.Camp Inc. (US) team through Ethereum Harmony.
+ * John Tromp through the Equihash solver.
+ * Samuel Neves through the BLAKE2 implementation.
+ * Zcash project team.
+ * Bitcoinj team.
+ */
+
+package org.aion.zero.impl.sync.msg;
+
+import java.nio.ByteBuffer;
+import org.aion.p2p.Ctrl;
+import org.aion.p2p.Msg;
+import org.aion.p2p.Ver;
+import org.aion.zero.impl.sync.Act;
+
+/**
+ * pull the txs of a {@link BroadcastCompactBlock} the receiver could not find
+ * in its pool, by their index in the block; answered with {@link ResBlockTxs}
+ */
+public final class ReqBlockTxs extends Msg {
+
+    private final static int HASH_LEN = 32;
+
+    private final byte[] blockHash;
+
+    private final int[] indexes;
+
+    public ReqBlockTxs(final byte[] _blockHash, final int[] _indexes) {
+        super(Ver.V0, Ctrl.SYNC, Act.REQ_BLOCK_TXS);
+        this.blockHash = _blockHash;
+        this.indexes = _indexes;
+    }
+
+    /**
+     * @param _msgBytes byte[]
+     * @return ReqBlockTxs null on malformed body or more than
+     *         {@link BroadcastCompactBlock#MAX_TXS} indexes
+     */
+    public static ReqBlockTxs decode(final byte[] _msgBytes) {
+        if (_msgBytes == null || _msgBytes.length < HASH_LEN || (_msgBytes.length - HASH_LEN) % 4 != 0
+                || (_msgBytes.length - HASH_LEN) / 4 > BroadcastCompactBlock.MAX_TXS)
+            return null;
+
+        ByteBuffer bb = ByteBuffer.wrap(_msgBytes);
+        byte[] blockHash = new byte[HASH_LEN];
+        bb.get(blockHash);
+        int[] indexes = new int[bb.remaining() / 4];
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = bb.getInt();
+        }
+        return new ReqBlockTxs(blockHash, indexes);
+    }
+
+    public byte[] getBlockHash() {
+        return this.blockHash;
+    }
+
+    public int[] getIndexes() {
+        return this.indexes;
+    }
+
+    @Override
+    public byte[] encode() {
+        ByteBuffer bb = ByteBuffer.allocate(HASH_LEN + this.indexes.length * 4);
+        bb.put(this.blockHash);
+        for (int index : this.indexes) {
+            bb.putInt(index);
+        }
+        return bb.array();
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ * This file is part of the aion network project.
+ *
+ * The aion network project is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * The aion network project is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the aion network project source files.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * The aion network project leverages useful source code from other
+ * open source projects. We greatly appreciate the effort that was
+ * invested in these projects and we thank the individual contributors
+ * for their work. For provenance information and contributors
+ * please see <https://github.com/aionnetwork/aion/wiki/Contributors>.
+ *
+ * Contributors to the aion source files in decreasing order of code volume:
+ * Aion foundation.
+ * <ether.camp> team through the ethereumJ library.
+ * Ether.Camp Inc. (US) team through Ethereum Harmony.
+ * John Tromp through the Equihash solver.
+ * Samuel Neves through the BLAKE2 implementation.
+ * Zcash project team.
+ * Bitcoinj team.
+ */
+
+package org.aion.zero.impl.sync.msg;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.aion.p2p.Ctrl;
+import org.aion.p2p.Msg;
+import org.aion.p2p.Ver;
+import org.aion.rlp.RLP;
+import org.aion.rlp.RLPElement;
+import org.aion.rlp.RLPList;
+import org.aion.zero.impl.sync.Act;
+
+/**
+ * encoded txs answering a {@link ReqBlockTxs}, in the order of the requested
+ * indexes
+ */
+public final class ResBlockTxs extends Msg {
+
+    private final byte[] blockHash;
+
+    private final List<byte[]> txs;
+
+    public ResBlockTxs(final byte[] _blockHash, final List<byte[]> _txs) {
+        super(Ver.V0, Ctrl.SYNC, Act.RES_BLOCK_TXS);
+        this.blockHash = _blockHash;
+        this.txs = _txs;
+    }
+
+    public static ResBlockTxs decode(final byte[] _msgBytes) {
+        if (_msgBytes == null || _msgBytes.length == 0)
+            return null;
+        try {
+            RLPList list = (RLPList) RLP.decode2(_msgBytes).get(0);
+            byte[] blockHash = list.get(0).getRLPData();
+            List<byte[]> txs = new ArrayList<>();
+            for (RLPElement tx : (RLPList) list.get(1)) {
+                txs.add(tx.getRLPData());
+            }
+            return new ResBlockTxs(blockHash, txs);
+        } catch (Exception ex) {
+            return null;
+        }
+    }
+
+    public byte[] getBlockHash() {
+        return this.blockHash;
+    }
+
+    public List<byte[]> getTxs() {
+        return this.txs;
+    }
+
+    @Override
+    public byte[] encode() {
+        byte[][] txs = this.txs.toArray(new byte[this.txs.size()][]);
+        return RLP.encodeList(RLP.encodeElement(this.blockHash), RLP.encodeList(txs));
+    }
+}
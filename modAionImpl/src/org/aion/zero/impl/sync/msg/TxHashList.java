@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ * This file is part of the aion network project.
+ *
+ * The aion network project is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * The aion network project is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the aion network project source files.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * The aion network project leverages useful source code from other
+ * open source projects. We greatly appreciate the effort that was
+ * invested in these projects and we thank the individual contributors
+ * for their work. For provenance information and contributors
+ * please see <https://github.com/aionnetwork/aion/wiki/Contributors>.
+ *
+ * Contributors to the aion source files in decreasing order of code volume:
+ * Aion foundation.
+ * <ether.camp> team through the ethereumJ library.
+ * Ether.Camp Inc. (US) team through Ethereum Harmony.
+ * John Tromp through the Equihash solver.
+ * Samuel Neves through the BLAKE2 implementation.
+ * Zcash project team.
+ * Bitcoinj team.
+ */
+
+package org.aion.zero.impl.sync.msg;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * body shared by {@link BroadcastTxHashes} and {@link ReqTxs}: tx hashes
+ * concatenated back to back
+ */
+final class TxHashList {
+
+    private final static int HASH_LEN = 32;
+
+    final static int MAX_HASHES = 4096;
+
+    private TxHashList() {}
+
+    /**
+     * @param _msgBytes byte[]
+     * @return List null when body is not a whole number of hashes or exceeds {@link #MAX_HASHES}
+     */
+    static List<byte[]> decode(final byte[] _msgBytes) {
+        if (_msgBytes == null || _msgBytes.length % HASH_LEN != 0 || _msgBytes.length / HASH_LEN > MAX_HASHES)
+            return null;
+
+        int count = _msgBytes.length / HASH_LEN;
+        List<byte[]> txHashes = new ArrayList<>(count);
+        ByteBuffer bb = ByteBuffer.wrap(_msgBytes);
+        while (count > 0) {
+            byte[] txHash = new byte[HASH_LEN];
+            bb.get(txHash);
+            txHashes.add(txHash);
+            count--;
+        }
+        return txHashes;
+    }
+
+    static byte[] encode(final List<byte[]> _txHashes) {
+        ByteBuffer bb = ByteBuffer.allocate(_txHashes.size() * HASH_LEN);
+        for (byte[] txHash : _txHashes) {
+            bb.put(txHash);
+        }
+        return bb.array();
+    }
+}
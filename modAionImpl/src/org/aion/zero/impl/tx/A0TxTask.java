@@ -31,11 +31,11 @@ import org.aion.zero.types.AionTransaction;
 
 public class A0TxTask extends AbstractTxTask<AionTransaction, IP2pMgr> {
 
-    public A0TxTask(AionTransaction _tx, IP2pMgr _p2pMgr) {
-        super(_tx, _p2pMgr);
+    public A0TxTask(AionTransaction _tx, IP2pMgr _p2pMgr, TxGossip _gossip) {
+        super(_tx, _p2pMgr, _gossip);
     }
 
-    public A0TxTask(List<AionTransaction> _tx, IP2pMgr _p2pMgr) {
-        super(_tx, _p2pMgr);
+    public A0TxTask(List<AionTransaction> _tx, IP2pMgr _p2pMgr, TxGossip _gossip) {
+        super(_tx, _p2pMgr, _gossip);
     }
 }
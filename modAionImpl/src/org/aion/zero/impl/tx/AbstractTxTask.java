@@ -26,13 +26,10 @@ package org.aion.zero.impl.tx;
 
 import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 import java.util.concurrent.Callable;
 
 import org.aion.base.type.ITransaction;
-import org.aion.p2p.INode;
 import org.aion.p2p.IP2pMgr;
-import org.aion.zero.impl.sync.msg.BroadcastTx;
 
 /**
  * @author jin
@@ -45,32 +42,28 @@ public abstract class AbstractTxTask<TX extends ITransaction, P2P extends IP2pMg
 
     protected final List<TX> tx;
     protected final P2P p2pMgr;
+    protected final TxGossip gossip;
 
-    public AbstractTxTask(TX _tx, P2P _p2pMgr) {
+    public AbstractTxTask(TX _tx, P2P _p2pMgr, TxGossip _gossip) {
         this.tx = Collections.singletonList(_tx);
         this.p2pMgr = _p2pMgr;
+        this.gossip = _gossip;
     }
 
-    public AbstractTxTask(List<TX> _tx, P2P _p2pMgr) {
+    public AbstractTxTask(List<TX> _tx, P2P _p2pMgr, TxGossip _gossip) {
         this.tx = _tx;
         this.p2pMgr = _p2pMgr;
+        this.gossip = _gossip;
     }
 
     /**
      * Class fails silently
      */
-    @SuppressWarnings("unchecked")
     @Override
     public List<TX> call() throws Exception {
 
         try {
-            Map<Integer, INode> activeNodes = this.p2pMgr.getActiveNodes();
-            if (activeNodes != null && !activeNodes.isEmpty()) {
-                for (Map.Entry<Integer, INode> e : activeNodes.entrySet()) {
-                    this.p2pMgr.send(e.getKey(), new BroadcastTx((List<ITransaction>) this.tx));
-                }
-            }
-
+            this.gossip.broadcast(this.p2pMgr, this.tx);
             return tx;
         } catch (Throwable th) {
             // Todo : Log
@@ -0,0 +1,105 @@
+/*******************************************************************************
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ *     
+ ******************************************************************************/
+
+package org.aion.zero.impl.tx;
+
+import java.util.Arrays;
+
+/**
+ * Bounded set of tx hashes a peer is known to have, kept as two rotating bloom
+ * filters: once the current generation holds {@code capacity} entries it becomes
+ * the previous one and a fresh generation is started, so memory per peer stays
+ * fixed while recently seen hashes are still remembered.
+ *
+ * Tx hashes are already uniformly distributed, so bit positions are taken
+ * straight from the hash bytes instead of re-hashing.
+ */
+final class KnownTxFilter {
+
+    private static final int BITS = 1 << 16;
+
+    private static final int MASK = BITS - 1;
+
+    private static final int PROBES = 4;
+
+    private final int capacity;
+
+    private long[] current = new long[BITS >>> 6];
+
+    private long[] previous = new long[BITS >>> 6];
+
+    private int count;
+
+    KnownTxFilter(int _capacity) {
+        this.capacity = _capacity;
+    }
+
+    synchronized boolean contains(final byte[] _hash) {
+        return contains(current, _hash) || contains(previous, _hash);
+    }
+
+    /**
+     * @param _hash byte[]
+     * @return boolean true if the hash was not (probably) known before
+     */
+    synchronized boolean add(final byte[] _hash) {
+        if (contains(current, _hash))
+            return false;
+
+        boolean isNew = !contains(previous, _hash);
+
+        if (count >= capacity) {
+            long[] tmp = previous;
+            previous = current;
+            current = tmp;
+            Arrays.fill(current, 0L);
+            count = 0;
+        }
+
+        for (int i = 0; i < PROBES; i++) {
+            int bit = index(_hash, i);
+            current[bit >>> 6] |= 1L << (bit & 63);
+        }
+        count++;
+        return isNew;
+    }
+
+    private static boolean contains(final long[] _bits, final byte[] _hash) {
+        for (int i = 0; i < PROBES; i++) {
+            int bit = index(_hash, i);
+            if ((_bits[bit >>> 6] & (1L << (bit & 63))) == 0)
+                return false;
+        }
+        return true;
+    }
+
+    private static int index(final byte[] _hash, int _probe) {
+        int off = _probe << 2;
+        if (_hash.length < off + 4) {
+            return (Arrays.hashCode(_hash) * (_probe + 1) * 0x9E3779B1) & MASK;
+        }
+        return ((_hash[off] & 0xff) << 24 | (_hash[off + 1] & 0xff) << 16 | (_hash[off + 2] & 0xff) << 8
+                | (_hash[off + 3] & 0xff)) & MASK;
+    }
+}
@@ -34,6 +34,8 @@ public class TxCollector {
 
     private IP2pMgr p2p;
 
+    private TxGossip gossip;
+
     private AtomicInteger queueSizeBytes = new AtomicInteger();
     private AtomicLong lastBroadcast = new AtomicLong(System.currentTimeMillis());
     private LinkedBlockingQueue<AionTransaction> transactionQueue;
@@ -41,8 +43,9 @@ public class TxCollector {
     private ReentrantLock broadcastLock = new ReentrantLock();
 
 
-    public TxCollector(IP2pMgr p2p) {
+    public TxCollector(IP2pMgr p2p, TxGossip gossip) {
         this.p2p = p2p;
+        this.gossip = gossip;
 
         // Leave unbounded for now, may need to restrict queue size and drop tx until able to process tx
         transactionQueue = new LinkedBlockingQueue<>();
@@ -111,7 +114,7 @@ public class TxCollector {
         this.lastBroadcast.set(System.currentTimeMillis());
 
         if (!transactions.isEmpty()) {
-            TxBroadcaster.getInstance().submitTransaction(new A0TxTask(transactions, this.p2p));
+            TxBroadcaster.getInstance().submitTransaction(new A0TxTask(transactions, this.p2p, this.gossip));
         }
     }
 
@@ -0,0 +1,178 @@
+/*******************************************************************************
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ *     
+ ******************************************************************************/
+
+package org.aion.zero.impl.tx;
+
+import org.aion.base.type.ITransaction;
+import org.aion.base.util.ByteArrayWrapper;
+import org.aion.p2p.INode;
+import org.aion.p2p.IP2pMgr;
+import org.aion.zero.impl.sync.msg.BroadcastTx;
+import org.aion.zero.impl.sync.msg.BroadcastTxHashes;
+import org.apache.commons.collections4.map.LRUMap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tx gossip bookkeeping: which tx hashes each active peer is known to have, which
+ * peers speak the announce / pull protocol and which hashes are already being pulled.
+ *
+ * Peers are announced hashes only; full txs are pushed only to peers that never
+ * announced or pulled from us, so old kernels keep receiving txs as before.
+ */
+public final class TxGossip {
+
+    private static final int KNOWN_PER_PEER = 4096;
+
+    private static final int RECENT_MAX = 16384;
+
+    private static final int REQUESTED_MAX = 16384;
+
+    private static final long REQUEST_TIMEOUT = 5000;
+
+    private final Map<Integer, KnownTxFilter> known = new ConcurrentHashMap<>();
+
+    private final Set<Integer> announcePeers = ConcurrentHashMap.newKeySet();
+
+    /**
+     * txs we announced recently, used to serve pull requests
+     */
+    private final Map<ByteArrayWrapper, ITransaction> recent = Collections.synchronizedMap(new LRUMap<>(RECENT_MAX));
+
+    /**
+     * hashes pulled from a peer and not delivered yet, value is the request timestamp
+     */
+    private final Map<ByteArrayWrapper, Long> requested = Collections
+            .synchronizedMap(new LRUMap<>(REQUESTED_MAX));
+
+    /**
+     * Announce a batch of txs to all active peers, skipping the ones each peer
+     * already has.
+     *
+     * @param _p2pMgr IP2pMgr
+     * @param _txs List
+     */
+    public void broadcast(final IP2pMgr _p2pMgr, final List<? extends ITransaction> _txs) {
+        Map<Integer, INode> activeNodes = _p2pMgr.getActiveNodes();
+        if (activeNodes == null || activeNodes.isEmpty())
+            return;
+
+        known.keySet().retainAll(activeNodes.keySet());
+        announcePeers.retainAll(activeNodes.keySet());
+
+        for (ITransaction tx : _txs) {
+            recent.put(ByteArrayWrapper.wrap(tx.getHash()), tx);
+        }
+
+        for (Integer id : activeNodes.keySet()) {
+            KnownTxFilter filter = filterOf(id);
+
+            List<ITransaction> unknown = new ArrayList<>();
+            for (ITransaction tx : _txs) {
+                if (filter.add(tx.getHash())) {
+                    unknown.add(tx);
+                }
+            }
+
+            if (unknown.isEmpty())
+                continue;
+
+            for (int from = 0; from < unknown.size(); from += BroadcastTxHashes.MAX_HASHES) {
+                List<byte[]> hashes = new ArrayList<>();
+                for (ITransaction tx : unknown.subList(from, Math.min(unknown.size(), from + BroadcastTxHashes.MAX_HASHES))) {
+                    hashes.add(tx.getHash());
+                }
+                _p2pMgr.send(id, new BroadcastTxHashes(hashes));
+            }
+
+            if (!announcePeers.contains(id)) {
+                _p2pMgr.send(id, new BroadcastTx(unknown));
+            }
+        }
+    }
+
+    /**
+     * a peer sent us an announcement or a pull request, from now on it only gets
+     * announcements
+     */
+    public void markAnnouncePeer(int _peer) {
+        announcePeers.add(_peer);
+    }
+
+    public void markKnown(int _peer, final byte[] _hash) {
+        filterOf(_peer).add(_hash);
+    }
+
+    /**
+     * a tx arrived from a peer, it has the tx and any pull for it is done
+     */
+    public void received(int _peer, final byte[] _hash) {
+        markKnown(_peer, _hash);
+        requested.remove(ByteArrayWrapper.wrap(_hash));
+    }
+
+    public boolean isRecent(final ByteArrayWrapper _hash) {
+        return recent.containsKey(_hash);
+    }
+
+    /**
+     * @param _hash ByteArrayWrapper
+     * @return boolean true if nobody is pulling the hash yet, the caller is then
+     *         expected to request it
+     */
+    public boolean tryRequest(final ByteArrayWrapper _hash) {
+        long now = System.currentTimeMillis();
+        synchronized (requested) {
+            Long ts = requested.get(_hash);
+            if (ts != null && now - ts < REQUEST_TIMEOUT)
+                return false;
+            requested.put(_hash, now);
+            return true;
+        }
+    }
+
+    /**
+     * @param _hashes List
+     * @return List txs found among the recently announced ones
+     */
+    public List<ITransaction> lookup(final List<byte[]> _hashes) {
+        List<ITransaction> rtn = new ArrayList<>();
+        for (byte[] hash : _hashes) {
+            ITransaction tx = recent.get(ByteArrayWrapper.wrap(hash));
+            if (tx != null) {
+                rtn.add(tx);
+            }
+        }
+        return rtn;
+    }
+
+    private KnownTxFilter filterOf(int _peer) {
+        return known.computeIfAbsent(_peer, k -> new KnownTxFilter(KNOWN_PER_PEER));
+    }
+}
@@ -31,12 +31,13 @@ import org.aion.crypto.SignatureFac;
 import org.aion.mcf.vm.types.DataWord;
 import org.aion.zero.types.AionTransaction;
 import org.aion.log.LogEnum;
-import org.apache.commons.collections4.map.LRUMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Collections;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import static org.aion.mcf.valid.TxNrgRule.isValidNrgContractCreate;
 import static org.aion.mcf.valid.TxNrgRule.isValidNrgTx;
@@ -45,24 +46,113 @@ public class TXValidator {
 
     private static final Logger LOG = LoggerFactory.getLogger(LogEnum.TX.name());
 
-    private static final Map<ByteArrayWrapper, Boolean> cache = Collections.synchronizedMap(new LRUMap<>(128 * 1024));
+    /**
+     * Verification results keyed by tx hash. The cache is direct-mapped: a
+     * hash owns exactly one slot and a newer entry simply overwrites an older
+     * one, so lookups and updates are a single volatile read/write with no
+     * lock shared between the sync, api and import threads.
+     */
+    private static final int CACHE_SIZE = 128 * 1024;
+
+    private static final AtomicReferenceArray<CacheEntry> cache = new AtomicReferenceArray<>(CACHE_SIZE);
+
+    private static final class CacheEntry {
+        private final byte[] hash;
+        private final boolean valid;
+
+        private CacheEntry(byte[] hash, boolean valid) {
+            this.hash = hash;
+            this.valid = valid;
+        }
+    }
+
+    private static int slot(byte[] hash) {
+        // tx hashes are uniformly distributed, the leading bytes are good enough as the index
+        int h = hash.length >= Integer.BYTES
+                ? (hash[0] & 0xFF) << 24 | (hash[1] & 0xFF) << 16 | (hash[2] & 0xFF) << 8 | (hash[3] & 0xFF)
+                : Arrays.hashCode(hash);
+        return h & (CACHE_SIZE - 1);
+    }
+
+    private static Boolean getCached(byte[] hash) {
+        CacheEntry e = cache.get(slot(hash));
+        return (e != null && Arrays.equals(e.hash, hash)) ? e.valid : null;
+    }
+
+    private static void putCached(byte[] hash, boolean valid) {
+        cache.set(slot(hash), new CacheEntry(hash, valid));
+    }
 
     public static boolean isValid(AionTransaction tx) {
-        Boolean valid = cache.get(ByteArrayWrapper.wrap(tx.getHash()));
+        byte[] hash = tx.getHash();
+        Boolean valid = getCached(hash);
         if (valid != null) {
             return valid;
         } else {
             valid = isValid0(tx);
-            cache.put(ByteArrayWrapper.wrap(tx.getHash()), valid);
+            putCached(hash, valid);
             return valid;
         }
     }
 
+    /**
+     * Validate a batch of transactions. The signatures of the transactions
+     * that are not cached yet are verified together through
+     * {@link SignatureFac#verify(List, List)}.
+     *
+     * @param txs the transactions
+     * @return the validation result of each transaction, in input order
+     */
+    public static boolean[] isValid(List<AionTransaction> txs) {
+        boolean[] res = new boolean[txs.size()];
+
+        List<Integer> idx = new ArrayList<>();
+        List<byte[]> msgs = new ArrayList<>();
+        List<ISignature> sigs = new ArrayList<>();
+        for (int i = 0; i < txs.size(); i++) {
+            AionTransaction tx = txs.get(i);
+            Boolean valid = getCached(tx.getHash());
+            if (valid != null) {
+                res[i] = valid;
+            } else if (isValidFields(tx)) {
+                idx.add(i);
+                msgs.add(tx.getRawHash());
+                sigs.add(tx.getSignature());
+            } else {
+                putCached(tx.getHash(), false);
+            }
+        }
+
+        if (!idx.isEmpty()) {
+            boolean[] verified = SignatureFac.verify(msgs, sigs);
+            for (int j = 0; j < verified.length; j++) {
+                int i = idx.get(j);
+                res[i] = verified[j];
+                putCached(txs.get(i).getHash(), verified[j]);
+            }
+        }
+
+        return res;
+    }
+
     public static boolean isInCache(ByteArrayWrapper hash) {
-        return cache.get(hash) != null;
+        return getCached(hash.getData()) != null;
     }
 
     public static boolean isValid0(AionTransaction tx) {
+        if (!isValidFields(tx)) {
+            return false;
+        }
+
+        try {
+            return SignatureFac.verify(tx.getRawHash(), tx.getSignature());
+        } catch (Exception ex) {
+            ex.printStackTrace();
+            return false;
+        }
+    }
+
+    private static boolean isValidFields(AionTransaction tx) {
         byte[] check = tx.getNonce();
         if (check == null || check.length > DataWord.BYTES) {
             LOG.error("invalid tx nonce!");
@@ -118,11 +208,6 @@ public class TXValidator {
             return false;
         }
 
-        try {
-            return SignatureFac.verify(hash, sig);
-        } catch (Exception ex) {
-            ex.printStackTrace();
-            return false;
-        }
+        return true;
     }
 }
\ No newline at end of file
@@ -0,0 +1,138 @@
+/*******************************************************************************
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ *     The aion network project leverages useful source code from other
+ *     open source projects. We greatly appreciate the effort that was
+ *     invested in these projects and we thank the individual contributors
+ *     for their work. For provenance information and contributors
+ *     please see <https://github.com/aionnetwork/aion/wiki/Contributors>.
+ *
+ * Contributors to the aion source files in decreasing order of code volume:
+ *     Aion foundation.
+ *     <ether.camp> team through the ethereumJ library.
+ *     Ether.Camp Inc. (US) team through Ethereum Harmony.
+ *     John Tromp through the Equihash solver.
+ *     Samuel Neves through the BLAKE2 implementation.
+ *     Zcash project team.
+ *     Bitcoinj team.
+ ******************************************************************************/
+package org.aion.zero.impl;
+
+import org.aion.base.type.Address;
+import org.aion.base.util.ByteUtil;
+import org.aion.mcf.core.ImportResult;
+import org.aion.txpool.ITxPool;
+import org.aion.zero.impl.types.AionBlock;
+import org.aion.zero.types.AionTransaction;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class BlockchainTemplateTest {
+
+    private static final Address RECEIPT_ADDR = Address.wrap("CAFECAFECAFECAFECAFECAFECAFECAFECAFECAFECAFECAFECAFECAFECAFECAFE");
+
+    private static Consumer<ITxPool.TxVisitor<AionTransaction>> source(List<AionTransaction> txs) {
+        return visitor -> {
+            for (AionTransaction tx : txs) {
+                if (visitor.visit(tx) == ITxPool.Pick.STOP) {
+                    return;
+                }
+            }
+        };
+    }
+
+    private static List<AionTransaction> genTransactions(StandaloneBlockchain.Bundle bundle, int from, int to) {
+        List<AionTransaction> txs = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            AionTransaction atx = new AionTransaction(
+                    ByteUtil.intToBytes(i),
+                    RECEIPT_ADDR,
+                    BigInteger.ONE.toByteArray(),
+                    ByteUtil.EMPTY_BYTE_ARRAY,
+                    21000L,
+                    BigInteger.valueOf(5).multiply(BigInteger.TEN.pow(9)).longValue()
+            );
+            atx.sign(bundle.privateKeys.get(0));
+            txs.add(atx);
+        }
+        return txs;
+    }
+
+    @Test
+    public void testAppendToTemplate() {
+        StandaloneBlockchain.Bundle bundle = new StandaloneBlockchain.Builder()
+                .withValidatorConfiguration("simple")
+                .withDefaultAccounts()
+                .build();
+        StandaloneBlockchain bc = bundle.bc;
+
+        List<AionTransaction> txs = genTransactions(bundle, 0, 5);
+        AionBlock first = bc.createBlockTemplate(bc.getBestBlock(), source(txs));
+        assertThat(first.getTransactionsList().size()).isEqualTo(5);
+
+        // nothing new, the same template comes back
+        assertThat(bc.createBlockTemplate(bc.getBestBlock(), source(txs))).isSameAs(first);
+
+        txs.addAll(genTransactions(bundle, 5, 10));
+        AionBlock second = bc.createBlockTemplate(bc.getBestBlock(), source(txs));
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.getTransactionsList().size()).isEqualTo(10);
+        assertThat(first.getTransactionsList().size()).isEqualTo(5);
+        assertThat(second.getTimestamp()).isEqualTo(first.getTimestamp());
+
+        // the appended template holds the same state as one built from scratch
+        AionBlock scratch = bc.createNewBlock(bc.getBestBlock(), txs, false);
+        assertThat(second.getStateRoot()).isEqualTo(scratch.getStateRoot());
+        assertThat(second.getReceiptsRoot()).isEqualTo(scratch.getReceiptsRoot());
+        assertThat(second.getNrgConsumed()).isEqualTo(scratch.getNrgConsumed());
+
+        assertThat(bc.tryToConnect(second)).isEqualTo(ImportResult.IMPORTED_BEST);
+
+        // a new parent starts over
+        AionBlock next = bc.createBlockTemplate(bc.getBestBlock(), source(genTransactions(bundle, 10, 12)));
+        assertThat(next.getParentHash()).isEqualTo(second.getHash());
+        assertThat(next.getTransactionsList().size()).isEqualTo(2);
+    }
+
+    @Test
+    public void testStaleTemplateRebuilt() {
+        StandaloneBlockchain.Bundle bundle = new StandaloneBlockchain.Builder()
+                .withValidatorConfiguration("simple")
+                .withDefaultAccounts()
+                .build();
+        StandaloneBlockchain bc = bundle.bc;
+
+        List<AionTransaction> txs = genTransactions(bundle, 0, 5);
+        long now = System.currentTimeMillis() / 1000;
+        AionBlock first = bc.createBlockTemplateInternal(bc.getBestBlock(), source(txs), now);
+
+        // nothing new but the clock moved on, the miners get a fresh timestamp
+        AionBlock later = bc.createBlockTemplateInternal(bc.getBestBlock(), source(txs), now + 10);
+        assertThat(later).isNotSameAs(first);
+        assertThat(later.getTimestamp()).isEqualTo(now + 10);
+        assertThat(later.getTransactionsList().size()).isEqualTo(5);
+        assertThat(later.getDifficultyBI()).isEqualTo(first.getDifficultyBI());
+    }
+}
@@ -0,0 +1,139 @@
+package org.aion.zero.impl.blockchain;
+
+import org.aion.base.db.IRepositoryCache;
+import org.aion.base.type.Address;
+import org.aion.base.util.ByteArrayWrapper;
+import org.aion.crypto.ECKey;
+import org.aion.crypto.ECKeyFac;
+import org.aion.mcf.core.ImportResult;
+import org.aion.zero.impl.StandaloneBlockchain;
+import org.aion.zero.impl.types.AionBlock;
+import org.aion.zero.types.AionTransaction;
+import org.aion.zero.types.AionTxExecSummary;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class PendingStateRebaseTest {
+
+    private static final byte[] ZERO_BYTE = new byte[0];
+
+    private static final Address DEST_ADDR = Address.wrap("CAFECAFECAFECAFECAFECAFECAFECAFECAFECAFECAFECAFECAFECAFECAFECAFE");
+
+    private static final Address OTHER_ADDR = Address.wrap("BEEFBEEFBEEFBEEFBEEFBEEFBEEFBEEFBEEFBEEFBEEFBEEFBEEFBEEFBEEFBEEF");
+
+    /**
+     * A pending tx spending funds received from another pending tx still
+     * executes once the pending state is rebased on a block that touches
+     * neither of their senders.
+     */
+    @Test
+    public void testDependentTxAcrossRebase() {
+        StandaloneBlockchain.Bundle bundle = new StandaloneBlockchain.Builder()
+                .withValidatorConfiguration("simple")
+                .withDefaultAccounts()
+                .build();
+        StandaloneBlockchain bc = bundle.bc;
+
+        ECKey relayKey = ECKeyFac.inst().create();
+        Address relay = new Address(relayKey.getAddress());
+        BigInteger funded = BigInteger.TEN.pow(18);
+        BigInteger relayed = BigInteger.TEN.pow(17);
+
+        // pending: the sender funds a new account, which passes part of it on
+        AionTransaction fund = new AionTransaction(BigInteger.ZERO.toByteArray(), relay, funded.toByteArray(),
+                ZERO_BYTE, 21000, 1);
+        fund.sign(bundle.privateKeys.get(0));
+        AionTransaction pass = new AionTransaction(BigInteger.ZERO.toByteArray(), DEST_ADDR, relayed.toByteArray(),
+                ZERO_BYTE, 21000, 1);
+        pass.sign(relayKey);
+
+        // the new best block comes from an unrelated sender
+        AionTransaction unrelated = new AionTransaction(BigInteger.ZERO.toByteArray(), OTHER_ADDR,
+                BigInteger.ONE.toByteArray(), ZERO_BYTE, 21000, 1);
+        unrelated.sign(bundle.privateKeys.get(1));
+        AionBlock block = bc.createNewBlock(bc.getBestBlock(), Collections.singletonList(unrelated), true);
+        assertThat(bc.tryToConnect(block)).isEqualTo(ImportResult.IMPORTED_BEST);
+
+        IRepositoryCache state = bc.getRepository().startTracking();
+        List<AionTxExecSummary> summaries = AionPendingStateImpl
+                .rebaseState(state, bc.getBestBlock(), Arrays.asList(fund, pass), Collections.emptyMap(), null);
+
+        assertThat(summaries.get(0).isRejected()).isFalse();
+        assertThat(summaries.get(1).isRejected()).isFalse();
+        assertThat(state.getBalance(DEST_ADDR)).isEqualTo(relayed);
+        assertThat(state.getBalance(relay)).isEqualTo(funded.subtract(relayed).subtract(summaries.get(1).getFee()));
+        assertThat(state.getNonce(relay)).isEqualTo(BigInteger.ONE);
+
+        // the base state only changes once the rebased state is flushed
+        assertThat(bc.getRepository().getBalance(DEST_ADDR)).isEqualTo(BigInteger.ZERO);
+    }
+
+    /**
+     * The txs of a sender the new best block does not touch are carried over
+     * with their previous summaries, only the sender the block touches runs
+     * through the VM again.
+     */
+    @Test
+    public void testUntouchedSenderNotReExecuted() {
+        StandaloneBlockchain.Bundle bundle = new StandaloneBlockchain.Builder()
+                .withValidatorConfiguration("simple")
+                .withDefaultAccounts()
+                .build();
+        StandaloneBlockchain bc = bundle.bc;
+
+        AionTransaction a0 = new AionTransaction(BigInteger.ZERO.toByteArray(), DEST_ADDR,
+                BigInteger.ONE.toByteArray(), ZERO_BYTE, 21000, 1);
+        a0.sign(bundle.privateKeys.get(0));
+        AionTransaction a1 = new AionTransaction(BigInteger.ONE.toByteArray(), DEST_ADDR,
+                BigInteger.ONE.toByteArray(), ZERO_BYTE, 21000, 1);
+        a1.sign(bundle.privateKeys.get(0));
+        AionTransaction b0 = new AionTransaction(BigInteger.ZERO.toByteArray(), OTHER_ADDR,
+                BigInteger.TEN.toByteArray(), ZERO_BYTE, 21000, 1);
+        b0.sign(bundle.privateKeys.get(1));
+
+        // pending state on the current best block
+        List<AionTransaction> pending = Arrays.asList(a0, a1, b0);
+        Map<Address, AionPendingStateImpl.SenderBase> base = new HashMap<>();
+        AionPendingStateImpl.touchedSenders(bc.getRepository(), pending, Collections.emptyMap(), base);
+        List<AionTxExecSummary> first = AionPendingStateImpl
+                .rebaseState(bc.getRepository().startTracking(), bc.getBestBlock(), pending, Collections.emptyMap(),
+                        null);
+        Map<ByteArrayWrapper, AionTxExecSummary> previous = new HashMap<>();
+        for (int i = 0; i < pending.size(); i++) {
+            assertThat(first.get(i).isRejected()).isFalse();
+            previous.put(ByteArrayWrapper.wrap(pending.get(i).getHash()), first.get(i));
+        }
+
+        // the new best block includes the first tx of one sender only
+        AionBlock block = bc.createNewBlock(bc.getBestBlock(), Collections.singletonList(a0), true);
+        assertThat(bc.tryToConnect(block)).isEqualTo(ImportResult.IMPORTED_BEST);
+
+        List<AionTransaction> remaining = Arrays.asList(a1, b0);
+        Set<Address> touched = AionPendingStateImpl
+                .touchedSenders(bc.getRepository(), remaining, base, new HashMap<>());
+        assertThat(touched).containsExactly(a0.getFrom());
+
+        IRepositoryCache state = bc.getRepository().startTracking();
+        List<AionTxExecSummary> summaries = AionPendingStateImpl
+                .rebaseState(state, bc.getBestBlock(), remaining, previous, touched);
+
+        assertThat(summaries.get(0).isRejected()).isFalse();
+        assertThat(summaries.get(0)).isNotSameAs(first.get(1));
+        assertThat(summaries.get(1)).isSameAs(first.get(2));
+
+        assertThat(state.getNonce(a0.getFrom())).isEqualTo(BigInteger.valueOf(2));
+        assertThat(state.getNonce(b0.getFrom())).isEqualTo(BigInteger.ONE);
+        assertThat(state.getBalance(OTHER_ADDR)).isEqualTo(BigInteger.TEN);
+        assertThat(state.getBalance(b0.getFrom())).isEqualTo(bc.getRepository().getBalance(b0.getFrom())
+                .subtract(BigInteger.TEN).subtract(first.get(2).getFee()));
+    }
+}
@@ -0,0 +1,85 @@
+package org.aion.zero.impl.blockchain;
+
+import org.aion.base.db.IRepositoryCache;
+import org.aion.base.type.Address;
+import org.aion.zero.impl.StandaloneBlockchain;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class PendingStateTrackTest {
+
+    private static final Address SENDER_A = Address.wrap("AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA");
+
+    private static final Address SENDER_B = Address.wrap("BBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBB");
+
+    private static final Address DEST_ADDR = Address.wrap("CAFECAFECAFECAFECAFECAFECAFECAFECAFECAFECAFECAFECAFECAFECAFECAFE");
+
+    private IRepositoryCache pendingState() {
+        StandaloneBlockchain bc = new StandaloneBlockchain.Builder()
+                .withValidatorConfiguration("simple")
+                .withDefaultAccounts()
+                .build().bc;
+        IRepositoryCache state = bc.getRepository().startTracking();
+        state.addBalance(SENDER_A, BigInteger.valueOf(1000));
+        state.addBalance(SENDER_B, BigInteger.valueOf(1000));
+        return state;
+    }
+
+    private static void transfer(IRepositoryCache track, Address from, long value) {
+        track.incrementNonce(from);
+        track.addBalance(from, BigInteger.valueOf(-value));
+        track.addBalance(DEST_ADDR, BigInteger.valueOf(value));
+    }
+
+    /**
+     * Two tracks opened on the same version both pay the same recipient; the
+     * second merge adds its credit on top of the first one.
+     */
+    @Test
+    public void testMergeConcurrentCredits() {
+        IRepositoryCache state = pendingState();
+        Map<Address, Long> mergedAt = new HashMap<>();
+
+        PendingStateTrack a = new PendingStateTrack(state, 0);
+        PendingStateTrack b = new PendingStateTrack(state, 0);
+        transfer(a, SENDER_A, 10);
+        transfer(b, SENDER_B, 20);
+
+        assertThat(a.merge(mergedAt, 1)).isTrue();
+        assertThat(b.merge(mergedAt, 2)).isTrue();
+
+        assertThat(state.getBalance(DEST_ADDR)).isEqualTo(BigInteger.valueOf(30));
+        assertThat(state.getBalance(SENDER_A)).isEqualTo(BigInteger.valueOf(990));
+        assertThat(state.getBalance(SENDER_B)).isEqualTo(BigInteger.valueOf(980));
+        assertThat(state.getNonce(SENDER_A)).isEqualTo(BigInteger.ONE);
+        assertThat(state.getNonce(SENDER_B)).isEqualTo(BigInteger.ONE);
+        assertThat(mergedAt.get(DEST_ADDR)).isEqualTo(2L);
+    }
+
+    /**
+     * A track that bumped the nonce of an account a later merge wrote can't be
+     * combined with it and leaves the pending state as it is.
+     */
+    @Test
+    public void testMergeConflictingNonce() {
+        IRepositoryCache state = pendingState();
+        Map<Address, Long> mergedAt = new HashMap<>();
+
+        PendingStateTrack first = new PendingStateTrack(state, 0);
+        PendingStateTrack second = new PendingStateTrack(state, 0);
+        transfer(first, SENDER_A, 10);
+        transfer(second, SENDER_A, 10);
+
+        assertThat(first.merge(mergedAt, 1)).isTrue();
+        assertThat(second.merge(mergedAt, 2)).isFalse();
+
+        assertThat(state.getBalance(DEST_ADDR)).isEqualTo(BigInteger.TEN);
+        assertThat(state.getNonce(SENDER_A)).isEqualTo(BigInteger.ONE);
+        assertThat(mergedAt.get(SENDER_A)).isEqualTo(1L);
+    }
+}
@@ -463,4 +463,52 @@ public class PendingTxCacheTest {
         cacheMap = cache.geCacheTx(Address.wrap(key.get(1).getAddress()));
         assertTrue(cacheMap.size() == input-remove);
     }
+
+    @Test
+    public void lruAccountEvictTest() {
+        PendingTxCache cache = new PendingTxCache(1);
+
+        getMockTransaction(0, 300, 0).forEach(cache::addCacheTx);
+        getMockTransaction(0, 300, 1).forEach(cache::addCacheTx);
+        getMockTransaction(0, 300, 2).forEach(cache::addCacheTx);
+
+        // the least recently used account gives up its highest nonce txs
+        Map<BigInteger, AionTransaction> cacheMap = cache.geCacheTx(Address.wrap(key.get(0).getAddress()));
+        assertTrue(cacheMap.size() < 300);
+        assertTrue(cacheMap.containsKey(BigInteger.ZERO));
+        assertTrue(cache.geCacheTx(Address.wrap(key.get(1).getAddress())).size() == 300);
+        assertTrue(cache.geCacheTx(Address.wrap(key.get(2).getAddress())).size() == 300);
+        assertTrue(cache.cacheSize() <= 100_000);
+    }
+
+    @Test
+    public void accountMaxTest() {
+        PendingTxCache cache = new PendingTxCache(10, 1, false);
+
+        getMockTransaction(0, 680, 0).forEach(cache::addCacheTx);
+        getMockTransaction(0, 10, 1).forEach(cache::addCacheTx);
+
+        assertTrue(cache.geCacheTx(Address.wrap(key.get(0).getAddress())).size() == 659);
+        assertTrue(cache.geCacheTx(Address.wrap(key.get(1).getAddress())).size() == 10);
+    }
+
+    @Test
+    public void promoteTest() {
+        PendingTxCache cache = new PendingTxCache(1);
+
+        getMockTransaction(3, 5, 0).forEach(cache::addCacheTx);
+        getMockTransaction(9, 2, 0).forEach(cache::addCacheTx);
+        assertTrue(cache.cacheTxSize() == 7);
+
+        Address addr = Address.wrap(key.get(0).getAddress());
+        assertTrue(cache.getRun(addr, BigInteger.valueOf(2), 100).isEmpty());
+        assertTrue(cache.getRun(addr, BigInteger.valueOf(3), 100).size() == 5);
+
+        List<AionTransaction> run = cache.promote(addr, BigInteger.valueOf(3), 3);
+        assertTrue(run.size() == 3);
+        assertTrue(run.get(0).getNonceBI().equals(BigInteger.valueOf(3)));
+        assertTrue(cache.cacheTxSize() == 4);
+        assertTrue(!cache.isInCache(addr, BigInteger.valueOf(5)));
+        assertTrue(cache.isInCache(addr, BigInteger.valueOf(6)));
+    }
 }
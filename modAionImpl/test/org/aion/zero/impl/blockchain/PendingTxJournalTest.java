@@ -0,0 +1,172 @@
+/*******************************************************************************
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ *
+ ******************************************************************************/
+
+package org.aion.zero.impl.blockchain;
+
+import org.aion.base.util.ByteArrayWrapper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.*;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PendingTxJournalTest {
+
+    private File file;
+
+    @Before
+    public void setup() throws IOException {
+        file = Files.createTempFile("pendingtx", ".journal").toFile();
+        file.delete();
+    }
+
+    @After
+    public void teardown() {
+        file.delete();
+        new File(file.getPath() + ".tmp").delete();
+    }
+
+    private static byte[] bytes(int i, int len) {
+        byte[] b = new byte[len];
+        Arrays.fill(b, (byte) i);
+        return b;
+    }
+
+    @Test
+    public void appendLoadTest() throws IOException {
+        PendingTxJournal journal = new PendingTxJournal(file);
+        assertFalse(journal.exists());
+
+        Map<byte[], byte[]> poolAdd = new HashMap<>();
+        poolAdd.put(bytes(1, 32), bytes(1, 100));
+        poolAdd.put(bytes(2, 32), bytes(2, 100));
+        Map<byte[], byte[]> cacheAdd = new HashMap<>();
+        cacheAdd.put(bytes(3, 32), bytes(3, 100));
+        journal.append(poolAdd, cacheAdd, Collections.emptySet(), Collections.emptySet());
+
+        journal.append(Collections.emptyMap(), Collections.emptyMap(), Collections.singleton(bytes(1, 32)),
+                Collections.emptySet());
+        journal.close();
+        assertTrue(journal.exists());
+
+        Map<ByteArrayWrapper, byte[]> pool = new HashMap<>();
+        Map<ByteArrayWrapper, byte[]> cache = new HashMap<>();
+        new PendingTxJournal(file).load(pool, cache);
+
+        assertEquals(1, pool.size());
+        assertArrayEquals(bytes(2, 100), pool.get(ByteArrayWrapper.wrap(bytes(2, 32))));
+        assertEquals(1, cache.size());
+        assertArrayEquals(bytes(3, 100), cache.get(ByteArrayWrapper.wrap(bytes(3, 32))));
+    }
+
+    @Test
+    public void tornTailTest() throws IOException {
+        PendingTxJournal journal = new PendingTxJournal(file);
+        journal.append(Collections.singletonMap(bytes(1, 32), bytes(1, 100)), Collections.emptyMap(),
+                Collections.emptySet(), Collections.emptySet());
+        journal.close();
+
+        // half of a second record
+        try (FileOutputStream fos = new FileOutputStream(file, true)) {
+            fos.write(new byte[] { 1, 0, 0, 0, 32, 2, 2 });
+        }
+
+        Map<ByteArrayWrapper, byte[]> pool = new HashMap<>();
+        Map<ByteArrayWrapper, byte[]> cache = new HashMap<>();
+        new PendingTxJournal(file).load(pool, cache);
+
+        assertEquals(1, pool.size());
+        assertTrue(cache.isEmpty());
+    }
+
+    @Test
+    public void appendAfterTornTailTest() throws IOException {
+        PendingTxJournal journal = new PendingTxJournal(file);
+        journal.append(Collections.singletonMap(bytes(1, 32), bytes(1, 100)), Collections.emptyMap(),
+                Collections.emptySet(), Collections.emptySet());
+        journal.close();
+        long good = file.length();
+
+        try (FileOutputStream fos = new FileOutputStream(file, true)) {
+            fos.write(new byte[] { 1, 0, 0, 0, 32, 2, 2 });
+        }
+
+        // the records appended after a restart must not sit behind the torn one
+        journal = new PendingTxJournal(file);
+        journal.load(new HashMap<>(), new HashMap<>());
+        journal.append(Collections.singletonMap(bytes(3, 32), bytes(3, 100)), Collections.emptyMap(),
+                Collections.emptySet(), Collections.emptySet());
+        journal.close();
+        assertEquals(good * 2, file.length());
+
+        Map<ByteArrayWrapper, byte[]> pool = new HashMap<>();
+        Map<ByteArrayWrapper, byte[]> cache = new HashMap<>();
+        new PendingTxJournal(file).load(pool, cache);
+
+        assertEquals(2, pool.size());
+        assertArrayEquals(bytes(3, 100), pool.get(ByteArrayWrapper.wrap(bytes(3, 32))));
+    }
+
+    @Test
+    public void rewriteTest() throws IOException {
+        PendingTxJournal journal = new PendingTxJournal(file);
+        for (int i = 0; i < 10; i++) {
+            journal.append(Collections.singletonMap(bytes(i, 32), bytes(i, 100)), Collections.emptyMap(),
+                    Collections.emptySet(), Collections.emptySet());
+        }
+        long before = file.length();
+
+        journal.rewrite(Collections.singletonMap(bytes(9, 32), bytes(9, 100)),
+                Collections.singletonMap(bytes(10, 32), bytes(10, 100)));
+        assertTrue(file.length() < before);
+
+        // appends after the rewrite land in the new file
+        journal.append(Collections.emptyMap(), Collections.emptyMap(), Collections.emptySet(),
+                Collections.singleton(bytes(10, 32)));
+        journal.close();
+
+        Map<ByteArrayWrapper, byte[]> pool = new HashMap<>();
+        Map<ByteArrayWrapper, byte[]> cache = new HashMap<>();
+        new PendingTxJournal(file).load(pool, cache);
+
+        assertEquals(1, pool.size());
+        assertTrue(pool.containsKey(ByteArrayWrapper.wrap(bytes(9, 32))));
+        assertTrue(cache.isEmpty());
+    }
+
+    @Test
+    public void needsCompactionTest() {
+        PendingTxJournal journal = new PendingTxJournal(file);
+        assertFalse(journal.needsCompaction(0));
+    }
+}
@@ -0,0 +1,173 @@
+/*******************************************************************************
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ *     The aion network project leverages useful source code from other
+ *     open source projects. We greatly appreciate the effort that was
+ *     invested in these projects and we thank the individual contributors
+ *     for their work. For provenance information and contributors
+ *     please see <https://github.com/aionnetwork/aion/wiki/Contributors>.
+ *
+ * Contributors to the aion source files in decreasing order of code volume:
+ *     Aion foundation.
+ *     <ether.camp> team through the ethereumJ library.
+ *     Ether.Camp Inc. (US) team through Ethereum Harmony.
+ *     John Tromp through the Equihash solver.
+ *     Samuel Neves through the BLAKE2 implementation.
+ *     Zcash project team.
+ *     Bitcoinj team.
+ ******************************************************************************/
+package org.aion.zero.impl.db;
+
+import org.aion.base.db.IByteArrayKeyValueDatabase;
+import org.aion.db.impl.mockdb.MockDB;
+import org.aion.mcf.vm.types.Bloom;
+import org.aion.zero.impl.core.BloomFilter;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/**
+ * Test suite for {@link BloomBitsIndex}
+ */
+public class BloomBitsIndexTest {
+
+    private static final byte[] ADDR_A = "contract-a".getBytes();
+    private static final byte[] ADDR_B = "contract-b".getBytes();
+    private static final byte[] TOPIC = "topic".getBytes();
+
+    private IByteArrayKeyValueDatabase db;
+
+    // the main chain blooms by block number
+    private Map<Long, byte[]> chain;
+
+    @Before
+    public void setup() {
+        db = new MockDB("bloombits");
+        db.open();
+        chain = new HashMap<>();
+    }
+
+    private BloomBitsIndex newIndex() {
+        return new BloomBitsIndex(db, chain::get);
+    }
+
+    private void fill(long blocks) {
+        for (long n = chain.size(); n < blocks; n++) {
+            Bloom bloom = new Bloom();
+            if (n % 1000 == 7) {
+                bloom.or(BloomFilter.create(ADDR_A));
+                bloom.or(BloomFilter.create(TOPIC));
+            }
+            if (n % 3000 == 11) {
+                bloom.or(BloomFilter.create(ADDR_B));
+            }
+            chain.put(n, bloom.getData());
+        }
+    }
+
+    private static Bloom[][] filter(byte[]... groups) {
+        Bloom[][] filter = new Bloom[groups.length][];
+        for (int i = 0; i < groups.length; i++) {
+            filter[i] = new Bloom[] { BloomFilter.create(groups[i]) };
+        }
+        return filter;
+    }
+
+    private static List<Long> candidates(BloomBitsIndex index, long from, long to, Bloom[][] filter) {
+        List<Long> found = new ArrayList<>();
+        index.forEachCandidate(from, to, filter, n -> found.add(n));
+        return found;
+    }
+
+    @Test
+    public void testSectionsNeedConfirmations() {
+        BloomBitsIndex index = newIndex();
+        fill(2 * BloomBitsIndex.SECTION_SIZE);
+
+        index.catchUp(2 * BloomBitsIndex.SECTION_SIZE - 1);
+        assertThat(index.getSections()).isEqualTo(1L);
+
+        fill(2 * BloomBitsIndex.SECTION_SIZE + BloomBitsIndex.CONFIRMATIONS);
+        index.catchUp(2 * BloomBitsIndex.SECTION_SIZE + BloomBitsIndex.CONFIRMATIONS - 1);
+        assertThat(index.getSections()).isEqualTo(2L);
+
+        // the count survives a restart
+        assertThat(newIndex().getSections()).isEqualTo(2L);
+    }
+
+    @Test
+    public void testMatch() {
+        BloomBitsIndex index = newIndex();
+        long head = 3 * BloomBitsIndex.SECTION_SIZE + 100;
+        fill(head + 1);
+        index.catchUp(head);
+        assertThat(index.getSections()).isEqualTo(2L);
+
+        // the indexed sections only give the matching blocks, the tail gives every block
+        List<Long> found = candidates(index, 0, 2 * BloomBitsIndex.SECTION_SIZE - 1, filter(ADDR_A, TOPIC));
+        List<Long> expected = new ArrayList<>();
+        for (long n = 7; n < 2 * BloomBitsIndex.SECTION_SIZE; n += 1000) {
+            expected.add(n);
+        }
+        assertThat(found).containsAllIn(expected);
+        assertThat(found.size()).isLessThan(2 * expected.size() + 1);
+
+        assertThat(candidates(index, 0, BloomBitsIndex.SECTION_SIZE - 1, filter(ADDR_B)))
+                .containsExactly(11L, 3011L).inOrder();
+        assertThat(candidates(index, 12, 3010, filter(ADDR_B))).isEmpty();
+
+        found = candidates(index, 2 * BloomBitsIndex.SECTION_SIZE - 10, head, filter(ADDR_B));
+        assertThat(found).contains(2L * BloomBitsIndex.SECTION_SIZE);
+        assertThat(found).contains(head);
+
+        // an OR group matches either of its blooms
+        Bloom[][] either = { { BloomFilter.create(ADDR_A), BloomFilter.create(ADDR_B) } };
+        assertThat(candidates(index, 0, 3011, either)).containsAllOf(7L, 11L, 3007L, 3011L);
+    }
+
+    @Test
+    public void testReBranch() {
+        BloomBitsIndex index = newIndex();
+        long head = 3 * BloomBitsIndex.SECTION_SIZE + BloomBitsIndex.CONFIRMATIONS;
+        fill(head + 1);
+        index.catchUp(head);
+        assertThat(index.getSections()).isEqualTo(3L);
+
+        // a re-branch above the indexed sections keeps them
+        index.onReBranch(3 * BloomBitsIndex.SECTION_SIZE - 1);
+        assertThat(index.getSections()).isEqualTo(3L);
+
+        // the new branch has no log at block 7 + SECTION_SIZE anymore
+        long changed = BloomBitsIndex.SECTION_SIZE + 7;
+        index.onReBranch(changed - 1);
+        assertThat(index.getSections()).isEqualTo(1L);
+        chain.put(changed, new Bloom().getData());
+
+        index.catchUp(head);
+        assertThat(index.getSections()).isEqualTo(3L);
+        assertThat(candidates(index, 0, 3 * BloomBitsIndex.SECTION_SIZE - 1, filter(ADDR_A, TOPIC)))
+                .doesNotContain(changed);
+    }
+}
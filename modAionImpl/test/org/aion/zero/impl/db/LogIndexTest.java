@@ -0,0 +1,176 @@
+/*******************************************************************************
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ *     The aion network project leverages useful source code from other
+ *     open source projects. We greatly appreciate the effort that was
+ *     invested in these projects and we thank the individual contributors
+ *     for their work. For provenance information and contributors
+ *     please see <https://github.com/aionnetwork/aion/wiki/Contributors>.
+ *
+ * Contributors to the aion source files in decreasing order of code volume:
+ *     Aion foundation.
+ *     <ether.camp> team through the ethereumJ library.
+ *     Ether.Camp Inc. (US) team through Ethereum Harmony.
+ *     John Tromp through the Equihash solver.
+ *     Samuel Neves through the BLAKE2 implementation.
+ *     Zcash project team.
+ *     Bitcoinj team.
+ ******************************************************************************/
+package org.aion.zero.impl.db;
+
+import org.aion.base.db.IByteArrayKeyValueDatabase;
+import org.aion.base.type.Address;
+import org.aion.db.impl.mockdb.MockDB;
+import org.aion.mcf.vm.types.Log;
+import org.aion.zero.types.AionTxReceipt;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/**
+ * Test suite for {@link LogIndex}
+ */
+public class LogIndexTest {
+
+    private static final Address ADDR_A = Address.wrap("a000000000000000000000000000000000000000000000000000000000000001");
+    private static final Address ADDR_B = Address.wrap("b000000000000000000000000000000000000000000000000000000000000002");
+    private static final byte[] TOPIC_X = Arrays.copyOf("topic-x".getBytes(), 32);
+    private static final byte[] TOPIC_Y = Arrays.copyOf("topic-y".getBytes(), 32);
+
+    private IByteArrayKeyValueDatabase db;
+    private LogIndex index;
+
+    @Before
+    public void setup() {
+        db = new MockDB("logindex");
+        db.open();
+        index = new LogIndex(db);
+    }
+
+    private static AionTxReceipt receipt(Log... logs) {
+        AionTxReceipt receipt = new AionTxReceipt();
+        receipt.setLogs(Arrays.asList(logs));
+        return receipt;
+    }
+
+    private static Log log(Address address, byte[] topic) {
+        List<byte[]> topics = topic == null ? Collections.emptyList() : Collections.singletonList(topic);
+        return new Log(address, topics, new byte[0]);
+    }
+
+    // the receipts of a block: every 3rd block has A/X, every 5th one B/Y after an empty tx
+    private static List<AionTxReceipt> receipts(long number) {
+        List<AionTxReceipt> receipts = new ArrayList<>();
+        if (number % 3 == 0) {
+            receipts.add(receipt(log(ADDR_A, TOPIC_X), log(ADDR_A, null)));
+        }
+        if (number % 5 == 0) {
+            receipts.add(receipt());
+            receipts.add(receipt(log(ADDR_B, TOPIC_Y)));
+        }
+        return receipts;
+    }
+
+    private List<long[]> find(Address address, byte[] topic, long from, long to) {
+        List<long[]> found = new ArrayList<>();
+        index.find(address == null ? null : address.toBytes(), topic, from, to, (n, tx, log) -> {
+            found.add(new long[] { n, tx, log });
+            return true;
+        });
+        return found;
+    }
+
+    @Test
+    public void testFind() {
+        for (long n = 100; n < 2000; n++) {
+            index.addBlock(n, receipts(n));
+        }
+        assertThat(index.covers(100, 1999)).isTrue();
+        assertThat(index.covers(99, 1999)).isFalse();
+        assertThat(index.covers(100, 2000)).isFalse();
+
+        List<long[]> byAddress = find(ADDR_A, null, 100, 1999);
+        // two logs per block holding A
+        assertThat(byAddress.size()).isEqualTo(2 * 633);
+        assertThat(byAddress.get(0)).isEqualTo(new long[] { 102, 0, 0 });
+        assertThat(byAddress.get(1)).isEqualTo(new long[] { 102, 0, 1 });
+        for (int i = 1; i < byAddress.size(); i++) {
+            assertThat(byAddress.get(i)[0]).isAtLeast(byAddress.get(i - 1)[0]);
+        }
+
+        List<long[]> byTopic = find(null, TOPIC_Y, 500, 1000);
+        assertThat(byTopic.size()).isEqualTo(101);
+        assertThat(byTopic.get(0)).isEqualTo(new long[] { 500, 1, 0 });
+        assertThat(byTopic.get(100)).isEqualTo(new long[] { 1000, 1, 0 });
+
+        List<long[]> both = find(ADDR_A, TOPIC_X, 0, 120);
+        assertThat(both.size()).isEqualTo(7);
+        assertThat(find(ADDR_A, TOPIC_Y, 0, 2000)).isEmpty();
+
+        // the visitor stops the query
+        List<Long> first = new ArrayList<>();
+        index.find(ADDR_B.toBytes(), null, 0, 2000, (n, tx, log) -> first.add(n) && first.size() < 3);
+        assertThat(first).containsExactly(100L, 105L, 110L).inOrder();
+    }
+
+    @Test
+    public void testBlocksMustFollow() {
+        index.addBlock(10, receipts(10));
+        index.addBlock(12, receipts(12));
+        assertThat(index.getHead()).isEqualTo(10L);
+        assertThat(find(ADDR_A, null, 0, 20)).isEmpty();
+
+        // the index survives a restart
+        index = new LogIndex(db);
+        assertThat(index.getHead()).isEqualTo(10L);
+        assertThat(find(ADDR_B, TOPIC_Y, 0, 20).size()).isEqualTo(1);
+    }
+
+    @Test
+    public void testRevert() {
+        for (long n = 0; n < 1000; n++) {
+            index.addBlock(n, receipts(n));
+        }
+
+        index.revertTo(600);
+        assertThat(index.getHead()).isEqualTo(600L);
+        assertThat(find(ADDR_B, null, 0, 1000).size()).isEqualTo(121);
+        assertThat(find(ADDR_A, TOPIC_X, 601, 1000)).isEmpty();
+
+        // the new branch has other logs
+        for (long n = 601; n < 1000; n++) {
+            index.addBlock(n, n % 7 == 0 ? Collections.singletonList(receipt(log(ADDR_A, TOPIC_Y)))
+                    : Collections.emptyList());
+        }
+        assertThat(find(ADDR_B, null, 601, 1000)).isEmpty();
+        assertThat(find(ADDR_A, TOPIC_Y, 0, 1000).size()).isEqualTo(57);
+        assertThat(find(ADDR_A, TOPIC_X, 0, 1000).size()).isEqualTo(201);
+
+        // reverting everything empties the index
+        index.revertTo(-1);
+        assertThat(index.isEmpty()).isTrue();
+        assertThat(find(ADDR_A, null, 0, 1000)).isEmpty();
+    }
+}
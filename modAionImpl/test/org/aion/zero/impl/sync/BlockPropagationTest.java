@@ -55,6 +55,24 @@ public class BlockPropagationTest {
                 BigInteger _totalDifficulty) {
         }
 
+        @Override
+        public byte getCapabilities() {
+            return 0;
+        }
+
+        @Override
+        public void recordResponse(long _rtt, int _bytes) {
+        }
+
+        @Override
+        public void recordInvalidResponse() {
+        }
+
+        @Override
+        public double getScore() {
+            return 0;
+        }
+
         @Override
         public byte[] getIp() {
             return new byte[0];
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ * This file is part of the aion network project.
+ *
+ * The aion network project is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * The aion network project is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the aion network project source files.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors to the aion source files in decreasing order of code volume:
+ *
+ * Aion foundation.
+ * <ether.camp> team through the ethereumJ library.
+ * Ether.Camp Inc. (US) team through Ethereum Harmony.
+ * John Tromp through the Equihash solver.
+ * Samuel Neves through the BLAKE2 implementation.
+ * Zcash project team.
+ * Bitcoinj team.
+ *
+ */
+
+
+package org.aion.zero.impl.sync;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class SyncQueueTest {
+
+    @Test
+    public void testItemBound() throws InterruptedException {
+        SyncQueue<Long> q = new SyncQueue<>(2, Long.MAX_VALUE, l -> l);
+        assertTrue(q.offer(1L));
+        assertTrue(q.offer(1L));
+        assertTrue(q.isFull());
+        assertFalse(q.offer(1L));
+        assertEquals(2, q.size());
+
+        q.take();
+        assertFalse(q.isFull());
+        assertTrue(q.offer(1L));
+    }
+
+    @Test
+    public void testByteBound() throws InterruptedException {
+        SyncQueue<Long> q = new SyncQueue<>(100, 1000, l -> l);
+
+        // always accepted into an empty queue
+        assertTrue(q.offer(5000L));
+        assertEquals(5000L, q.bytes());
+        assertFalse(q.offer(1L));
+
+        assertEquals(5000L, (long) q.take());
+        assertEquals(0L, q.bytes());
+
+        assertTrue(q.offer(600L));
+        assertTrue(q.offer(600L));
+        assertFalse(q.offer(1L));
+        assertEquals(1200L, q.bytes());
+    }
+
+    @Test
+    public void testAwaitCapacity() throws InterruptedException {
+        SyncQueue<Long> q = new SyncQueue<>(1, Long.MAX_VALUE, l -> l);
+        assertTrue(q.awaitCapacity(0, TimeUnit.MILLISECONDS));
+
+        q.offer(1L);
+        assertFalse(q.awaitCapacity(10, TimeUnit.MILLISECONDS));
+
+        Thread consumer = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+                q.take();
+            } catch (InterruptedException e) {
+                // ignore
+            }
+        });
+        consumer.start();
+        assertTrue(q.awaitCapacity(5, TimeUnit.SECONDS));
+        consumer.join();
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ * This file is part of the aion network project.
+ *
+ * The aion network project is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * The aion network project is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the aion network project source files.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors to the aion source files in decreasing order of code volume:
+ *
+ * Aion foundation.
+ * <ether.camp> team through the ethereumJ library.
+ * Ether.Camp Inc. (US) team through Ethereum Harmony.
+ * John Tromp through the Equihash solver.
+ * Samuel Neves through the BLAKE2 implementation.
+ * Zcash project team.
+ * Bitcoinj team.
+ *
+ */
+
+
+package org.aion.zero.impl.sync.msg;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+public class BroadcastTxHashesTest {
+
+    private static List<byte[]> randomHashes(int _count) {
+        Random rnd = new Random(7);
+        List<byte[]> hashes = new ArrayList<>();
+        for (int i = 0; i < _count; i++) {
+            byte[] hash = new byte[32];
+            rnd.nextBytes(hash);
+            hashes.add(hash);
+        }
+        return hashes;
+    }
+
+    @Test
+    public void testRoundTrip() {
+        List<byte[]> hashes = randomHashes(10);
+
+        BroadcastTxHashes decoded = BroadcastTxHashes.decode(new BroadcastTxHashes(hashes).encode());
+        assertNotNull(decoded);
+        assertEquals(hashes.size(), decoded.getTxHashes().size());
+        for (int i = 0; i < hashes.size(); i++) {
+            assertArrayEquals(hashes.get(i), decoded.getTxHashes().get(i));
+        }
+
+        ReqTxs req = ReqTxs.decode(new ReqTxs(hashes).encode());
+        assertNotNull(req);
+        assertEquals(hashes.size(), req.getTxHashes().size());
+        assertArrayEquals(hashes.get(9), req.getTxHashes().get(9));
+    }
+
+    @Test
+    public void testDecodeInvalid() {
+        assertNull(BroadcastTxHashes.decode(null));
+        assertNull(BroadcastTxHashes.decode(new byte[33]));
+        assertNull(ReqTxs.decode(new byte[31]));
+        assertNull(ReqTxs.decode(new byte[32 * (ReqTxs.MAX_HASHES + 1)]));
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ * This file is part of the aion network project.
+ *
+ * The aion network project is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * The aion network project is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the aion network project source files.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors to the aion source files in decreasing order of code volume:
+ *
+ * Aion foundation.
+ * <ether.camp> team through the ethereumJ library.
+ * Ether.Camp Inc. (US) team through Ethereum Harmony.
+ * John Tromp through the Equihash solver.
+ * Samuel Neves through the BLAKE2 implementation.
+ * Zcash project team.
+ * Bitcoinj team.
+ *
+ */
+
+
+package org.aion.zero.impl.sync.msg;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.aion.rlp.RLP;
+import org.aion.zero.types.A0BlockHeader;
+import org.junit.Test;
+
+public class CompactBlockMsgTest {
+
+    @Test
+    public void testCompactBlockRoundTrip() {
+        A0BlockHeader header = new A0BlockHeader.Builder().withNumber(7).withEnergyLimit(1000000).build();
+        long[] shortIds = new long[] {1L, -2L, Long.MAX_VALUE};
+
+        BroadcastCompactBlock decoded = BroadcastCompactBlock.decode(new BroadcastCompactBlock(header, shortIds).encode());
+        assertNotNull(decoded);
+        assertArrayEquals(header.getHash(), decoded.getBlockHeader().getHash());
+        assertArrayEquals(shortIds, decoded.getShortIds());
+
+        decoded = BroadcastCompactBlock.decode(new BroadcastCompactBlock(header, new long[0]).encode());
+        assertNotNull(decoded);
+        assertEquals(0, decoded.getShortIds().length);
+    }
+
+    @Test
+    public void testShortId() {
+        byte[] hash = new byte[32];
+        hash[0] = 0x01;
+        hash[7] = 0x02;
+        hash[8] = 0x03;
+        assertEquals(0x0100000000000002L, BroadcastCompactBlock.shortId(hash));
+    }
+
+    @Test
+    public void testBlockTxsRoundTrip() {
+        Random rnd = new Random(3);
+        byte[] blockHash = new byte[32];
+        rnd.nextBytes(blockHash);
+
+        ReqBlockTxs req = ReqBlockTxs.decode(new ReqBlockTxs(blockHash, new int[] {0, 5, 9}).encode());
+        assertNotNull(req);
+        assertArrayEquals(blockHash, req.getBlockHash());
+        assertArrayEquals(new int[] {0, 5, 9}, req.getIndexes());
+
+        List<byte[]> txs = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            byte[] data = new byte[100 + i];
+            rnd.nextBytes(data);
+            // txs travel as their rlp encoded list
+            txs.add(RLP.encodeList(RLP.encodeElement(data)));
+        }
+        ResBlockTxs res = ResBlockTxs.decode(new ResBlockTxs(blockHash, txs).encode());
+        assertNotNull(res);
+        assertArrayEquals(blockHash, res.getBlockHash());
+        assertEquals(3, res.getTxs().size());
+        assertArrayEquals(txs.get(2), res.getTxs().get(2));
+    }
+
+    @Test
+    public void testDecodeInvalid() {
+        assertNull(BroadcastCompactBlock.decode(null));
+        assertNull(BroadcastCompactBlock.decode(new byte[] {0x01, 0x02}));
+        assertNull(ReqBlockTxs.decode(new byte[31]));
+        assertNull(ReqBlockTxs.decode(new byte[34]));
+        assertNull(ResBlockTxs.decode(new byte[0]));
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ * This file is part of the aion network project.
+ *
+ * The aion network project is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * The aion network project is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the aion network project source files.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors to the aion source files in decreasing order of code volume:
+ *
+ * Aion foundation.
+ * <ether.camp> team through the ethereumJ library.
+ * Ether.Camp Inc. (US) team through Ethereum Harmony.
+ * John Tromp through the Equihash solver.
+ * Samuel Neves through the BLAKE2 implementation.
+ * Zcash project team.
+ * Bitcoinj team.
+ *
+ */
+
+
+package org.aion.zero.impl.tx;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+import org.junit.Test;
+
+public class KnownTxFilterTest {
+
+    private static byte[] hash(Random _rnd) {
+        byte[] hash = new byte[32];
+        _rnd.nextBytes(hash);
+        return hash;
+    }
+
+    @Test
+    public void testAdd() {
+        KnownTxFilter filter = new KnownTxFilter(16);
+        byte[] h = hash(new Random(1));
+
+        assertFalse(filter.contains(h));
+        assertTrue(filter.add(h));
+        assertTrue(filter.contains(h));
+        assertFalse(filter.add(h));
+    }
+
+    @Test
+    public void testRotation() {
+        Random rnd = new Random(2);
+        KnownTxFilter filter = new KnownTxFilter(16);
+
+        byte[] first = hash(rnd);
+        filter.add(first);
+
+        // fill the first generation, first hash survives in the previous one
+        for (int i = 0; i < 16; i++) {
+            filter.add(hash(rnd));
+        }
+        assertTrue(filter.contains(first));
+
+        // a second rotation drops it
+        for (int i = 0; i < 16; i++) {
+            filter.add(hash(rnd));
+        }
+        assertFalse(filter.contains(first));
+    }
+}
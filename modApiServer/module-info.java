@@ -14,4 +14,5 @@ module aion.apiserver {
     exports org.aion.api.server.pb;
     exports org.aion.api.server.http;
     exports org.aion.api.server.zmq;
+    exports org.aion.api.server.metrics;
 }
\ No newline at end of file
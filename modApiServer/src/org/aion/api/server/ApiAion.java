@@ -89,7 +89,6 @@ public abstract class ApiAion extends Api {
 
     private ReentrantLock blockTemplateLock;
     private volatile AionBlock currentTemplate;
-    private byte[] currentBestBlockHash;
 
     protected EventExecuteService ees;
 
@@ -160,20 +159,13 @@ public abstract class ApiAion extends Api {
 
         blockTemplateLock.lock();
         try {
-            AionBlock bestBlock = ((AionPendingStateImpl) ac.getAionHub().getPendingState()).getBestBlock();
-            byte[] bestBlockStaticHash = bestBlock.getHeader().getStaticHash();
+            AionPendingStateImpl pendingState = (AionPendingStateImpl) ac.getAionHub().getPendingState();
+            AionBlock bestBlock = pendingState.getBestBlock();
 
-            if(currentBestBlockHash == null || !Arrays.equals(bestBlockStaticHash, currentBestBlockHash)) {
-
-                // Record new best block on the chain
-                currentBestBlockHash = bestBlock.getHeader().getStaticHash();
-
-                // Generate new block template
-                AionPendingStateImpl.TransactionSortedSet ret = new AionPendingStateImpl.TransactionSortedSet();
-                ret.addAll(ac.getAionHub().getPendingState().getPendingTransactions());
-
-                currentTemplate = ac.getAionHub().getBlockchain().createNewBlock(bestBlock, new ArrayList<>(ret), false);
-            }
+            // the template of the same best block only gets the txs that arrived since appended,
+            // a new best block rebuilds it
+            currentTemplate = ac.getAionHub().getBlockchain().createBlockTemplate(bestBlock,
+                    pendingState::streamPendingTransactions);
 
         } finally {
             blockTemplateLock.unlock();
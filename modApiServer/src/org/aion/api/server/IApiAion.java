@@ -24,6 +24,8 @@
 
 package org.aion.api.server;
 
+import com.google.protobuf.CodedInputStream;
+import org.aion.api.server.pb.RspBuffer;
 import org.aion.api.server.pb.TxWaitingMappingUpdate;
 import org.aion.api.server.types.Fltr;
 import org.aion.api.server.types.TxPendingStatus;
@@ -35,7 +37,7 @@ import java.util.concurrent.BlockingQueue;
 
 public interface IApiAion {
 
-    byte[] parseMsgReq(byte[] request, byte[] msgHash);
+    CodedInputStream parseMsgReq(byte[] request, byte[] msgHash);
 
     Map<Long, Fltr> getFilter();
 
@@ -54,6 +56,11 @@ public interface IApiAion {
 
     byte[] process(byte[] request, byte[] socketId);
 
+    /**
+     * Processes a request into the caller's buffer, which is reused for its next request.
+     */
+    void process(byte[] request, byte[] socketId, RspBuffer out);
+
     Map<ByteArrayWrapper, Map.Entry<ByteArrayWrapper, ByteArrayWrapper>> getMsgIdMapping();
 
     void shutDown();
@@ -24,15 +24,14 @@
 
 package org.aion.api.server.http;
 
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
-import com.google.common.util.concurrent.ListenableFuture;
-import com.google.common.util.concurrent.ListenableFutureTask;
 import org.aion.api.server.ApiAion;
+import org.aion.api.server.metrics.ApiMetrics;
 import org.aion.api.server.nrgprice.NrgOracle;
+import org.aion.api.server.rpc.JsonWritable;
 import org.aion.api.server.rpc.RpcError;
 import org.aion.api.server.rpc.RpcMsg;
+import org.aion.api.server.rpc.RpcResponseCache;
+import org.aion.api.server.rpc.RpcSession;
 import org.aion.api.server.types.*;
 import org.aion.base.db.IRepository;
 import org.aion.base.type.Address;
@@ -63,6 +62,8 @@ import org.aion.zero.impl.core.IAionBlockchain;
 import org.aion.zero.impl.core.RewardsCalculator;
 import org.aion.zero.impl.db.AionBlockStore;
 import org.aion.zero.impl.db.AionRepositoryImpl;
+import org.aion.zero.impl.db.BloomBitsIndex;
+import org.aion.zero.impl.db.LogIndex;
 import org.aion.zero.impl.types.AionBlock;
 import org.aion.zero.impl.types.AionBlockSummary;
 import org.aion.zero.impl.types.AionTxInfo;
@@ -72,11 +73,11 @@ import org.aion.zero.types.AionTxReceipt;
 import org.apache.commons.collections4.map.LRUMap;
 import org.json.JSONArray;
 import org.json.JSONObject;
+import org.json.JSONString;
 
 import java.math.BigInteger;
 import java.util.*;
 import java.util.concurrent.*;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -91,7 +92,6 @@ import static org.aion.base.util.ByteUtil.toHexString;
 public class ApiWeb3Aion extends ApiAion {
 
     private final int OPS_RECENT_ENTITY_COUNT = 32;
-    private final int OPS_RECENT_ENTITY_CACHE_TIME_SECONDS = 4;
     // TODO: Verify if need to use a concurrent map; locking may allow for use of a simple map
     private HashMap<ByteArrayWrapper, AionBlock> templateMap;
     private ReadWriteLock templateMapLock;
@@ -99,18 +99,98 @@ public class ApiWeb3Aion extends ApiAion {
     // doesn't need to be protected for concurrent access, since only one write in the constructor.
     private boolean isFilterEnabled;
 
+    // the installed log filters, keyed by address and topic so every block is matched once for all of them
+    private final FltrLgIndex logFilters = new FltrLgIndex();
+
+    // results for blocks this far below the best block are taken as final and may be cached
+    private static final int IMMUTABLE_DEPTH = 64;
+    // null when disabled; re-orgs are only seen through the block events, so it needs filters enabled
+    private final RpcResponseCache responseCache;
+    // the best block at the last block event, only touched from the event loop
+    private AionBlock lastBest;
+
     protected void onBlock(AionBlockSummary cbs) {
+        if (responseCache != null) {
+            invalidateReorged(getBestBlock());
+        }
+
         if (isFilterEnabled) {
             installedFilters.keySet().forEach((k) -> {
                 Fltr f = installedFilters.get(k);
                 if (f.isExpired()) {
                     LOG.debug("<Filter: expired, key={}>", k);
-                    installedFilters.remove(k);
-                } else if (f.onBlock(cbs)) {
+                    uninstallFilter(k);
+                } else if (f.getType() != Fltr.Type.LOG && f.onBlock(cbs)) {
                     LOG.debug("<Filter: append, onBlock type={} blk#={}>", f.getType().name(), cbs.getBlock().getNumber());
                 }
             });
+            logFilters.onBlock(cbs);
+            publishHead(cbs);
+        }
+
+        // side chain imports leave the best block, and so the view, as it is
+        try {
+            chainHeadView.update(getBestBlock());
+        } catch (Exception e) {
+            LOG.error("<rpc-server - failed to update the chain head view: ", e);
+        }
+    }
+
+    /**
+     * Drops the cached responses built on blocks that a re-org took off the main chain.
+     */
+    private void invalidateReorged(AionBlock best) {
+        AionBlock prev = lastBest;
+        lastBest = best;
+        if (prev == null
+                || FastByteComparisons.equal(prev.getHash(), best.getHash())
+                || FastByteComparisons.equal(prev.getHash(), best.getParentHash())) {
+            return;
+        }
+
+        // walk both branches back to the block they share
+        AionBlock a = prev;
+        AionBlock b = best;
+        while (a != null && b != null && !FastByteComparisons.equal(a.getHash(), b.getHash())) {
+            if (a.getNumber() >= b.getNumber()) {
+                a = getBlockByHash(a.getParentHash());
+            } else {
+                b = getBlockByHash(b.getParentHash());
+            }
+        }
+
+        long fork = (a == null || b == null) ? -1 : a.getNumber();
+        if (fork < prev.getNumber() - IMMUTABLE_DEPTH) {
+            LOG.warn("<rpc-server - re-org below the response cache depth, fork={} best={}>", fork, best.getNumber());
+        }
+        responseCache.invalidateFrom(fork + 1);
+    }
+
+    private JSONString cachedResponse(String key) {
+        return responseCache == null ? null : responseCache.get(key);
+    }
+
+    private long responseEpoch() {
+        return responseCache == null ? 0 : responseCache.epoch();
+    }
+
+    /**
+     * Wraps the result of a query on the given block, keeping it in the response cache when
+     * the block is deep enough that the result cannot change anymore.
+     */
+    private RpcMsg cacheResponse(String key, long epoch, long blockNumber, Object result) {
+        if (responseCache != null && blockNumber <= getBestBlock().getNumber() - IMMUTABLE_DEPTH) {
+            return new RpcMsg(responseCache.put(key, blockNumber, result, epoch));
         }
+        return new RpcMsg(result);
+    }
+
+    private Fltr uninstallFilter(long id) {
+        Fltr f = installedFilters.remove(id);
+        if (f instanceof FltrLg) {
+            logFilters.remove((FltrLg) f);
+        }
+        return f;
     }
 
     protected void pendingTxReceived(ITransaction _tx) {
@@ -121,11 +201,17 @@ public class ApiWeb3Aion extends ApiAion {
                 Fltr f = installedFilters.get(k);
                 if (f.isExpired()) {
                     LOG.debug("<filter expired, key={}>", k);
-                    installedFilters.remove(k);
+                    uninstallFilter(k);
                 } else if (f.onTransaction(_tx)) {
                     LOG.info("<filter append, onPendingTransaction fltrSize={} type={} txHash={}>", f.getSize(), f.getType().name(), TypeConverter.toJsonHex(_tx.getHash()));
                 }
             });
+
+            subscriptions.forEach((id, sub) -> {
+                if (sub.type == SubscriptionType.NEW_PENDING_TRANSACTIONS) {
+                    publish(sub, TypeConverter.toJsonHex(_tx.getHash()));
+                }
+            });
         }
     }
 
@@ -151,6 +237,11 @@ public class ApiWeb3Aion extends ApiAion {
         templateMapLock = new ReentrantReadWriteLock();
         isFilterEnabled = CfgAion.inst().getApi().getRpc().isFiltersEnabled();
 
+        int responseCacheSize = CfgAion.inst().getApi().getRpc().getResponseCacheSize();
+        responseCache = (isFilterEnabled && responseCacheSize > 0)
+                ? new RpcResponseCache(responseCacheSize * 1024L * 1024L)
+                : null;
+
         // instantiate nrg price oracle
         IAionBlockchain bc = (IAionBlockchain)_ac.getBlockchain();
         long nrgPriceDefault = CfgAion.inst().getApi().getNrg().getNrgPriceDefault();
@@ -178,37 +269,6 @@ public class ApiWeb3Aion extends ApiAion {
                 txHr.eventCallback(new EventCallback(ees, LOG));
             }
         }
-
-        // ops-related endpoints
-        // https://github.com/google/guava/wiki/CachesExplained#refresh
-        CachedRecentEntities = CacheBuilder.newBuilder()
-                .maximumSize(1)
-                .refreshAfterWrite(OPS_RECENT_ENTITY_CACHE_TIME_SECONDS, TimeUnit.SECONDS)
-                .build(
-                        new CacheLoader<Integer, ChainHeadView>() {
-                            public ChainHeadView load(Integer key) { // no checked exception
-                                ChainHeadView view = new ChainHeadView(OPS_RECENT_ENTITY_COUNT).update();
-                                return view;
-                            }
-
-                            public ListenableFuture<ChainHeadView> reload(final Integer key, ChainHeadView prev) {
-                                try {
-                                    ListenableFutureTask<ChainHeadView> task = ListenableFutureTask.create(new Callable<ChainHeadView>() {
-                                        public ChainHeadView call() {
-                                            return new ChainHeadView(prev).update();
-                                        }
-                                    });
-                                    cacheUpdateExecutor.execute(task);
-                                    return task;
-                                } catch (Throwable e) {
-                                    LOG.debug("<cache-updater - could not queue up task: ", e);
-                                    throw(e);
-                                } // exception is swallowed by refresh and load. so just log it for our logs
-                            }
-                        });
-
-        cacheUpdateExecutor = new ThreadPoolExecutor(1, 1, 10, TimeUnit.SECONDS,
-                new ArrayBlockingQueue<>(1), new CacheUpdateThreadFactory());
     }
 
     // --------------------------------------------------------------------
@@ -466,12 +526,18 @@ public class ApiWeb3Aion extends ApiAion {
         }
 
         byte[] hash = ByteUtil.hexStringToBytes(_hash);
+        String key = "eth_getBlockTransactionCountByHash:" + TypeConverter.toJsonHex(hash);
+        JSONString cached = cachedResponse(key);
+        if (cached != null)
+            return new RpcMsg(cached);
+
+        long epoch = responseEpoch();
         AionBlock b = this.ac.getBlockchain().getBlockByHash(hash);
         if (b == null)
             return new RpcMsg(null, RpcError.EXECUTION_ERROR, "Block not found.");
 
         long n = b.getTransactionsList().size();
-        return new RpcMsg(TypeConverter.toJsonHex(n));
+        return cacheResponse(key, epoch, b.getNumber(), TypeConverter.toJsonHex(n));
     }
 
     public RpcMsg eth_getBlockTransactionCountByNumber(Object _params) {
@@ -690,6 +756,12 @@ public class ApiWeb3Aion extends ApiAion {
         }
 
         byte[] hash = ByteUtil.hexStringToBytes(_hash);
+        String key = "eth_getBlockByHash:" + TypeConverter.toJsonHex(hash) + ":" + _fullTx;
+        JSONString cached = cachedResponse(key);
+        if (cached != null)
+            return new RpcMsg(cached);
+
+        long epoch = responseEpoch();
         AionBlock block = this.ac.getBlockchain().getBlockByHash(hash);
 
         if (block == null) {
@@ -697,7 +769,8 @@ public class ApiWeb3Aion extends ApiAion {
             return new RpcMsg(JSONObject.NULL); // json rpc spec: 'or null when no block was found'
         } else {
             BigInteger totalDiff = this.ac.getAionHub().getBlockStore().getTotalDifficultyForHash(hash);
-            return new RpcMsg(Blk.AionBlockToJson(block, totalDiff, _fullTx));
+            return cacheResponse(key, epoch, block.getNumber(),
+                    (JsonWritable) w -> Blk.AionBlockToJson(w, block, totalDiff, _fullTx, null));
         }
     }
 
@@ -721,6 +794,12 @@ public class ApiWeb3Aion extends ApiAion {
         if (bn == null || bn < 0)
             return new RpcMsg(null, RpcError.INVALID_PARAMS, "Invalid block id provided.");
 
+        String key = "eth_getBlockByNumber:" + bn + ":" + _fullTx;
+        JSONString cached = cachedResponse(key);
+        if (cached != null)
+            return new RpcMsg(cached);
+
+        long epoch = responseEpoch();
         AionBlock nb = this.ac.getBlockchain().getBlockByNumber(bn);
 
         if (nb == null) {
@@ -728,7 +807,8 @@ public class ApiWeb3Aion extends ApiAion {
             return new RpcMsg(JSONObject.NULL); // json rpc spec: 'or null when no block was found'
         } else {
             BigInteger totalDiff = this.ac.getAionHub().getBlockStore().getTotalDifficultyForHash(nb.getHash());
-            return new RpcMsg(Blk.AionBlockToJson(nb, totalDiff, _fullTx));
+            return cacheResponse(key, epoch, bn,
+                    (JsonWritable) w -> Blk.AionBlockToJson(w, nb, totalDiff, _fullTx, null));
         }
     }
 
@@ -785,7 +865,7 @@ public class ApiWeb3Aion extends ApiAion {
         if (idx >= txs.size())
             return new RpcMsg(JSONObject.NULL); // json rpc spec: 'or null when no transaction was found'
 
-        return new RpcMsg(Tx.AionTransactionToJSON(txs.get(idx), b, idx));
+        return new RpcMsg((JsonWritable) w -> Tx.AionTransactionToJSON(w, txs.get(idx), b, idx));
     }
 
     public RpcMsg eth_getTransactionByBlockNumberAndIndex(Object _params) {
@@ -816,7 +896,7 @@ public class ApiWeb3Aion extends ApiAion {
         if (idx >= txs.size())
             return new RpcMsg(JSONObject.NULL); // json rpc spec: 'or null when no transaction was found'
 
-        return new RpcMsg(Tx.AionTransactionToJSON(txs.get(idx), b, idx));
+        return new RpcMsg((JsonWritable) w -> Tx.AionTransactionToJSON(w, txs.get(idx), b, idx));
     }
 
     public RpcMsg eth_getTransactionReceipt(Object _params) {
@@ -832,6 +912,12 @@ public class ApiWeb3Aion extends ApiAion {
         }
 
         byte[] txHash = TypeConverter.StringHexToByteArray(_hash);
+        String key = "eth_getTransactionReceipt:" + TypeConverter.toJsonHex(txHash);
+        JSONString cached = cachedResponse(key);
+        if (cached != null)
+            return new RpcMsg(cached);
+
+        long epoch = responseEpoch();
         TxRecpt r = getTransactionReceipt(txHash);
 
         // commenting this out because of lack support for old web3 client that we are using
@@ -848,7 +934,10 @@ public class ApiWeb3Aion extends ApiAion {
         if (r == null)
             return new RpcMsg(JSONObject.NULL); // json rpc spec: 'or null when no receipt was found'
 
-        return new RpcMsg(r.toJson());
+        if (r.blockNumber == null)
+            return new RpcMsg(r);
+
+        return cacheResponse(key, epoch, r.blockNumber, r);
     }
 
     /* -------------------------------------------------------------------------
@@ -924,9 +1013,35 @@ public class ApiWeb3Aion extends ApiAion {
             // the user will miss all events generated between the first poll and filter installation.
 
             toBlock = toBlock == null ? getBestBlock() : toBlock;
-            for (long i = fromBlock.getNumber(); i <= toBlock.getNumber(); i++) {
-                if (filter.isFull()) break;
-                filter.onBlock(this.ac.getBlockchain().getBlockByNumber(i), this.ac.getAionHub().getBlockchain());
+
+            long from = fromBlock.getNumber();
+            long to = toBlock.getNumber();
+
+            // the log index gives the blocks holding the logs of a single address and/or topic straight away,
+            // otherwise the bloom index skips the sections without a possible match
+            LogIndex logIndex = ((AionBlockchainImpl) this.ac.getBlockchain()).getLogIndex();
+            byte[][] term = filter.getIndexTerm();
+            BloomBitsIndex bloomBits = ((AionRepositoryImpl) this.ac.getRepository()).getBloomBits();
+            if (logIndex != null && term != null && logIndex.covers(from, to)) {
+                long[] last = {-1};
+                logIndex.find(term[0], term[1], from, to, (i, txIndex, logIdx) -> {
+                    if (i == last[0]) return true;
+                    last[0] = i;
+                    if (filter.isFull()) return false;
+                    filter.onBlock(this.ac.getBlockchain().getBlockByNumber(i), this.ac.getAionHub().getBlockchain());
+                    return true;
+                });
+            } else if (bloomBits != null) {
+                bloomBits.forEachCandidate(from, to, filter.getFilterBlooms(), i -> {
+                    if (filter.isFull()) return false;
+                    filter.onBlock(this.ac.getBlockchain().getBlockByNumber(i), this.ac.getAionHub().getBlockchain());
+                    return true;
+                });
+            } else {
+                for (long i = from; i <= to; i++) {
+                    if (filter.isFull()) break;
+                    filter.onBlock(this.ac.getBlockchain().getBlockByNumber(i), this.ac.getAionHub().getBlockchain());
+                }
             }
         }
 
@@ -959,6 +1074,7 @@ public class ApiWeb3Aion extends ApiAion {
         // rationale: until the user gets the id back, the user should not expect the filter to be "installed" anyway.
         long id = fltrIndex.getAndIncrement();
         installedFilters.put(id, filter);
+        logFilters.add(filter);
 
         return new RpcMsg(TypeConverter.toJsonHex(id));
     }
@@ -999,19 +1115,20 @@ public class ApiWeb3Aion extends ApiAion {
             return new RpcMsg(null, RpcError.INVALID_PARAMS, "Invalid parameters");
         }
 
-        return new RpcMsg(installedFilters.remove(TypeConverter.StringHexToBigInteger(_id).longValue()) != null);
+        return new RpcMsg(uninstallFilter(TypeConverter.StringHexToBigInteger(_id).longValue()) != null);
     }
 
-    private JSONArray buildFilterResponse(Fltr filter) {
+    private JsonWritable buildFilterResponse(Fltr filter) {
         Object[] events = filter.poll();
-        JSONArray response = new JSONArray();
-        for (Object event : events) {
-            if (event instanceof Evt) {
-                // put the Object we get out of the Evt object in here
-                response.put(((Evt) event).toJSON());
+        return w -> {
+            w.beginArray();
+            for (Object event : events) {
+                if (event instanceof Evt) {
+                    ((Evt) event).writeJson(w);
+                }
             }
-        }
-        return response;
+            w.endArray();
+        };
     }
 
     public RpcMsg eth_getFilterChanges(Object _params) {
@@ -1059,6 +1176,170 @@ public class ApiWeb3Aion extends ApiAion {
         return new RpcMsg(buildFilterResponse(filter));
     }
 
+    /* -------------------------------------------------------------------------
+     * subscriptions
+     *
+     * eth pub/sub for clients on a connection that stays open (websocket): the events the
+     * filters above queue for polling are pushed to the connection instead, from the same
+     * event loop. Log subscriptions are matched through the shared log filter index.
+     */
+
+    private enum SubscriptionType {
+        NEW_HEADS, LOGS, NEW_PENDING_TRANSACTIONS
+    }
+
+    private static final class Subscription {
+        private final String id;
+        private final RpcSession session;
+        private final SubscriptionType type;
+        private final FltrLg filter; // LOGS only
+
+        private Subscription(String id, RpcSession session, SubscriptionType type, FltrLg filter) {
+            this.id = id;
+            this.session = session;
+            this.type = type;
+            this.filter = filter;
+        }
+    }
+
+    private final Map<Long, Subscription> subscriptions = new ConcurrentHashMap<>();
+
+    public RpcMsg eth_subscribe(Object _params, RpcSession session) {
+        if (!isFilterEnabled) {
+            return new RpcMsg(null, RpcError.NOT_ALLOWED, "Filters over rpc disabled.");
+        }
+        if (session == null) {
+            return new RpcMsg(null, RpcError.NOT_ALLOWED, "Subscriptions need a websocket connection.");
+        }
+
+        String _type;
+        JSONObject _filterObj;
+        if (_params instanceof JSONArray) {
+            _type = ((JSONArray)_params).get(0) + "";
+            _filterObj = ((JSONArray)_params).optJSONObject(1);
+        }
+        else if (_params instanceof JSONObject) {
+            _type = ((JSONObject)_params).get("type") + "";
+            _filterObj = ((JSONObject)_params).optJSONObject("filter");
+        }
+        else {
+            return new RpcMsg(null, RpcError.INVALID_PARAMS, "Invalid parameters");
+        }
+
+        long id = fltrIndex.getAndIncrement();
+        String subId = TypeConverter.toJsonHex(id);
+        Subscription sub;
+        switch (_type) {
+            case "newHeads":
+                sub = new Subscription(subId, session, SubscriptionType.NEW_HEADS, null);
+                break;
+            case "newPendingTransactions":
+            case "pendingTransactions":
+                sub = new Subscription(subId, session, SubscriptionType.NEW_PENDING_TRANSACTIONS, null);
+                break;
+            case "logs":
+                ArgFltr rf = ArgFltr.fromJSON(_filterObj == null ? new JSONObject() : _filterObj);
+                if (rf == null)
+                    return new RpcMsg(null, RpcError.INVALID_PARAMS, "Invalid filter object provided.");
+
+                FltrLg filter = new FltrLg(evt -> publish(subscriptions.get(id), evt));
+                filter.setTopics(rf.topics);
+                filter.setContractAddress(rf.address);
+                sub = new Subscription(subId, session, SubscriptionType.LOGS, filter);
+                break;
+            default:
+                return new RpcMsg(null, RpcError.INVALID_PARAMS, "Unsupported subscription type: " + _type);
+        }
+
+        subscriptions.put(id, sub);
+        if (sub.filter != null) {
+            logFilters.add(sub.filter);
+        }
+
+        // the connection may have closed and dropped its subscriptions while this call ran
+        if (!session.isOpen()) {
+            unsubscribe(id);
+            return new RpcMsg(null, RpcError.NOT_ALLOWED, "Connection closed.");
+        }
+        return new RpcMsg(subId);
+    }
+
+    public RpcMsg eth_unsubscribe(Object _params, RpcSession session) {
+        String _id;
+        if (_params instanceof JSONArray) {
+            _id = ((JSONArray)_params).get(0) + "";
+        }
+        else if (_params instanceof JSONObject) {
+            _id = ((JSONObject)_params).get("id") + "";
+        }
+        else {
+            return new RpcMsg(null, RpcError.INVALID_PARAMS, "Invalid parameters");
+        }
+
+        long id = TypeConverter.StringHexToBigInteger(_id).longValue();
+        Subscription sub = subscriptions.get(id);
+        // a connection can only cancel its own subscriptions
+        if (sub == null || sub.session != session) {
+            return new RpcMsg(false);
+        }
+        return new RpcMsg(unsubscribe(id) != null);
+    }
+
+    /**
+     * Drops the subscriptions of a connection that went away.
+     */
+    public void unsubscribeAll(RpcSession session) {
+        subscriptions.forEach((id, sub) -> {
+            if (sub.session == session) {
+                unsubscribe(id);
+            }
+        });
+    }
+
+    private Subscription unsubscribe(long id) {
+        Subscription sub = subscriptions.remove(id);
+        if (sub != null && sub.filter != null) {
+            logFilters.remove(sub.filter);
+        }
+        return sub;
+    }
+
+    private void publishHead(AionBlockSummary cbs) {
+        JSONObject head = null;
+        for (Subscription sub : subscriptions.values()) {
+            if (sub.type != SubscriptionType.NEW_HEADS) continue;
+
+            // built once, written out for every subscriber
+            if (head == null) {
+                AionBlock blk = (AionBlock) cbs.getBlock();
+                BigInteger totalDiff = cbs.getTotalDifficulty() != null ? cbs.getTotalDifficulty()
+                        : this.ac.getAionHub().getBlockStore().getTotalDifficultyForHash(blk.getHash());
+                head = Blk.AionBlockOnlyToJson(blk, totalDiff);
+            }
+            publish(sub, head);
+        }
+    }
+
+    // the connection drops its subscriptions itself once it is closed, they are not removed here
+    // since this runs while the log filter index is being walked
+    private void publish(Subscription sub, Object result) {
+        if (sub == null) return;
+
+        JsonWritable notification = w -> {
+            w.beginObject();
+            w.field("jsonrpc", "2.0");
+            w.field("method", "eth_subscription");
+            w.name("params").beginObject();
+            w.field("subscription", sub.id);
+            w.name("result").value(result);
+            w.endObject();
+            w.endObject();
+        };
+        if (!sub.session.push(notification) && LOG.isDebugEnabled()) {
+            LOG.debug("<subscription: dropped, id={}>", sub.id);
+        }
+    }
+
     /* -------------------------------------------------------------------------
      * personal
      */
@@ -1118,13 +1399,13 @@ public class ApiWeb3Aion extends ApiAion {
             return new RpcMsg(null, RpcError.EXECUTION_ERROR, "Blocks requested not found.");
         }
 
-        JSONArray response = new JSONArray();
-        for (Map.Entry<AionBlock, Map.Entry<BigInteger, Boolean>> block : blocks) {
-            JSONObject b = (JSONObject) Blk.AionBlockToJson(block.getKey(), block.getValue().getKey(), _fullTx);
-            b.put("mainchain", block.getValue().getValue());
-            response.put(b);
-        }
-        return new RpcMsg(response);
+        return new RpcMsg((JsonWritable) w -> {
+            w.beginArray();
+            for (Map.Entry<AionBlock, Map.Entry<BigInteger, Boolean>> block : blocks) {
+                Blk.AionBlockToJson(w, block.getKey(), block.getValue().getKey(), _fullTx, block.getValue().getValue());
+            }
+            w.endArray();
+        });
     }
 
     /* -------------------------------------------------------------------------
@@ -1317,107 +1598,218 @@ public class ApiWeb3Aion extends ApiAion {
         return new RpcMsg(response);
     }
 
-    // always gets the latest 20 blocks and transactions
+    /**
+     * The latest blocks and transactions for the ops dashboard, kept as a ring of per block
+     * summaries. The metrics are running sums over the window, so following the head costs
+     * O(1) per block; only a re-org walks back through the blockstore. The serialized
+     * snapshot is rebuilt as the head moves and published for the readers, who never build
+     * it; the json of a block is built once, when its entry first goes into a snapshot.
+     */
     private class ChainHeadView {
-        LinkedList<byte[]> hashQueue; // more precisely a dequeue
-        Map<byte[], JSONObject> blkList;
-        Map<byte[], AionBlock> blkObjList;
-        Map<byte[], List<AionTransaction>> txnList;
 
-        private JSONObject response;
+        private final class Entry {
+            final byte[] hash;
+            final long number;
+            final long timestamp;
+            final long difficulty;
+            final long nrgConsumed;
+            final long nrgLimit;
+            final int txnCount;
+            // -1 for the first block of a window
+            final long blockTime;
+
+            // dropped once the json below is built
+            private AionBlock block;
+            private BigInteger reward;
+            private JSONObject blk;
+            private List<JSONObject> txns;
+
+            Entry(AionBlock b, Entry parent) {
+                block = b;
+                hash = b.getHash();
+                number = b.getNumber();
+                timestamp = b.getTimestamp();
+                difficulty = new BigInteger(1, b.getDifficulty()).longValue();
+                nrgConsumed = b.getNrgConsumed();
+                nrgLimit = b.getNrgLimit();
+                txnCount = b.getTransactionsList().size();
+                blockTime = parent == null ? -1 : timestamp - parent.timestamp;
+            }
+
+            void materialize() {
+                if (block == null) {
+                    return;
+                }
 
-        private int qSize;
+                reward = ((AionBlockchainImpl) ac.getBlockchain()).getChainConfiguration()
+                        .getRewardsCalculator().calculateReward(block.getHeader());
 
-        public ChainHeadView(ChainHeadView cv) {
-            hashQueue = new LinkedList<>(cv.hashQueue);
-            blkList = new HashMap<>(cv.blkList);
-            blkObjList = new HashMap<>(cv.blkObjList);
-            txnList = new HashMap<>(cv.txnList);
-            response = new JSONObject(cv.response, JSONObject.getNames(cv.response));
-            qSize = cv.qSize;
+                BigInteger totalDiff = ac.getAionHub().getBlockStore().getTotalDifficultyForHash(hash);
+                blk = Blk.AionBlockOnlyToJson(block, totalDiff);
+                if (blockTime >= 0) {
+                    blk.put("blockTime", blockTime);
+                }
+
+                // the view never lists more than qSize + 1 transactions
+                List<AionTransaction> t = block.getTransactionsList();
+                txns = new ArrayList<>(Math.min(txnCount, qSize + 1));
+                for (int j = 0; j < txnCount && j <= qSize; j++) {
+                    txns.add(Tx.AionTransactionToJSON(t.get(j), block, j));
+                }
+                block = null;
+            }
         }
 
+        private final Entry[] ring;
+        private final int qSize;
+        private int head = -1; // newest entry
+        private int size;
+
+        // running sums over the window
+        private long difficultySum;
+        private long nrgConsumedSum;
+        private long nrgLimitSum;
+        private long txnSum;
+
+        // the view as of the newest head, null while the window is empty
+        private volatile ChainHeadSnapshot snapshot;
+
         public ChainHeadView(int _qSize) {
-            hashQueue = new LinkedList<>();
-            blkList = new HashMap<>();
-            blkObjList = new HashMap<>();
-            txnList = new HashMap<>();
-            response = new JSONObject();
             qSize = _qSize;
+            ring = new Entry[_qSize];
         }
 
-        private JSONObject getJson(AionBlock _b) {
-            Map.Entry<JSONObject, JSONArray> response;
-            BigInteger totalDiff = ac.getAionHub().getBlockStore().getTotalDifficultyForHash(_b.getHash());
-            return Blk.AionBlockOnlyToJson(_b, totalDiff);
+        public ChainHeadSnapshot getSnapshot() {
+            return snapshot;
         }
 
-        private JSONObject buildResponse() {
-            JSONArray blks = new JSONArray();
-            JSONArray txns = new JSONArray();
+        public boolean isEmpty() {
+            return snapshot == null;
+        }
+
+        /**
+         * Moves the window to the given best block and publishes the snapshot built on it.
+         */
+        public synchronized void update(AionBlock best) {
+            if (best == null || (size > 0 && FastByteComparisons.equal(newest().hash, best.getHash()))) {
+                return;
+            }
+
+            moveTo(best);
+            snapshot = size > 0 ? buildSnapshot() : null;
+        }
+
+        /**
+         * A child of the current head is appended; otherwise the new branch is walked back to
+         * the newest block still in the window (or for a full window) and replaces whatever
+         * is above it.
+         */
+        private void moveTo(AionBlock best) {
+            if (size > 0 && FastByteComparisons.equal(newest().hash, best.getParentHash())) {
+                push(new Entry(best, newest()));
+                return;
+            }
 
-            // return qSize number of blocks and transactions as json
-            for (int i = 0; i < hashQueue.size(); i++) {
-                byte[] hash = hashQueue.get(i);
-                JSONObject blk = blkList.get(hash);
-                if (i < hashQueue.size()-1) {
-                    AionBlock blkThis = blkObjList.get(hash);
-                    AionBlock blkNext = blkObjList.get(hashQueue.get(i+1));
-                    blk.put("blockTime", blkThis.getTimestamp() - blkNext.getTimestamp());
+            Deque<AionBlock> branch = new ArrayDeque<>();
+            int ancestor = -1;
+            AionBlock b = best;
+            while (b != null && branch.size() < qSize) {
+                ancestor = indexOf(b.getHash());
+                if (ancestor >= 0) {
+                    break;
                 }
-                blks.put(blk);
-                List<AionTransaction> t = txnList.get(hash);
+                branch.push(b);
+                b = b.getNumber() > 0 ? getBlockByHash(b.getParentHash()) : null;
+            }
 
-                for (int j = 0; (j < t.size() && txns.length() <= qSize); j++) {
-                    txns.put(Tx.AionTransactionToJSON(t.get(j), blkObjList.get(hash), j));
+            if (ancestor >= 0) {
+                while (head != ancestor) {
+                    pop();
+                }
+            } else {
+                while (size > 0) {
+                    pop();
                 }
             }
 
-            JSONObject metrics;
-            try {
-                metrics = computeMetrics();
-            } catch (Exception e) {
-                LOG.error("failed to compute metrics.", e);
-                metrics = new JSONObject();
+            while (!branch.isEmpty()) {
+                push(new Entry(branch.pop(), size > 0 ? newest() : null));
             }
+        }
 
-            JSONObject o = new JSONObject();
-            o.put("blocks", blks);
-            o.put("transactions", txns);
-            o.put("metrics", metrics);
-            return o;
+        private Entry newest() {
+            return ring[head];
         }
 
-        private JSONObject computeMetrics() {
-            long blkTimeAccumulator = 0L;
-            BigInteger lastDifficulty = null;
-            BigInteger difficultyAccumulator = new BigInteger("0");
-            BigInteger nrgConsumedAccumulator = new BigInteger("0");
-            BigInteger nrgLimitAccumulator = new BigInteger("0");
-            long txnCount = 0L;
-
-            int count = blkObjList.size();
-            Long lastBlkTimestamp = null;
-            AionBlock b = null;
-            ListIterator li = hashQueue.listIterator(0);
-            while(li.hasNext()) {
-                byte[] hash = (byte[]) li.next();
-                b = blkObjList.get(hash);
-
-                if (lastBlkTimestamp != null) {
-                    blkTimeAccumulator += (lastBlkTimestamp - b.getTimestamp());
+        private Entry oldest() {
+            return ring[(head - size + 1 + qSize) % qSize];
+        }
+
+        private int indexOf(byte[] hash) {
+            for (int i = 0, idx = head; i < size; i++, idx = (idx - 1 + qSize) % qSize) {
+                if (FastByteComparisons.equal(ring[idx].hash, hash)) {
+                    return idx;
                 }
-                lastBlkTimestamp = b.getTimestamp();
+            }
+            return -1;
+        }
+
+        private void push(Entry e) {
+            if (size == qSize) {
+                remove(oldest());
+                size--;
+            }
+            head = (head + 1) % qSize;
+            ring[head] = e;
+            size++;
+
+            difficultySum += e.difficulty;
+            nrgConsumedSum += e.nrgConsumed;
+            nrgLimitSum += e.nrgLimit;
+            txnSum += e.txnCount;
+        }
+
+        private void pop() {
+            remove(ring[head]);
+            ring[head] = null;
+            head = (head - 1 + qSize) % qSize;
+            size--;
+        }
+
+        private void remove(Entry e) {
+            difficultySum -= e.difficulty;
+            nrgConsumedSum -= e.nrgConsumed;
+            nrgLimitSum -= e.nrgLimit;
+            txnSum -= e.txnCount;
+        }
 
-                difficultyAccumulator = difficultyAccumulator.add(new BigInteger(b.getDifficulty()));
-                lastDifficulty = new BigInteger(b.getDifficulty());
+        private ChainHeadSnapshot buildSnapshot() {
+            JSONArray blks = new JSONArray();
+            JSONArray txns = new JSONArray();
 
-                nrgConsumedAccumulator = nrgConsumedAccumulator.add(new BigInteger(Long.toString(b.getNrgConsumed())));
-                nrgLimitAccumulator = nrgLimitAccumulator.add(new BigInteger(Long.toString(b.getNrgLimit())));
-                txnCount += b.getTransactionsList().size();
+            // newest first, as many blocks as are in the window and up to qSize + 1 transactions
+            for (int i = 0, idx = head; i < size; i++, idx = (idx - 1 + qSize) % qSize) {
+                Entry e = ring[idx];
+                e.materialize();
+                blks.put(e.blk);
+                for (int j = 0; j < e.txns.size() && txns.length() <= qSize; j++) {
+                    txns.put(e.txns.get(j));
+                }
             }
 
-            BigInteger lastBlkReward = ((AionBlockchainImpl)ac.getBlockchain()).getChainConfiguration().getRewardsCalculator().calculateReward(b.getHeader()) ;
+            JSONObject o = new JSONObject();
+            o.put("blocks", blks);
+            o.put("transactions", txns);
+            o.put("metrics", computeMetrics());
+            return new ChainHeadSnapshot(o.toString(), newest().number);
+        }
+
+        private JSONObject computeMetrics() {
+            Entry first = oldest();
+            Entry last = newest();
+
+            // block times telescope, their sum over the window is just its time span
+            long blkTimeAccumulator = last.timestamp - first.timestamp;
 
             double blkTime = 0;
             double hashRate = 0;
@@ -1426,30 +1818,13 @@ public class ApiWeb3Aion extends ApiAion {
             double avgNrgLimitPerBlock = 0;
             double txnPerSec = 0;
 
-            if (count > 0 && blkTimeAccumulator > 0) {
-                blkTime = blkTimeAccumulator / (double)count;
-                hashRate = lastDifficulty.longValue() / blkTime;
-                avgDifficulty = difficultyAccumulator.longValue() / (double)count;
-                avgNrgConsumedPerBlock = nrgConsumedAccumulator.longValue() / (double)count;
-                avgNrgLimitPerBlock = nrgLimitAccumulator.longValue() / (double)count;
-                txnPerSec = txnCount / (double)blkTimeAccumulator;
-            }
-
-            long startBlock = 0;
-            long endBlock = 0;
-            long startTimestamp = 0;
-            long endTimestamp = 0;
-            long currentBlockchainHead = 0;
-
-            if (hashQueue.size() > 0) {
-                AionBlock startBlockObj = blkObjList.get(hashQueue.peekLast());
-                AionBlock endBlockObj = blkObjList.get(hashQueue.peekFirst());
-
-                startBlock = startBlockObj.getNumber();
-                endBlock = endBlockObj.getNumber();
-                startTimestamp = startBlockObj.getTimestamp();
-                endTimestamp = endBlockObj.getTimestamp();
-                currentBlockchainHead = endBlock;
+            if (blkTimeAccumulator > 0) {
+                blkTime = blkTimeAccumulator / (double) size;
+                hashRate = first.difficulty / blkTime;
+                avgDifficulty = difficultySum / (double) size;
+                avgNrgConsumedPerBlock = nrgConsumedSum / (double) size;
+                avgNrgLimitPerBlock = nrgLimitSum / (double) size;
+                txnPerSec = txnSum / (double) blkTimeAccumulator;
             }
 
             JSONObject metrics = new JSONObject();
@@ -1457,129 +1832,59 @@ public class ApiWeb3Aion extends ApiAion {
             metrics.put("averageBlockTime", blkTime);
             metrics.put("hashRate",hashRate);
             metrics.put("transactionPerSecond",txnPerSec);
-            metrics.put("lastBlockReward",lastBlkReward);
+            metrics.put("lastBlockReward",first.reward);
             metrics.put("targetBlockTime", 10);
             metrics.put("blockWindow", OPS_RECENT_ENTITY_COUNT);
 
-            metrics.put("startBlock", startBlock);
-            metrics.put("endBlock", endBlock);
-            metrics.put("startTimestamp", startTimestamp);
-            metrics.put("endTimestamp", endTimestamp);
-            metrics.put("currentBlockchainHead", currentBlockchainHead);
+            metrics.put("startBlock", first.number);
+            metrics.put("endBlock", last.number);
+            metrics.put("startTimestamp", first.timestamp);
+            metrics.put("endTimestamp", last.timestamp);
+            metrics.put("currentBlockchainHead", last.number);
 
             metrics.put("averageNrgConsumedPerBlock",avgNrgConsumedPerBlock);
             metrics.put("averageNrgLimitPerBlock",avgNrgLimitPerBlock);
 
             return metrics;
         }
+    }
 
-        public ChainHeadView update() {
-            // get the latest head
-            AionBlock blk = getBestBlock();
-
-            if (FastByteComparisons.equal(hashQueue.peekFirst(), blk.getHash())) {
-                return this; // nothing to do
-            }
-
-            // evict data as necessary
-            LinkedList<Map.Entry<byte[],Map.Entry<AionBlock, JSONObject>>> tempStack = new LinkedList<>();
-            tempStack.push(Map.entry(blk.getHash(), Map.entry(blk, getJson(blk))));
-            int itr = 1; // deliberately 1, since we've already added the 0th element to the stack
-
-            /*
-            if (hashQueue.peekFirst() != null) {
-                System.out.println("[" + 0 + "]: " + TypeConverter.toJsonHex(hashQueue.peekFirst()) + " - " + blkObjList.get(hashQueue.peekFirst()).getNumber());
-                System.out.println("----------------------------------------------------------");
-                System.out.println("isParentHashMatch? " + FastByteComparisons.equal(hashQueue.peekFirst(), blk.getParentHash()));
-                System.out.println("blk.getNumber() " + blk.getNumber());
-            }
-            System.out.println("blkNum: " + blk.getNumber() +
-                    " parentHash: " + TypeConverter.toJsonHex(blk.getParentHash()) +
-                    " blkHash: " + TypeConverter.toJsonHex(blk.getHash()));
-            */
-
-            while(FastByteComparisons.equal(hashQueue.peekFirst(), blk.getParentHash()) == false
-                    && itr < qSize
-                    && blk.getNumber() > 2) {
-
-                blk = getBlockByHash(blk.getParentHash());
-                tempStack.push(Map.entry(blk.getHash(), Map.entry(blk, getJson(blk))));
-                itr++;
-                /*
-                System.out.println("blkNum: " + blk.getNumber() +
-                        " parentHash: " + TypeConverter.toJsonHex(blk.getParentHash()) +
-                        " blkHash: " + TypeConverter.toJsonHex(blk.getHash()));
-                */
-            }
-
-            // evict out the right number of elements first
-            for (int i = 0; i < tempStack.size(); i++) {
-                byte[] tailHash = hashQueue.pollLast();
-                if (tailHash != null) {
-                    blkList.remove(tailHash);
-                    blkObjList.remove(tailHash);
-                    txnList.remove(tailHash);
-                }
-            }
-
-            // empty out the stack into the queue
-            while (!tempStack.isEmpty()) {
-                // add to the queue
-                Map.Entry<byte[], Map.Entry<AionBlock,JSONObject>> element = tempStack.pop();
-                byte[] hash = element.getKey();
-                AionBlock blkObj = element.getValue().getKey();
-                JSONObject blkJson = element.getValue().getValue();
-                List<AionTransaction> txnJson = blkObj.getTransactionsList();
-
-                hashQueue.push(hash);
-                blkList.put(hash, blkJson);
-                blkObjList.put(hash, blkObj);
-                txnList.put(hash, txnJson);
-            }
-
-            /*
-            System.out.println("[" + 0 + "]: " + TypeConverter.toJsonHex(hashQueue.peekFirst()) + " - " + blkObjList.get(hashQueue.peekFirst()).getNumber());
-            System.out.println("----------------------------------------------------------");
-            for (int i = hashQueue.size() - 1; i >= 0; i--) {
-                System.out.println("[" + i + "]: " + TypeConverter.toJsonHex(hashQueue.get(i)) + " - " + blkObjList.get(hashQueue.get(i)).getNumber());
-            }
-            */
-            this.response = buildResponse();
-
-            return this;
-        }
+    /**
+     * An immutable, already serialized chain head view; the rpc calls only read the
+     * latest one.
+     */
+    private static final class ChainHeadSnapshot implements JSONString {
+        private final String json;
+        private final long bestBlock;
 
-        public JSONObject getResponse() {
-            return response;
+        ChainHeadSnapshot(String json, long bestBlock) {
+            this.json = json;
+            this.bestBlock = bestBlock;
         }
 
-        public long getViewBestBlock() {
-            return blkObjList.get(hashQueue.peekFirst()).getNumber();
+        @Override
+        public String toJSONString() {
+            return json;
         }
     }
 
-    public class CacheUpdateThreadFactory implements ThreadFactory {
-        private final AtomicInteger tnum = new AtomicInteger(1);
+    private final ChainHeadView chainHeadView = new ChainHeadView(OPS_RECENT_ENTITY_COUNT);
 
-        @Override
-        public Thread newThread(Runnable r) {
-            Thread t = new Thread(r, "cache-update-" + tnum.getAndIncrement());
-            t.setPriority(Thread.MIN_PRIORITY);
-            return t;
+    private ChainHeadSnapshot getChainHeadSnapshot() {
+        // without the event loop nothing pushes blocks into the view, so catch up on read
+        if (!isFilterEnabled || chainHeadView.isEmpty()) {
+            chainHeadView.update(getBestBlock());
         }
+        return chainHeadView.getSnapshot();
     }
 
-    private enum CachedResponseType {
-        CHAIN_HEAD
-    }
-
-    private ExecutorService cacheUpdateExecutor;
-    private final LoadingCache<Integer, ChainHeadView> CachedRecentEntities;
-
     public RpcMsg ops_getChainHeadView() {
         try {
-            ChainHeadView v = CachedRecentEntities.get(CachedResponseType.CHAIN_HEAD.ordinal());
-            return new RpcMsg(v.getResponse());
+            ChainHeadSnapshot v = getChainHeadSnapshot();
+            if (v == null) {
+                return new RpcMsg(null, RpcError.EXECUTION_ERROR, "Chain head view is not available.");
+            }
+            return new RpcMsg(v);
         } catch (Exception e) {
             LOG.error("<rpc-server - cannot get cached response for ops_getChainHeadView: ", e);
             return new RpcMsg(null, RpcError.EXECUTION_ERROR, "Cached response retrieve failed.");
@@ -1588,14 +1893,21 @@ public class ApiWeb3Aion extends ApiAion {
 
     public RpcMsg ops_getChainHeadViewBestBlock() {
         try {
-            ChainHeadView v = CachedRecentEntities.get(CachedResponseType.CHAIN_HEAD.ordinal());
-            return new RpcMsg(v.getViewBestBlock());
+            ChainHeadSnapshot v = getChainHeadSnapshot();
+            if (v == null) {
+                return new RpcMsg(null, RpcError.EXECUTION_ERROR, "Chain head view is not available.");
+            }
+            return new RpcMsg(v.bestBlock);
         } catch (Exception e) {
             LOG.error("<rpc-server - cannot get cached response for ops_getChainHeadView: ", e);
             return new RpcMsg(null, RpcError.EXECUTION_ERROR, "Cached response retrieve failed.");
         }
     }
 
+    public RpcMsg ops_getApiMetrics() {
+        return new RpcMsg(ApiMetrics.report());
+    }
+
     /* -------------------------------------------------------------------------
      * stratum pool
      */
@@ -13,7 +13,7 @@ import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.*;
 
-public class NanoServer {
+public class NanoServer implements RpcServer {
     private static final Logger LOG = AionLoggerFactory.getLogger(LogEnum.API.name());
 
     private NanoHttpd server;
@@ -23,6 +23,7 @@ public class NanoServer {
     private int port;
     private boolean corsEnabled;
     private List<String> enabledEndpoints;
+    private int batchThreads;
 
     private ExecutorService workers;
 
@@ -30,10 +31,12 @@ public class NanoServer {
                       int port,
                       boolean corsEnabled,
                       List<String> enabledEndpoints,
-                      int tpoolSize) {
+                      int tpoolSize,
+                      int batchThreads) {
 
         this.corsEnabled = corsEnabled;
         this.enabledEndpoints = enabledEndpoints;
+        this.batchThreads = batchThreads;
 
         this.hostname = hostname;
         this.port = port;
@@ -55,9 +58,10 @@ public class NanoServer {
                 new RpcThreadFactory());
     }
 
+    @Override
     public void start() {
         try {
-            server = new NanoHttpd(hostname, port, corsEnabled, enabledEndpoints);
+            server = new NanoHttpd(hostname, port, corsEnabled, enabledEndpoints, batchThreads);
             server.setAsyncRunner(new BoundRunner(workers));
             server.start(NanoHTTPD.SOCKET_READ_TIMEOUT, false);
         } catch (Throwable t) {
@@ -68,6 +72,7 @@ public class NanoServer {
         LOG.info("<rpc-server - started on {}:{}>", hostname, port);
     }
 
+    @Override
     public void shutdown() {
         server.stop();
 
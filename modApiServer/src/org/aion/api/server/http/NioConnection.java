@@ -0,0 +1,605 @@
+package org.aion.api.server.http;
+
+import org.aion.api.server.rpc.JsonWritable;
+import org.aion.api.server.rpc.JsonWriter;
+import org.aion.api.server.rpc.RpcError;
+import org.aion.api.server.rpc.RpcMsg;
+import org.aion.api.server.rpc.RpcSession;
+import org.aion.log.AionLoggerFactory;
+import org.aion.log.LogEnum;
+import org.slf4j.Logger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * One client connection of the {@link NioServer}: http/1.1 requests until
+ * the client upgrades it to a websocket, then websocket messages.
+ *
+ * Reading, parsing and the socket writes happen on the selector thread.
+ * Responses and pushed notifications are queued from any thread and handed
+ * to the selector thread through {@link NioServer#ready(NioConnection)}.
+ */
+final class NioConnection implements RpcSession {
+    private static final Logger LOG = AionLoggerFactory.getLogger(LogEnum.API.name());
+
+    private static final int MAX_HEADER_SIZE = 8 * 1024;
+    private static final int MAX_REQUEST_SIZE = 16 * 1024 * 1024;
+    // a client this far behind on its output is dropped instead of buffering for it
+    private static final long MAX_PENDING_OUTPUT = 16L * 1024 * 1024;
+
+    private static final String WS_GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+    private static final int OP_CONTINUATION = 0x0;
+    private static final int OP_TEXT = 0x1;
+    private static final int OP_BINARY = 0x2;
+    private static final int OP_CLOSE = 0x8;
+    private static final int OP_PING = 0x9;
+    private static final int OP_PONG = 0xA;
+    private static final int CLOSE_PROTOCOL_ERROR = 1002;
+    private static final int CLOSE_TOO_BIG = 1009;
+
+    private final NioServer server;
+    private final SocketChannel channel;
+    private final SelectionKey key;
+
+    // received and not parsed yet, selector thread only
+    private byte[] in = new byte[4096];
+    private int inLength;
+    private long lastActive = System.currentTimeMillis();
+    private ByteArrayOutputStream fragments;
+    private boolean continueSent;
+
+    // guarded by this
+    private final ArrayDeque<ByteBuffer> out = new ArrayDeque<>();
+    private long outBytes;
+    private boolean closeWhenFlushed;
+    private boolean dropped;
+
+    private volatile boolean websocket;
+    // an http request is being handled, the next one waits in the input
+    private volatile boolean busy;
+    private volatile boolean closed;
+
+    NioConnection(NioServer server, SocketChannel channel, SelectionKey key) {
+        this.server = server;
+        this.channel = channel;
+        this.key = key;
+    }
+
+    boolean isWebsocket() {
+        return websocket;
+    }
+
+    boolean isIdle(long now, long timeout) {
+        return !websocket && !busy && now - lastActive > timeout;
+    }
+
+    // ---------------------------------------------------------------------
+    // selector thread
+
+    void onReadable() {
+        if (inLength == in.length && !ensureCapacity(in.length * 2)) {
+            // too much buffered input; the parser gave up on it already
+            close();
+            return;
+        }
+
+        int n;
+        try {
+            n = channel.read(ByteBuffer.wrap(in, inLength, in.length - inLength));
+        } catch (IOException e) {
+            close();
+            return;
+        }
+        if (n < 0) {
+            close();
+            return;
+        }
+        inLength += n;
+        lastActive = System.currentTimeMillis();
+        parse();
+    }
+
+    void onWritable() {
+        synchronized (this) {
+            while (!out.isEmpty()) {
+                ByteBuffer buf = out.peek();
+                try {
+                    outBytes -= channel.write(buf);
+                } catch (IOException e) {
+                    close();
+                    return;
+                }
+                if (buf.hasRemaining()) {
+                    // socket buffer full, wait for the next write event
+                    return;
+                }
+                out.poll();
+            }
+            lastActive = System.currentTimeMillis();
+            key.interestOps(SelectionKey.OP_READ);
+            if (closeWhenFlushed) {
+                close();
+            }
+        }
+    }
+
+    void onReady() {
+        if (closed) return;
+
+        synchronized (this) {
+            if (dropped) {
+                close();
+                return;
+            }
+            if (!out.isEmpty()) {
+                key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            } else if (closeWhenFlushed) {
+                close();
+                return;
+            }
+        }
+
+        // a finished http call lets the next pipelined request through
+        if (!websocket && !busy) {
+            parse();
+        }
+    }
+
+    void close() {
+        if (closed) return;
+        closed = true;
+
+        key.cancel();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            LOG.debug("<rpc-server - failed to close connection>", e);
+        }
+        synchronized (this) {
+            out.clear();
+            outBytes = 0;
+        }
+        server.closed(this);
+    }
+
+    private void parse() {
+        while (!closed) {
+            if (websocket) {
+                if (!parseFrame()) return;
+            } else {
+                if (busy || !parseRequest()) return;
+            }
+        }
+    }
+
+    private boolean ensureCapacity(int size) {
+        if (size > MAX_REQUEST_SIZE + MAX_HEADER_SIZE) return false;
+        if (in.length < size) {
+            in = Arrays.copyOf(in, Math.min(Math.max(size, in.length * 2), MAX_REQUEST_SIZE + MAX_HEADER_SIZE));
+        }
+        return true;
+    }
+
+    private void consume(int n) {
+        System.arraycopy(in, n, in, 0, inLength - n);
+        inLength -= n;
+    }
+
+    // ---------------------------------------------------------------------
+    // http
+
+    /**
+     * Handles the next complete request in the input.
+     *
+     * @return false when more input is needed first
+     */
+    private boolean parseRequest() {
+        int headerEnd = indexOfHeaderEnd();
+        if (headerEnd < 0) {
+            if (inLength > MAX_HEADER_SIZE) {
+                sendError(431, "Request Header Fields Too Large");
+            }
+            return false;
+        }
+
+        String[] lines = new String(in, 0, headerEnd, StandardCharsets.ISO_8859_1).split("\r\n");
+        String[] requestLine = lines[0].split(" ");
+        if (requestLine.length != 3) {
+            sendError(400, "Bad Request");
+            return false;
+        }
+        String method = requestLine[0];
+        String version = requestLine[2];
+
+        Map<String, String> headers = new HashMap<>();
+        for (int i = 1; i < lines.length; i++) {
+            int colon = lines[i].indexOf(':');
+            if (colon > 0) {
+                headers.put(lines[i].substring(0, colon).trim().toLowerCase(), lines[i].substring(colon + 1).trim());
+            }
+        }
+
+        if (headers.containsKey("transfer-encoding")) {
+            sendError(411, "Length Required");
+            return false;
+        }
+        int contentLength;
+        try {
+            contentLength = Integer.parseInt(headers.getOrDefault("content-length", "0"));
+        } catch (NumberFormatException e) {
+            sendError(400, "Bad Request");
+            return false;
+        }
+        if (contentLength < 0 || contentLength > MAX_REQUEST_SIZE) {
+            sendError(413, "Payload Too Large");
+            return false;
+        }
+
+        int total = headerEnd + 4 + contentLength;
+        if (inLength < total) {
+            // clients like curl hold back larger bodies until told to go on
+            if (!continueSent && "100-continue".equalsIgnoreCase(headers.get("expect"))) {
+                enqueue(false, ByteBuffer.wrap("HTTP/1.1 100 Continue\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1)));
+                continueSent = true;
+            }
+            ensureCapacity(total);
+            return false;
+        }
+        String body = contentLength > 0 ? new String(in, headerEnd + 4, contentLength, StandardCharsets.UTF_8) : null;
+        consume(total);
+        continueSent = false;
+
+        String connection = headers.getOrDefault("connection", "");
+        boolean keepAlive = "HTTP/1.1".equals(version)
+                ? !hasToken(connection, "close")
+                : hasToken(connection, "keep-alive");
+
+        if ("GET".equals(method) && hasToken(headers.getOrDefault("upgrade", ""), "websocket")) {
+            return upgrade(headers);
+        }
+
+        if ("OPTIONS".equals(method) && server.isCorsEnabled()) {
+            sendHttp(200, "OK", null, keepAlive);
+            return true;
+        }
+
+        busy = true;
+        if (!server.dispatch(() -> call(body, keepAlive))) {
+            busy = false;
+            sendHttp(200, "OK", overloaded(), keepAlive);
+        }
+        return true;
+    }
+
+    private int indexOfHeaderEnd() {
+        int limit = Math.min(inLength, MAX_HEADER_SIZE + 4);
+        for (int i = 0; i + 3 < limit; i++) {
+            if (in[i] == '\r' && in[i + 1] == '\n' && in[i + 2] == '\r' && in[i + 3] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean hasToken(String header, String token) {
+        for (String t : header.split(",")) {
+            if (t.trim().equalsIgnoreCase(token)) return true;
+        }
+        return false;
+    }
+
+    // worker thread
+    private void call(String body, boolean keepAlive) {
+        ByteBuffer response;
+        try {
+            response = process(body, null);
+        } catch (Exception e) {
+            LOG.debug("<rpc-server - failed to write rpc response>", e);
+            response = ByteBuffer.wrap(new RpcMsg(null, RpcError.INTERNAL_ERROR).toString().getBytes(StandardCharsets.UTF_8));
+        }
+        sendHttp(200, "OK", response, keepAlive);
+        busy = false;
+        server.ready(this);
+    }
+
+    private void sendHttp(int status, String reason, ByteBuffer body, boolean keepAlive) {
+        StringBuilder head = new StringBuilder(160);
+        head.append("HTTP/1.1 ").append(status).append(' ').append(reason).append("\r\n");
+        if (body != null) {
+            head.append("Content-Type: application/json\r\n");
+        }
+        head.append("Content-Length: ").append(body == null ? 0 : body.remaining()).append("\r\n");
+        head.append("Connection: ").append(keepAlive ? "keep-alive" : "close").append("\r\n");
+        if (server.isCorsEnabled()) {
+            head.append("Access-Control-Allow-Origin: *\r\n");
+            head.append("Access-Control-Allow-Credentials: true\r\n");
+            head.append("Access-Control-Allow-Methods: POST, OPTIONS\r\n");
+        }
+        head.append("\r\n");
+
+        ByteBuffer headBuf = ByteBuffer.wrap(head.toString().getBytes(StandardCharsets.ISO_8859_1));
+        if (body == null) {
+            enqueue(!keepAlive, headBuf);
+        } else {
+            enqueue(!keepAlive, headBuf, body);
+        }
+    }
+
+    private void sendError(int status, String reason) {
+        sendHttp(status, reason, null, false);
+    }
+
+    private boolean upgrade(Map<String, String> headers) {
+        String wsKey = headers.get("sec-websocket-key");
+        if (wsKey == null || !"13".equals(headers.get("sec-websocket-version"))) {
+            sendError(400, "Bad Request");
+            return false;
+        }
+
+        // a web page of another site could otherwise use the visitor's node, as cors does for http
+        if (!server.isCorsEnabled() && !isSameOrigin(headers.get("origin"), headers.get("host"))) {
+            sendError(403, "Forbidden");
+            return false;
+        }
+
+        String accept;
+        try {
+            MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+            accept = Base64.getEncoder().encodeToString(
+                    sha1.digest((wsKey + WS_GUID).getBytes(StandardCharsets.ISO_8859_1)));
+        } catch (NoSuchAlgorithmException e) {
+            sendError(500, "Internal Server Error");
+            return false;
+        }
+
+        String head = "HTTP/1.1 101 Switching Protocols\r\n"
+                + "Upgrade: websocket\r\n"
+                + "Connection: Upgrade\r\n"
+                + "Sec-WebSocket-Accept: " + accept + "\r\n\r\n";
+        enqueue(false, ByteBuffer.wrap(head.getBytes(StandardCharsets.ISO_8859_1)));
+        websocket = true;
+        return true;
+    }
+
+    /**
+     * Whether the origin the browser sent is the site the node is served
+     * from; clients outside a browser send no origin at all.
+     */
+    static boolean isSameOrigin(String origin, String host) {
+        if (origin == null) return true;
+        if (host == null) return false;
+
+        int scheme = origin.indexOf("://");
+        String authority = scheme < 0 ? origin : origin.substring(scheme + 3);
+        return authority.equalsIgnoreCase(host);
+    }
+
+    // ---------------------------------------------------------------------
+    // websocket
+
+    /**
+     * Handles the next complete frame in the input.
+     *
+     * @return false when more input is needed first, or the connection is closing
+     */
+    private boolean parseFrame() {
+        if (inLength < 2) return false;
+
+        int b0 = in[0] & 0xFF;
+        int b1 = in[1] & 0xFF;
+        boolean fin = (b0 & 0x80) != 0;
+        int opcode = b0 & 0x0F;
+        boolean masked = (b1 & 0x80) != 0;
+        long length = b1 & 0x7F;
+
+        // no extensions are negotiated, and clients always mask
+        if ((b0 & 0x70) != 0 || !masked) {
+            return failWebsocket(CLOSE_PROTOCOL_ERROR);
+        }
+
+        int offset = 2;
+        if (length == 126) {
+            if (inLength < 4) return false;
+            length = ((in[2] & 0xFF) << 8) | (in[3] & 0xFF);
+            offset = 4;
+        } else if (length == 127) {
+            if (inLength < 10) return false;
+            length = 0;
+            for (int i = 2; i < 10; i++) {
+                length = (length << 8) | (in[i] & 0xFF);
+            }
+            offset = 10;
+        }
+        if (length < 0 || length > MAX_REQUEST_SIZE) {
+            return failWebsocket(CLOSE_TOO_BIG);
+        }
+
+        int total = offset + 4 + (int) length;
+        if (inLength < total) {
+            ensureCapacity(total);
+            return false;
+        }
+
+        byte[] payload = new byte[(int) length];
+        for (int i = 0; i < payload.length; i++) {
+            payload[i] = (byte) (in[offset + 4 + i] ^ in[offset + (i & 3)]);
+        }
+        consume(total);
+
+        switch (opcode) {
+            case OP_CLOSE:
+                // echo the status code back and hang up
+                sendFrame(OP_CLOSE, ByteBuffer.wrap(payload, 0, Math.min(payload.length, 2)), true);
+                return false;
+            case OP_PING:
+                sendFrame(OP_PONG, ByteBuffer.wrap(payload), false);
+                return true;
+            case OP_PONG:
+                return true;
+            case OP_TEXT:
+            case OP_BINARY:
+                if (fragments != null) {
+                    return failWebsocket(CLOSE_PROTOCOL_ERROR);
+                }
+                if (fin) {
+                    onMessage(payload);
+                } else {
+                    fragments = new ByteArrayOutputStream();
+                    fragments.write(payload, 0, payload.length);
+                }
+                return true;
+            case OP_CONTINUATION:
+                if (fragments == null) {
+                    return failWebsocket(CLOSE_PROTOCOL_ERROR);
+                }
+                if (fragments.size() + payload.length > MAX_REQUEST_SIZE) {
+                    return failWebsocket(CLOSE_TOO_BIG);
+                }
+                fragments.write(payload, 0, payload.length);
+                if (fin) {
+                    byte[] message = fragments.toByteArray();
+                    fragments = null;
+                    onMessage(message);
+                }
+                return true;
+            default:
+                return failWebsocket(CLOSE_PROTOCOL_ERROR);
+        }
+    }
+
+    private boolean failWebsocket(int code) {
+        sendFrame(OP_CLOSE, ByteBuffer.wrap(new byte[] {(byte) (code >> 8), (byte) code}), true);
+        return false;
+    }
+
+    private void onMessage(byte[] message) {
+        String request = new String(message, StandardCharsets.UTF_8);
+        // calls on a websocket do not wait for each other, the responses carry their ids
+        if (!server.dispatch(() -> answer(request))) {
+            sendFrame(OP_TEXT, overloaded(), false);
+        }
+    }
+
+    // worker thread
+    private void answer(String request) {
+        ByteBuffer response;
+        try {
+            response = process(request, this);
+        } catch (Exception e) {
+            LOG.debug("<rpc-server - failed to write rpc response>", e);
+            response = ByteBuffer.wrap(new RpcMsg(null, RpcError.INTERNAL_ERROR).toString().getBytes(StandardCharsets.UTF_8));
+        }
+        sendFrame(OP_TEXT, response, false);
+    }
+
+    private boolean sendFrame(int opcode, ByteBuffer payload, boolean closeAfter) {
+        int length = payload.remaining();
+        ByteBuffer head;
+        if (length < 126) {
+            head = ByteBuffer.allocate(2);
+            head.put((byte) (0x80 | opcode)).put((byte) length);
+        } else if (length < 65536) {
+            head = ByteBuffer.allocate(4);
+            head.put((byte) (0x80 | opcode)).put((byte) 126).putShort((short) length);
+        } else {
+            head = ByteBuffer.allocate(10);
+            head.put((byte) (0x80 | opcode)).put((byte) 127).putLong(length);
+        }
+        head.flip();
+        return enqueue(closeAfter, head, payload);
+    }
+
+    /**
+     * Writes the notification as a websocket text message.
+     */
+    @Override
+    public boolean push(JsonWritable message) {
+        if (!websocket || closed) return false;
+
+        ResponseBuffer buffer = new ResponseBuffer();
+        try {
+            Writer out = new OutputStreamWriter(buffer, StandardCharsets.UTF_8);
+            JsonWriter writer = new JsonWriter(out);
+            message.writeJson(writer);
+            writer.flush();
+            out.close();
+        } catch (IOException e) {
+            return false;
+        }
+        return sendFrame(OP_TEXT, buffer.toByteBuffer(), false);
+    }
+
+    /**
+     * Closed is set before the server drops the subscriptions of the
+     * connection, so a subscription added after that sees it.
+     */
+    @Override
+    public boolean isOpen() {
+        return !closed;
+    }
+
+    // ---------------------------------------------------------------------
+    // any thread
+
+    private ByteBuffer process(String request, RpcSession session) throws IOException {
+        ResponseBuffer buffer = new ResponseBuffer();
+        Writer out = new OutputStreamWriter(buffer, StandardCharsets.UTF_8);
+        server.getRpcProcessor().process(request, out, session);
+        out.close();
+        return buffer.toByteBuffer();
+    }
+
+    private static ByteBuffer overloaded() {
+        return ByteBuffer.wrap(new RpcMsg(null, RpcError.SERVER_OVERLOAD).toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private boolean enqueue(boolean closeAfter, ByteBuffer... bufs) {
+        boolean queued;
+        synchronized (this) {
+            if (closed || closeWhenFlushed || dropped) return false;
+
+            long size = 0;
+            for (ByteBuffer buf : bufs) {
+                size += buf.remaining();
+            }
+            if (outBytes + size > MAX_PENDING_OUTPUT) {
+                LOG.debug("<rpc-server - dropping a client that does not keep up, pending={}>", outBytes);
+                dropped = true;
+            } else {
+                out.addAll(Arrays.asList(bufs));
+                outBytes += size;
+                closeWhenFlushed = closeAfter;
+            }
+            queued = !dropped;
+        }
+        server.ready(this);
+        return queued;
+    }
+
+    /**
+     * Hands the written bytes over without copying them.
+     */
+    private static final class ResponseBuffer extends ByteArrayOutputStream {
+        ResponseBuffer() {
+            super(1024);
+        }
+
+        ByteBuffer toByteBuffer() {
+            return ByteBuffer.wrap(buf, 0, count);
+        }
+    }
+}
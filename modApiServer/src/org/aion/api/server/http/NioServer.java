@@ -0,0 +1,246 @@
+package org.aion.api.server.http;
+
+import org.aion.api.server.metrics.ApiMetrics;
+import org.aion.api.server.rpc.RpcProcessor;
+import org.aion.api.server.rpc.RpcThreadFactory;
+import org.aion.log.AionLoggerFactory;
+import org.aion.log.LogEnum;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves the rpc api over http/1.1 (keep-alive) and websocket on one port.
+ *
+ * A single selector thread accepts, reads and writes for every connection;
+ * only the rpc calls run on the worker pool. Websocket clients can use
+ * eth_subscribe to have new heads, logs and pending transactions pushed to
+ * them, instead of polling filters.
+ */
+public class NioServer implements RpcServer {
+    private static final Logger LOG = AionLoggerFactory.getLogger(LogEnum.API.name());
+
+    // idle http connections are closed after this, websocket ones are kept open
+    private static final long HTTP_IDLE_TIMEOUT_MS = 30_000L;
+    private static final int WORKER_QUEUE_SIZE = 1024;
+
+    private final String hostname;
+    private final int port;
+    private final boolean corsEnabled;
+    private final List<String> enabledEndpoints;
+    private final int batchThreads;
+
+    private final ExecutorService workers;
+    private RpcProcessor rpcProcessor;
+
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+    private Thread selectorThread;
+    private volatile boolean running;
+
+    // selector thread only
+    private final Set<NioConnection> connections = new HashSet<>();
+    // connections with new output or a finished call, picked up by the selector thread
+    private final Queue<NioConnection> ready = new ConcurrentLinkedQueue<>();
+
+    public NioServer(String hostname,
+                     int port,
+                     boolean corsEnabled,
+                     List<String> enabledEndpoints,
+                     int tpoolSize,
+                     int batchThreads) {
+
+        this.hostname = hostname;
+        this.port = port;
+        this.corsEnabled = corsEnabled;
+        this.enabledEndpoints = enabledEndpoints;
+        this.batchThreads = batchThreads;
+
+        if (tpoolSize < 1) {
+            tpoolSize = 1;
+        }
+
+        this.workers = new ThreadPoolExecutor(
+                tpoolSize,
+                tpoolSize,
+                1,
+                TimeUnit.MINUTES,
+                new ArrayBlockingQueue<>(WORKER_QUEUE_SIZE),
+                new RpcThreadFactory());
+    }
+
+    @Override
+    public void start() {
+        try {
+            rpcProcessor = new RpcProcessor(enabledEndpoints, batchThreads);
+            selector = Selector.open();
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.configureBlocking(false);
+            serverChannel.bind(new InetSocketAddress(hostname, port));
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (Throwable t) {
+            LOG.error("<rpc-server - failed bind on {}:{}>", hostname, port);
+            System.exit(1);
+        }
+
+        running = true;
+        selectorThread = new Thread(this::loop, "rpc-nio");
+        selectorThread.start();
+
+        LOG.info("<rpc-server - started on {}:{}>", hostname, port);
+    }
+
+    @Override
+    public void shutdown() {
+        running = false;
+        if (selector != null) {
+            selector.wakeup();
+        }
+        if (selectorThread != null) {
+            try {
+                selectorThread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        workers.shutdownNow();
+        if (rpcProcessor != null) {
+            rpcProcessor.shutdown();
+        }
+    }
+
+    private void loop() {
+        long lastSweep = System.currentTimeMillis();
+        while (running) {
+            try {
+                selector.select(1000);
+
+                NioConnection conn;
+                while ((conn = ready.poll()) != null) {
+                    conn.onReady();
+                }
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) continue;
+
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        conn = (NioConnection) key.attachment();
+                        if (key.isReadable()) {
+                            conn.onReadable();
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            conn.onWritable();
+                        }
+                    }
+                }
+
+                long now = System.currentTimeMillis();
+                if (now - lastSweep >= 1000) {
+                    lastSweep = now;
+                    for (NioConnection c : new ArrayList<>(connections)) {
+                        if (c.isIdle(now, HTTP_IDLE_TIMEOUT_MS)) {
+                            c.close();
+                        }
+                    }
+                }
+            } catch (ClosedSelectorException e) {
+                break;
+            } catch (Exception e) {
+                LOG.debug("<rpc-server - selector loop error>", e);
+            }
+        }
+
+        for (NioConnection c : new ArrayList<>(connections)) {
+            c.close();
+        }
+        try {
+            serverChannel.close();
+            selector.close();
+        } catch (IOException e) {
+            LOG.debug("<rpc-server - failed to close the server socket>", e);
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) return;
+
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+        NioConnection conn = new NioConnection(this, channel, key);
+        key.attach(conn);
+        connections.add(conn);
+    }
+
+    // ---------------------------------------------------------------------
+    // for the connections
+
+    RpcProcessor getRpcProcessor() {
+        return rpcProcessor;
+    }
+
+    boolean isCorsEnabled() {
+        return corsEnabled;
+    }
+
+    /**
+     * Has the selector thread look at the connection: new output to write,
+     * or a call that finished.
+     */
+    void ready(NioConnection conn) {
+        ready.add(conn);
+        selector.wakeup();
+    }
+
+    /**
+     * Runs a call on the worker pool; false when its queue is full.
+     */
+    boolean dispatch(Runnable task) {
+        long queued = System.nanoTime();
+        try {
+            workers.execute(() -> {
+                ApiMetrics.rpc().queueWait(System.nanoTime() - queued);
+                task.run();
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    void closed(NioConnection conn) {
+        connections.remove(conn);
+        if (conn.isWebsocket()) {
+            // dropping the subscriptions waits on the log filter index, keep that off the selector thread
+            if (!dispatch(() -> rpcProcessor.sessionClosed(conn))) {
+                rpcProcessor.sessionClosed(conn);
+            }
+        }
+    }
+}
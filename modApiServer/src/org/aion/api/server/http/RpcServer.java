@@ -0,0 +1,11 @@
+package org.aion.api.server.http;
+
+/**
+ * A transport serving the json-rpc api.
+ */
+public interface RpcServer {
+
+    void start();
+
+    void shutdown();
+}
@@ -0,0 +1,78 @@
+package org.aion.api.server.metrics;
+
+import org.json.JSONObject;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per method metrics of one api, plus how long requests wait for a worker thread.
+ *
+ * Only names from a closed set (the registered rpc methods, the protobuf function ids)
+ * should be recorded, since every name keeps its own histogram.
+ */
+public final class ApiMetrics {
+
+    private static final long START = System.currentTimeMillis();
+
+    private static final ApiMetrics RPC = new ApiMetrics();
+    private static final ApiMetrics ZMQ = new ApiMetrics();
+
+    public static ApiMetrics rpc() {
+        return RPC;
+    }
+
+    public static ApiMetrics zmq() {
+        return ZMQ;
+    }
+
+    /**
+     * Both apis, as served by ops_getApiMetrics and written to the reports folder.
+     */
+    public static JSONObject report() {
+        JSONObject o = new JSONObject();
+        o.put("uptimeSec", (System.currentTimeMillis() - START) / 1000);
+        o.put("rpc", RPC.toJson());
+        o.put("zmq", ZMQ.toJson());
+        return o;
+    }
+
+    private final Map<String, MethodMetrics> methods = new ConcurrentHashMap<>();
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+
+    private ApiMetrics() {}
+
+    public MethodMetrics method(String name) {
+        MethodMetrics m = methods.get(name);
+        return m != null ? m : methods.computeIfAbsent(name, k -> new MethodMetrics());
+    }
+
+    public void queueWait(long nanos) {
+        queueWait.record(nanos);
+    }
+
+    public JSONObject toJson() {
+        long calls = 0;
+        long errors = 0;
+        long inFlight = 0;
+        JSONObject byMethod = new JSONObject();
+        for (Map.Entry<String, MethodMetrics> e : methods.entrySet()) {
+            MethodMetrics m = e.getValue();
+            calls += m.getCalls();
+            errors += m.getErrors();
+            inFlight += m.getInFlight();
+            byMethod.put(e.getKey(), m.toJson());
+        }
+
+        JSONObject wait = MethodMetrics.toJson(queueWait);
+        wait.put("count", queueWait.getCount());
+
+        JSONObject o = new JSONObject();
+        o.put("calls", calls);
+        o.put("errors", errors);
+        o.put("inFlight", inFlight);
+        o.put("queueWait", wait);
+        o.put("methods", byMethod);
+        return o;
+    }
+}
@@ -0,0 +1,66 @@
+package org.aion.api.server.metrics;
+
+import org.json.JSONObject;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Calls, errors, calls in flight and the latency of one api method.
+ */
+public class MethodMetrics {
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder inFlight = new LongAdder();
+
+    /**
+     * @return the start of the call, to hand back to {@link #end}
+     */
+    public long begin() {
+        inFlight.increment();
+        return System.nanoTime();
+    }
+
+    public void end(long start, boolean error) {
+        latency.record(System.nanoTime() - start);
+        inFlight.decrement();
+        if (error) {
+            errors.increment();
+        }
+    }
+
+    public long getCalls() {
+        return latency.getCount();
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    public long getInFlight() {
+        return inFlight.sum();
+    }
+
+    public JSONObject toJson() {
+        JSONObject o = toJson(latency);
+        o.put("calls", getCalls());
+        o.put("errors", getErrors());
+        o.put("inFlight", getInFlight());
+        return o;
+    }
+
+    /**
+     * Summarizes a histogram in microseconds.
+     */
+    static JSONObject toJson(LatencyHistogram h) {
+        JSONObject o = new JSONObject();
+        o.put("meanUs", h.getMean() / 1000);
+        o.put("p50Us", TimeUnit.NANOSECONDS.toMicros(h.getPercentile(0.5)));
+        o.put("p90Us", TimeUnit.NANOSECONDS.toMicros(h.getPercentile(0.9)));
+        o.put("p99Us", TimeUnit.NANOSECONDS.toMicros(h.getPercentile(0.99)));
+        o.put("p999Us", TimeUnit.NANOSECONDS.toMicros(h.getPercentile(0.999)));
+        o.put("maxUs", TimeUnit.NANOSECONDS.toMicros(h.getMax()));
+        return o;
+    }
+}
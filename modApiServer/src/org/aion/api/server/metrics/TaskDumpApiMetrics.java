@@ -0,0 +1,38 @@
+package org.aion.api.server.metrics;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * Thread for writing the api metrics to the reports folder.
+ */
+public class TaskDumpApiMetrics implements Runnable {
+
+    private final int interval;
+    private final String reportFolder;
+
+    public TaskDumpApiMetrics(final int _interval, final String _reportFolder) {
+        this.interval = _interval;
+        this.reportFolder = _reportFolder;
+    }
+
+    @Override
+    public void run() {
+        Thread.currentThread().setPriority(Thread.MIN_PRIORITY);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                Files.write(Paths.get(reportFolder, System.currentTimeMillis() + "-api-report.out"),
+                        ApiMetrics.report().toString().getBytes());
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+
+            try {
+                Thread.sleep(interval);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+}
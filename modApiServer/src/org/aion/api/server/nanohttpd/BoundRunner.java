@@ -1,6 +1,7 @@
 package org.aion.api.server.nanohttpd;
 
 import fi.iki.elonen.NanoHTTPD;
+import org.aion.api.server.metrics.ApiMetrics;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -35,7 +36,12 @@ public class BoundRunner implements NanoHTTPD.AsyncRunner {
 
     @Override
     public void exec(NanoHTTPD.ClientHandler clientHandler) {
-        executorService.submit(clientHandler);
+        // record how long the connection waits for a worker
+        long queued = System.nanoTime();
+        executorService.submit(() -> {
+            ApiMetrics.rpc().queueWait(System.nanoTime() - queued);
+            clientHandler.run();
+        });
         this.running.add(clientHandler);
     }
 }
\ No newline at end of file
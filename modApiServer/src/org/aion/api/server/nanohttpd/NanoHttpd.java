@@ -1,12 +1,20 @@
 package org.aion.api.server.nanohttpd;
 
 import fi.iki.elonen.NanoHTTPD;
+import org.aion.api.server.rpc.RpcError;
+import org.aion.api.server.rpc.RpcMsg;
 import org.aion.api.server.rpc.RpcProcessor;
 import org.aion.log.AionLoggerFactory;
 import org.aion.log.LogEnum;
 import org.slf4j.Logger;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -21,9 +29,10 @@ public class NanoHttpd extends NanoHTTPD {
             String hostname,
             int port,
             boolean corsEnabled,
-            List<String> enabledEndpoints) throws IOException {
+            List<String> enabledEndpoints,
+            int batchThreads) throws IOException {
         super(hostname, port);
-        this.rpcProcessor = new RpcProcessor(enabledEndpoints);
+        this.rpcProcessor = new RpcProcessor(enabledEndpoints, batchThreads);
         this.corsEnabled = corsEnabled;
     }
 
@@ -46,10 +55,38 @@ public class NanoHttpd extends NanoHTTPD {
 
         requestBody = body.getOrDefault("postData", null);
 
+        // the response is written straight into the buffer that is sent, not built as a string first
+        ResponseBuffer buffer = new ResponseBuffer();
+        try {
+            Writer out = new OutputStreamWriter(buffer, StandardCharsets.UTF_8);
+            rpcProcessor.process(requestBody, out);
+            out.close();
+        } catch (Exception e) {
+            LOG.debug("<rpc-server - failed to write rpc response>", e);
+            return NanoHTTPD.newFixedLengthResponse(
+                    Response.Status.OK,
+                    "application/json",
+                    new RpcMsg(null, RpcError.INTERNAL_ERROR).toString());
+        }
+
         return NanoHTTPD.newFixedLengthResponse(
                 Response.Status.OK,
                 "application/json",
-                rpcProcessor.process(requestBody));
+                buffer.toInputStream(),
+                buffer.size());
+    }
+
+    /**
+     * Hands the written bytes to the response without copying them.
+     */
+    private static final class ResponseBuffer extends ByteArrayOutputStream {
+        ResponseBuffer() {
+            super(4096);
+        }
+
+        InputStream toInputStream() {
+            return new ByteArrayInputStream(buf, 0, count);
+        }
     }
 
     @Override
@@ -25,7 +25,9 @@
 package org.aion.api.server.pb;
 
 import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
 import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.UnsafeByteOperations;
 import org.aion.api.server.ApiAion;
 import org.aion.api.server.ApiUtil;
 import org.aion.api.server.IApiAion;
@@ -56,7 +58,6 @@ import org.apache.commons.collections4.map.LRUMap;
 import org.json.JSONArray;
 
 import java.math.BigInteger;
-import java.nio.ByteBuffer;
 import java.util.*;
 import java.util.Map.Entry;
 import java.util.concurrent.BlockingQueue;
@@ -206,6 +207,17 @@ public class ApiAion0 extends ApiAion implements IApiAion {
     }
 
     public byte[] process(byte[] request, byte[] socketId) {
+        RspBuffer out = new RspBuffer(0);
+        process(request, socketId, out);
+        return out.toByteArray();
+    }
+
+    @Override
+    public void process(byte[] request, byte[] socketId, RspBuffer out) {
+        out.set(handle(request, socketId, out));
+    }
+
+    private byte[] handle(byte[] request, byte[] socketId, RspBuffer out) {
         if (request == null || (request.length < this.getApiHeaderLen())) {
             return ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_fail_header_len_VALUE);
         }
@@ -240,7 +252,7 @@ public class ApiAion0 extends ApiAion implements IApiAion {
                     .setVm("0.1.0").build();
 
             byte[] retHeader = ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_success_VALUE);
-            return ApiUtil.combineRetMsg(retHeader, rsp.toByteArray());
+            return out.write(retHeader, rsp);
         }
         case Message.Funcs.f_minerAddress_VALUE: {
 
@@ -258,7 +270,7 @@ public class ApiAion0 extends ApiAion implements IApiAion {
                     .setMinerAddr(ByteString.copyFrom(TypeConverter.StringHexToByteArray(cb))).build();
 
             byte[] retHeader = ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_success_VALUE);
-            return ApiUtil.combineRetMsg(retHeader, rsp.toByteArray());
+            return out.write(retHeader, rsp);
         }
 
         case Message.Funcs.f_contractDeploy_VALUE: {
@@ -268,10 +280,10 @@ public class ApiAion0 extends ApiAion implements IApiAion {
             }
 
             Message.req_contractDeploy req;
-            byte[] data = parseMsgReq(request, msgHash);
+            CodedInputStream data = parseMsgReq(request, msgHash);
             ContractCreateResult result;
             try {
-                req = Message.req_contractDeploy.parseFrom(data);
+                req = Message.req_contractDeploy.parser().parseFrom(data);
                 // TODO: the client api should send server binary code directly
                 // instead of str format like "0xhex".!
                 byte[] bytes = req.getData().toByteArray();
@@ -304,7 +316,7 @@ public class ApiAion0 extends ApiAion implements IApiAion {
                     .setTxHash(ByteString.copyFrom(result != null ? result.transId : EMPTY_BYTE_ARRAY)).build();
 
             byte[] retHeader = ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_tx_Recved_VALUE, msgHash);
-            return ApiUtil.combineRetMsg(retHeader, rsp.toByteArray());
+            return out.write(retHeader, rsp);
         }
 
         // Authenication Module
@@ -323,7 +335,7 @@ public class ApiAion0 extends ApiAion implements IApiAion {
             Message.rsp_accounts rsp = Message.rsp_accounts.newBuilder().addAllAccout(al).build();
 
             byte[] retHeader = ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_success_VALUE);
-            return ApiUtil.combineRetMsg(retHeader, rsp.toByteArray());
+            return out.write(retHeader, rsp);
         }
         case Message.Funcs.f_blockNumber_VALUE: {
 
@@ -334,7 +346,7 @@ public class ApiAion0 extends ApiAion implements IApiAion {
             Message.rsp_blockNumber rsp = Message.rsp_blockNumber.newBuilder()
                     .setBlocknumber(this.getBestBlock().getNumber()).build();
             byte[] retHeader = ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_success_VALUE);
-            return ApiUtil.combineRetMsg(retHeader, rsp.toByteArray());
+            return out.write(retHeader, rsp);
         }
         case Message.Funcs.f_unlockAccount_VALUE: {
 
@@ -342,10 +354,10 @@ public class ApiAion0 extends ApiAion implements IApiAion {
                 return ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_fail_service_call_VALUE);
             }
 
-            byte[] data = parseMsgReq(request, msgHash);
+            CodedInputStream data = parseMsgReq(request, msgHash);
             boolean result;
             try {
-                Message.req_unlockAccount req = Message.req_unlockAccount.parseFrom(data);
+                Message.req_unlockAccount req = Message.req_unlockAccount.parser().parseFrom(data);
                 result = this.unlockAccount(Address.wrap(req.getAccount().toByteArray()), req.getPassword(),
                         req.getDuration());
             } catch (InvalidProtocolBufferException e) {
@@ -364,10 +376,10 @@ public class ApiAion0 extends ApiAion implements IApiAion {
                 return ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_fail_service_call_VALUE);
             }
 
-            byte[] data = parseMsgReq(request, msgHash);
+            CodedInputStream data = parseMsgReq(request, msgHash);
             BigInteger balance;
             try {
-                Message.req_getBalance req = Message.req_getBalance.parseFrom(data);
+                Message.req_getBalance req = Message.req_getBalance.parser().parseFrom(data);
 
                 Address addr = Address.wrap(req.getAddress().toByteArray());
 
@@ -381,7 +393,7 @@ public class ApiAion0 extends ApiAion implements IApiAion {
                     .setBalance(ByteString.copyFrom(balance.toByteArray())).build();
 
             byte[] retHeader = ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_success_VALUE);
-            return ApiUtil.combineRetMsg(retHeader, rsp.toByteArray());
+            return out.write(retHeader, rsp);
         }
         case Message.Funcs.f_compile_VALUE: {
 
@@ -389,9 +401,9 @@ public class ApiAion0 extends ApiAion implements IApiAion {
                 return ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_fail_service_call_VALUE);
             }
 
-            byte[] data = parseMsgReq(request, msgHash);
+            CodedInputStream data = parseMsgReq(request, msgHash);
             try {
-                Message.req_compileSolidity req = Message.req_compileSolidity.parseFrom(data);
+                Message.req_compileSolidity req = Message.req_compileSolidity.parser().parseFrom(data);
                 String source = req.getSource();
                 if (source == null) {
                     return ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_fail_null_compile_source_VALUE);
@@ -408,8 +420,7 @@ public class ApiAion0 extends ApiAion implements IApiAion {
                                     Message.Retcode.r_fail_compile_contract_VALUE);
                             Message.t_Contract tc = Message.t_Contract.newBuilder().setError(entry.getValue().error)
                                     .build();
-                            return ApiUtil.combineRetMsg(retHeader,
-                                    b.putConstracts(entry.getKey(), tc).build().toByteArray());
+                            return out.write(retHeader, b.putConstracts(entry.getKey(), tc).build());
                         }
 
                         CompiledContr _contr = entry.getValue();
@@ -426,7 +437,7 @@ public class ApiAion0 extends ApiAion implements IApiAion {
                     }
                     Message.rsp_compile rsp = b.build();
                     byte[] retHeader = ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_success_VALUE);
-                    return ApiUtil.combineRetMsg(retHeader, rsp.toByteArray());
+                    return out.write(retHeader, rsp);
                 } else {
                     return ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_fail_function_exception_VALUE);
                 }
@@ -442,11 +453,11 @@ public class ApiAion0 extends ApiAion implements IApiAion {
                 return ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_fail_service_call_VALUE, msgHash);
             }
 
-            byte[] data = parseMsgReq(request, msgHash);
+            CodedInputStream data = parseMsgReq(request, msgHash);
             Message.req_sendTransaction req;
             byte[] result;
             try {
-                req = Message.req_sendTransaction.parseFrom(data);
+                req = Message.req_sendTransaction.parser().parseFrom(data);
 
                 ArgTxCall params = new ArgTxCall(Address.wrap(req.getFrom().toByteArray()),
                         Address.wrap(req.getTo().toByteArray()), req.getData().toByteArray(),
@@ -474,17 +485,17 @@ public class ApiAion0 extends ApiAion implements IApiAion {
                     .setTxHash(ByteString.copyFrom(result)).build();
 
             byte[] retHeader = ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_tx_Recved_VALUE, msgHash);
-            return ApiUtil.combineRetMsg(retHeader, rsp.toByteArray());
+            return out.write(retHeader, rsp);
         }
         case Message.Funcs.f_getCode_VALUE: {
             if (service != Message.Servs.s_tx_VALUE) {
                 return ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_fail_service_call_VALUE);
             }
 
-            byte[] data = parseMsgReq(request, msgHash);
+            CodedInputStream data = parseMsgReq(request, msgHash);
             Message.req_getCode req;
             try {
-                req = Message.req_getCode.parseFrom(data);
+                req = Message.req_getCode.parser().parseFrom(data);
                 Address to = Address.wrap(req.getAddress().toByteArray());
 
                 byte[] code = this.getCode(to);
@@ -494,7 +505,7 @@ public class ApiAion0 extends ApiAion implements IApiAion {
 
                 Message.rsp_getCode rsp = Message.rsp_getCode.newBuilder().setCode(ByteString.copyFrom(code)).build();
                 byte[] retHeader = ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_success_VALUE);
-                return ApiUtil.combineRetMsg(retHeader, rsp.toByteArray());
+                return out.write(retHeader, rsp);
 
             } catch (Exception e) {
                 LOG.error("ApiAionA0.process.getCode exception: [{}]", e.getMessage());
@@ -506,10 +517,10 @@ public class ApiAion0 extends ApiAion implements IApiAion {
                 return ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_fail_service_call_VALUE);
             }
 
-            byte[] data = parseMsgReq(request, msgHash);
+            CodedInputStream data = parseMsgReq(request, msgHash);
             Message.req_getTransactionReceipt req;
             try {
-                req = Message.req_getTransactionReceipt.parseFrom(data);
+                req = Message.req_getTransactionReceipt.parser().parseFrom(data);
 
                 TxRecpt result = this.getTransactionReceipt(req.getTxHash().toByteArray());
                 if (result == null) {
@@ -522,31 +533,31 @@ public class ApiAion0 extends ApiAion implements IApiAion {
                     Collections.addAll(al, log.topics);
 
                     Message.t_LgEle msgLog = Message.t_LgEle.newBuilder()
-                            .setAddress(ByteString.copyFrom(Address.wrap(log.address).toBytes()))
-                            .setData(ByteString.copyFrom(ByteUtil.hexStringToBytes(log.data))).addAllTopics(al).build();
+                            .setAddress(UnsafeByteOperations.unsafeWrap(Address.wrap(log.address).toBytes()))
+                            .setData(UnsafeByteOperations.unsafeWrap(ByteUtil.hexStringToBytes(log.data))).addAllTopics(al).build();
 
                     logs.add(msgLog);
                 }
 
                 Message.rsp_getTransactionReceipt rsp = Message.rsp_getTransactionReceipt.newBuilder()
-                        .setFrom(ByteString.copyFrom(result.fromAddr.toBytes())).setBlockNumber(result.blockNumber)
-                        .setBlockHash(ByteString
-                                .copyFrom(result.blockHash != null ? ByteUtil.hexStringToBytes(result.blockHash)
+                        .setFrom(UnsafeByteOperations.unsafeWrap(result.fromAddr.toBytes())).setBlockNumber(result.blockNumber)
+                        .setBlockHash(UnsafeByteOperations
+                                .unsafeWrap(result.blockHash != null ? ByteUtil.hexStringToBytes(result.blockHash)
                                         : EMPTY_BYTE_ARRAY))
-                        .setContractAddress(ByteString.copyFrom(
+                        .setContractAddress(UnsafeByteOperations.unsafeWrap(
                                 result.contractAddress != null ? ByteUtil.hexStringToBytes(result.contractAddress)
                                         : EMPTY_BYTE_ARRAY))
                         .setTxIndex(result.transactionIndex)
-                        .setTxHash(ByteString.copyFrom(
+                        .setTxHash(UnsafeByteOperations.unsafeWrap(
                                 result.transactionHash != null ? ByteUtil.hexStringToBytes(result.transactionHash)
                                         : EMPTY_BYTE_ARRAY))
-                        .setTo(ByteString
-                                .copyFrom(result.toAddr == null ? EMPTY_BYTE_ARRAY : result.toAddr.toBytes()))
+                        .setTo(UnsafeByteOperations
+                                .unsafeWrap(result.toAddr == null ? EMPTY_BYTE_ARRAY : result.toAddr.toBytes()))
                         .setNrgConsumed(result.nrgUsed).setCumulativeNrgUsed(result.cumulativeNrgUsed).addAllLogs(logs)
                         .build();
 
                 byte[] retHeader = ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_success_VALUE);
-                return ApiUtil.combineRetMsg(retHeader, rsp.toByteArray());
+                return out.write(retHeader, rsp);
 
             } catch (Exception e) {
                 LOG.error("ApiAionA0.process.getTransactionReceipt exception: [{}]", e.getMessage());
@@ -558,11 +569,11 @@ public class ApiAion0 extends ApiAion implements IApiAion {
                 return ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_fail_service_call_VALUE);
             }
 
-            byte[] data = parseMsgReq(request, msgHash);
+            CodedInputStream data = parseMsgReq(request, msgHash);
             Message.req_call req;
 
             try {
-                req = Message.req_call.parseFrom(data);
+                req = Message.req_call.parser().parseFrom(data);
 
                 Address from = Address.wrap(req.getFrom().toByteArray());
                 Address to = Address.wrap(req.getTo().toByteArray());
@@ -575,7 +586,7 @@ public class ApiAion0 extends ApiAion implements IApiAion {
                         .build();
 
                 byte[] retHeader = ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_success_VALUE);
-                return ApiUtil.combineRetMsg(retHeader, rsp.toByteArray());
+                return out.write(retHeader, rsp);
 
             } catch (Exception e) {
                 LOG.error("ApiAionA0.process.call exception: [{}]", e.getMessage());
@@ -587,15 +598,15 @@ public class ApiAion0 extends ApiAion implements IApiAion {
                 return ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_fail_service_call_VALUE);
             }
 
-            byte[] data = parseMsgReq(request, msgHash);
+            CodedInputStream data = parseMsgReq(request, msgHash);
             Message.req_getBlockByNumber req;
 
             try {
-                req = Message.req_getBlockByNumber.parseFrom(data);
+                req = Message.req_getBlockByNumber.parser().parseFrom(data);
                 long num = req.getBlockNumber();
                 AionBlock blk = this.getBlock(num);
 
-                return createBlockMsg(blk);
+                return createBlockMsg(blk, out);
             } catch (Exception e) {
                 LOG.error("ApiAionA0.process.getBlockByNumber exception: [{}]", e.getMessage());
                 return ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_fail_function_exception_VALUE);
@@ -606,11 +617,11 @@ public class ApiAion0 extends ApiAion implements IApiAion {
                 return ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_fail_service_call_VALUE);
             }
 
-            byte[] data = parseMsgReq(request, msgHash);
+            CodedInputStream data = parseMsgReq(request, msgHash);
             Message.req_getBlockByHash req;
 
             try {
-                req = Message.req_getBlockByHash.parseFrom(data);
+                req = Message.req_getBlockByHash.parser().parseFrom(data);
                 byte[] hash = req.getBlockHash().toByteArray();
 
                 if (hash == null || hash.length != Hash256.BYTES) {
@@ -618,7 +629,7 @@ public class ApiAion0 extends ApiAion implements IApiAion {
                 }
 
                 AionBlock blk = this.getBlockByHash(hash);
-                return createBlockMsg(blk);
+                return createBlockMsg(blk, out);
             } catch (Exception e) {
                 LOG.error("ApiAionA0.process.getBlockByHash exception: [{}]", e.getMessage());
                 return ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_fail_function_exception_VALUE);
@@ -629,11 +640,11 @@ public class ApiAion0 extends ApiAion implements IApiAion {
                 return ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_fail_service_call_VALUE);
             }
 
-            byte[] data = parseMsgReq(request, msgHash);
+            CodedInputStream data = parseMsgReq(request, msgHash);
             Message.req_getTransactionByBlockHashAndIndex req;
 
             try {
-                req = Message.req_getTransactionByBlockHashAndIndex.parseFrom(data);
+                req = Message.req_getTransactionByBlockHashAndIndex.parser().parseFrom(data);
                 long txIdx = req.getTxIndex();
                 byte[] hash = req.getBlockHash().toByteArray();
 
@@ -649,7 +660,7 @@ public class ApiAion0 extends ApiAion implements IApiAion {
                 Message.rsp_getTransaction rsp = getRsp_getTransaction(tx);
 
                 byte[] retHeader = ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_success_VALUE);
-                return ApiUtil.combineRetMsg(retHeader, rsp.toByteArray());
+                return out.write(retHeader, rsp);
             } catch (Exception e) {
                 LOG.error("ApiAionA0.process.getTransactionByBlockHashAndIndex exception: [{}]", e.getMessage());
                 return ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_fail_function_exception_VALUE);
@@ -660,11 +671,11 @@ public class ApiAion0 extends ApiAion implements IApiAion {
                 return ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_fail_service_call_VALUE);
             }
 
-            byte[] data = parseMsgReq(request, msgHash);
+            CodedInputStream data = parseMsgReq(request, msgHash);
             Message.req_getTransactionByBlockNumberAndIndex req;
 
             try {
-                req = Message.req_getTransactionByBlockNumberAndIndex.parseFrom(data);
+                req = Message.req_getTransactionByBlockNumberAndIndex.parser().parseFrom(data);
                 long blkNr = req.getBlockNumber();
                 long txIdx = req.getTxIndex();
 
@@ -680,7 +691,7 @@ public class ApiAion0 extends ApiAion implements IApiAion {
                 Message.rsp_getTransaction rsp = getRsp_getTransaction(tx);
 
                 byte[] retHeader = ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_success_VALUE);
-                return ApiUtil.combineRetMsg(retHeader, rsp.toByteArray());
+                return out.write(retHeader, rsp);
             } catch (Exception e) {
                 LOG.error("ApiAionA0.process.getTransactionByBlockNumberAndIndex exception: [{}]", e.getMessage());
                 return ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_fail_function_exception_VALUE);
@@ -691,11 +702,11 @@ public class ApiAion0 extends ApiAion implements IApiAion {
                 return ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_fail_service_call_VALUE);
             }
 
-            byte[] data = parseMsgReq(request, msgHash);
+            CodedInputStream data = parseMsgReq(request, msgHash);
             Message.req_getBlockTransactionCountByNumber req;
 
             try {
-                req = Message.req_getBlockTransactionCountByNumber.parseFrom(data);
+                req = Message.req_getBlockTransactionCountByNumber.parser().parseFrom(data);
                 long blkNr = req.getBlockNumber();
 
                 if (blkNr < -1) {
@@ -711,7 +722,7 @@ public class ApiAion0 extends ApiAion implements IApiAion {
                         .setTxCount((int) cnt).build();
 
                 byte[] retHeader = ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_success_VALUE);
-                return ApiUtil.combineRetMsg(retHeader, rsp.toByteArray());
+                return out.write(retHeader, rsp);
             } catch (Exception e) {
                 LOG.error("ApiAionA0.process.getBlockTransactionCountByNumber exception: [{}]", e.getMessage());
                 return ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_fail_function_exception_VALUE);
@@ -722,11 +733,11 @@ public class ApiAion0 extends ApiAion implements IApiAion {
                 return ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_fail_service_call_VALUE);
             }
 
-            byte[] data = parseMsgReq(request, msgHash);
+            CodedInputStream data = parseMsgReq(request, msgHash);
             Message.req_getTransactionCount req;
 
             try {
-                req = Message.req_getTransactionCount.parseFrom(data);
+                req = Message.req_getTransactionCount.parser().parseFrom(data);
                 long blkNr = req.getBlocknumber();
                 Address addr = Address.wrap(req.getAddress().toByteArray());
 
@@ -743,7 +754,7 @@ public class ApiAion0 extends ApiAion implements IApiAion {
                         .build();
 
                 byte[] retHeader = ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_success_VALUE);
-                return ApiUtil.combineRetMsg(retHeader, rsp.toByteArray());
+                return out.write(retHeader, rsp);
 
             } catch (Exception e) {
                 LOG.error("ApiAionA0.process.getTransactionCount exception: [{}]", e.getMessage());
@@ -755,11 +766,11 @@ public class ApiAion0 extends ApiAion implements IApiAion {
                 return ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_fail_service_call_VALUE);
             }
 
-            byte[] data = parseMsgReq(request, msgHash);
+            CodedInputStream data = parseMsgReq(request, msgHash);
             Message.req_getTransactionCountByHash req;
 
             try {
-                req = Message.req_getTransactionCountByHash.parseFrom(data);
+                req = Message.req_getTransactionCountByHash.parser().parseFrom(data);
                 byte[] hash = req.getTxHash().toByteArray();
 
                 if (hash == null || hash.length != Hash256.BYTES) {
@@ -775,7 +786,7 @@ public class ApiAion0 extends ApiAion implements IApiAion {
                         .build();
 
                 byte[] retHeader = ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_success_VALUE);
-                return ApiUtil.combineRetMsg(retHeader, rsp.toByteArray());
+                return out.write(retHeader, rsp);
 
             } catch (Exception e) {
                 LOG.error("ApiAionA0.process.getTransactionCount exception: [{}]", e.getMessage());
@@ -787,11 +798,11 @@ public class ApiAion0 extends ApiAion implements IApiAion {
                 return ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_fail_service_call_VALUE);
             }
 
-            byte[] data = parseMsgReq(request, msgHash);
+            CodedInputStream data = parseMsgReq(request, msgHash);
             Message.req_getTransactionByHash req;
 
             try {
-                req = Message.req_getTransactionByHash.parseFrom(data);
+                req = Message.req_getTransactionByHash.parser().parseFrom(data);
                 byte[] txHash = req.getTxHash().toByteArray();
 
                 if (txHash == null || txHash.length != this.getTxHashLen()) {
@@ -806,7 +817,7 @@ public class ApiAion0 extends ApiAion implements IApiAion {
                 Message.rsp_getTransaction rsp = getRsp_getTransaction(tx);
 
                 byte[] retHeader = ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_success_VALUE);
-                return ApiUtil.combineRetMsg(retHeader, rsp.toByteArray());
+                return out.write(retHeader, rsp);
 
             } catch (Exception e) {
                 LOG.error("ApiAionA0.process.getTransactionCount exception: [{}]", e.getMessage());
@@ -837,7 +848,7 @@ public class ApiAion0 extends ApiAion implements IApiAion {
 
                 Message.rsp_getActiveNodes rsp = Message.rsp_getActiveNodes.newBuilder().addAllNode(pl).build();
                 byte[] retHeader = ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_success_VALUE);
-                return ApiUtil.combineRetMsg(retHeader, rsp.toByteArray());
+                return out.write(retHeader, rsp);
             } catch (Exception e) {
                 LOG.error("ApiAionA0.process.getActiveNodes exception: [{}]", e.getMessage());
                 return ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_fail_function_exception_VALUE);
@@ -860,7 +871,7 @@ public class ApiAion0 extends ApiAion implements IApiAion {
                 Message.rsp_getStaticNodes rsp = Message.rsp_getStaticNodes.newBuilder().addAllNode(nl).build();
 
                 byte[] retHeader = ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_success_VALUE);
-                return ApiUtil.combineRetMsg(retHeader, rsp.toByteArray());
+                return out.write(retHeader, rsp);
             } catch (Exception e) {
                 LOG.error("ApiAionA0.process.getStaticNodes exception: [{}]", e.getMessage());
                 return ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_fail_function_exception_VALUE);
@@ -877,7 +888,7 @@ public class ApiAion0 extends ApiAion implements IApiAion {
                 Message.rsp_getSolcVersion rsp = Message.rsp_getSolcVersion.newBuilder().setVer(ver).build();
 
                 byte[] retHeader = ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_success_VALUE);
-                return ApiUtil.combineRetMsg(retHeader, rsp.toByteArray());
+                return out.write(retHeader, rsp);
             } catch (Exception e) {
                 LOG.error("ApiAionA0.process.getSolcVersion exception: [{}]", e.getMessage());
                 return ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_fail_function_exception_VALUE);
@@ -892,7 +903,7 @@ public class ApiAion0 extends ApiAion implements IApiAion {
                 Message.rsp_isSyncing rsp = Message.rsp_isSyncing.newBuilder().setSyncing(!this.getSync().done).build();
 
                 byte[] retHeader = ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_success_VALUE);
-                return ApiUtil.combineRetMsg(retHeader, rsp.toByteArray());
+                return out.write(retHeader, rsp);
             } catch (Exception e) {
                 LOG.error("ApiAionA0.process.syncing exception: [{}]", e.getMessage());
                 return ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_fail_function_exception_VALUE);
@@ -911,7 +922,7 @@ public class ApiAion0 extends ApiAion implements IApiAion {
                         .setMaxImportBlocks(sync.blocksRequestMax).build();
 
                 byte[] retHeader = ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_success_VALUE);
-                return ApiUtil.combineRetMsg(retHeader, rsp.toByteArray());
+                return out.write(retHeader, rsp);
             } catch (Exception e) {
                 LOG.error("ApiAionA0.process.syncInfo exception: [{}]", e.getMessage());
                 return ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_fail_function_exception_VALUE);
@@ -922,11 +933,11 @@ public class ApiAion0 extends ApiAion implements IApiAion {
                 return ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_fail_service_call_VALUE);
             }
 
-            byte[] data = parseMsgReq(request, msgHash);
+            CodedInputStream data = parseMsgReq(request, msgHash);
             Message.req_accountCreate req;
 
             try {
-                req = Message.req_accountCreate.parseFrom(data);
+                req = Message.req_accountCreate.parser().parseFrom(data);
 
                 List<ByteString> addressList = new ArrayList<>();
                 List<ByteString> pKeyList = new ArrayList<>();
@@ -950,7 +961,7 @@ public class ApiAion0 extends ApiAion implements IApiAion {
                         .addAllPrivateKey(pKeyList).build();
 
                 byte[] retHeader = ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_success_VALUE);
-                return ApiUtil.combineRetMsg(retHeader, rsp.toByteArray());
+                return out.write(retHeader, rsp);
 
             } catch (Exception e) {
                 LOG.error("ApiAionA0.process.accountCreate exception: [{}]", e.getMessage());
@@ -963,7 +974,7 @@ public class ApiAion0 extends ApiAion implements IApiAion {
                 return ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_fail_service_call_VALUE);
             }
 
-            byte[] data = parseMsgReq(request, msgHash);
+            CodedInputStream data = parseMsgReq(request, msgHash);
 
             if (data == null) {
                 return ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_fail_function_arguments_VALUE);
@@ -971,7 +982,7 @@ public class ApiAion0 extends ApiAion implements IApiAion {
 
             boolean result;
             try {
-                Message.req_accountlock req = Message.req_accountlock.parseFrom(data);
+                Message.req_accountlock req = Message.req_accountlock.parser().parseFrom(data);
                 result = this.lockAccount(Address.wrap(req.getAccount().toByteArray()), req.getPassword());
             } catch (InvalidProtocolBufferException e) {
                 LOG.error("ApiAionA0.process.lockAccount exception: [{}]", e.getMessage());
@@ -998,7 +1009,7 @@ public class ApiAion0 extends ApiAion implements IApiAion {
             Message.rsp_mining rsp = Message.rsp_mining.newBuilder().setMining(this.isMining()).build();
 
             byte[] retHeader = ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_success_VALUE);
-            return ApiUtil.combineRetMsg(retHeader, rsp.toByteArray());
+            return out.write(retHeader, rsp);
         }
 
         case Message.Funcs.f_estimateNrg_VALUE: {
@@ -1006,11 +1017,11 @@ public class ApiAion0 extends ApiAion implements IApiAion {
                 return ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_fail_service_call_VALUE, msgHash);
             }
 
-            byte[] data = parseMsgReq(request, msgHash);
+            CodedInputStream data = parseMsgReq(request, msgHash);
             Message.req_estimateNrg req;
             long result;
             try {
-                req = Message.req_estimateNrg.parseFrom(data);
+                req = Message.req_estimateNrg.parser().parseFrom(data);
 
                 ArgTxCall params = new ArgTxCall(Address.wrap(req.getFrom().toByteArray()),
                         Address.wrap(req.getTo().toByteArray()), req.getData().toByteArray(), BigInteger.ZERO,
@@ -1025,7 +1036,7 @@ public class ApiAion0 extends ApiAion implements IApiAion {
             Message.rsp_estimateNrg rsp = Message.rsp_estimateNrg.newBuilder().setNrg(result).build();
 
             byte[] retHeader = ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_success_VALUE);
-            return ApiUtil.combineRetMsg(retHeader, rsp.toByteArray());
+            return out.write(retHeader, rsp);
         }
 
         case Message.Funcs.f_exportAccounts_VALUE:
@@ -1034,11 +1045,11 @@ public class ApiAion0 extends ApiAion implements IApiAion {
                 return ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_fail_service_call_VALUE);
             }
 
-            byte[] data = parseMsgReq(request, msgHash);
+            CodedInputStream data = parseMsgReq(request, msgHash);
             Message.req_exportAccounts req;
 
             try {
-                req = Message.req_exportAccounts.parseFrom(data);
+                req = Message.req_exportAccounts.parser().parseFrom(data);
             } catch (Exception e) {
                 LOG.error("ApiAionA0.process.exportAccounts exception: [{}]", e.getMessage());
                 return ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_fail_function_exception_VALUE);
@@ -1065,7 +1076,7 @@ public class ApiAion0 extends ApiAion implements IApiAion {
                     .addAllFailedKey(invalidKey).build();
 
             byte[] retHeader = ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_success_VALUE);
-            return ApiUtil.combineRetMsg(retHeader, rsp.toByteArray());
+            return out.write(retHeader, rsp);
 
         }
         case Message.Funcs.f_importAccounts_VALUE: {
@@ -1073,11 +1084,11 @@ public class ApiAion0 extends ApiAion implements IApiAion {
                 return ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_fail_service_call_VALUE);
             }
 
-            byte[] data = parseMsgReq(request, msgHash);
+            CodedInputStream data = parseMsgReq(request, msgHash);
             Message.req_importAccounts req;
 
             try {
-                req = Message.req_importAccounts.parseFrom(data);
+                req = Message.req_importAccounts.parser().parseFrom(data);
             } catch (Exception e) {
                 LOG.error("ApiAionA0.process.importAccount exception: [{}]", e.getMessage());
                 return ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_fail_function_exception_VALUE);
@@ -1099,7 +1110,7 @@ public class ApiAion0 extends ApiAion implements IApiAion {
             Message.rsp_importAccounts rsp = Message.rsp_importAccounts.newBuilder().addAllInvalidKey(res).build();
 
             byte[] retHeader = ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_success_VALUE);
-            return ApiUtil.combineRetMsg(retHeader, rsp.toByteArray());
+            return out.write(retHeader, rsp);
         }
         case Message.Funcs.f_signedTransaction_VALUE:
         case Message.Funcs.f_rawTransaction_VALUE: {
@@ -1107,11 +1118,11 @@ public class ApiAion0 extends ApiAion implements IApiAion {
                 return ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_fail_service_call_VALUE, msgHash);
             }
 
-            byte[] data = parseMsgReq(request, msgHash);
+            CodedInputStream data = parseMsgReq(request, msgHash);
             Message.req_rawTransaction req;
             byte[] result;
             try {
-                req = Message.req_rawTransaction.parseFrom(data);
+                req = Message.req_rawTransaction.parser().parseFrom(data);
                 byte[] encodedTx = req.getEncodedTx().toByteArray();
                 if (encodedTx == null) {
                     LOG.error("ApiAionA0.process.signedTransaction exception: [null encodedTx]");
@@ -1138,18 +1149,18 @@ public class ApiAion0 extends ApiAion implements IApiAion {
                     .setTxHash(ByteString.copyFrom(result)).build();
 
             byte[] retHeader = ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_tx_Recved_VALUE, msgHash);
-            return ApiUtil.combineRetMsg(retHeader, rsp.toByteArray());
+            return out.write(retHeader, rsp);
         }
         case Message.Funcs.f_eventRegister_VALUE: {
             if (service != Message.Servs.s_tx_VALUE) {
                 return ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_fail_service_call_VALUE);
             }
 
-            byte[] data = parseMsgReq(request, msgHash);
+            CodedInputStream data = parseMsgReq(request, msgHash);
             Message.req_eventRegister req;
 
             try {
-                req = Message.req_eventRegister.parseFrom(data);
+                req = Message.req_eventRegister.parser().parseFrom(data);
 
                 List<String> evtList = new ArrayList<>(req.getEventsList());
                 if (evtList.isEmpty()) {
@@ -1179,7 +1190,7 @@ public class ApiAion0 extends ApiAion implements IApiAion {
                 Message.rsp_eventRegister rsp = Message.rsp_eventRegister.newBuilder().setResult(true).build();
 
                 byte[] retHeader = ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_success_VALUE);
-                return ApiUtil.combineRetMsg(retHeader, rsp.toByteArray());
+                return out.write(retHeader, rsp);
 
             } catch (Exception e) {
                 LOG.error("ApiAionA0.process.eventRegister exception: [{}]", e.getMessage());
@@ -1191,11 +1202,11 @@ public class ApiAion0 extends ApiAion implements IApiAion {
                 return ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_fail_service_call_VALUE);
             }
 
-            byte[] data = parseMsgReq(request, msgHash);
+            CodedInputStream data = parseMsgReq(request, msgHash);
             Message.req_eventDeregister req;
 
             try {
-                req = Message.req_eventDeregister.parseFrom(data);
+                req = Message.req_eventDeregister.parser().parseFrom(data);
 
                 List<String> evtList = new ArrayList<>(req.getEventsList());
 
@@ -1229,7 +1240,7 @@ public class ApiAion0 extends ApiAion implements IApiAion {
                 Message.rsp_eventRegister rsp = Message.rsp_eventRegister.newBuilder().setResult(changed).build();
 
                 byte[] retHeader = ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_success_VALUE);
-                return ApiUtil.combineRetMsg(retHeader, rsp.toByteArray());
+                return out.write(retHeader, rsp);
 
             } catch (Exception e) {
                 LOG.error("ApiAionA0.process.eventDeregister exception: [{}]", e.getMessage());
@@ -1241,11 +1252,11 @@ public class ApiAion0 extends ApiAion implements IApiAion {
                 return ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_fail_service_call_VALUE);
             }
 
-            byte[] data = parseMsgReq(request, msgHash);
+            CodedInputStream data = parseMsgReq(request, msgHash);
             Message.req_getBlockDetailsByNumber req;
 
             try {
-                req = Message.req_getBlockDetailsByNumber.parseFrom(data);
+                req = Message.req_getBlockDetailsByNumber.parser().parseFrom(data);
                 long latestBlkNum = this.getBestBlock().getNumber();
 
                 List<Long> blkNum = req.getBlkNumbersList()
@@ -1273,7 +1284,7 @@ public class ApiAion0 extends ApiAion implements IApiAion {
                             .build();
 
                     byte[] retHeader = ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_success_VALUE);
-                    return ApiUtil.combineRetMsg(retHeader, rsp.toByteArray());
+                    return out.write(retHeader, rsp);
                 }
             } catch (Exception e) {
                 LOG.error("ApiAionA0.process.getBlockDetailsByNumber exception: [{}]", e.getMessage());
@@ -1285,11 +1296,11 @@ public class ApiAion0 extends ApiAion implements IApiAion {
                 return ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_fail_service_call_VALUE);
             }
 
-            byte[] data = parseMsgReq(request, msgHash);
+            CodedInputStream data = parseMsgReq(request, msgHash);
             Message.req_getBlockDetailsByLatest req;
 
             try {
-                req = Message.req_getBlockDetailsByLatest.parseFrom(data);
+                req = Message.req_getBlockDetailsByLatest.parser().parseFrom(data);
 
                 // clip the requested count up to 1000
                 Long count = req.getCount();
@@ -1315,7 +1326,7 @@ public class ApiAion0 extends ApiAion implements IApiAion {
                             .build();
 
                     byte[] retHeader = ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_success_VALUE);
-                    return ApiUtil.combineRetMsg(retHeader, rsp.toByteArray());
+                    return out.write(retHeader, rsp);
                 }
             } catch (Exception e) {
                 LOG.error("ApiAionA0.process.getBlockDetailsByLatest exception: [{}]", e.getMessage());
@@ -1327,11 +1338,11 @@ public class ApiAion0 extends ApiAion implements IApiAion {
                 return ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_fail_service_call_VALUE);
             }
 
-            byte[] data = parseMsgReq(request, msgHash);
+            CodedInputStream data = parseMsgReq(request, msgHash);
             Message.req_getBlocksByLatest req;
 
             try {
-                req = Message.req_getBlocksByLatest.parseFrom(data);
+                req = Message.req_getBlocksByLatest.parser().parseFrom(data);
 
                 // clip the requested count up to 1000
                 Long count = req.getCount();
@@ -1357,7 +1368,7 @@ public class ApiAion0 extends ApiAion implements IApiAion {
                             .build();
 
                     byte[] retHeader = ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_success_VALUE);
-                    return ApiUtil.combineRetMsg(retHeader, rsp.toByteArray());
+                    return out.write(retHeader, rsp);
                 }
             } catch (Exception e) {
                 LOG.error("ApiAionA0.process.getBlocksByLatest exception: [{}]", e.getMessage());
@@ -1369,11 +1380,11 @@ public class ApiAion0 extends ApiAion implements IApiAion {
                 return ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_fail_service_call_VALUE);
             }
 
-            byte[] data = parseMsgReq(request, msgHash);
+            CodedInputStream data = parseMsgReq(request, msgHash);
             Message.req_getAccountDetailsByAddressList req;
 
             try {
-                req = Message.req_getAccountDetailsByAddressList.parseFrom(data);
+                req = Message.req_getAccountDetailsByAddressList.parser().parseFrom(data);
                 List<ByteString> num = req.getAddressesList();
 
                 if (num.size() > 1000) {
@@ -1402,7 +1413,7 @@ public class ApiAion0 extends ApiAion implements IApiAion {
                         .build();
 
                 byte[] retHeader = ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_success_VALUE);
-                return ApiUtil.combineRetMsg(retHeader, rsp.toByteArray());
+                return out.write(retHeader, rsp);
 
             } catch (Exception e) {
                 LOG.error("ApiAionA0.process.getBlockDetailsByNumber exception: [{}]", e.getMessage());
@@ -1431,36 +1442,36 @@ public class ApiAion0 extends ApiAion implements IApiAion {
         return txWait.take();
     }
 
-    private byte[] createBlockMsg(AionBlock blk) {
+    private byte[] createBlockMsg(AionBlock blk, RspBuffer out) {
         if (blk == null) {
             return ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_fail_function_arguments_VALUE);
         } else {
 
             List<ByteString> al = new ArrayList<>();
             for (AionTransaction tx : blk.getTransactionsList()) {
-                al.add(ByteString.copyFrom(tx.getHash()));
+                al.add(UnsafeByteOperations.unsafeWrap(tx.getHash()));
             }
 
             BigInteger td = this.ac.getBlockchain().getTotalDifficultyByHash(Hash256.wrap(blk.getHash()));
             Message.rsp_getBlock rsp = getRsp_getBlock(blk, al, td);
 
             byte[] retHeader = ApiUtil.toReturnHeader(getApiVersion(), Message.Retcode.r_success_VALUE);
-            return ApiUtil.combineRetMsg(retHeader, rsp.toByteArray());
+            return out.write(retHeader, rsp);
         }
     }
 
     private Message.rsp_getTransaction getRsp_getTransaction(AionTransaction tx) {
         return Message.rsp_getTransaction.newBuilder()
-                .setBlockhash(ByteString.copyFrom(tx.getBlockHash()))
+                .setBlockhash(UnsafeByteOperations.unsafeWrap(tx.getBlockHash()))
                 .setBlocknumber(tx.getBlockNumber())
-                .setFrom(ByteString.copyFrom(tx.getFrom().toBytes()))
+                .setFrom(UnsafeByteOperations.unsafeWrap(tx.getFrom().toBytes()))
                 .setNrgConsume(tx.getNrgConsume())
                 .setNrgPrice(tx.getNrgPrice())
-                .setTxHash(ByteString.copyFrom(tx.getHash()))
-                .setData(ByteString.copyFrom(tx.getData() == null ? EMPTY_BYTE_ARRAY : tx.getData()))
-                .setNonce(ByteString.copyFrom(tx.getNonce()))
-                .setTo(ByteString.copyFrom(tx.getTo() == null ? EMPTY_BYTE_ARRAY : tx.getTo().toBytes()))
-                .setValue(ByteString.copyFrom(tx.getValue()))
+                .setTxHash(UnsafeByteOperations.unsafeWrap(tx.getHash()))
+                .setData(UnsafeByteOperations.unsafeWrap(tx.getData() == null ? EMPTY_BYTE_ARRAY : tx.getData()))
+                .setNonce(UnsafeByteOperations.unsafeWrap(tx.getNonce()))
+                .setTo(UnsafeByteOperations.unsafeWrap(tx.getTo() == null ? EMPTY_BYTE_ARRAY : tx.getTo().toBytes()))
+                .setValue(UnsafeByteOperations.unsafeWrap(tx.getValue()))
                 .setTxIndex((int)tx.getTxIndexInBlock())
                 .setTimeStamp(ByteUtil.byteArrayToLong(tx.getTimeStamp()))
                 .build();
@@ -1468,23 +1479,23 @@ public class ApiAion0 extends ApiAion implements IApiAion {
 
     private Message.rsp_getBlock getRsp_getBlock(AionBlock blk, List<ByteString> al, BigInteger td) {
         return Message.rsp_getBlock.newBuilder()
-                .setParentHash(ByteString.copyFrom(blk.getParentHash()))
-                .setMinerAddress(ByteString.copyFrom(blk.getCoinbase().toBytes()))
-                .setStateRoot(ByteString.copyFrom(blk.getStateRoot()))
-                .setTxTrieRoot(ByteString.copyFrom(blk.getTxTrieRoot()))
-                .setDifficulty(ByteString.copyFrom(blk.getDifficulty()))
-                .setExtraData(ByteString.copyFrom(blk.getExtraData()))
+                .setParentHash(UnsafeByteOperations.unsafeWrap(blk.getParentHash()))
+                .setMinerAddress(UnsafeByteOperations.unsafeWrap(blk.getCoinbase().toBytes()))
+                .setStateRoot(UnsafeByteOperations.unsafeWrap(blk.getStateRoot()))
+                .setTxTrieRoot(UnsafeByteOperations.unsafeWrap(blk.getTxTrieRoot()))
+                .setDifficulty(UnsafeByteOperations.unsafeWrap(blk.getDifficulty()))
+                .setExtraData(UnsafeByteOperations.unsafeWrap(blk.getExtraData()))
                 .setNrgConsumed(blk.getNrgConsumed())
                 .setNrgLimit(blk.getNrgLimit())
-                .setHash(ByteString.copyFrom(blk.getHash()))
-                .setLogsBloom(ByteString.copyFrom(blk.getLogBloom()))
-                .setNonce(ByteString.copyFrom(blk.getNonce()))
-                .setReceiptTrieRoot(ByteString.copyFrom(blk.getReceiptsRoot()))
+                .setHash(UnsafeByteOperations.unsafeWrap(blk.getHash()))
+                .setLogsBloom(UnsafeByteOperations.unsafeWrap(blk.getLogBloom()))
+                .setNonce(UnsafeByteOperations.unsafeWrap(blk.getNonce()))
+                .setReceiptTrieRoot(UnsafeByteOperations.unsafeWrap(blk.getReceiptsRoot()))
                 .setTimestamp(blk.getTimestamp()).setBlockNumber(blk.getNumber())
-                .setSolution(ByteString.copyFrom(blk.getHeader().getSolution()))
+                .setSolution(UnsafeByteOperations.unsafeWrap(blk.getHeader().getSolution()))
                 .addAllTxHash(al)
                 .setSize(blk.size())
-                .setTotalDifficulty(ByteString.copyFrom(td.toByteArray()))
+                .setTotalDifficulty(UnsafeByteOperations.unsafeWrap(td.toByteArray()))
                 .build();
     }
 
@@ -1496,22 +1507,22 @@ public class ApiAion0 extends ApiAion implements IApiAion {
 
                     return Message.t_Block.newBuilder()
                             .setBlockNumber(b.getNumber())
-                            .setDifficulty(ByteString.copyFrom(b.getDifficulty()))
-                            .setExtraData(ByteString.copyFrom(b.getExtraData()))
-                            .setHash(ByteString.copyFrom(b.getHash()))
-                            .setLogsBloom(ByteString.copyFrom(b.getLogBloom()))
-                            .setMinerAddress(ByteString.copyFrom(b.getCoinbase().toBytes()))
-                            .setNonce(ByteString.copyFrom(b.getNonce()))
+                            .setDifficulty(UnsafeByteOperations.unsafeWrap(b.getDifficulty()))
+                            .setExtraData(UnsafeByteOperations.unsafeWrap(b.getExtraData()))
+                            .setHash(UnsafeByteOperations.unsafeWrap(b.getHash()))
+                            .setLogsBloom(UnsafeByteOperations.unsafeWrap(b.getLogBloom()))
+                            .setMinerAddress(UnsafeByteOperations.unsafeWrap(b.getCoinbase().toBytes()))
+                            .setNonce(UnsafeByteOperations.unsafeWrap(b.getNonce()))
                             .setNrgConsumed(b.getNrgConsumed())
                             .setNrgLimit(b.getNrgLimit())
-                            .setParentHash(ByteString.copyFrom(b.getParentHash()))
+                            .setParentHash(UnsafeByteOperations.unsafeWrap(b.getParentHash()))
                             .setTimestamp(b.getTimestamp())
-                            .setTxTrieRoot(ByteString.copyFrom(b.getTxTrieRoot()))
-                            .setReceiptTrieRoot(ByteString.copyFrom(b.getReceiptsRoot()))
-                            .setStateRoot(ByteString.copyFrom(b.getStateRoot()))
+                            .setTxTrieRoot(UnsafeByteOperations.unsafeWrap(b.getTxTrieRoot()))
+                            .setReceiptTrieRoot(UnsafeByteOperations.unsafeWrap(b.getReceiptsRoot()))
+                            .setStateRoot(UnsafeByteOperations.unsafeWrap(b.getStateRoot()))
                             .setSize(b.getEncoded().length)
-                            .setSolution(ByteString.copyFrom(b.getHeader().getSolution()))
-                            .setTotalDifficulty(ByteString.copyFrom(blk.getValue().toByteArray()))
+                            .setSolution(UnsafeByteOperations.unsafeWrap(b.getHeader().getSolution()))
+                            .setTotalDifficulty(UnsafeByteOperations.unsafeWrap(blk.getValue().toByteArray()))
                             .build();
                 }).collect(Collectors.toList());
 
@@ -1523,22 +1534,22 @@ public class ApiAion0 extends ApiAion implements IApiAion {
             AionBlock b = blk.getKey();
             Message.t_BlockDetail.Builder builder = Message.t_BlockDetail.newBuilder()
                     .setBlockNumber(b.getNumber())
-                    .setDifficulty(ByteString.copyFrom(b.getDifficulty()))
-                    .setExtraData(ByteString.copyFrom(b.getExtraData()))
-                    .setHash(ByteString.copyFrom(b.getHash()))
-                    .setLogsBloom(ByteString.copyFrom(b.getLogBloom()))
-                    .setMinerAddress(ByteString.copyFrom(b.getCoinbase().toBytes()))
-                    .setNonce(ByteString.copyFrom(b.getNonce()))
+                    .setDifficulty(UnsafeByteOperations.unsafeWrap(b.getDifficulty()))
+                    .setExtraData(UnsafeByteOperations.unsafeWrap(b.getExtraData()))
+                    .setHash(UnsafeByteOperations.unsafeWrap(b.getHash()))
+                    .setLogsBloom(UnsafeByteOperations.unsafeWrap(b.getLogBloom()))
+                    .setMinerAddress(UnsafeByteOperations.unsafeWrap(b.getCoinbase().toBytes()))
+                    .setNonce(UnsafeByteOperations.unsafeWrap(b.getNonce()))
                     .setNrgConsumed(b.getNrgConsumed())
                     .setNrgLimit(b.getNrgLimit())
-                    .setParentHash(ByteString.copyFrom(b.getParentHash()))
+                    .setParentHash(UnsafeByteOperations.unsafeWrap(b.getParentHash()))
                     .setTimestamp(b.getTimestamp())
-                    .setTxTrieRoot(ByteString.copyFrom(b.getTxTrieRoot()))
-                    .setReceiptTrieRoot(ByteString.copyFrom(b.getReceiptsRoot()))
-                    .setStateRoot(ByteString.copyFrom(b.getStateRoot()))
+                    .setTxTrieRoot(UnsafeByteOperations.unsafeWrap(b.getTxTrieRoot()))
+                    .setReceiptTrieRoot(UnsafeByteOperations.unsafeWrap(b.getReceiptsRoot()))
+                    .setStateRoot(UnsafeByteOperations.unsafeWrap(b.getStateRoot()))
                     .setSize(b.getEncoded().length)
-                    .setSolution(ByteString.copyFrom(b.getHeader().getSolution()))
-                    .setTotalDifficulty(ByteString.copyFrom(blk.getValue().toByteArray()));
+                    .setSolution(UnsafeByteOperations.unsafeWrap(b.getHeader().getSolution()))
+                    .setTotalDifficulty(UnsafeByteOperations.unsafeWrap(blk.getValue().toByteArray()));
 
             List<AionTransaction> txs = b.getTransactionsList();
 
@@ -1553,21 +1564,21 @@ public class ApiAion0 extends ApiAion implements IApiAion {
                             }
 
                             return Message.t_LgEle.newBuilder()
-                                    .setData(ByteString.copyFrom(log.getData()))
-                                    .setAddress(ByteString.copyFrom(log.getAddress().toBytes()))
+                                    .setData(UnsafeByteOperations.unsafeWrap(log.getData()))
+                                    .setAddress(UnsafeByteOperations.unsafeWrap(log.getAddress().toBytes()))
                                     .addAllTopics(topics)
                                     .build();
                         }).filter(Objects::nonNull).collect(Collectors.toList());
 
                 Message.t_TxDetail.Builder tdBuilder = Message.t_TxDetail.newBuilder()
-                        .setData(ByteString.copyFrom(tx.getData()))
-                        .setTo(ByteString.copyFrom(tx.getTo().toBytes()))
-                        .setFrom(ByteString.copyFrom(tx.getFrom().toBytes()))
-                        .setNonce(ByteString.copyFrom(tx.getNonce()))
-                        .setValue(ByteString.copyFrom(tx.getValue()))
+                        .setData(UnsafeByteOperations.unsafeWrap(tx.getData()))
+                        .setTo(UnsafeByteOperations.unsafeWrap(tx.getTo().toBytes()))
+                        .setFrom(UnsafeByteOperations.unsafeWrap(tx.getFrom().toBytes()))
+                        .setNonce(UnsafeByteOperations.unsafeWrap(tx.getNonce()))
+                        .setValue(UnsafeByteOperations.unsafeWrap(tx.getValue()))
                         .setNrgConsumed(ti.getReceipt().getEnergyUsed())
                         .setNrgPrice(tx.getNrgPrice())
-                        .setTxHash(ByteString.copyFrom(tx.getHash()))
+                        .setTxHash(UnsafeByteOperations.unsafeWrap(tx.getHash()))
                         .setTxIndex(ti.getIndex())
                         .addAllLogs(tles);
 
@@ -1625,9 +1636,12 @@ public class ApiAion0 extends ApiAion implements IApiAion {
     }
 
     @Override
-    public byte[] parseMsgReq(byte[] request, byte[] msgHash) {
+    public CodedInputStream parseMsgReq(byte[] request, byte[] msgHash) {
         int headerLen = msgHash == null ? this.getApiHeaderLen() : this.getApiHeaderLen() + msgHash.length;
-        return ByteBuffer.allocate(request.length - headerLen).put(request, headerLen, request.length - headerLen)
-                .array();
+        // parse the body where it is; the request array is not reused, so bytes fields can alias it
+        CodedInputStream in = UnsafeByteOperations.unsafeWrap(request, headerLen, request.length - headerLen)
+                .newCodedInput();
+        in.enableAliasing(true);
+        return in;
     }
 }
@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ *     
+ ******************************************************************************/
+
+package org.aion.api.server.pb;
+
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.MessageLite;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * The response of one zmq request. Protobuf responses are serialized straight behind
+ * their return header into a buffer that is kept for the next request, so a worker
+ * thread can answer any number of requests with the same array. Any other response is
+ * just referenced.
+ *
+ * Not thread safe; each worker owns one and sends the response before it takes the
+ * next request.
+ */
+public class RspBuffer {
+
+    // a buffer grown past this is dropped after the response, so one large answer does not pin it
+    private static final int MAX_RETAINED = 1 << 22;
+
+    private byte[] pool;
+    private byte[] data;
+    private int length;
+
+    public RspBuffer() {
+        this(4096);
+    }
+
+    public RspBuffer(int capacity) {
+        this.pool = new byte[capacity];
+    }
+
+    /**
+     * Serializes the header and the message into the reused buffer.
+     *
+     * @return the buffer, to be returned as the response; {@link #set} keeps its length
+     */
+    public byte[] write(byte[] header, MessageLite body) {
+        if (header == null) {
+            return null;
+        }
+
+        int bodyLen = body.getSerializedSize();
+        int size = header.length + bodyLen;
+        byte[] buf = pool.length >= size ? pool : new byte[size];
+        System.arraycopy(header, 0, buf, 0, header.length);
+        try {
+            CodedOutputStream out = CodedOutputStream.newInstance(buf, header.length, bodyLen);
+            body.writeTo(out);
+            out.checkNoSpaceLeft();
+        } catch (IOException e) {
+            // the buffer was sized by getSerializedSize, running out of space is a bug
+            throw new IllegalStateException(e);
+        }
+
+        if (buf != pool && size <= MAX_RETAINED) {
+            pool = buf;
+        }
+        data = buf;
+        length = size;
+        return buf;
+    }
+
+    /**
+     * Takes the response of a request; an array from {@link #write} keeps the length it was
+     * written with.
+     */
+    public void set(byte[] rsp) {
+        if (rsp == null || rsp != data) {
+            data = rsp;
+            length = rsp == null ? 0 : rsp.length;
+        }
+    }
+
+    public byte[] array() {
+        return data;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public byte[] toByteArray() {
+        if (data == null) {
+            return null;
+        }
+        return data.length == length ? data : Arrays.copyOf(data, length);
+    }
+}
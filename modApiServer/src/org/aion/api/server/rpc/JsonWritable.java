@@ -0,0 +1,33 @@
+package org.aion.api.server.rpc;
+
+import org.json.JSONString;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+
+/**
+ * A response value that writes itself into a {@link JsonWriter}, instead of
+ * being built as a {@link org.json.JSONObject} first.
+ *
+ * Placed inside a json tree it still serializes, through
+ * {@link #toJSONString()}.
+ */
+@FunctionalInterface
+public interface JsonWritable extends JSONString {
+
+    void writeJson(JsonWriter writer) throws IOException;
+
+    @Override
+    default String toJSONString() {
+        StringWriter out = new StringWriter();
+        try {
+            JsonWriter writer = new JsonWriter(out);
+            writeJson(writer);
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,282 @@
+package org.aion.api.server.rpc;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * Writes json token by token straight into a {@link Writer}, so a response
+ * does not have to be built up as {@link JSONObject}s and turned into one
+ * string before it is sent.
+ *
+ * Commas and colons are placed by the writer; it does not check that the
+ * calls make a well formed document.
+ *
+ * Output goes through a small buffer, the caller flushes the writer once the
+ * document is written. While a {@link #mark()} is set, what was written since
+ * the mark is held back in it, so that {@link #reset()} can take it back.
+ */
+public class JsonWriter {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Writer out;
+
+    private char[] buf = new char[BUFFER_SIZE];
+    private int count;
+
+    // what JSONObject and JSONArray serialize themselves into
+    private final Writer sink = new Writer() {
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            JsonWriter.this.append(cbuf, off, len);
+        }
+
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+            JsonWriter.this.append(str, off, len);
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            JsonWriter.this.append((char) c);
+        }
+
+        @Override
+        public void flush() {}
+
+        @Override
+        public void close() {}
+    };
+
+    // per open object or array: whether it already holds a member
+    private boolean[] scopes = new boolean[8];
+    private int depth;
+    private boolean afterName;
+
+    // the buffer position and scope state at the mark, markPos < 0 when unset
+    private int markPos = -1;
+    private boolean[] markScopes;
+    private int markDepth;
+    private boolean markAfterName;
+
+    public JsonWriter(Writer out) {
+        this.out = out;
+    }
+
+    public JsonWriter beginObject() throws IOException {
+        beforeValue();
+        append('{');
+        push();
+        return this;
+    }
+
+    public JsonWriter endObject() throws IOException {
+        depth--;
+        append('}');
+        return this;
+    }
+
+    public JsonWriter beginArray() throws IOException {
+        beforeValue();
+        append('[');
+        push();
+        return this;
+    }
+
+    public JsonWriter endArray() throws IOException {
+        depth--;
+        append(']');
+        return this;
+    }
+
+    public JsonWriter name(String name) throws IOException {
+        separate();
+        JSONObject.quote(name, sink);
+        append(':');
+        afterName = true;
+        return this;
+    }
+
+    /**
+     * Writes a member the way {@link JSONObject#put(String, Object)} would
+     * keep it: a {@code null} value leaves the member out, use
+     * {@link JSONObject#NULL} to write an explicit null.
+     */
+    public JsonWriter field(String name, Object value) throws IOException {
+        if (value == null) return this;
+        return name(name).value(value);
+    }
+
+    public JsonWriter field(String name, long value) throws IOException {
+        return name(name).value(value);
+    }
+
+    public JsonWriter nullValue() throws IOException {
+        beforeValue();
+        append("null");
+        return this;
+    }
+
+    public JsonWriter value(String value) throws IOException {
+        if (value == null) return nullValue();
+        beforeValue();
+        JSONObject.quote(value, sink);
+        return this;
+    }
+
+    public JsonWriter value(long value) throws IOException {
+        beforeValue();
+        append(Long.toString(value));
+        return this;
+    }
+
+    public JsonWriter value(boolean value) throws IOException {
+        beforeValue();
+        append(value ? "true" : "false");
+        return this;
+    }
+
+    /**
+     * Writes any value {@link JSONObject} accepts; {@link JsonWritable}s write
+     * themselves and json trees are streamed out as they are.
+     */
+    public JsonWriter value(Object value) throws IOException {
+        if (JSONObject.NULL.equals(value)) {
+            return nullValue();
+        } else if (value instanceof JsonWritable) {
+            ((JsonWritable) value).writeJson(this);
+        } else if (value instanceof String) {
+            return value((String) value);
+        } else if (value instanceof JSONObject) {
+            beforeValue();
+            ((JSONObject) value).write(sink);
+        } else if (value instanceof JSONArray) {
+            beforeValue();
+            ((JSONArray) value).write(sink);
+        } else {
+            beforeValue();
+            append(JSONObject.valueToString(value));
+        }
+        return this;
+    }
+
+    /**
+     * Holds back everything written from here on until {@link #reset()} or
+     * {@link #clearMark()}. A new mark replaces the previous one.
+     */
+    public void mark() {
+        markPos = count;
+        markScopes = Arrays.copyOf(scopes, depth);
+        markDepth = depth;
+        markAfterName = afterName;
+    }
+
+    /**
+     * Drops everything written since the mark, as if it never was, and
+     * clears the mark.
+     */
+    public void reset() {
+        if (markPos < 0) {
+            throw new IllegalStateException("no mark set");
+        }
+        count = markPos;
+        // scopes only ever grows, it still has room for the marked ones
+        System.arraycopy(markScopes, 0, scopes, 0, markDepth);
+        depth = markDepth;
+        afterName = markAfterName;
+        clearMark();
+    }
+
+    /**
+     * Lets what was written since the mark go out.
+     */
+    public void clearMark() {
+        markPos = -1;
+        markScopes = null;
+    }
+
+    /**
+     * Writes out everything up to the mark, or all of it if no mark is set.
+     */
+    public void flush() throws IOException {
+        drain();
+        out.flush();
+    }
+
+    private void append(char c) throws IOException {
+        if (count == buf.length) {
+            makeRoom(1);
+        }
+        buf[count++] = c;
+    }
+
+    private void append(String str) throws IOException {
+        append(str, 0, str.length());
+    }
+
+    private void append(String str, int off, int len) throws IOException {
+        if (count + len > buf.length) {
+            makeRoom(len);
+        }
+        str.getChars(off, off + len, buf, count);
+        count += len;
+    }
+
+    private void append(char[] cbuf, int off, int len) throws IOException {
+        if (count + len > buf.length) {
+            makeRoom(len);
+        }
+        System.arraycopy(cbuf, off, buf, count, len);
+        count += len;
+    }
+
+    private void makeRoom(int len) throws IOException {
+        drain();
+        if (count + len > buf.length) {
+            // only grows past its size for what a mark holds back
+            buf = Arrays.copyOf(buf, Math.max(buf.length * 2, count + len));
+        }
+    }
+
+    // writes out what is not held back by the mark
+    private void drain() throws IOException {
+        int n = markPos < 0 ? count : markPos;
+        if (n == 0) {
+            return;
+        }
+        out.write(buf, 0, n);
+        System.arraycopy(buf, n, buf, 0, count - n);
+        count -= n;
+        if (markPos >= 0) {
+            markPos = 0;
+        }
+    }
+
+    private void push() {
+        if (depth == scopes.length) {
+            scopes = Arrays.copyOf(scopes, depth * 2);
+        }
+        scopes[depth++] = false;
+    }
+
+    private void separate() throws IOException {
+        if (depth > 0) {
+            if (scopes[depth - 1]) {
+                append(',');
+            }
+            scopes[depth - 1] = true;
+        }
+    }
+
+    private void beforeValue() throws IOException {
+        if (afterName) {
+            afterName = false;
+        } else {
+            separate();
+        }
+    }
+}
@@ -10,6 +10,7 @@ import org.slf4j.Logger;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public class RpcMethods {
 
@@ -17,6 +18,7 @@ public class RpcMethods {
     private ApiWeb3Aion api;
     private final Map<String, Map<String, RpcMethod>> groupMap;
     private Map<String, RpcMethod> enabledEndpoints;
+    private Map<String, RpcSessionMethod> sessionEndpoints;
 
     public RpcMethods(List<String> enabledGroups) {
         api = new ApiWeb3Aion(AionImpl.inst());
@@ -36,12 +38,31 @@ public class RpcMethods {
         );
 
         enabledEndpoints = composite(enabledGroups);
+
+        // subscriptions come with the eth group
+        sessionEndpoints = enabledGroups.stream().anyMatch("eth"::equalsIgnoreCase) ? ethSession : Map.of();
     }
 
     public RpcMethod get(String name) {
         return enabledEndpoints.get(name);
     }
 
+    public RpcSessionMethod getSessionMethod(String name) {
+        return sessionEndpoints.get(name);
+    }
+
+    /**
+     * Whether the call changes what later calls see (an unlocked account, a
+     * sent tx, a filter), so a batch has to run it in request order.
+     */
+    public static boolean isOrdered(String name) {
+        return name != null && (name.startsWith("personal_") || name.startsWith("eth_send") || ordered.contains(name));
+    }
+
+    public void sessionClosed(RpcSession session) {
+        api.unsubscribeAll(session);
+    }
+
     public void shutdown() {
         api.shutdown();
     }
@@ -68,11 +89,39 @@ public class RpcMethods {
         return composite;
     }
 
+    // the calls besides personal_* and eth_send* that a batch keeps in request order
+    private static final Set<String> ordered = Set.of(
+            "eth_sign",
+            "eth_submitHashrate",
+            "submitblock",
+            "eth_newFilter",
+            "eth_newBlockFilter",
+            "eth_newPendingTransactionFilter",
+            "eth_uninstallFilter",
+            "eth_getFilterChanges",
+            "eth_getFilterLogs",
+            "eth_subscribe",
+            "eth_unsubscribe"
+    );
+
     // jdk8 lambdas infer interface method, making our constant declaration pretty.
     public interface RpcMethod {
         RpcMsg call(Object params);
     }
 
+    // methods that need the connection the call came in on; session is null for plain http
+    public interface RpcSessionMethod {
+        RpcMsg call(Object params, RpcSession session);
+    }
+
+    /**
+     * eth pub/sub
+     */
+    private final Map<String, RpcSessionMethod> ethSession = Map.ofEntries(
+            Map.entry("eth_subscribe", (params, session) -> api.eth_subscribe(params, session)),
+            Map.entry("eth_unsubscribe", (params, session) -> api.eth_unsubscribe(params, session))
+    );
+
     /**
      * ops
      */
@@ -80,6 +129,7 @@ public class RpcMethods {
             Map.entry("ops_getAccountState", (params) -> api.ops_getAccountState(params)),
             Map.entry("ops_getChainHeadViewBestBlock", (params) -> api.ops_getChainHeadViewBestBlock()),
             Map.entry("ops_getChainHeadView", (params) -> api.ops_getChainHeadView()),
+            Map.entry("ops_getApiMetrics", (params) -> api.ops_getApiMetrics()),
             Map.entry("eth_getBalance", (params) -> api.eth_getBalance(params)),
             Map.entry("eth_sendRawTransaction", (params) -> api.eth_sendRawTransaction(params)),
             Map.entry("eth_getBlockByNumber", (params) -> api.eth_getBlockByNumber(params)),
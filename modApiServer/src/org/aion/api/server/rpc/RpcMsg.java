@@ -2,6 +2,8 @@ package org.aion.api.server.rpc;
 
 import org.json.JSONObject;
 
+import java.io.IOException;
+
 /**
  * @author ali sharif
  *
@@ -36,6 +38,10 @@ public class RpcMsg {
         return error;
     }
 
+    public Object getId() {
+        return id;
+    }
+
     public RpcMsg setId(Object id) {
         this.id = id;
         return this;
@@ -65,6 +71,30 @@ public class RpcMsg {
         return json;
     }
 
+    /**
+     * Writes the same message as {@link #toJson()}, without building it first.
+     */
+    public void write(JsonWriter writer) throws IOException {
+        writer.beginObject();
+        writer.name("jsonrpc").value("2.0");
+        writer.name("id").value(this.id);
+
+        if (this.result == null) {
+            RpcError e = this.error;
+            if (e == null)
+                e = RpcError.INTERNAL_ERROR;
+
+            writer.name("error").beginObject();
+            writer.field("code", e.getCode());
+            writer.field("message", e.getMessage());
+            writer.field("data", this.errorData);
+            writer.endObject();
+        } else {
+            writer.name("result").value(this.result);
+        }
+        writer.endObject();
+    }
+
     @Override
     public String toString() {
         return this.toJson().toString();
@@ -1,12 +1,26 @@
 package org.aion.api.server.rpc;
 
+import org.aion.api.server.metrics.ApiMetrics;
+import org.aion.api.server.metrics.MethodMetrics;
 import org.aion.log.AionLoggerFactory;
 import org.aion.log.LogEnum;
 import org.json.JSONArray;
 import org.json.JSONObject;
 import org.slf4j.Logger;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
 
 public class RpcProcessor {
 
@@ -14,40 +28,78 @@ public class RpcProcessor {
 
     RpcMethods apiHolder;
 
+    // the calls of a batch run on the receiving thread plus at most (batchThreads - 1) of these
+    private final int batchThreads;
+    private final ExecutorService batchWorkers;
+
     public RpcProcessor(List<String> enabled) {
+        this(enabled, 1);
+    }
+
+    public RpcProcessor(List<String> enabled, int batchThreads) {
         this.apiHolder = new RpcMethods(enabled);
+        this.batchThreads = Math.max(batchThreads, 1);
+        if (this.batchThreads > 1) {
+            // no queue: a call is only handed off when a worker is idle, otherwise the receiving thread keeps it
+            this.batchWorkers = new ThreadPoolExecutor(
+                    this.batchThreads - 1,
+                    this.batchThreads - 1,
+                    1,
+                    TimeUnit.MINUTES,
+                    new SynchronousQueue<>(),
+                    new RpcThreadFactory("rpc-batch-"));
+        } else {
+            this.batchWorkers = null;
+        }
     }
 
     public String process(String requestBody) {
-        String response = composeRpcResponse(new RpcMsg(null, RpcError.INVALID_REQUEST).toString());
-
+        StringWriter out = new StringWriter();
         try {
-            if (requestBody != null) {
-                char firstChar = requestBody.charAt(0);
-                if (firstChar == '{')
-                    response = handleSingle(requestBody);
-                else if (firstChar == '[')
-                    response = handleBatch(requestBody);
-            }
+            process(requestBody, out);
         } catch (Exception e) {
-            LOG.debug("<rpc-server - failed to process rpc request body>", e);
+            LOG.debug("<rpc-server - failed to write rpc response>", e);
+            return new RpcMsg(null, RpcError.INTERNAL_ERROR).toString();
         }
+        return out.toString();
+    }
 
-        return response;
+    /**
+     * Writes the response to the request body into {@code out}. The request is
+     * handled before anything is written, an exception thrown from here came
+     * from writing the response and leaves {@code out} holding a partial one.
+     */
+    public void process(String requestBody, Writer out) throws IOException {
+        process(requestBody, out, null);
     }
 
-    private String composeRpcResponse(String _respBody) {
-        String respBody;
-        if (_respBody == null) {
-            respBody = new RpcMsg(null, RpcError.INTERNAL_ERROR).toString();
+    /**
+     * As {@link #process(String, Writer)}, for a request that came in on a
+     * connection that stays open; the session is what eth_subscribe pushes
+     * notifications to.
+     */
+    public void process(String requestBody, Writer out, RpcSession session) throws IOException {
+        JsonWriter writer = new JsonWriter(out);
+        char firstChar = (requestBody == null || requestBody.isEmpty()) ? 0 : requestBody.charAt(0);
+        if (firstChar == '{') {
+            write(writer, handleSingle(requestBody, session));
+        } else if (firstChar == '[') {
+            handleBatch(requestBody, session, writer);
         } else {
-            respBody = _respBody;
+            LOG.debug("<rpc-server - failed to process rpc request body>");
+            new RpcMsg(null, RpcError.INVALID_REQUEST).write(writer);
         }
+        writer.flush();
+    }
 
-        return respBody;
+    /**
+     * Drops what the session subscribed to, once its connection is closed.
+     */
+    public void sessionClosed(RpcSession session) {
+        apiHolder.sessionClosed(session);
     }
 
-    private JSONObject processObject(JSONObject body) {
+    private RpcMsg processObject(JSONObject body, RpcSession session) {
         try {
             String method;
             Object params;
@@ -62,13 +114,14 @@ public class RpcProcessor {
                 params = body.opt("params");
             } catch (Exception e) {
                 LOG.debug("<rpc-server - invalid rpc request [0]>", e);
-                return new RpcMsg(null, RpcError.INVALID_REQUEST).toJson();
+                return new RpcMsg(null, RpcError.INVALID_REQUEST);
             }
 
             RpcMethods.RpcMethod rpc = apiHolder.get(method);
-            if (rpc == null) {
+            RpcMethods.RpcSessionMethod sessionRpc = rpc == null ? apiHolder.getSessionMethod(method) : null;
+            if (rpc == null && sessionRpc == null) {
                 LOG.debug("rpc-server - invalid method: {} [1]", method);
-                return new RpcMsg(null, RpcError.METHOD_NOT_FOUND).setId(id).toJson();
+                return new RpcMsg(null, RpcError.METHOD_NOT_FOUND).setId(id);
             }
 
             try {
@@ -77,72 +130,167 @@ public class RpcProcessor {
                 else
                     LOG.debug("<request mth=[{}] params={}>", method);
                 
-                RpcMsg response = rpc.call(params);
-                return response.setId(id).toJson();
+                MethodMetrics metrics = ApiMetrics.rpc().method(method);
+                long start = metrics.begin();
+                RpcMsg response = null;
+                try {
+                    response = rpc != null ? rpc.call(params) : sessionRpc.call(params, session);
+                } finally {
+                    metrics.end(start, response == null || response.getError() != null);
+                }
+                return response.setId(id);
             } catch (Exception e) {
                 LOG.debug("<rpc-server - internal error [2]>", e);
-                return new RpcMsg(null, RpcError.INTERNAL_ERROR).setId(id).toJson();
+                return new RpcMsg(null, RpcError.INTERNAL_ERROR).setId(id);
             }
         } catch (Exception e) {
             LOG.debug("<rpc-server - internal error [3]>", e);
         }
 
-        return new RpcMsg(null, RpcError.INTERNAL_ERROR).toJson();
+        return new RpcMsg(null, RpcError.INTERNAL_ERROR);
     }
 
     // implementing http://www.jsonrpc.org/specification#batch
-    private String handleBatch(String _reqBody) {
+    private void handleBatch(String _reqBody, RpcSession session, JsonWriter writer) throws IOException {
+        JSONArray reqBodies;
         try {
-            JSONArray reqBodies;
-            try {
-                reqBodies = new JSONArray(_reqBody);
-                if (reqBodies.length() < 1) throw new Exception();
-            } catch (Exception e) {
-                // rpc call Batch, invalid JSON
-                // rpc call with an empty Array
-                LOG.debug("<rpc-server - rpc call parse error [4]>", e);
-                return composeRpcResponse(new RpcMsg(null, RpcError.PARSE_ERROR).toString());
+            reqBodies = new JSONArray(_reqBody);
+            if (reqBodies.length() < 1) throw new Exception();
+        } catch (Exception e) {
+            // rpc call Batch, invalid JSON
+            // rpc call with an empty Array
+            LOG.debug("<rpc-server - rpc call parse error [4]>", e);
+            new RpcMsg(null, RpcError.PARSE_ERROR).write(writer);
+            return;
+        }
+
+        RpcMsg[] respBodies = processBatch(reqBodies, session);
+
+        // the responses are written one by one, the batch is never held as one json array
+        writer.beginArray();
+        for (RpcMsg respBody : respBodies) {
+            write(writer, respBody);
+        }
+        writer.endArray();
+
+        if (LOG.isDebugEnabled())
+            LOG.debug("<rpc-server batch responses={}>", respBodies.length);
+    }
+
+    /**
+     * Runs the calls of the batch on this thread and on the batch workers that
+     * are idle, each picking the next unit not taken yet, and returns the
+     * responses in request order once all calls are done. The calls that have
+     * to stay in request order form a single unit run one after the other,
+     * every other call is a unit of its own.
+     */
+    private RpcMsg[] processBatch(JSONArray reqBodies, RpcSession session) {
+        int n = reqBodies.length();
+        RpcMsg[] respBodies = new RpcMsg[n];
+
+        List<int[]> units = new ArrayList<>();
+        int[] ordered = IntStream.range(0, n).filter(i -> RpcMethods.isOrdered(methodOf(reqBodies, i))).toArray();
+        if (ordered.length > 0) {
+            // first, it is likely the longest
+            units.add(ordered);
+        }
+        for (int i = 0; i < n; i++) {
+            if (!RpcMethods.isOrdered(methodOf(reqBodies, i))) {
+                units.add(new int[] {i});
             }
+        }
 
-            JSONArray respBodies = new JSONArray();
+        int m = units.size();
+        AtomicInteger next = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(m);
 
-            for (int i = 0, n = reqBodies.length(); i < n; i++) {
+        Runnable drain = () -> {
+            int u;
+            while ((u = next.getAndIncrement()) < m) {
                 try {
-                    JSONObject body = reqBodies.getJSONObject(i);
-                    respBodies.put(processObject(body));
-                } catch (Exception e) {
-                    LOG.debug("<rpc-server - invalid rpc request [5]>", e);
-                    respBodies.put(new RpcMsg(null, RpcError.INVALID_REQUEST).toJson());
+                    for (int i : units.get(u)) {
+                        respBodies[i] = processElement(reqBodies, i, session);
+                    }
+                } finally {
+                    done.countDown();
                 }
             }
+        };
+
+        int helpers = batchWorkers == null ? 0 : Math.min(batchThreads, m) - 1;
+        for (int h = 0; h < helpers; h++) {
+            try {
+                batchWorkers.execute(drain);
+            } catch (RejectedExecutionException e) {
+                // all workers busy (or shut down), the rest runs here
+                break;
+            }
+        }
+        drain.run();
 
-            String respBody = respBodies.toString();
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            LOG.debug("<rpc-server - interrupted waiting for batch calls>", e);
+            Thread.currentThread().interrupt();
+        }
 
-            if (LOG.isDebugEnabled())
-                LOG.debug("<rpc-server response={}>", respBody);
+        for (int i = 0; i < n; i++) {
+            if (respBodies[i] == null) {
+                respBodies[i] = new RpcMsg(null, RpcError.INTERNAL_ERROR);
+            }
+        }
+        return respBodies;
+    }
 
-            return composeRpcResponse(respBody);
+    private static String methodOf(JSONArray reqBodies, int i) {
+        JSONObject body = reqBodies.optJSONObject(i);
+        return body == null ? null : body.optString("method", null);
+    }
 
+    private RpcMsg processElement(JSONArray reqBodies, int i, RpcSession session) {
+        try {
+            JSONObject body = reqBodies.getJSONObject(i);
+            return processObject(body, session);
         } catch (Exception e) {
-            LOG.debug("<rpc-server - internal error [6]>", e);
+            LOG.debug("<rpc-server - invalid rpc request [5]>", e);
+            return new RpcMsg(null, RpcError.INVALID_REQUEST);
         }
+    }
 
-        return composeRpcResponse(new RpcMsg(null, RpcError.INTERNAL_ERROR).toString());
+    /**
+     * Writes the response behind a mark, so a result that fails to serialize
+     * is taken back and turns into an error for its call only instead of
+     * breaking the output the other responses of the batch go to.
+     */
+    private void write(JsonWriter writer, RpcMsg response) throws IOException {
+        writer.mark();
+        try {
+            response.write(writer);
+            writer.clearMark();
+        } catch (Exception e) {
+            LOG.debug("<rpc-server - failed to write rpc response [6]>", e);
+            writer.reset();
+            new RpcMsg(null, RpcError.INTERNAL_ERROR).setId(response.getId()).write(writer);
+        }
     }
 
-    private String handleSingle(String _reqBody) {
+    private RpcMsg handleSingle(String _reqBody, RpcSession session) {
         try {
             JSONObject obj = new JSONObject(_reqBody);
-            return composeRpcResponse(processObject(obj).toString());
+            return processObject(obj, session);
         } catch (Exception e) {
             // rpc call with invalid JSON
             LOG.debug("<rpc-server - rpc call parse error [7]>", e);
         }
 
-        return composeRpcResponse(new RpcMsg(null, RpcError.PARSE_ERROR).toString());
+        return new RpcMsg(null, RpcError.PARSE_ERROR);
     }
 
     public void shutdown() {
+        if (batchWorkers != null) {
+            batchWorkers.shutdownNow();
+        }
         apiHolder.shutdown();
     }
 }
@@ -0,0 +1,126 @@
+package org.aion.api.server.rpc;
+
+import org.json.JSONString;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Serialized results of rpc queries that can no longer change, keyed by method and
+ * normalized params. Least recently used entries are evicted to keep the serialized
+ * results within a byte budget.
+ *
+ * The caller decides what is immutable; every entry records the block it depends on, so a
+ * re-org can drop whatever was built on the blocks it replaced.
+ */
+public class RpcResponseCache {
+
+    private static final class Entry implements JSONString {
+        final String json;
+        final long blockNumber;
+
+        Entry(String json, long blockNumber) {
+            this.json = json;
+            this.blockNumber = blockNumber;
+        }
+
+        @Override
+        public String toJSONString() {
+            return json;
+        }
+    }
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(1024, 0.75f, true);
+    private final long maxBytes;
+    private long bytes;
+    private long epoch;
+
+    public RpcResponseCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @return the cached result, written out as is by {@link JsonWriter}, or null
+     */
+    public synchronized JSONString get(String key) {
+        return entries.get(key);
+    }
+
+    /**
+     * Changes on every invalidation; read it before the chain is queried and hand it to
+     * {@link #put} so a result raced by a re-org is not kept.
+     */
+    public synchronized long epoch() {
+        return epoch;
+    }
+
+    /**
+     * Serializes the result and keeps it under the key, unless entries were invalidated
+     * since the given epoch.
+     *
+     * @return the serialized result to send in place of the given one
+     */
+    public Object put(String key, long blockNumber, Object result, long epoch) {
+        StringWriter sw = new StringWriter();
+        try {
+            JsonWriter writer = new JsonWriter(sw);
+            writer.value(result);
+            writer.flush();
+        } catch (IOException e) {
+            return result;
+        }
+
+        Entry e = new Entry(sw.toString(), blockNumber);
+        long size = size(key, e);
+        if (size > maxBytes) {
+            return e;
+        }
+
+        synchronized (this) {
+            if (epoch != this.epoch) {
+                return e;
+            }
+
+            Entry prev = entries.put(key, e);
+            if (prev != null) {
+                bytes -= size(key, prev);
+            }
+            bytes += size;
+
+            Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+            while (bytes > maxBytes && it.hasNext()) {
+                Map.Entry<String, Entry> eldest = it.next();
+                bytes -= size(eldest.getKey(), eldest.getValue());
+                it.remove();
+            }
+        }
+        return e;
+    }
+
+    /**
+     * Drops the results that depend on the given block or any above it.
+     */
+    public synchronized void invalidateFrom(long blockNumber) {
+        epoch++;
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Entry> e = it.next();
+            if (e.getValue().blockNumber >= blockNumber) {
+                bytes -= size(e.getKey(), e.getValue());
+                it.remove();
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    // results are json, mostly hex, so a char is counted as a byte
+    private static long size(String key, Entry e) {
+        return key.length() + e.json.length();
+    }
+}
@@ -0,0 +1,22 @@
+package org.aion.api.server.rpc;
+
+/**
+ * A client connection that stays open between requests, so the server can
+ * push it messages of its own (eth_subscribe notifications).
+ */
+public interface RpcSession {
+
+    /**
+     * Queues a message for the client.
+     *
+     * @return false once the connection is closed or too far behind, the
+     *         message is then dropped and later ones will be too
+     */
+    boolean push(JsonWritable message);
+
+    /**
+     * @return false once the connection is closed, its subscriptions are
+     *         dropped then
+     */
+    boolean isOpen();
+}
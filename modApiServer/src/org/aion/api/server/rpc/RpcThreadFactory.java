@@ -8,10 +8,19 @@ import java.util.concurrent.atomic.AtomicInteger;
  */
 public class RpcThreadFactory implements ThreadFactory {
     private final AtomicInteger tnum = new AtomicInteger(1);
+    private final String prefix;
+
+    public RpcThreadFactory() {
+        this("rpc-worker-");
+    }
+
+    public RpcThreadFactory(String prefix) {
+        this.prefix = prefix;
+    }
 
     @Override
     public Thread newThread(Runnable r) {
-        Thread t = new Thread(r, "rpc-worker-" + tnum.getAndIncrement());
+        Thread t = new Thread(r, prefix + tnum.getAndIncrement());
         t.setPriority(Thread.MIN_PRIORITY);
         return t;
     }
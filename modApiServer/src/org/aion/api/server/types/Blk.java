@@ -24,6 +24,7 @@
 
 package org.aion.api.server.types;
 
+import org.aion.api.server.rpc.JsonWriter;
 import org.aion.base.util.ByteUtil;
 import org.aion.base.util.TypeConverter;
 import org.aion.zero.impl.types.AionBlock;
@@ -31,6 +32,7 @@ import org.aion.zero.types.AionTransaction;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
+import java.io.IOException;
 import java.math.BigInteger;
 import java.util.List;
 
@@ -85,7 +87,7 @@ public class Blk {
                 jsonTx.put("gasPrice", TypeConverter.toJsonHex(tx.getNrgPrice()));
                 jsonTx.put("nonce", ByteUtil.byteArrayToLong(tx.getNonce()));
                 jsonTx.put("from", TypeConverter.toJsonHex(tx.getFrom().toString()));
-                jsonTx.put("to", TypeConverter.toJsonHex(tx.getTo().toString()));
+                jsonTx.put("to", tx.getTo() == null ? null : TypeConverter.toJsonHex(tx.getTo().toString()));
                 jsonTx.put("timestamp", block.getTimestamp());
                 jsonTx.put("input", TypeConverter.toJsonHex(tx.getData()));
                 jsonTx.put("blockNumber", block.getNumber());
@@ -98,6 +100,74 @@ public class Blk {
         return obj;
     }
 
+    /**
+     * Writes the block json {@link #AionBlockToJson(AionBlock, BigInteger, boolean)}
+     * builds, with a {@code mainchain} member added when given.
+     */
+    public static void AionBlockToJson(JsonWriter w, AionBlock block, BigInteger totalDifficulty,
+                                       boolean fullTransaction, Boolean mainchain) throws IOException {
+        if (block == null) {
+            w.nullValue();
+            return;
+        }
+
+        w.beginObject();
+        w.field("number", block.getNumber());
+        w.field("hash", TypeConverter.toJsonHex(block.getHash()));
+        w.field("parentHash", TypeConverter.toJsonHex(block.getParentHash()));
+        w.field("logsBloom", TypeConverter.toJsonHex(block.getLogBloom()));
+        w.field("transactionsRoot", TypeConverter.toJsonHex(block.getTxTrieRoot()));
+        w.field("stateRoot", TypeConverter.toJsonHex(block.getStateRoot()));
+        w.field("receiptsRoot",
+                TypeConverter.toJsonHex(block.getReceiptsRoot() == null ? new byte[0] : block.getReceiptsRoot()));
+        w.field("difficulty", TypeConverter.toJsonHex(block.getDifficulty()));
+        w.field("totalDifficulty", TypeConverter.toJsonHex(totalDifficulty));
+
+        w.field("miner", TypeConverter.toJsonHex(block.getCoinbase().toString()));
+        w.field("timestamp", TypeConverter.toJsonHex(block.getTimestamp()));
+        w.field("nonce", TypeConverter.toJsonHex(block.getNonce()));
+        w.field("solution", TypeConverter.toJsonHex(block.getHeader().getSolution()));
+        w.field("gasUsed", TypeConverter.toJsonHex(block.getHeader().getEnergyConsumed()));
+        w.field("gasLimit", TypeConverter.toJsonHex(block.getHeader().getEnergyLimit()));
+        w.field("nrgUsed", TypeConverter.toJsonHex(block.getHeader().getEnergyConsumed()));
+        w.field("nrgLimit", TypeConverter.toJsonHex(block.getHeader().getEnergyLimit()));
+
+        w.field("extraData", TypeConverter.toJsonHex(block.getExtraData()));
+        w.field("size", new NumericalValue(block.getEncoded().length).toHexString());
+
+        w.name("transactions").beginArray();
+        List<AionTransaction> txs = block.getTransactionsList();
+        for (int i = 0; i < txs.size(); i++) {
+            AionTransaction tx = txs.get(i);
+            if (fullTransaction) {
+                w.beginObject();
+                w.field("contractAddress", (tx.getContractAddress() != null)? TypeConverter.toJsonHex(tx.getContractAddress().toString()):null);
+                w.field("hash", TypeConverter.toJsonHex(tx.getHash()));
+                w.field("transactionIndex", i);
+                w.field("value", TypeConverter.toJsonHex(tx.getValue()));
+                w.field("nrg", tx.getNrg());
+                w.field("nrgPrice", TypeConverter.toJsonHex(tx.getNrgPrice()));
+                w.field("gas", tx.getNrg());
+                w.field("gasPrice", TypeConverter.toJsonHex(tx.getNrgPrice()));
+                w.field("nonce", ByteUtil.byteArrayToLong(tx.getNonce()));
+                w.field("from", TypeConverter.toJsonHex(tx.getFrom().toString()));
+                w.field("to", tx.getTo() == null ? null : TypeConverter.toJsonHex(tx.getTo().toString()));
+                w.field("timestamp", block.getTimestamp());
+                w.field("input", TypeConverter.toJsonHex(tx.getData()));
+                w.field("blockNumber", block.getNumber());
+                w.endObject();
+            } else {
+                w.value(TypeConverter.toJsonHex(tx.getHash()));
+            }
+        }
+        w.endArray();
+
+        if (mainchain != null) {
+            w.field("mainchain", mainchain);
+        }
+        w.endObject();
+    }
+
     @SuppressWarnings("Duplicates")
     public static JSONObject AionBlockOnlyToJson(AionBlock block, BigInteger totalDifficulty) {
         if (block == null) return null;
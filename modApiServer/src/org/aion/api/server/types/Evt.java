@@ -24,11 +24,21 @@
 
 package org.aion.api.server.types;
 
+import org.aion.api.server.rpc.JsonWritable;
+import org.aion.api.server.rpc.JsonWriter;
+
+import java.io.IOException;
+
 import static org.aion.api.server.types.Fltr.Type;
 
-public abstract class Evt {
+public abstract class Evt implements JsonWritable {
     
     public abstract Type getType();
     
     public abstract Object toJSON();
+
+    @Override
+    public void writeJson(JsonWriter writer) throws IOException {
+        writer.value(toJSON());
+    }
 }
\ No newline at end of file
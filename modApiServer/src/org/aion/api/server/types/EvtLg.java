@@ -24,11 +24,14 @@
 
 package org.aion.api.server.types;
 
+import org.aion.api.server.rpc.JsonWriter;
 import org.aion.api.server.types.Fltr.Type;
 import org.aion.base.util.TypeConverter;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
+import java.io.IOException;
+
 public class EvtLg extends Evt {
     
     private final TxRecptLg el;
@@ -58,4 +61,23 @@ public class EvtLg extends Evt {
 
         return obj;
     }
+
+    @Override
+    public void writeJson(JsonWriter writer) throws IOException {
+        writer.beginObject();
+        writer.field("removed", this.el.removed);
+        writer.field("logIndex", this.el.logIndex);
+        writer.field("transactionIndex", this.el.transactionIndex);
+        writer.field("transactionHash", this.el.transactionHash);
+        writer.field("blockHash", this.el.blockHash);
+        writer.field("blockNumber", this.el.blockNumber);
+        writer.field("address", this.el.address);
+        writer.field("data", this.el.data);
+        writer.name("topics").beginArray();
+        for (String topic : this.el.topics) {
+            writer.value(topic);
+        }
+        writer.endArray();
+        writer.endObject();
+    }
 }
\ No newline at end of file
@@ -37,6 +37,7 @@ import org.aion.zero.impl.core.IAionBlockchain;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * @author chris
@@ -49,8 +50,25 @@ public final class FltrLg extends Fltr {
     private byte[][] contractAddresses = new byte[0][];
     private Bloom[][] filterBlooms;
 
+    // when set, matching events are handed over as they come instead of being queued for polling
+    private final Consumer<Evt> sink;
+
     public FltrLg() {
+        this(null);
+    }
+
+    public FltrLg(Consumer<Evt> sink) {
         super(Type.LOG);
+        this.sink = sink;
+    }
+
+    @Override
+    public void add(Evt evt) {
+        if (sink == null) {
+            super.add(evt);
+        } else {
+            sink.accept(evt);
+        }
     }
 
     public void setContractAddress(List<byte[]> address) {
@@ -143,6 +161,45 @@ public final class FltrLg extends Fltr {
         }
     }
 
+    /**
+     * The contract address and first topic a matching log must have, either
+     * one {@code null} when any goes; {@code null} when the filter accepts
+     * several of either or fixes neither.
+     */
+    public byte[][] getIndexTerm() {
+        if (contractAddresses.length > 1) return null;
+        byte[] address = contractAddresses.length == 1 ? contractAddresses[0] : null;
+
+        byte[] topic = null;
+        if (!topics.isEmpty() && topics.get(0) != null && topics.get(0).length > 0) {
+            if (topics.get(0).length > 1) return null;
+            topic = topics.get(0)[0];
+        }
+
+        if (address == null && topic == null) return null;
+        return new byte[][] {address, topic};
+    }
+
+    byte[][] getContractAddresses() {
+        return contractAddresses;
+    }
+
+    /**
+     * The alternatives for the first topic, empty when any goes.
+     */
+    byte[][] getFirstTopics() {
+        if (topics.isEmpty() || topics.get(0) == null) return new byte[0][];
+        return topics.get(0);
+    }
+
+    /**
+     * The filter as blooms, every group has to match at least one of its blooms.
+     */
+    public Bloom[][] getFilterBlooms() {
+        initBlooms();
+        return filterBlooms;
+    }
+
     public boolean matchBloom(Bloom blockBloom) {
         initBlooms();
         for (Bloom[] andBloom : filterBlooms) {
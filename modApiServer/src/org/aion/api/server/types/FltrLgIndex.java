@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ *     
+ ******************************************************************************/
+
+package org.aion.api.server.types;
+
+import org.aion.base.type.Address;
+import org.aion.base.type.ITransaction;
+import org.aion.base.util.ByteArrayWrapper;
+import org.aion.mcf.vm.types.Log;
+import org.aion.zero.impl.types.AionBlockSummary;
+import org.aion.zero.types.AionTxReceipt;
+import org.aion.zero.types.IAionBlock;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Routes the logs of a new block to the installed log filters.
+ *
+ * Filters naming contract addresses are keyed by those addresses, the others
+ * by the alternatives for their first topic; only filters fixing neither are
+ * tried against every log. A block is then walked once for all filters,
+ * instead of once per filter.
+ */
+// NOTE: only used by web3 api
+public final class FltrLgIndex {
+
+    private final Map<ByteArrayWrapper, Set<FltrLg>> byAddress = new HashMap<>();
+    private final Map<ByteArrayWrapper, Set<FltrLg>> byTopic = new HashMap<>();
+    private final Set<FltrLg> unkeyed = new HashSet<>();
+    private int size;
+
+    public synchronized void add(FltrLg filter) {
+        byte[][] addresses = filter.getContractAddresses();
+        byte[][] topics = filter.getFirstTopics();
+        if (addresses.length > 0) {
+            for (byte[] address : addresses) {
+                byAddress.computeIfAbsent(ByteArrayWrapper.wrap(address), k -> new HashSet<>()).add(filter);
+            }
+        } else if (topics.length > 0) {
+            for (byte[] topic : topics) {
+                byTopic.computeIfAbsent(ByteArrayWrapper.wrap(topic), k -> new HashSet<>()).add(filter);
+            }
+        } else {
+            unkeyed.add(filter);
+        }
+        size++;
+    }
+
+    public synchronized void remove(FltrLg filter) {
+        byte[][] addresses = filter.getContractAddresses();
+        byte[][] topics = filter.getFirstTopics();
+        boolean removed;
+        if (addresses.length > 0) {
+            removed = removeKeyed(byAddress, addresses, filter);
+        } else if (topics.length > 0) {
+            removed = removeKeyed(byTopic, topics, filter);
+        } else {
+            removed = unkeyed.remove(filter);
+        }
+        if (removed) {
+            size--;
+        }
+    }
+
+    private static boolean removeKeyed(Map<ByteArrayWrapper, Set<FltrLg>> index, byte[][] keys, FltrLg filter) {
+        boolean removed = false;
+        for (byte[] key : keys) {
+            ByteArrayWrapper k = ByteArrayWrapper.wrap(key);
+            Set<FltrLg> filters = index.get(k);
+            if (filters != null && filters.remove(filter)) {
+                removed = true;
+                if (filters.isEmpty()) {
+                    index.remove(k);
+                }
+            }
+        }
+        return removed;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Appends the logs of the block to the filters they match.
+     */
+    public synchronized void onBlock(AionBlockSummary bs) {
+        if (size == 0) return;
+
+        IAionBlock blk = bs.getBlock();
+        List<AionTxReceipt> receipts = bs.getReceipts();
+        for (int txIndex = 0; txIndex < receipts.size(); txIndex++) {
+            AionTxReceipt receipt = receipts.get(txIndex);
+            ITransaction tx = receipt.getTransaction();
+            Address to = tx.getTo();
+            byte[] toAddr = to == null ? null : to.toBytes();
+
+            List<Log> logs = receipt.getLogInfoList();
+            for (int logIndex = 0; logIndex < logs.size(); logIndex++) {
+                Log logInfo = logs.get(logIndex);
+                List<byte[]> logTopics = logInfo.getTopics();
+
+                // a filter sits in one of the three sets, and under one key of it
+                Set<FltrLg> byLogAddress = byAddress.getOrDefault(ByteArrayWrapper.wrap(logInfo.getAddress().toBytes()),
+                        Collections.emptySet());
+                Set<FltrLg> byLogTopic = logTopics.isEmpty() ? Collections.emptySet()
+                        : byTopic.getOrDefault(ByteArrayWrapper.wrap(logTopics.get(0)), Collections.emptySet());
+                if (byLogAddress.isEmpty() && byLogTopic.isEmpty() && unkeyed.isEmpty()) continue;
+
+                // one event shared by all matching filters, it is not changed once built
+                EvtLg evt = null;
+                for (Set<FltrLg> filters : Arrays.asList(byLogAddress, byLogTopic, unkeyed)) {
+                    for (FltrLg filter : filters) {
+                        if (filter.matchesContractAddress(toAddr) && filter.matchesExactly(logInfo)) {
+                            if (evt == null) {
+                                evt = new EvtLg(new TxRecptLg(logInfo, blk, txIndex, tx, logIndex, true));
+                            }
+                            filter.add(evt);
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
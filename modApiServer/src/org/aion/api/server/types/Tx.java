@@ -24,6 +24,7 @@
 
 package org.aion.api.server.types;
 
+import org.aion.api.server.rpc.JsonWriter;
 import org.aion.base.util.ByteUtil;
 import org.aion.base.util.TypeConverter;
 import org.aion.zero.impl.types.AionBlock;
@@ -32,6 +33,8 @@ import org.aion.zero.types.AionTransaction;
 import org.aion.zero.types.AionTxReceipt;
 import org.json.JSONObject;
 
+import java.io.IOException;
+
 /**
  * JSON representation of a transaction, with more information
  * TODO: one big hack atm to get this out the door. Refactor to make it more OOP
@@ -66,7 +69,7 @@ public class Tx {
         json.put("gasPrice", TypeConverter.toJsonHex(tx.getNrgPrice()));
         json.put("nonce", ByteUtil.byteArrayToLong(tx.getNonce()));
         json.put("from", TypeConverter.toJsonHex(tx.getFrom().toString()));
-        json.put("to", TypeConverter.toJsonHex(tx.getTo().toString()));
+        json.put("to", tx.getTo() == null ? null : TypeConverter.toJsonHex(tx.getTo().toString()));
         json.put("timestamp", b.getTimestamp());
         json.put("input", TypeConverter.toJsonHex(tx.getData()));
         json.put("blockNumber", TypeConverter.toJsonHex(b.getNumber()));
@@ -74,4 +77,33 @@ public class Tx {
 
         return json;
     }
+
+    /**
+     * Writes the transaction json {@link #AionTransactionToJSON(AionTransaction, AionBlock, int)}
+     * builds.
+     */
+    public static void AionTransactionToJSON(JsonWriter w, AionTransaction tx, AionBlock b, int index) throws IOException {
+        if (tx == null) {
+            w.nullValue();
+            return;
+        }
+
+        w.beginObject();
+        w.field("contractAddress", (tx.getContractAddress() != null)? TypeConverter.toJsonHex(tx.getContractAddress().toString()):null);
+        w.field("hash", TypeConverter.toJsonHex(tx.getHash()));
+        w.field("transactionIndex", index);
+        w.field("value", TypeConverter.toJsonHex(tx.getValue()));
+        w.field("nrg", tx.getNrg());
+        w.field("nrgPrice", TypeConverter.toJsonHex(tx.getNrgPrice()));
+        w.field("gas", tx.getNrg());
+        w.field("gasPrice", TypeConverter.toJsonHex(tx.getNrgPrice()));
+        w.field("nonce", ByteUtil.byteArrayToLong(tx.getNonce()));
+        w.field("from", TypeConverter.toJsonHex(tx.getFrom().toString()));
+        w.field("to", tx.getTo() == null ? null : TypeConverter.toJsonHex(tx.getTo().toString()));
+        w.field("timestamp", b.getTimestamp());
+        w.field("input", TypeConverter.toJsonHex(tx.getData()));
+        w.field("blockNumber", TypeConverter.toJsonHex(b.getNumber()));
+        w.field("blockHash", TypeConverter.toJsonHex(b.getHash()));
+        w.endObject();
+    }
 }
\ No newline at end of file
@@ -24,6 +24,8 @@
 
 package org.aion.api.server.types;
 
+import org.aion.api.server.rpc.JsonWritable;
+import org.aion.api.server.rpc.JsonWriter;
 import org.aion.base.type.Address;
 import static org.aion.base.util.TypeConverter.toJsonHex;
 
@@ -41,13 +43,15 @@ import org.aion.mcf.types.AbstractTxReceipt;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
+import java.io.IOException;
+
 /**
  * 
  * @author chris
  * 
  */
 @SuppressWarnings("unused")
-public final class TxRecpt {
+public final class TxRecpt implements JsonWritable {
 
     /**
      * rpc api
@@ -228,4 +232,56 @@ public final class TxRecpt {
 
         return obj;
     }
+
+    /**
+     * Writes the object {@link #toJson()} builds.
+     */
+    @Override
+    public void writeJson(JsonWriter w) throws IOException {
+        w.beginObject();
+
+        w.field("transactionHash", transactionHash);
+        w.field("transactionIndex", transactionIndex == null ? JSONObject.NULL : toJsonHex(transactionIndex.longValue()));
+        w.field("blockHash", blockHash == null ? JSONObject.NULL : blockHash);
+        w.field("blockNumber", blockNumber == null ? JSONObject.NULL : toJsonHex(blockNumber));
+
+        Object cumulativeGasUsed = this.cumulativeNrgUsed == null ? JSONObject.NULL : toJsonHex(this.cumulativeNrgUsed);
+        w.field("cumulativeGasUsed", cumulativeGasUsed);
+        w.field("cumulativeNrgUsed", cumulativeGasUsed);
+
+        w.field("gasUsed", new NumericalValue(nrgUsed).toHexString());
+        w.field("nrgUsed", new NumericalValue(nrgUsed).toHexString());
+
+        w.field("gasPrice", new NumericalValue(gasPrice).toHexString());
+        w.field("nrgPrice", new NumericalValue(gasPrice).toHexString());
+
+        w.field("gasLimit", new NumericalValue(nrgLimit).toHexString());
+
+        w.field("contractAddress", contractAddress == null ? JSONObject.NULL : contractAddress);
+        w.field("from", from);
+        w.field("to", to == null ? JSONObject.NULL : to);
+        w.field("logsBloom", logsBloom == null ? JSONObject.NULL : logsBloom);
+        w.field("root", root == null ? JSONObject.NULL : root);
+        w.field("status", successful ? "0x1" : "0x0");
+
+        w.name("logs").beginArray();
+        for (int i = 0; i < logs.length; i++) {
+            w.beginObject();
+            w.field("address", logs[i].address);
+            w.field("data", logs[i].data);
+            w.field("blockNumber", blockNumber == null ? JSONObject.NULL : toJsonHex(blockNumber));
+            w.field("transactionIndex", transactionIndex == null ? JSONObject.NULL : toJsonHex(transactionIndex.longValue()));
+            w.field("logIndex", toJsonHex(i));
+
+            w.name("topics").beginArray();
+            for (String topic : logs[i].topics) {
+                w.value(topic);
+            }
+            w.endArray();
+            w.endObject();
+        }
+        w.endArray();
+
+        w.endObject();
+    }
 }
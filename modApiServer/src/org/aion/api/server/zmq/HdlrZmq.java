@@ -26,8 +26,11 @@ package org.aion.api.server.zmq;
 
 import org.aion.api.server.ApiUtil;
 import org.aion.api.server.IApiAion;
+import org.aion.api.server.metrics.ApiMetrics;
+import org.aion.api.server.metrics.MethodMetrics;
 import org.aion.api.server.pb.IHdlr;
 import org.aion.api.server.pb.Message;
+import org.aion.api.server.pb.RspBuffer;
 import org.aion.api.server.pb.TxWaitingMappingUpdate;
 import org.aion.api.server.types.Fltr;
 import org.aion.api.server.types.TxPendingStatus;
@@ -61,15 +64,36 @@ public class HdlrZmq implements IHdlr {
     }
 
     public byte[] process(byte[] request, byte[] socketId) {
+        RspBuffer out = new RspBuffer(0);
+        process(request, socketId, out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Processes a request into the caller's buffer, which is reused for its next request.
+     */
+    public void process(byte[] request, byte[] socketId, RspBuffer out) {
+        MethodMetrics metrics = ApiMetrics.zmq().method(functionName(request));
+        long start = metrics.begin();
         try {
-            return this.api.process(request, socketId);
+            this.api.process(request, socketId, out);
         } catch (Exception e) {
             LOGGER.error("zmq incoming msg process failed! " + e.getMessage());
-            return ApiUtil.toReturnHeader(this.api.getApiVersion(), Message.Retcode.r_fail_zmqHandler_exception_VALUE,
-                    ApiUtil.getApiMsgHash(request));
+            out.set(ApiUtil.toReturnHeader(this.api.getApiVersion(), Message.Retcode.r_fail_zmqHandler_exception_VALUE,
+                    ApiUtil.getApiMsgHash(request)));
+        } finally {
+            // the second byte of the return header is the Retcode, failures are <= r_fail
+            byte[] rsp = out.array();
+            metrics.end(start, rsp == null || out.length() < 2 || rsp[1] <= Message.Retcode.r_fail_VALUE);
         }
     }
 
+    private static String functionName(byte[] request) {
+        Message.Funcs f = (request == null || request.length < ApiUtil.HEADER_LEN) ? null
+                : Message.Funcs.forNumber(request[2]);
+        return f == null ? "unknown" : f.name();
+    }
+
     public void getTxWait() {
         TxWaitingMappingUpdate txWait = null;
         try {
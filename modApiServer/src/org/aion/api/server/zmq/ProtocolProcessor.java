@@ -26,6 +26,7 @@ package org.aion.api.server.zmq;
 
 import org.aion.api.server.pb.IHdlr;
 import org.aion.api.server.pb.Message;
+import org.aion.api.server.pb.RspBuffer;
 import org.aion.api.server.types.EvtContract;
 import org.aion.api.server.types.Fltr;
 import org.aion.api.server.types.TxPendingStatus;
@@ -245,6 +246,9 @@ public class ProtocolProcessor implements Runnable {
         Socket sock = ctx.socket(ZMQ.DEALER);
         sock.connect(AION_ZMQ_WK_TH);
 
+        // responses are serialized into this buffer and sent from it, it is reused for every request
+        RspBuffer rsp = new RspBuffer();
+
         while (!shutDown.get()) {
             try {
                 byte[] socketId = sock.recv(0);
@@ -256,14 +260,22 @@ public class ProtocolProcessor implements Runnable {
                     if (LOG.isTraceEnabled()) {
                         LOG.trace("ProtocolProcessor.workerRun reqMsg: [{}]", Hex.toHexString(req));
                     }
-                    byte[] rsp = ((HdlrZmq) this.handler).process(req, socketId);
+                    ((HdlrZmq) this.handler).process(req, socketId, rsp);
+                    if (rsp.array() == null) {
+                        if (LOG.isErrorEnabled()) {
+                            LOG.error("ProtocolProcessor.workerRun null response for socketID [{}]",
+                                    Hex.toHexString(socketId));
+                        }
+                        continue;
+                    }
                     if (LOG.isTraceEnabled()) {
-                        LOG.trace("ProtocolProcessor.workerRun rspMsg: [{}]", Hex.toHexString(rsp));
+                        LOG.trace("ProtocolProcessor.workerRun rspMsg: [{}]",
+                                Hex.toHexString(rsp.array(), 0, rsp.length()));
                     }
 
                     try {
                         sock.send(socketId, ZMQ.SNDMORE);
-                        sock.send(rsp, ZMQ.PAIR);
+                        sock.send(rsp.array(), 0, rsp.length(), ZMQ.PAIR);
                     } catch (Exception e) {
                         if (LOG.isErrorEnabled()) {
                             LOG.error("ProtocolProcessor.workerRun sock.send exception: " + e.getMessage());
@@ -0,0 +1,464 @@
+/*******************************************************************************
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ *
+ ******************************************************************************/
+
+package org.aion.api.server.http;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Feeds {@link NioConnection} raw http requests and websocket frames over a
+ * loopback socket and checks what it answers and hands to the workers.
+ */
+public class NioConnectionTest {
+
+    // the handshake sample of RFC 6455
+    private static final String WS_KEY = "dGhlIHNhbXBsZSBub25jZQ==";
+    private static final String WS_ACCEPT = "s3pPLMBiTxaQ9kYGzzhZRbK+xOo=";
+    private static final byte[] MASK = {0x37, (byte) 0xfa, 0x21, 0x3d};
+
+    private Selector selector;
+    private ServerSocketChannel listener;
+    private SocketChannel client;
+    private SocketChannel accepted;
+
+    /**
+     * Keeps the calls instead of running them, the connection only parses.
+     */
+    private static class TestServer extends NioServer {
+        final List<Runnable> dispatched = new ArrayList<>();
+
+        TestServer(boolean corsEnabled) {
+            super("127.0.0.1", 0, corsEnabled, Collections.emptyList(), 1, 1);
+        }
+
+        @Override
+        boolean dispatch(Runnable task) {
+            dispatched.add(task);
+            return true;
+        }
+
+        @Override
+        void ready(NioConnection conn) {
+        }
+
+        @Override
+        void closed(NioConnection conn) {
+        }
+    }
+
+    @Before
+    public void setup() throws IOException {
+        selector = Selector.open();
+        listener = ServerSocketChannel.open();
+        listener.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        client = SocketChannel.open(listener.getLocalAddress());
+        client.configureBlocking(false);
+        accepted = listener.accept();
+        accepted.configureBlocking(false);
+    }
+
+    @After
+    public void teardown() throws IOException {
+        client.close();
+        accepted.close();
+        listener.close();
+        selector.close();
+    }
+
+    private NioConnection connect(TestServer server) throws IOException {
+        SelectionKey key = accepted.register(selector, SelectionKey.OP_READ);
+        return new NioConnection(server, accepted, key);
+    }
+
+    private void receive(NioConnection conn, byte[] data) throws IOException {
+        ByteBuffer buf = ByteBuffer.wrap(data);
+        while (buf.hasRemaining()) {
+            client.write(buf);
+        }
+        if (selector.select(1000) == 0) {
+            throw new IOException("nothing arrived");
+        }
+        do {
+            selector.selectedKeys().clear();
+            conn.onReadable();
+        } while (selector.selectNow() > 0);
+    }
+
+    private void receive(NioConnection conn, String data) throws IOException {
+        receive(conn, data.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    private byte[] sent(NioConnection conn) throws Exception {
+        conn.onWritable();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteBuffer buf = ByteBuffer.allocate(4096);
+        long deadline = System.currentTimeMillis() + 1000;
+        while (System.currentTimeMillis() < deadline) {
+            int n = client.read(buf);
+            if (n > 0) {
+                out.write(buf.array(), 0, n);
+                buf.clear();
+                deadline = System.currentTimeMillis() + 50;
+            } else if (n < 0) {
+                break;
+            } else {
+                Thread.sleep(5);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private String sentText(NioConnection conn) throws Exception {
+        return new String(sent(conn), StandardCharsets.ISO_8859_1);
+    }
+
+    private static String post(String body) {
+        return "POST / HTTP/1.1\r\n"
+                + "Host: 127.0.0.1:8545\r\n"
+                + "Content-Type: application/json\r\n"
+                + "Content-Length: " + body.length() + "\r\n"
+                + "\r\n"
+                + body;
+    }
+
+    private static String upgradeRequest(String origin) {
+        return "GET / HTTP/1.1\r\n"
+                + "Host: 127.0.0.1:8545\r\n"
+                + "Upgrade: websocket\r\n"
+                + "Connection: Upgrade\r\n"
+                + "Sec-WebSocket-Key: " + WS_KEY + "\r\n"
+                + "Sec-WebSocket-Version: 13\r\n"
+                + (origin == null ? "" : "Origin: " + origin + "\r\n")
+                + "\r\n";
+    }
+
+    private static byte[] frame(int b0, byte[] payload, byte[] mask) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(b0);
+        int maskBit = mask == null ? 0 : 0x80;
+        if (payload.length < 126) {
+            out.write(maskBit | payload.length);
+        } else if (payload.length < 65536) {
+            out.write(maskBit | 126);
+            out.write(payload.length >> 8);
+            out.write(payload.length);
+        } else {
+            out.write(maskBit | 127);
+            for (int i = 7; i >= 0; i--) {
+                out.write((int) ((long) payload.length >> (8 * i)));
+            }
+        }
+        if (mask != null) {
+            out.write(mask, 0, 4);
+            for (int i = 0; i < payload.length; i++) {
+                out.write(payload[i] ^ mask[i & 3]);
+            }
+        } else {
+            out.write(payload, 0, payload.length);
+        }
+        return out.toByteArray();
+    }
+
+    private NioConnection websocket(TestServer server) throws Exception {
+        NioConnection conn = connect(server);
+        receive(conn, upgradeRequest(null));
+        assertTrue(sentText(conn).startsWith("HTTP/1.1 101"));
+        return conn;
+    }
+
+    // -------------------------------------------------------------------------
+    // http
+
+    @Test
+    public void testRequestDispatched() throws Exception {
+        TestServer server = new TestServer(false);
+        NioConnection conn = connect(server);
+
+        // the pipelined second request waits for the first call to finish
+        receive(conn, post("{\"method\":\"ping\"}") + post("{\"method\":\"ping\"}"));
+        assertEquals(1, server.dispatched.size());
+        assertFalse(conn.isWebsocket());
+    }
+
+    @Test
+    public void testPartialRequestWaits() throws Exception {
+        TestServer server = new TestServer(false);
+        NioConnection conn = connect(server);
+
+        String request = post("{\"method\":\"ping\"}");
+        receive(conn, request.substring(0, request.length() - 5));
+        assertEquals(0, server.dispatched.size());
+
+        receive(conn, request.substring(request.length() - 5));
+        assertEquals(1, server.dispatched.size());
+    }
+
+    @Test
+    public void testBadRequestLine() throws Exception {
+        TestServer server = new TestServer(false);
+        NioConnection conn = connect(server);
+
+        receive(conn, "POST /\r\n\r\n");
+        assertTrue(sentText(conn).startsWith("HTTP/1.1 400 Bad Request\r\n"));
+        assertEquals(0, server.dispatched.size());
+    }
+
+    @Test
+    public void testChunkedBodyRejected() throws Exception {
+        TestServer server = new TestServer(false);
+        NioConnection conn = connect(server);
+
+        receive(conn, "POST / HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n");
+        assertTrue(sentText(conn).startsWith("HTTP/1.1 411 Length Required\r\n"));
+    }
+
+    @Test
+    public void testPayloadTooLarge() throws Exception {
+        TestServer server = new TestServer(false);
+        NioConnection conn = connect(server);
+
+        receive(conn, "POST / HTTP/1.1\r\nContent-Length: 20000000\r\n\r\n");
+        assertTrue(sentText(conn).startsWith("HTTP/1.1 413 Payload Too Large\r\n"));
+        assertEquals(0, server.dispatched.size());
+    }
+
+    @Test
+    public void testExpectContinue() throws Exception {
+        TestServer server = new TestServer(false);
+        NioConnection conn = connect(server);
+
+        receive(conn, "POST / HTTP/1.1\r\nContent-Length: 4\r\nExpect: 100-continue\r\n\r\n");
+        assertEquals("HTTP/1.1 100 Continue\r\n\r\n", sentText(conn));
+
+        receive(conn, "{}  ");
+        assertEquals(1, server.dispatched.size());
+    }
+
+    @Test
+    public void testCorsPreflight() throws Exception {
+        TestServer server = new TestServer(true);
+        NioConnection conn = connect(server);
+
+        receive(conn, "OPTIONS / HTTP/1.1\r\nHost: 127.0.0.1:8545\r\n\r\n");
+        String response = sentText(conn);
+        assertTrue(response.startsWith("HTTP/1.1 200 OK\r\n"));
+        assertTrue(response.contains("Access-Control-Allow-Origin: *\r\n"));
+        assertEquals(0, server.dispatched.size());
+    }
+
+    // -------------------------------------------------------------------------
+    // upgrade
+
+    @Test
+    public void testUpgrade() throws Exception {
+        TestServer server = new TestServer(false);
+        NioConnection conn = connect(server);
+
+        receive(conn, upgradeRequest(null));
+        String response = sentText(conn);
+        assertTrue(response.startsWith("HTTP/1.1 101 Switching Protocols\r\n"));
+        assertTrue(response.contains("Sec-WebSocket-Accept: " + WS_ACCEPT + "\r\n"));
+        assertTrue(conn.isWebsocket());
+    }
+
+    @Test
+    public void testUpgradeWrongVersion() throws Exception {
+        TestServer server = new TestServer(false);
+        NioConnection conn = connect(server);
+
+        receive(conn, upgradeRequest(null).replace("Version: 13", "Version: 8"));
+        assertTrue(sentText(conn).startsWith("HTTP/1.1 400 Bad Request\r\n"));
+        assertFalse(conn.isWebsocket());
+    }
+
+    @Test
+    public void testCrossOriginUpgradeRejected() throws Exception {
+        TestServer server = new TestServer(false);
+        NioConnection conn = connect(server);
+
+        receive(conn, upgradeRequest("http://example.com"));
+        assertTrue(sentText(conn).startsWith("HTTP/1.1 403 Forbidden\r\n"));
+        assertFalse(conn.isWebsocket());
+    }
+
+    @Test
+    public void testCrossOriginUpgradeWithCors() throws Exception {
+        TestServer server = new TestServer(true);
+        NioConnection conn = connect(server);
+
+        receive(conn, upgradeRequest("http://example.com"));
+        assertTrue(sentText(conn).startsWith("HTTP/1.1 101 Switching Protocols\r\n"));
+        assertTrue(conn.isWebsocket());
+    }
+
+    @Test
+    public void testSameOriginUpgrade() throws Exception {
+        TestServer server = new TestServer(false);
+        NioConnection conn = connect(server);
+
+        receive(conn, upgradeRequest("http://127.0.0.1:8545"));
+        assertTrue(sentText(conn).startsWith("HTTP/1.1 101 Switching Protocols\r\n"));
+        assertTrue(conn.isWebsocket());
+    }
+
+    @Test
+    public void testIsSameOrigin() {
+        assertTrue(NioConnection.isSameOrigin(null, "localhost:8545"));
+        assertTrue(NioConnection.isSameOrigin("http://localhost:8545", "localhost:8545"));
+        assertTrue(NioConnection.isSameOrigin("https://LOCALHOST:8545", "localhost:8545"));
+        assertFalse(NioConnection.isSameOrigin("http://localhost:8546", "localhost:8545"));
+        assertFalse(NioConnection.isSameOrigin("http://evil.localhost:8545", "localhost:8545"));
+        assertFalse(NioConnection.isSameOrigin("null", "localhost:8545"));
+        assertFalse(NioConnection.isSameOrigin("http://localhost:8545", null));
+    }
+
+    // -------------------------------------------------------------------------
+    // websocket
+
+    @Test
+    public void testTextFrameDispatched() throws Exception {
+        TestServer server = new TestServer(false);
+        NioConnection conn = websocket(server);
+
+        // the masked "Hello" of RFC 6455
+        receive(conn, new byte[] {(byte) 0x81, (byte) 0x85, 0x37, (byte) 0xfa, 0x21, 0x3d, 0x7f, (byte) 0x9f,
+                0x4d, 0x51, 0x58});
+        assertEquals(1, server.dispatched.size());
+    }
+
+    @Test
+    public void testPingUnmasked() throws Exception {
+        TestServer server = new TestServer(false);
+        NioConnection conn = websocket(server);
+
+        receive(conn, frame(0x89, "Hello".getBytes(StandardCharsets.UTF_8), MASK));
+        assertArrayEquals(new byte[] {(byte) 0x8a, 0x05, 'H', 'e', 'l', 'l', 'o'}, sent(conn));
+        assertEquals(0, server.dispatched.size());
+    }
+
+    @Test
+    public void testExtendedLength() throws Exception {
+        TestServer server = new TestServer(false);
+        NioConnection conn = websocket(server);
+
+        byte[] payload = new byte[300];
+        Arrays.fill(payload, (byte) 'a');
+        byte[] frame = frame(0x81, payload, MASK);
+        assertEquals(126, frame[1] & 0x7F);
+
+        // the frame only counts once its last byte is in
+        receive(conn, Arrays.copyOf(frame, frame.length - 1));
+        assertEquals(0, server.dispatched.size());
+        receive(conn, Arrays.copyOfRange(frame, frame.length - 1, frame.length));
+        assertEquals(1, server.dispatched.size());
+    }
+
+    @Test
+    public void testFragmentedMessage() throws Exception {
+        TestServer server = new TestServer(false);
+        NioConnection conn = websocket(server);
+
+        receive(conn, frame(0x01, "Hel".getBytes(StandardCharsets.UTF_8), MASK));
+        assertEquals(0, server.dispatched.size());
+
+        // a control frame may come between the fragments
+        receive(conn, frame(0x89, new byte[0], MASK));
+        assertArrayEquals(new byte[] {(byte) 0x8a, 0x00}, sent(conn));
+
+        receive(conn, frame(0x80, "lo".getBytes(StandardCharsets.UTF_8), MASK));
+        assertEquals(1, server.dispatched.size());
+    }
+
+    @Test
+    public void testUnmaskedFrameFails() throws Exception {
+        TestServer server = new TestServer(false);
+        NioConnection conn = websocket(server);
+
+        receive(conn, frame(0x81, "Hello".getBytes(StandardCharsets.UTF_8), null));
+        assertArrayEquals(new byte[] {(byte) 0x88, 0x02, 0x03, (byte) 0xEA}, sent(conn));
+        assertEquals(0, server.dispatched.size());
+    }
+
+    @Test
+    public void testReservedBitsFail() throws Exception {
+        TestServer server = new TestServer(false);
+        NioConnection conn = websocket(server);
+
+        receive(conn, frame(0xC1, "Hello".getBytes(StandardCharsets.UTF_8), MASK));
+        assertArrayEquals(new byte[] {(byte) 0x88, 0x02, 0x03, (byte) 0xEA}, sent(conn));
+    }
+
+    @Test
+    public void testContinuationWithoutStartFails() throws Exception {
+        TestServer server = new TestServer(false);
+        NioConnection conn = websocket(server);
+
+        receive(conn, frame(0x80, "lo".getBytes(StandardCharsets.UTF_8), MASK));
+        assertArrayEquals(new byte[] {(byte) 0x88, 0x02, 0x03, (byte) 0xEA}, sent(conn));
+        assertEquals(0, server.dispatched.size());
+    }
+
+    @Test
+    public void testFrameTooBig() throws Exception {
+        TestServer server = new TestServer(false);
+        NioConnection conn = websocket(server);
+
+        // a 2^40 byte frame is refused from its header alone
+        receive(conn, new byte[] {(byte) 0x81, (byte) 0xFF, 0, 0, 0x01, 0, 0, 0, 0, 0});
+        assertArrayEquals(new byte[] {(byte) 0x88, 0x02, 0x03, (byte) 0xF1}, sent(conn));
+    }
+
+    @Test
+    public void testCloseEchoed() throws Exception {
+        TestServer server = new TestServer(false);
+        NioConnection conn = websocket(server);
+
+        receive(conn, frame(0x88, new byte[] {0x03, (byte) 0xE8, 'b', 'y', 'e'}, MASK));
+        assertArrayEquals(new byte[] {(byte) 0x88, 0x02, 0x03, (byte) 0xE8}, sent(conn));
+        assertFalse(conn.isOpen());
+    }
+}
@@ -0,0 +1,83 @@
+/*******************************************************************************
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ *
+ ******************************************************************************/
+
+package org.aion.api.server.rpc;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+
+public class JsonWriterTest {
+
+    @Test
+    public void testResetDropsWhatFollowsTheMark() throws IOException {
+        StringWriter out = new StringWriter();
+        JsonWriter writer = new JsonWriter(out);
+
+        writer.beginArray();
+        writer.value(1);
+        writer.mark();
+        writer.beginObject().name("a").beginArray().value("x");
+        writer.reset();
+        writer.value(2);
+        writer.endArray();
+        writer.flush();
+
+        assertEquals("[1,2]", out.toString());
+    }
+
+    /**
+     * What a mark holds back is kept past the buffer size and only goes out
+     * once the mark is cleared.
+     */
+    @Test
+    public void testMarkHoldsBackPastBufferSize() throws IOException {
+        StringWriter out = new StringWriter();
+        JsonWriter writer = new JsonWriter(out);
+
+        char[] big = new char[20000];
+        Arrays.fill(big, 'a');
+        String value = new String(big);
+
+        writer.beginArray();
+        writer.value("first");
+        writer.mark();
+        writer.value(value);
+        writer.value(value);
+        assertEquals("[\"first\"", out.toString());
+
+        writer.reset();
+        writer.mark();
+        writer.value(value);
+        writer.clearMark();
+        writer.endArray();
+        writer.flush();
+
+        assertEquals("[\"first\",\"" + value + "\"]", out.toString());
+    }
+}
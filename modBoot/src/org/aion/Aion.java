@@ -26,6 +26,9 @@
 package org.aion;
 
 import org.aion.api.server.http.NanoServer;
+import org.aion.api.server.http.NioServer;
+import org.aion.api.server.http.RpcServer;
+import org.aion.api.server.metrics.TaskDumpApiMetrics;
 import org.aion.api.server.pb.ApiAion0;
 import org.aion.api.server.pb.IHdlr;
 import org.aion.api.server.zmq.HdlrZmq;
@@ -43,6 +46,7 @@ import org.aion.zero.impl.cli.Cli;
 import org.aion.zero.impl.config.CfgAion;
 import org.slf4j.Logger;
 
+import java.io.File;
 import java.util.ServiceLoader;
 
 import static org.aion.crypto.ECKeyFac.ECKeyType.ED25519;
@@ -120,18 +124,38 @@ public class Aion {
             zmqThread.start();
         }
 
-        NanoServer rpcServer = null;
+        RpcServer rpcServer = null;
         if(cfg.getApi().getRpc().getActive()) {
             CfgApiRpc rpcCfg =  cfg.getApi().getRpc();
-            rpcServer = new NanoServer(
-                    rpcCfg.getIp(),
-                    rpcCfg.getPort(),
-                    rpcCfg.getCorsEnabled(),
-                    rpcCfg.getEnabled(),
-                    rpcCfg.getMaxthread());
+            if (rpcCfg.isNioEnabled()) {
+                rpcServer = new NioServer(
+                        rpcCfg.getIp(),
+                        rpcCfg.getPort(),
+                        rpcCfg.getCorsEnabled(),
+                        rpcCfg.getEnabled(),
+                        rpcCfg.getMaxthread(),
+                        rpcCfg.getBatchThreads());
+            } else {
+                rpcServer = new NanoServer(
+                        rpcCfg.getIp(),
+                        rpcCfg.getPort(),
+                        rpcCfg.getCorsEnabled(),
+                        rpcCfg.getEnabled(),
+                        rpcCfg.getMaxthread(),
+                        rpcCfg.getBatchThreads());
+            }
             rpcServer.start();
         }
 
+        if (cfg.getReports().isEnabled() && (zmqThread != null || rpcServer != null)) {
+            File rpf = new File(cfg.getBasePath(), cfg.getReports().getPath());
+            rpf.mkdirs();
+            Thread apiReport = new Thread(new TaskDumpApiMetrics(cfg.getReports().getDumpInterval(),
+                    rpf.getAbsolutePath()), "api-report");
+            apiReport.setDaemon(true);
+            apiReport.start();
+        }
+
         /*
          * This is a hack, but used to let us pass zmqThread into thread
          * Shutdown hook for Ctrl+C
@@ -140,9 +164,9 @@ public class Aion {
             final Thread zmqThread;
             final IMineRunner miner;
             final ProtocolProcessor pp;
-            final NanoServer rpc;
+            final RpcServer rpc;
             
-            private ShutdownThreadHolder(Thread zmqThread, IMineRunner nm, ProtocolProcessor pp, NanoServer rpc) {
+            private ShutdownThreadHolder(Thread zmqThread, IMineRunner nm, ProtocolProcessor pp, RpcServer rpc) {
                 this.zmqThread = zmqThread;
                 this.miner = nm;
                 this.pp = pp;
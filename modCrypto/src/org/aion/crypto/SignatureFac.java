@@ -28,6 +28,12 @@ import org.aion.crypto.ecdsa.ECKeySecp256k1;
 import org.aion.crypto.ed25519.ECKeyEd25519;
 import org.aion.crypto.ed25519.Ed25519Signature;
 
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.stream.IntStream;
+
 /**
  * Signature factory.
  *
@@ -35,6 +41,24 @@ import org.aion.crypto.ed25519.Ed25519Signature;
  */
 public class SignatureFac {
 
+    /**
+     * Batches smaller than this are verified on the calling thread, the
+     * hand-off to the worker pool costs more than it saves.
+     */
+    private static final int BATCH_PARALLEL_MIN = 8;
+
+    /**
+     * Worker pool dedicated to signature verification so that large batches
+     * don't starve the common pool used elsewhere in the kernel.
+     */
+    private static final ForkJoinPool VERIFY_POOL = new ForkJoinPool(
+            Math.max(1, Runtime.getRuntime().availableProcessors()),
+            pool -> {
+                ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                t.setName("sig-verify-" + t.getPoolIndex());
+                return t;
+            }, null, false);
+
     /**
      * @param bytes
      * @return
@@ -79,4 +103,40 @@ public class SignatureFac {
                 throw new RuntimeException("ECKey type is not set!");
         }
     }
+
+    /**
+     * Verify a batch of signatures. libsodium exposes no ed25519 batch
+     * verification, so the signatures are checked independently on the
+     * verification worker pool; small batches stay on the calling thread.
+     *
+     * @param msgs messages for signing
+     * @param sigs the signatures, aligned with msgs
+     * @return the verification result of each signature, in input order
+     */
+    public static boolean[] verify(List<byte[]> msgs, List<ISignature> sigs) {
+        if (msgs.size() != sigs.size()) {
+            throw new IllegalArgumentException("message and signature count mismatch!");
+        }
+
+        int size = sigs.size();
+        boolean[] res = new boolean[size];
+        if (size < BATCH_PARALLEL_MIN) {
+            for (int i = 0; i < size; i++) {
+                res[i] = verify(msgs.get(i), sigs.get(i));
+            }
+            return res;
+        }
+
+        try {
+            VERIFY_POOL.submit(() -> IntStream.range(0, size).parallel()
+                    .forEach(i -> res[i] = verify(msgs.get(i), sigs.get(i)))).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new boolean[size];
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+            return new boolean[size];
+        }
+        return res;
+    }
 }
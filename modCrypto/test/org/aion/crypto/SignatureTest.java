@@ -39,6 +39,10 @@ import org.aion.crypto.ed25519.Ed25519Signature;
 import org.junit.AfterClass;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 public class SignatureTest {
@@ -72,6 +76,29 @@ public class SignatureTest {
         assertTrue(SignatureFac.verify(msgHash, SignatureFac.fromBytes(sig.toBytes())));
     }
 
+    @Test
+    public void testED25519BatchVerify() {
+        ECKeyFac.setType(ECKeyFac.ECKeyType.ED25519);
+
+        ECKey key = ECKeyFac.inst().create();
+
+        List<byte[]> msgs = new ArrayList<>();
+        List<ISignature> sigs = new ArrayList<>();
+        for (int i = 0; i < 32; i++) {
+            byte[] msgHash = HashUtil.h256(("test" + i).getBytes());
+            msgs.add(msgHash);
+            sigs.add(key.sign(msgHash));
+        }
+        // signature of another message
+        sigs.set(7, sigs.get(8));
+
+        boolean[] res = SignatureFac.verify(msgs, sigs);
+        assertEquals(32, res.length);
+        for (int i = 0; i < res.length; i++) {
+            assertEquals(i != 7, res[i]);
+        }
+    }
+
     @AfterClass
     public static void teardown() {
         ECKeyFac.setType(ECKeyFac.ECKeyType.ED25519);
@@ -75,6 +75,8 @@ public abstract class DatabaseFactory {
 
         public static final String WRITE_BUFFER_SIZE = "write_buffer_size";
         public static final String READ_BUFFER_SIZE = "read_buffer_size";
+
+        public static final String ENABLE_LOG_INDEX = "enable_log_index";
     }
 
     public static IByteArrayKeyValueDatabase connect(Properties info) {
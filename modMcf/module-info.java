@@ -7,6 +7,7 @@ module aion.mcf {
     requires java.xml;
     requires aion.rlp;
     requires aion.db.impl;
+    requires aion.txpool;
     requires slf4j.api;
     
 
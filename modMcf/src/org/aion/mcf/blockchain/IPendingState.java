@@ -30,6 +30,7 @@ import java.util.Map;
 import org.aion.base.db.IRepositoryCache;
 import org.aion.base.type.Address;
 import org.aion.base.type.ITransaction;
+import org.aion.txpool.ITxPool;
 
 public interface IPendingState<TX extends ITransaction> {
 
@@ -41,6 +42,9 @@ public interface IPendingState<TX extends ITransaction> {
 
     List<TX> getPendingTransactions();
 
+    // hands the pending txs to the visitor in the order of getPendingTransactions, without copying them
+    void streamPendingTransactions(ITxPool.TxVisitor<TX> visitor);
+
     BigInteger bestPendingStateNonce(Address addr);
 
     String getVersion();
@@ -47,4 +47,7 @@ public interface IPendingStateInternal<BLK extends IBlock<?, ?>, Tx extends ITra
     void DumpPool();
 
     void loadPendingTx();
+
+    // the pending tx whose hash starts with the 8 bytes (big endian) of shortId, or null
+    Tx getPendingTxByShortId(long shortId);
 }
@@ -49,7 +49,10 @@ public final class CfgApiRpc {
         this.enabled = new ArrayList<>(Arrays.asList("web3", "eth", "personal", "stratum"));
         this.corsEnabled = false;
         this.maxthread = 1;
+        this.batchThreads = 4;
         this.filtersEnabled = true;
+        this.nioEnabled = false;
+        this.responseCacheSize = 32;
     }
 
     private boolean active;
@@ -58,7 +61,10 @@ public final class CfgApiRpc {
     private List<String> enabled;
     private boolean corsEnabled;
     private int maxthread;
+    private int batchThreads;
     private boolean filtersEnabled;
+    private boolean nioEnabled;
+    private int responseCacheSize;
 
     public void fromXML(final XMLStreamReader sr) throws XMLStreamException {
         // get the attributes
@@ -101,6 +107,16 @@ public final class CfgApiRpc {
                             if (t > 0)
                                 this.maxthread = t;
                             break;
+                        case "batch-threads":
+                            int bt = 0;
+                            try {
+                                bt = Integer.parseInt(Cfg.readValue(sr));
+                            } catch (Exception e) {
+                                e.printStackTrace();
+                            }
+                            if (bt > 0)
+                                this.batchThreads = bt;
+                            break;
                         case "filters-enabled":
                             try {
                                 filtersEnabled = Boolean.parseBoolean(Cfg.readValue(sr));
@@ -109,6 +125,24 @@ public final class CfgApiRpc {
                                 e.printStackTrace();
                             }
                             break;
+                        case "nio-enabled":
+                            try {
+                                nioEnabled = Boolean.parseBoolean(Cfg.readValue(sr));
+                            } catch (Exception e) {
+                                System.out.println("failed to read config node: aion.api.rpc.nio-enabled; using preset: " + this.nioEnabled);
+                                e.printStackTrace();
+                            }
+                            break;
+                        case "response-cache-size":
+                            try {
+                                int size = Integer.parseInt(Cfg.readValue(sr));
+                                if (size >= 0)
+                                    this.responseCacheSize = size;
+                            } catch (Exception e) {
+                                System.out.println("failed to read config node: aion.api.rpc.response-cache-size; using preset: " + this.responseCacheSize);
+                                e.printStackTrace();
+                            }
+                            break;
                         default:
                             Cfg.skipElement(sr);
                             break;
@@ -160,6 +194,13 @@ public final class CfgApiRpc {
             xmlWriter.writeCharacters(this.maxthread + "");
             xmlWriter.writeEndElement();
 
+            xmlWriter.writeCharacters("\r\n\t\t\t");
+            xmlWriter.writeComment("max number of calls of one batch request run at the same time, 1 runs them one by one");
+            xmlWriter.writeCharacters("\r\n\t\t\t");
+            xmlWriter.writeStartElement("batch-threads");
+            xmlWriter.writeCharacters(this.batchThreads + "");
+            xmlWriter.writeEndElement();
+
             xmlWriter.writeCharacters("\r\n\t\t\t");
             xmlWriter.writeComment("enable web3 filters. some web3 clients depend on this and wont work as expected if turned off");
             xmlWriter.writeCharacters("\r\n\t\t\t");
@@ -167,6 +208,20 @@ public final class CfgApiRpc {
             xmlWriter.writeCharacters(String.valueOf(this.filtersEnabled));
             xmlWriter.writeEndElement();
 
+            xmlWriter.writeCharacters("\r\n\t\t\t");
+            xmlWriter.writeComment("boolean, serve rpc from a non-blocking http/1.1 (keep-alive) and websocket server; websocket clients can use eth_subscribe");
+            xmlWriter.writeCharacters("\r\n\t\t\t");
+            xmlWriter.writeStartElement("nio-enabled");
+            xmlWriter.writeCharacters(String.valueOf(this.nioEnabled));
+            xmlWriter.writeEndElement();
+
+            xmlWriter.writeCharacters("\r\n\t\t\t");
+            xmlWriter.writeComment("megabytes of serialized responses kept for queries on blocks that can no longer change, 0 disables");
+            xmlWriter.writeCharacters("\r\n\t\t\t");
+            xmlWriter.writeStartElement("response-cache-size");
+            xmlWriter.writeCharacters(this.responseCacheSize + "");
+            xmlWriter.writeEndElement();
+
             xmlWriter.writeCharacters("\r\n\t\t");
             xmlWriter.writeEndElement();
             xml = strWriter.toString();
@@ -197,7 +252,15 @@ public final class CfgApiRpc {
         return enabled;
     }
     public int getMaxthread() { return maxthread; }
+    public int getBatchThreads() { return batchThreads; }
     public boolean isFiltersEnabled() {
         return filtersEnabled;
     }
+    public boolean isNioEnabled() {
+        return nioEnabled;
+    }
+
+    public int getResponseCacheSize() {
+        return responseCacheSize;
+    }
 }
\ No newline at end of file
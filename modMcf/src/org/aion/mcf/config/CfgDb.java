@@ -69,6 +69,8 @@ public class CfgDb {
 
         // corresponds to DEFAULT_CACHE_SIZE
         this.cache_size = 128 * (int) Utils.MEGA_BYTE;
+
+        this.enable_log_index = false;
     }
 
     protected String path;
@@ -126,6 +128,12 @@ public class CfgDb {
      */
     private int cache_size;
 
+    /**
+     * Maintains the inverted index of the logs by contract address and topic,
+     * for the nodes serving log queries over the whole chain.
+     */
+    private boolean enable_log_index;
+
     public void fromXML(final XMLStreamReader sr) throws XMLStreamException {
         loop:
         while (sr.hasNext()) {
@@ -174,6 +182,9 @@ public class CfgDb {
                         case Props.DB_CACHE_SIZE:
                             this.cache_size = parseFileSizeSafe(Cfg.readValue(sr), this.cache_size);
                             break;
+                        case Props.ENABLE_LOG_INDEX:
+                            this.enable_log_index = Boolean.parseBoolean(Cfg.readValue(sr));
+                            break;
                         default:
                             Cfg.skipElement(sr);
                             break;
@@ -254,6 +265,11 @@ public class CfgDb {
             xmlWriter.writeCharacters(String.valueOf(DEFAULT_CACHE_SIZE));
             xmlWriter.writeEndElement();
 
+            xmlWriter.writeCharacters("\r\n\t\t");
+            xmlWriter.writeStartElement(Props.ENABLE_LOG_INDEX);
+            xmlWriter.writeCharacters(String.valueOf(this.isLogIndexEnabled()));
+            xmlWriter.writeEndElement();
+
             xmlWriter.writeCharacters("\r\n\t");
             xmlWriter.writeEndElement();
             xml = strWriter.toString();
@@ -323,6 +339,10 @@ public class CfgDb {
     public int getReadBufferSize() {
         return this.read_buffer_size;
     }
+
+    public boolean isLogIndexEnabled() {
+        return this.enable_log_index;
+    }
 }
 
 
@@ -46,6 +46,8 @@ public final class CfgSync {
 
     private int blocksQueueMax;
 
+    private int blocksQueueMemMax;
+
     private boolean showStatus;
 
     private static int BLOCKS_BACKWARD_MIN = 8;
@@ -53,6 +55,7 @@ public final class CfgSync {
     private static int BLOCKS_REQUEST_MAX = 96;
     private static int BLOCKS_RESPONSE_MAX = 96;
     private static int BLOCKS_QUEUE_MAX = 48;
+    private static int BLOCKS_QUEUE_MEM_MAX = 64;
 
     public CfgSync() {
         this.blocksBackwardMin = BLOCKS_BACKWARD_MIN;
@@ -62,6 +65,7 @@ public final class CfgSync {
         this.blocksResponseMax = BLOCKS_RESPONSE_MAX;
 
         this.blocksQueueMax = BLOCKS_QUEUE_MAX;
+        this.blocksQueueMemMax = BLOCKS_QUEUE_MEM_MAX;
 
         this.showStatus = false;
     }
@@ -89,6 +93,9 @@ public final class CfgSync {
                 case "blocks-queue-max":
                     this.blocksQueueMax = Integer.parseInt(Cfg.readValue(sr));
                     break;
+                case "blocks-queue-mem-max":
+                    this.blocksQueueMemMax = Integer.parseInt(Cfg.readValue(sr));
+                    break;
                 case "show-status":
                     this.showStatus = Boolean.parseBoolean(Cfg.readValue(sr));
                     break;
@@ -145,6 +152,12 @@ public final class CfgSync {
             xmlWriter.writeCharacters(BLOCKS_QUEUE_MAX + "");
             xmlWriter.writeEndElement();
 
+            // sub-element blocks-queue-mem-max
+            xmlWriter.writeCharacters("\r\n\t\t");
+            xmlWriter.writeStartElement("blocks-queue-mem-max");
+            xmlWriter.writeCharacters(BLOCKS_QUEUE_MEM_MAX + "");
+            xmlWriter.writeEndElement();
+
             // sub-element show-status
             xmlWriter.writeCharacters("\r\n\t\t");
             xmlWriter.writeStartElement("show-status");
@@ -186,6 +199,13 @@ public final class CfgSync {
         return this.blocksQueueMax;
     }
 
+    /**
+     * @return int memory budget of the downloaded blocks queue in MB
+     */
+    public int getBlocksQueueMemMax() {
+        return this.blocksQueueMemMax;
+    }
+
     public boolean getShowStatus() {
         return this.showStatus;
     }
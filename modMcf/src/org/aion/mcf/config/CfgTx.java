@@ -40,6 +40,7 @@ public class CfgTx {
         this.buffer = true;
         this.poolDump = false;
         this.poolBackup = false;
+        this.priceBump = 100;
     }
 
     private int cacheMax;
@@ -50,6 +51,9 @@ public class CfgTx {
 
     private boolean poolBackup;
 
+    // percent a same nonce tx has to raise the energy price by to replace the pool tx
+    private int priceBump;
+
     public void fromXML(final XMLStreamReader sr) throws XMLStreamException {
         loop:
         while (sr.hasNext()) {
@@ -75,6 +79,9 @@ public class CfgTx {
                     case "poolbackup":
                         this.poolBackup = Boolean.parseBoolean(Cfg.readValue(sr));
                         break;
+                case "pricebump":
+                    this.priceBump = Integer.parseInt(Cfg.readValue(sr));
+                    break;
                 default:
                     Cfg.skipElement(sr);
                     break;
@@ -130,6 +137,10 @@ public class CfgTx {
     public boolean getPoolBackup() {
         return poolBackup;
     }
+
+    public int getPriceBump() {
+        return priceBump;
+    }
 }
 
 
@@ -70,6 +70,8 @@ public abstract class AbstractRepository<BLK extends AbstractBlock<BH, ? extends
     protected static final String STORAGE_DB = "storage";
     protected static final String STATE_DB = "state";
     protected static final String PENDINGTX_DB = "pendingtx";
+    protected static final String BLOOMBITS_DB = "bloombits";
+    protected static final String LOGINDEX_DB = "logindex";
 
     // State trie.
     protected Trie worldState;
@@ -88,6 +90,8 @@ public abstract class AbstractRepository<BLK extends AbstractBlock<BH, ? extends
     protected IByteArrayKeyValueDatabase stateDatabase;
     protected IByteArrayKeyValueDatabase txPoolDatabase;
     protected IByteArrayKeyValueDatabase pendingTxCacheDatabase;
+    protected IByteArrayKeyValueDatabase bloomBitsDatabase;
+    protected IByteArrayKeyValueDatabase logIndexDatabase;
 
     protected Collection<IByteArrayKeyValueDatabase> databaseGroup;
 
@@ -220,6 +224,17 @@ public abstract class AbstractRepository<BLK extends AbstractBlock<BH, ? extends
             this.pendingTxCacheDatabase = connectAndOpen(sharedProps);
             databaseGroup.add(pendingTxCacheDatabase);
 
+            sharedProps.setProperty(Props.DB_NAME, BLOOMBITS_DB);
+            this.bloomBitsDatabase = connectAndOpen(sharedProps);
+            databaseGroup.add(bloomBitsDatabase);
+
+            // the log index is opt-in, a node that doesn't serve log queries skips its database
+            if (this.cfg.isLogIndexEnabled()) {
+                sharedProps.setProperty(Props.DB_NAME, LOGINDEX_DB);
+                this.logIndexDatabase = connectAndOpen(sharedProps);
+                databaseGroup.add(logIndexDatabase);
+            }
+
             // Setup the cache for transaction data source.
             this.detailsDS = new DetailsDataStore<>(detailsDatabase, storageDatabase, this.cfg);
             // disabling use of JournalPruneDataSource until functionality properly tested
@@ -39,6 +39,23 @@ public class Ctrl {
 
     public static final byte UNKNOWN = Byte.MAX_VALUE;
 
+    /**
+     * ctrl bit set on the header of a compressed body; also advertised in the
+     * handshake by peers able to inflate such bodies
+     */
+    public static final byte FLAG_COMPRESSED = 0x40;
+
+    /**
+     * handshake capability only, never set on a header: peer relays and
+     * reconstructs compact blocks
+     */
+    public static final byte FLAG_COMPACT_BLOCK = 0x20;
+
+    /**
+     * capabilities this kernel advertises in handshake
+     */
+    public static final byte CAPABILITIES = FLAG_COMPRESSED | FLAG_COMPACT_BLOCK;
+
     private static Set<Byte> active = new HashSet<>() {{
         add(NET);
         add(SYNC);
@@ -99,6 +99,29 @@ public final class Header {
         this.len = _len;
     }
 
+    /**
+     * @return boolean true if body is compressed, see {@link Ctrl#FLAG_COMPRESSED}
+     */
+    public boolean isCompressed() {
+        return (this.ctrl & Ctrl.FLAG_COMPRESSED) != 0;
+    }
+
+    /**
+     * @param _len int compressed body len
+     * @return Header copy of this header flagged as carrying a compressed body
+     */
+    public Header compressed(int _len) {
+        return new Header(this.ver, (byte) (this.ctrl | Ctrl.FLAG_COMPRESSED), this.action, _len);
+    }
+
+    /**
+     * @param _len int inflated body len
+     * @return Header copy of this header with the compressed flag cleared
+     */
+    public Header decompressed(int _len) {
+        return new Header(this.ver, (byte) (this.ctrl & ~Ctrl.FLAG_COMPRESSED), this.action, _len);
+    }
+
     /**
      * @return byte[]
      */
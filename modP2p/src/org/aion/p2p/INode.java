@@ -81,4 +81,25 @@ public interface INode {
      */
     void updateStatus(long _bestBlockNumber, final byte[] _bestBlockHash, BigInteger _totalDifficulty);
 
+    /**
+     * @return byte capability flags advertised in handshake, see {@link Ctrl}
+     */
+    byte getCapabilities();
+
+    /**
+     * @param _rtt long request round trip in ms
+     * @param _bytes int size of the response body, 0 for latency only samples
+     */
+    void recordResponse(long _rtt, int _bytes);
+
+    /**
+     * records a response which failed to decode or validate
+     */
+    void recordInvalidResponse();
+
+    /**
+     * @return double exponentially decayed peer quality, higher is better
+     */
+    double getScore();
+
 }
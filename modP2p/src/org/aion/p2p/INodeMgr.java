@@ -19,4 +19,9 @@ public interface INodeMgr {
 
 	void removeActive(Integer nodeIdHash, IP2pMgr pmgr);
 
+	/**
+	 * counts a malformed or inconsistent response against the active node's score
+	 */
+	void recordInvalidResponse(int _nodeIdHash);
+
 }
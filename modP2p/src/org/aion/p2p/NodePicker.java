@@ -0,0 +1,35 @@
+package org.aion.p2p;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+public final class NodePicker {
+
+    private NodePicker() {}
+
+    /**
+     * Random pick weighted by peer score, so better peers are asked first
+     * while low scored ones still get the occasional request to recover.
+     *
+     * @return null when there are no candidates
+     */
+    public static <T extends INode> T pickByScore(final List<T> _candidates) {
+        if (_candidates.isEmpty())
+            return null;
+
+        double[] weights = new double[_candidates.size()];
+        double total = 0;
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = P2pConstant.MIN_PICK_WEIGHT + _candidates.get(i).getScore();
+            total += weights[i];
+        }
+
+        double r = ThreadLocalRandom.current().nextDouble() * total;
+        for (int i = 0; i < weights.length; i++) {
+            r -= weights[i];
+            if (r < 0)
+                return _candidates.get(i);
+        }
+        return _candidates.get(weights.length - 1);
+    }
+}
@@ -16,4 +16,14 @@ public class P2pConstant {
 
     public static final int SEND_BUFFER_SIZE = 64 * 1024;
 
+    /**
+     * kernel msg bodies above this size are compressed for peers supporting it
+     */
+    public static final int COMPRESS_THRESHOLD = 16 * 1024;
+
+    /**
+     * added to every peer score when picking by score, so low scored peers stay in the rotation and can recover
+     */
+    public static final double MIN_PICK_WEIGHT = 0.05;
+
 }
@@ -34,6 +34,7 @@ import java.nio.channels.SocketChannel;
 import java.util.Arrays;
 import java.util.regex.Pattern;
 
+import org.aion.p2p.Ctrl;
 import org.aion.p2p.INode;
 
 import javax.xml.stream.XMLOutputFactory;
@@ -93,6 +94,11 @@ public final class Node implements INode {
 
 	private String binaryVersion = "";
 
+	/**
+	 * ctrl flags the peer advertised in handshake, see Ctrl.FLAG_COMPRESSED
+	 */
+	private byte capabilities;
+
 	private SocketChannel channel;
 
 	/**
@@ -243,6 +249,22 @@ public final class Node implements INode {
 		this.binaryVersion = _revision;
 	}
 
+	public void setCapabilities(byte _capabilities) {
+		this.capabilities = _capabilities;
+	}
+
+	@Override
+	public byte getCapabilities() {
+		return this.capabilities;
+	}
+
+	/**
+	 * @return boolean true if the peer can inflate compressed bodies
+	 */
+	public boolean supportsCompression() {
+		return (this.capabilities & Ctrl.FLAG_COMPRESSED) != 0;
+	}
+
 	/**
 	 * this method used to keep current node stage on either pending list or active
 	 * list
@@ -368,11 +390,28 @@ public final class Node implements INode {
 
 	@Override
 	public void updateStatus(long _bestBlockNumber, final byte[] _bestBlockHash, BigInteger _totalDifficulty) {
+		if (_bestBlockNumber > this.bestBlockNumber)
+			this.peerMetric.bestBlockUpdated();
 		this.bestBlockNumber = _bestBlockNumber;
 		this.bestBlockHash = _bestBlockHash;
 		this.totalDifficulty = _totalDifficulty == null ? BigInteger.ZERO : _totalDifficulty;
 	}
 
+	@Override
+	public void recordResponse(long _rtt, int _bytes) {
+		this.peerMetric.recordResponse(_rtt, _bytes);
+	}
+
+	@Override
+	public void recordInvalidResponse() {
+		this.peerMetric.recordInvalidResponse();
+	}
+
+	@Override
+	public double getScore() {
+		return this.peerMetric.getScore();
+	}
+
 	void copyNodeStatus(Node _n) {
 		if (_n.bestBlockNumber > this.bestBlockNumber) {
 			this.bestBlockNumber = _n.getBestBlockNumber();
@@ -28,6 +28,7 @@ package org.aion.p2p.impl.comm;
 import org.aion.p2p.INode;
 import org.aion.p2p.INodeMgr;
 import org.aion.p2p.IP2pMgr;
+import org.aion.p2p.NodePicker;
 
 import javax.xml.stream.XMLOutputFactory;
 import javax.xml.stream.XMLStreamException;
@@ -115,9 +116,10 @@ public class NodeMgr implements INodeMgr {
             sb.append("              ip");
             sb.append("  port");
             sb.append("     conn");
-            sb.append("              bv\n");
+            sb.append("              bv");
+            sb.append("  score\n");
             sb.append(
-                    "-------------------------------------------------------------------------------------------------------------------------------------------------------\n");
+                    "--------------------------------------------------------------------------------------------------------------------------------------------------------------\n");
             sorted.sort((n1, n2) -> {
                 int tdCompare = n2.getTotalDifficulty().compareTo(n1.getTotalDifficulty());
                 if (tdCompare == 0) {
@@ -129,11 +131,11 @@ public class NodeMgr implements INodeMgr {
             });
             for (Node n : sorted) {
                 try {
-                    sb.append(String.format("id:%6s %c %16s %10d %64s %15s %5d %8s %15s\n", n.getIdShort(),
+                    sb.append(String.format("id:%6s %c %16s %10d %64s %15s %5d %8s %15s %6.3f\n", n.getIdShort(),
                             n.getIfFromBootList() ? 'y' : ' ', n.getTotalDifficulty().toString(10),
                             n.getBestBlockNumber(),
                             n.getBestBlockHash() == null ? "" : bytesToHex(n.getBestBlockHash()), n.getIpStr(),
-                            n.getPort(), n.getConnection(), n.getBinaryVersion()));
+                            n.getPort(), n.getConnection(), n.getBinaryVersion(), n.getScore()));
                 } catch (Exception ex) {
                     ex.printStackTrace();
                 }
@@ -255,45 +257,27 @@ public class NodeMgr implements INodeMgr {
     }
 
     public INode getRandom() {
-        int nodesCount = activeNodes.size();
-        if (nodesCount > 0) {
-            Random r = new Random(System.currentTimeMillis());
-            List<Integer> keysArr = new ArrayList<>(activeNodes.keySet());
-            try {
-                int randomNodeKeyIndex = r.nextInt(keysArr.size());
-                int randomNodeKey = keysArr.get(randomNodeKeyIndex);
-                return this.getActiveNode(randomNodeKey);
-            } catch (IllegalArgumentException e) {
-                System.out.println("<p2p get-random-exception>");
-                return null;
-            }
-        } else
-            return null;
+        return NodePicker.pickByScore(new ArrayList<>(activeNodes.values()));
     }
 
     public INode getRandomRealtime(long bbn) {
 
-        List<Integer> keysArr = new ArrayList<>();
+        List<Node> candidates = new ArrayList<>();
 
         for (Node n : activeNodes.values()) {
             if ((n.getBestBlockNumber() == 0) || (n.getBestBlockNumber() > bbn)) {
-                keysArr.add(n.getIdHash());
+                candidates.add(n);
             }
         }
 
-        int nodesCount = keysArr.size();
-        if (nodesCount > 0) {
-            Random r = new Random(System.currentTimeMillis());
+        return NodePicker.pickByScore(candidates);
+    }
 
-            try {
-                int randomNodeKeyIndex = r.nextInt(keysArr.size());
-                int randomNodeKey = keysArr.get(randomNodeKeyIndex);
-                return this.getActiveNode(randomNodeKey);
-            } catch (IllegalArgumentException e) {
-                return null;
-            }
-        } else
-            return null;
+    @Override
+    public void recordInvalidResponse(int _nodeIdHash) {
+        Node node = activeNodes.get(_nodeIdHash);
+        if (node != null)
+            node.recordInvalidResponse();
     }
 
     /**
@@ -29,10 +29,42 @@ import org.aion.p2p.P2pConstant;
 
 public final class PeerMetric {
 
+    /**
+     * weight of the newest sample in the moving averages below
+     */
+    private static final double ALPHA = 0.2;
+
+    /**
+     * round trip at which the latency factor halves, ms
+     */
+    private static final double RTT_HALF = 1000d;
+
+    /**
+     * throughput at which the throughput factor reaches one half, bytes/s
+     */
+    private static final double BPS_HALF = 256d * 1024d;
+
+    /**
+     * best block announcements older than this are considered stale, ms
+     */
+    private static final double FRESHNESS_DECAY = 60_000d;
+
     int metricFailedConn;
     private long metricFailedConnTs;
     private long metricBanConnTs;
 
+    private double rtt;
+
+    private double bps;
+
+    private double invalidRate;
+
+    private int samples;
+
+    private int bpsSamples;
+
+    private long bestBlockUpdateTs = System.currentTimeMillis();
+
     public boolean shouldNotConn() {
         return (metricFailedConn > P2pConstant.STOP_CONN_AFTER_FAILED_CONN
                 && ((System.currentTimeMillis() - metricFailedConnTs) > P2pConstant.FAILED_CONN_RETRY_INTERVAL))
@@ -56,4 +88,56 @@ public final class PeerMetric {
     public boolean notBan() {
         return ((System.currentTimeMillis() - metricBanConnTs) > P2pConstant.BAN_CONN_RETRY_INTERVAL);
     }
+
+    /**
+     * @param _rtt long request round trip, ms
+     * @param _bytes int size of the response body, 0 for latency only samples
+     */
+    public synchronized void recordResponse(long _rtt, int _bytes) {
+        double sampleRtt = Math.max(1L, _rtt);
+        rtt = samples == 0 ? sampleRtt : rtt + ALPHA * (sampleRtt - rtt);
+        samples++;
+
+        if (_bytes > 0) {
+            double sampleBps = _bytes * 1000d / sampleRtt;
+            bps = bpsSamples == 0 ? sampleBps : bps + ALPHA * (sampleBps - bps);
+            bpsSamples++;
+        }
+        invalidRate -= ALPHA * invalidRate;
+    }
+
+    public synchronized void recordInvalidResponse() {
+        invalidRate += ALPHA * (1d - invalidRate);
+    }
+
+    /**
+     * called when the peer announces a best block higher than previously known
+     */
+    public synchronized void bestBlockUpdated() {
+        bestBlockUpdateTs = System.currentTimeMillis();
+    }
+
+    /**
+     * Peer quality in [0, 1], combining latency, throughput, the share of
+     * invalid responses and how recently the peer advanced its best block.
+     * Peers without samples get a neutral latency/throughput estimate so
+     * that newcomers are still tried.
+     *
+     * @return double
+     */
+    public synchronized double getScore() {
+        double latency = samples == 0 ? 0.5d : RTT_HALF / (RTT_HALF + rtt);
+        double throughput = bpsSamples == 0 ? 0.5d : bps / (bps + BPS_HALF);
+        double age = Math.max(0L, System.currentTimeMillis() - bestBlockUpdateTs);
+        double freshness = Math.exp(-age / FRESHNESS_DECAY);
+        return (1d - invalidRate) * freshness * (latency + throughput) / 2d;
+    }
+
+    public synchronized double getRtt() {
+        return rtt;
+    }
+
+    public synchronized double getInvalidRate() {
+        return invalidRate;
+    }
 }
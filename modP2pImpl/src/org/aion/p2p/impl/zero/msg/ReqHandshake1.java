@@ -43,6 +43,9 @@ public final class ReqHandshake1 extends ReqHandshake {
 
     private List<Short> versions;
 
+    // optional trailing byte, ctrl flags this node understands, see Ctrl.FLAG_COMPRESSED
+    private byte capabilities;
+
     // one version byte[2] - short
     private static final byte MAX_VERSIONS_LEN = 63;
 
@@ -59,15 +62,27 @@ public final class ReqHandshake1 extends ReqHandshake {
      * @param _versions List<byte[2]> header contains 2 byte version
      */
     public ReqHandshake1(final byte[] _nodeId, int _netId, final byte[] _ip, int _port, final byte[] _revision, final List<Short> _versions) {
+        this(_nodeId, _netId, _ip, _port, _revision, _versions, (byte) 0);
+    }
+
+    /**
+     * @param _capabilities byte ctrl flags supported, appended after versions and ignored by older peers
+     */
+    public ReqHandshake1(final byte[] _nodeId, int _netId, final byte[] _ip, int _port, final byte[] _revision, final List<Short> _versions, byte _capabilities) {
         super(_nodeId, _netId, _ip, _port);
         this.revision = _revision;
         this.versions = _versions.subList(0, Math.min(MAX_VERSIONS_LEN, _versions.size()));
+        this.capabilities = _capabilities;
     }
 
     public byte[] getRevision(){
         return this.revision;
     }
 
+    public byte getCapabilities() {
+        return this.capabilities;
+    }
+
     /**
      * @param _bytes byte[]
      * @return ReqHandshake
@@ -106,7 +121,10 @@ public final class ReqHandshake1 extends ReqHandshake {
                 versions.add(version);
             }
 
-            return new ReqHandshake1(nodeId, netId, ip, port, revision, versions);
+            // decode capabilities, absent from older peers
+            byte capabilities = buf.hasRemaining() ? buf.get() : 0;
+
+            return new ReqHandshake1(nodeId, netId, ip, port, revision, versions, capabilities);
         }
     }
 
@@ -120,7 +138,8 @@ public final class ReqHandshake1 extends ReqHandshake {
                 return null;
             byte revisionLen = (byte)this.revision.length;
             byte versionsLen = (byte)this.versions.size();
-            ByteBuffer buf = ByteBuffer.allocate(superBytes.length + 1 + revisionLen + 1 + versionsLen * 2);
+            int capabilitiesLen = this.capabilities == 0 ? 0 : 1;
+            ByteBuffer buf = ByteBuffer.allocate(superBytes.length + 1 + revisionLen + 1 + versionsLen * 2 + capabilitiesLen);
             buf.put(superBytes);
             buf.put(revisionLen);
             buf.put(this.revision);
@@ -128,6 +147,8 @@ public final class ReqHandshake1 extends ReqHandshake {
             for(Short version : versions){
                 buf.putShort(version);
             }
+            if (capabilitiesLen > 0)
+                buf.put(this.capabilities);
             return buf.array();
         }
     }
@@ -41,16 +41,28 @@ public final class ResHandshake1 extends ResHandshake {
 
     private String binaryVersion;
 
+    // optional trailing byte, ctrl flags this node understands, see Ctrl.FLAG_COMPRESSED
+    private byte capabilities;
+
     public ResHandshake1(boolean _success, String _binaryVersion) {
+        this(_success, _binaryVersion, (byte) 0);
+    }
+
+    public ResHandshake1(boolean _success, String _binaryVersion, byte _capabilities) {
         super(_success);
         // utf-8
         this.binaryVersion = _binaryVersion.length() > 63 ? _binaryVersion.substring(0, 62) : _binaryVersion;
+        this.capabilities = _capabilities;
     }
 
     public String getBinaryVersion() {
         return this.binaryVersion;
     }
 
+    public byte getCapabilities() {
+        return this.capabilities;
+    }
+
     public static ResHandshake1 decode(final byte[] _bytes) {
         if (_bytes == null || _bytes.length < MIN_LEN)
             return null;
@@ -71,7 +83,11 @@ public final class ResHandshake1 extends ResHandshake {
 
                 }
             }
-            return new ResHandshake1(_bytes[0] == 0x01, binaryVersion);
+
+            // decode capabilities, absent from older peers
+            byte capabilities = len >= 0 && binaryVersionBytesLen > MIN_LEN + len ? _bytes[MIN_LEN + len] : 0;
+
+            return new ResHandshake1(_bytes[0] == 0x01, binaryVersion, capabilities);
         }
     }
 
@@ -84,10 +100,13 @@ public final class ResHandshake1 extends ResHandshake {
             binaryVersionBytes = Arrays.copyOfRange(binaryVersionBytes, 0 , Byte.MAX_VALUE - 1);
             len = Byte.MAX_VALUE;
         }
-        ByteBuffer buf = ByteBuffer.allocate(superBytes.length + 1 + len);
+        int capabilitiesLen = this.capabilities == 0 ? 0 : 1;
+        ByteBuffer buf = ByteBuffer.allocate(superBytes.length + 1 + len + capabilitiesLen);
         buf.put(superBytes);
         buf.put((byte)len);
         buf.put(binaryVersionBytes);
+        if (capabilitiesLen > 0)
+            buf.put(this.capabilities);
         return buf.array();
     }
 }
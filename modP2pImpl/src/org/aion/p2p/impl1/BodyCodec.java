@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ * This file is part of the aion network project.
+ *
+ * The aion network project is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * The aion network project is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the aion network project source files.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors to the aion source files in decreasing order of code volume:
+ *
+ * Aion foundation.
+ *
+ */
+package org.aion.p2p.impl1;
+
+import java.io.ByteArrayOutputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Body codec for kernel msgs sent with {@link org.aion.p2p.Ctrl#FLAG_COMPRESSED}.
+ * Deflate at its fastest level, rlp payloads of headers / bodies shrink well
+ * and cost little cpu compared to the transfer time saved.
+ */
+final class BodyCodec {
+
+    private static final int CHUNK = 16 * 1024;
+
+    private BodyCodec() {}
+
+    /**
+     * @param _body byte[]
+     * @return byte[] compressed body, or null when compression does not pay off
+     */
+    static byte[] compress(final byte[] _body) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(_body);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(_body.length >> 1);
+            byte[] chunk = new byte[CHUNK];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(chunk);
+                out.write(chunk, 0, n);
+                if (out.size() >= _body.length)
+                    return null;
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * @param _body byte[] compressed body
+     * @param _max int max inflated size accepted
+     * @return byte[]
+     * @throws P2pException on corrupted body or when inflated size exceeds _max
+     */
+    static byte[] decompress(final byte[] _body, int _max) throws P2pException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(_body);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(_body.length << 1);
+            byte[] chunk = new byte[CHUNK];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(chunk);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+                    throw new P2pException("truncated compressed body");
+                out.write(chunk, 0, n);
+                if (out.size() > _max)
+                    throw new P2pException("inflated body exceeds max size");
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new P2pException("corrupted compressed body");
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -333,7 +333,7 @@ public final class P2pMgr implements IP2pMgr {
                             Object attachment = sk.attachment();
                             if (attachment != null) {
                                 TaskWrite tw = new TaskWrite(showLog, node.getIdShort(), node.getChannel(), mo.msg,
-                                        (ChannelBuffer) attachment, P2pMgr.this);
+                                        (ChannelBuffer) attachment, P2pMgr.this, node.supportsCompression());
                                 tw.run();
                             }
                         }
@@ -584,7 +584,7 @@ public final class P2pMgr implements IP2pMgr {
 
         // rem out for bug:
         // nodeMgr.loadPersistedNodes();
-        cachedResHandshake1 = new ResHandshake1(true, this.selfRevision);
+        cachedResHandshake1 = new ResHandshake1(true, this.selfRevision, Ctrl.CAPABILITIES);
     }
 
     /**
@@ -764,6 +764,11 @@ public final class P2pMgr implements IP2pMgr {
         rb.refreshHeader();
         rb.refreshBody();
 
+        if (h.isCompressed()) {
+            bodyBytes = BodyCodec.decompress(bodyBytes, P2pConstant.MAX_BODY_SIZE);
+            h = h.decompressed(bodyBytes.length);
+        }
+
         short ver = h.getVer();
         byte ctrl = h.getCtrl();
         byte act = h.getAction();
@@ -821,7 +826,7 @@ public final class P2pMgr implements IP2pMgr {
      *            Construct node info after handshake request success
      */
     private void handleReqHandshake(final ChannelBuffer _buffer, int _channelHash, final byte[] _nodeId, int _netId,
-            int _port, final byte[] _revision) {
+            int _port, final byte[] _revision, byte _capabilities) {
         Node node = nodeMgr.getInboundNode(_channelHash);
         if (node != null && node.peerMetric.notBan()) {
             if (handshakeRuleCheck(_netId)) {
@@ -838,6 +843,7 @@ public final class P2pMgr implements IP2pMgr {
                         binaryVersion = "decode-fail";
                     }
                     node.setBinaryVersion(binaryVersion);
+                    node.setCapabilities(_capabilities);
                     sendMsgQue.offer(new MsgOut(node.getChannel().hashCode(), cachedResHandshake1, Dest.INBOUND));
                 }
                 nodeMgr.moveInboundToActive(_channelHash, this);
@@ -848,11 +854,12 @@ public final class P2pMgr implements IP2pMgr {
         }
     }
 
-    private void handleResHandshake(int _nodeIdHash, String _binaryVersion) {
+    private void handleResHandshake(int _nodeIdHash, String _binaryVersion, byte _capabilities) {
         Node node = nodeMgr.getOutboundNodes().get(_nodeIdHash);
         if (node != null && node.peerMetric.notBan()) {
             node.refreshTimestamp();
             node.setBinaryVersion(_binaryVersion);
+            node.setCapabilities(_capabilities);
             nodeMgr.moveOutboundToActive(node.getIdHash(), node.getIdShort(), this);
         }
     }
@@ -876,7 +883,8 @@ public final class P2pMgr implements IP2pMgr {
                 ReqHandshake1 reqHandshake1 = ReqHandshake1.decode(_msgBytes);
                 if (reqHandshake1 != null) {
                     handleReqHandshake(rb, _sk.channel().hashCode(), reqHandshake1.getNodeId(),
-                            reqHandshake1.getNetId(), reqHandshake1.getPort(), reqHandshake1.getRevision());
+                            reqHandshake1.getNetId(), reqHandshake1.getPort(), reqHandshake1.getRevision(),
+                            reqHandshake1.getCapabilities());
                 }
             }
             break;
@@ -888,7 +896,8 @@ public final class P2pMgr implements IP2pMgr {
             if (_msgBytes.length > ResHandshake.LEN) {
                 ResHandshake1 resHandshake1 = ResHandshake1.decode(_msgBytes);
                 if (resHandshake1 != null && resHandshake1.getSuccess())
-                    handleResHandshake(rb.nodeIdHash, resHandshake1.getBinaryVersion());
+                    handleResHandshake(rb.nodeIdHash, resHandshake1.getBinaryVersion(),
+                            resHandshake1.getCapabilities());
 
             }
             break;
@@ -1062,7 +1071,7 @@ public final class P2pMgr implements IP2pMgr {
 
         List<Short> supportedVersions = new ArrayList<>(versions);
         cachedReqHandshake1 = new ReqHandshake1(selfNodeId, selfNetId, this.selfIp, this.selfPort,
-                this.selfRevision.getBytes(), supportedVersions);
+                this.selfRevision.getBytes(), supportedVersions, Ctrl.CAPABILITIES);
     }
 
     @Override
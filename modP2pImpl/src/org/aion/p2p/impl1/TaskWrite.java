@@ -25,8 +25,10 @@
 
 package org.aion.p2p.impl1;
 
+import org.aion.p2p.Ctrl;
 import org.aion.p2p.Header;
 import org.aion.p2p.Msg;
+import org.aion.p2p.P2pConstant;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
@@ -46,10 +48,10 @@ public class TaskWrite implements Runnable {
 	private Msg msg;
 	private ChannelBuffer channelBuffer;
 	private P2pMgr p2pMgr;
+	private boolean compress;
 
-	TaskWrite(boolean _showLog, String _nodeShortId, SocketChannel _sc, Msg _msg, ChannelBuffer _cb, P2pMgr p2pMgr
-
-	) {
+	TaskWrite(boolean _showLog, String _nodeShortId, SocketChannel _sc, Msg _msg, ChannelBuffer _cb, P2pMgr p2pMgr,
+			boolean _compress) {
 
 		this.showLog = _showLog;
 		this.nodeShortId = _nodeShortId;
@@ -57,6 +59,7 @@ public class TaskWrite implements Runnable {
 		this.msg = _msg;
 		this.channelBuffer = _cb;
 		this.p2pMgr = p2pMgr;
+		this.compress = _compress;
 	}
 
 	private void clearChannelBuffer() {
@@ -84,6 +87,17 @@ public class TaskWrite implements Runnable {
 			int bodyLen = bodyBytes == null ? 0 : bodyBytes.length;
 			Header h = msg.getHeader();
 			h.setLen(bodyLen);
+
+			// compress large kernel msgs for peers advertising it, the header is
+			// copied as msgs may be shared between peers
+			if (compress && bodyLen > P2pConstant.COMPRESS_THRESHOLD && h.getCtrl() != Ctrl.NET) {
+				byte[] compressed = BodyCodec.compress(bodyBytes);
+				if (compressed != null) {
+					bodyBytes = compressed;
+					bodyLen = compressed.length;
+					h = h.compressed(bodyLen);
+				}
+			}
 			byte[] headerBytes = h.encode();
 
 			// print route
@@ -77,4 +77,51 @@ public class NodeTest {
         assertTrue("256.256.256.256".equals(ipVerify));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testScoreFavoursFastPeers() {
+        Node fast = Node.parseP2p("p2p://" + validId + "@" + validIp + ":30303");
+        Node slow = Node.parseP2p("p2p://" + UUID.randomUUID().toString() + "@" + validIp + ":30304");
+
+        // unknown peers start out neutral
+        assertEquals(fast.getScore(), slow.getScore(), 0.01);
+
+        for (int i = 0; i < 10; i++) {
+            fast.recordResponse(50, 512 * 1024);
+            slow.recordResponse(2000, 16 * 1024);
+        }
+        assertTrue(fast.getScore() > slow.getScore());
+    }
+
+    @Test
+    public void testScoreInvalidResponses() {
+        Node good = Node.parseP2p("p2p://" + validId + "@" + validIp + ":30303");
+        Node bad = Node.parseP2p("p2p://" + UUID.randomUUID().toString() + "@" + validIp + ":30304");
+
+        for (int i = 0; i < 10; i++) {
+            good.recordResponse(100, 64 * 1024);
+            bad.recordResponse(100, 64 * 1024);
+            bad.recordInvalidResponse();
+        }
+        assertTrue(good.getScore() > bad.getScore());
+
+        // valid responses decay the invalid rate again
+        double before = bad.getScore();
+        for (int i = 0; i < 10; i++) {
+            bad.recordResponse(100, 64 * 1024);
+        }
+        assertTrue(bad.getScore() > before);
+    }
+
+    @Test
+    public void testScoreBounds() {
+        Node n = Node.parseP2p("p2p://" + validId + "@" + validIp + ":30303");
+        for (int i = 0; i < 20; i++) {
+            n.recordInvalidResponse();
+        }
+        assertTrue(n.getScore() >= 0);
+
+        n.recordResponse(0, Integer.MAX_VALUE);
+        assertTrue(n.getScore() <= 1);
+    }
+
+}
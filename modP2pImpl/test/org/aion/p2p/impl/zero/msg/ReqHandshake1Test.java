@@ -97,6 +97,19 @@ public class ReqHandshake1Test {
 
     }
 
+    @Test
+    public void testCapabilities() {
+
+        ReqHandshake1 req1 = new ReqHandshake1(validNodeId, netId, Node.ipStrToBytes(randomIp), port, randomRevision, randomVersions);
+        assertEquals(0, ReqHandshake1.decode(req1.encode()).getCapabilities());
+
+        ReqHandshake1 req2 = new ReqHandshake1(validNodeId, netId, Node.ipStrToBytes(randomIp), port, randomRevision,
+                randomVersions, Ctrl.FLAG_COMPRESSED);
+        ReqHandshake1 req3 = ReqHandshake1.decode(req2.encode());
+        assertEquals(Ctrl.FLAG_COMPRESSED, req3.getCapabilities());
+        assertEquals(req2.getPort(), req3.getPort());
+    }
+
     @Test
     public void testInvalidEncodeDecode() {
 
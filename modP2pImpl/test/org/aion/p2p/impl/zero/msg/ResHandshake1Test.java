@@ -65,4 +65,13 @@ public class ResHandshake1Test {
 
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testCapabilities() {
+        ResHandshake1 rh1 = new ResHandshake1(true, "0.2.8");
+        assertEquals(0, ResHandshake1.decode(rh1.encode()).getCapabilities());
+
+        ResHandshake1 rh2 = ResHandshake1.decode(new ResHandshake1(true, "0.2.8", Ctrl.FLAG_COMPRESSED).encode());
+        assertEquals(Ctrl.FLAG_COMPRESSED, rh2.getCapabilities());
+        assertEquals("0.2.8", rh2.getBinaryVersion());
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ * This file is part of the aion network project.
+ *
+ * The aion network project is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * The aion network project is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the aion network project source files.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors to the aion source files in decreasing order of code volume:
+ *
+ * Aion foundation.
+ *
+ */
+
+package org.aion.p2p.impl1;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import org.aion.p2p.Ctrl;
+import org.aion.p2p.Header;
+import org.junit.Test;
+
+public class BodyCodecTest {
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        byte[] body = new byte[64 * 1024];
+        for (int i = 0; i < body.length; i++) {
+            body[i] = (byte) (i % 31);
+        }
+
+        byte[] compressed = BodyCodec.compress(body);
+        assertNotNull(compressed);
+        assertTrue(compressed.length < body.length);
+        assertArrayEquals(body, BodyCodec.decompress(compressed, body.length));
+    }
+
+    @Test
+    public void testIncompressible() {
+        byte[] body = new byte[1024];
+        ThreadLocalRandom.current().nextBytes(body);
+        assertNull(BodyCodec.compress(body));
+    }
+
+    @Test(expected = P2pException.class)
+    public void testExceedMax() throws Exception {
+        byte[] body = new byte[64 * 1024];
+        BodyCodec.decompress(BodyCodec.compress(body), body.length - 1);
+    }
+
+    @Test(expected = P2pException.class)
+    public void testCorrupted() throws Exception {
+        byte[] body = new byte[64 * 1024];
+        byte[] compressed = BodyCodec.compress(body);
+        BodyCodec.decompress(Arrays.copyOf(compressed, compressed.length / 2), body.length);
+    }
+
+    @Test
+    public void testHeaderFlag() throws Exception {
+        Header h = Header.decode(new byte[] { 0, 0, Ctrl.SYNC, 5, 0, 0, 0, 100 });
+        assertFalse(h.isCompressed());
+
+        Header hc = Header.decode(h.compressed(10).encode());
+        assertTrue(hc.isCompressed());
+        assertEquals(10, hc.getLen());
+
+        Header hd = hc.decompressed(100);
+        assertFalse(hd.isCompressed());
+        assertEquals(h.getRoute(), hd.getRoute());
+    }
+}
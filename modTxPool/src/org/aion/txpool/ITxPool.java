@@ -42,6 +42,25 @@ public interface ITxPool<TX extends ITransaction> {
     String PROP_BLOCK_SIZE_LIMIT = "blk-size-limit";
     String PROP_BLOCK_NRG_LIMIT = "blk-nrg-limit";
     String PROP_TX_SEQ_MAX = "tx-seq-max";
+    String PROP_TX_PRICE_BUMP = "tx-price-bump";
+    String PROP_POOL_SIZE_MAX = "pool-size-max";
+    String PROP_POOL_BYTES_MAX = "pool-bytes-max";
+
+    /**
+     * What a {@link TxVisitor} wants next from the stream.
+     */
+    enum Pick {
+        // the next tx
+        NEXT,
+        // the next tx, skipping the remaining txs of the sender of the visited tx
+        SKIP_SENDER,
+        // nothing, the stream ends
+        STOP
+    }
+
+    interface TxVisitor<TX> {
+        Pick visit(TX tx);
+    }
 
     List<TX> add(List<TX> tx);
 
@@ -70,4 +89,20 @@ public interface ITxPool<TX extends ITransaction> {
 
     TX getPoolTx(Address from, BigInteger txNonce);
 
+    // the pool tx whose hash starts with the 8 bytes (big endian) of shortId, or null. kept up to date by add / remove.
+    TX getByShortId(long shortId);
+
+    // true if tx pays enough to replace poolTx, the pool tx with the same sender and nonce.
+    boolean isReplaceable(TX poolTx, TX tx);
+
+    // true if the pool has room for the tx, or the tx outbids the lowest paying executable tx of the pool. The
+    // bid is the energy charge, the tx's energy consume has to be set, at least to its intrinsic cost.
+    boolean hasRoom(TX tx);
+
+    // the txs evicted to keep the pool within its budgets since the last call.
+    List<TX> getEvictedList();
+
+    // stream the txs in the snapshot order without holding the pool lock in the visitor, until it stops or the pool runs out.
+    void streamSnapshot(TxVisitor<TX> visitor);
+
 }
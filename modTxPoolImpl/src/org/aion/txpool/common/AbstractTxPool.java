@@ -34,11 +34,8 @@ import org.slf4j.Logger;
 import org.spongycastle.pqc.math.linearalgebra.ByteUtils;
 
 import java.math.BigInteger;
-import java.util.AbstractMap.SimpleEntry;
 import java.util.*;
-import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -62,14 +59,36 @@ public abstract class AbstractTxPool<TX extends ITransaction> {
     protected final int BLK_NRG_MIN = 1_000_000;
     protected final int SEQ_TX_MAX = 25;
     protected final int SEQ_TX_MIN = 5;
+
+    /**
+     * A tx replaces the pool tx with the same sender and nonce only if its
+     * energy price is at least priceBump percent higher.
+     */
+    protected int priceBump = 0;
+    protected final int PRICE_BUMP_MAX = 1000;
+
+    /**
+     * Budgets of the pool, the lowest paying executable txs are evicted once
+     * either is exceeded.
+     */
+    protected int poolSizeMax = Integer.MAX_VALUE;
+    protected long poolBytesMax = Long.MAX_VALUE;
+    private long poolBytes;
     /**
      * mainMap : Map<ByteArrayWrapper, TXState>
      *
      * @ByteArrayWrapper transaction hash
-     * @TXState transaction data and sort status
+     * @TXState transaction data with its nonce, energy charge and timestamp
      */
     // TODO : should limit size
     private final Map<ByteArrayWrapper, TXState> mainMap = new ConcurrentHashMap<>();
+    /**
+     * shortIdView : Map<Long, ByteArrayWrapper>
+     *
+     * @Long the leading 8 bytes of the transaction hash, as relayed in compact blocks
+     * @ByteArrayWrapper transaction hash, the latest added one on a collision
+     */
+    private final Map<Long, ByteArrayWrapper> shortIdView = new ConcurrentHashMap<>();
     /**
      * timeView : SortedMap<Long, LinkedHashSet<ByteArrayWrapper>>
      *
@@ -79,15 +98,13 @@ public abstract class AbstractTxPool<TX extends ITransaction> {
     private final SortedMap<Long, LinkedHashSet<ByteArrayWrapper>> timeView = Collections
             .synchronizedSortedMap(new TreeMap<>());
     /**
-     * feeView : SortedMap<BigInteger,
-     * LinkedHashSet<TxPoolList<ByteArrayWrapper>>>
+     * feeIndex : NavigableSet<FeeKey>
      *
-     * @BigInteger energy cost = energy consumption * energy price
-     * @LinkedHashSet<TxPoolList<ByteArrayWrapper>> the TxPoolList of the first
-     * transaction hash
+     * @FeeKey the first executable transaction of every account, ordered by
+     * the fee of its PoolState (highest first) and then by timestamp. Kept
+     * up to date on add / remove so the snapshot never has to re-sort the pool.
      */
-    private final SortedMap<BigInteger, Map<ByteArrayWrapper, TxDependList<ByteArrayWrapper>>> feeView = Collections
-            .synchronizedSortedMap(new TreeMap<>(Collections.reverseOrder()));
+    private final NavigableSet<FeeKey> feeIndex = new TreeSet<>();
     /**
      * accountView : Map<ByteArrayWrapper, AccountState>
      *
@@ -96,15 +113,18 @@ public abstract class AbstractTxPool<TX extends ITransaction> {
      */
     private final Map<Address, AccountState> accountView = new ConcurrentHashMap<>();
     /**
-     * poolStateView : Map<ByteArrayWrapper, List<PoolState>>
-     *
-     * @ByteArrayWrapper account address
-     * @PoolState continuous transaction state including starting nonce
+     * senders / feeHeads : indexed by the compact account id of the AccountState.
+     * The ids are recycled once an account has no pending transaction left.
      */
-    private final Map<Address, List<PoolState>> poolStateView = new ConcurrentHashMap<>();
+    private AccountState[] senders = new AccountState[1024];
+    private FeeKey[] feeHeads = new FeeKey[1024];
+    private int[] freeIds = new int[64];
+    private int freeIdCnt;
+    private int nextId;
+
     private final List<TX> outDated = new ArrayList<>();
 
-    private final Map<Address, BigInteger> bestNonce = new ConcurrentHashMap<>();
+    private final List<TX> evicted = new ArrayList<>();
 
     protected final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
 
@@ -122,28 +142,24 @@ public abstract class AbstractTxPool<TX extends ITransaction> {
         return this.mainMap;
     }
 
-    protected SortedMap<BigInteger, Map<ByteArrayWrapper, TxDependList<ByteArrayWrapper>>> getFeeView() {
-        return this.feeView;
+    protected NavigableSet<FeeKey> getFeeIndex() {
+        return this.feeIndex;
     }
 
     protected AccountState getAccView(Address acc) {
-
-        this.accountView.computeIfAbsent(acc, k -> new AccountState());
-        return this.accountView.get(acc);
+        AccountState as = this.accountView.get(acc);
+        if (as == null) {
+            as = new AccountState(allocId());
+            this.senders[as.getId()] = as;
+            this.accountView.put(acc, as);
+        }
+        return as;
     }
 
     protected Map<Address, AccountState> getFullAcc() {
         return this.accountView;
     }
 
-    protected List<PoolState> getPoolStateView(Address acc) {
-
-        if (this.accountView.get(acc) == null) {
-            this.poolStateView.put(acc, new LinkedList<>());
-        }
-        return this.poolStateView.get(acc);
-    }
-
     protected List<TX> getOutdatedListImpl() {
         List<TX> rtn = new ArrayList<>(this.outDated);
         this.outDated.clear();
@@ -155,448 +171,492 @@ public abstract class AbstractTxPool<TX extends ITransaction> {
         this.outDated.addAll(txl);
     }
 
-    public void clear() {
-        this.mainMap.clear();
-        this.timeView.clear();
-        this.feeView.clear();
-        this.accountView.clear();
-        this.poolStateView.clear();
-        this.outDated.clear();
+    protected List<TX> getEvictedListImpl() {
+        lock.writeLock().lock();
+        try {
+            List<TX> rtn = new ArrayList<>(this.evicted);
+            this.evicted.clear();
+            return rtn;
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
-    protected void sortTxn() {
-
-        Map<Address, Map<BigInteger, SimpleEntry<ByteArrayWrapper, BigInteger>>> accMap = new ConcurrentHashMap<>();
-        SortedMap<Long, LinkedHashSet<ByteArrayWrapper>> timeMap = Collections.synchronizedSortedMap(new TreeMap<>());
-
-        Map<ITransaction, Long> updatedTx = new HashMap<>();
-        this.mainMap.entrySet().parallelStream().forEach(e -> {
-
-            TXState ts = e.getValue();
-            if (ts.sorted()) {
-                return;
-            }
-
-            ITransaction tx = ts.getTx();
-
-            // Gen temp timeMap
-            long timestamp = tx.getTimeStampBI().longValue() / multiplyM;
-
-            Map<BigInteger, SimpleEntry<ByteArrayWrapper, BigInteger>> nonceMap;
-            ITransaction replacedTx = null;
-            synchronized (accMap) {
-                if (accMap.get(tx.getFrom()) != null) {
-                    nonceMap = accMap.get(tx.getFrom());
-                } else {
-                    nonceMap = Collections.synchronizedSortedMap(new TreeMap<>());
-                }
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            this.mainMap.clear();
+            this.shortIdView.clear();
+            this.timeView.clear();
+            this.feeIndex.clear();
+            this.accountView.clear();
+            Arrays.fill(this.senders, null);
+            Arrays.fill(this.feeHeads, null);
+            this.freeIdCnt = 0;
+            this.nextId = 0;
+            this.outDated.clear();
+            this.evicted.clear();
+            this.poolBytes = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
 
-                // considering refactor later
-                BigInteger nonce = tx.getNonceBI();
+    private int allocId() {
+        if (freeIdCnt > 0) {
+            return freeIds[--freeIdCnt];
+        }
 
-                BigInteger nrgCharge = BigInteger.valueOf(tx.getNrgPrice())
-                        .multiply(BigInteger.valueOf(tx.getNrgConsume()));
+        if (nextId == senders.length) {
+            senders = Arrays.copyOf(senders, nextId << 1);
+            feeHeads = Arrays.copyOf(feeHeads, nextId << 1);
+        }
+        return nextId++;
+    }
 
-                if (LOG.isTraceEnabled()) {
-                    LOG.trace("AbstractTxPool.sortTxn Put tx into nonceMap: nonce:[{}] ts:[{}] nrgCharge:[{}]", nonce,
-                            ByteUtils.toHexString(e.getKey().getData()), nrgCharge.toString());
-                }
+    private void releaseId(int id) {
+        senders[id] = null;
+        if (freeIdCnt == freeIds.length) {
+            freeIds = Arrays.copyOf(freeIds, freeIdCnt << 1);
+        }
+        freeIds[freeIdCnt++] = id;
+    }
 
-                // considering same nonce tx, only put the latest tx.
-                if (nonceMap.get(nonce) != null) {
-                    try {
-                        if (this.mainMap.get(nonceMap.get(nonce).getKey()).getTx().getTimeStampBI()
-                                .compareTo(tx.getTimeStampBI()) < 1) {
-                            replacedTx = this.mainMap.get(nonceMap.get(nonce).getKey()).getTx();
-                            updatedTx.put(replacedTx, timestamp);
-                            nonceMap.put(nonce, new SimpleEntry<>(e.getKey(), nrgCharge));
-
-                        }
-                    } catch (Exception ex) {
-                        LOG.error("AbsTxPool.sortTxn {} [{}]", ex.toString(), tx.toString());
-                    }
-                } else {
-                    nonceMap.put(nonce, new SimpleEntry<>(e.getKey(), nrgCharge));
-                }
+    /**
+     * Narrow a nonce or other counter given at the API boundary; values beyond
+     * the long range are clamped to Long.MAX_VALUE.
+     */
+    protected static long toLong(BigInteger bi) {
+        return bi.bitLength() < Long.SIZE ? bi.longValue() : (bi.signum() < 0 ? Long.MIN_VALUE : Long.MAX_VALUE);
+    }
 
-                if (LOG.isTraceEnabled()) {
-                    LOG.trace("AbstractTxPool.sortTxn Put tx into accMap: acc:[{}] mapSize[{}] ",
-                            tx.getFrom().toString(), nonceMap.size());
-                }
+    private static long nrgCharge(ITransaction tx) {
+        long price = tx.getNrgPrice();
+        long consume = tx.getNrgConsume();
+        long hi = Math.multiplyHigh(price, consume);
+        long lo = price * consume;
+        return (hi == 0 && lo >= 0) ? lo : Long.MAX_VALUE;
+    }
 
-                accMap.put(tx.getFrom(), nonceMap);
-            }
+    /**
+     * Put the transaction into the mainMap, timeView and the nonce map of its
+     * sender. The caller must hold the write lock and call
+     * {@link #updateAccPoolState(Address)} for the sender once the batch is in.
+     *
+     * @return the transaction with the same sender and nonce replaced by this one, or null
+     */
+    protected TX addTx(ByteArrayWrapper bw, TX tx) {
+        TXState ts = new TXState(tx);
+        AccountState as = getAccView(tx.getFrom());
+
+        TX replacedTx = null;
+        ByteArrayWrapper old = as.getTx(ts.nonce);
+        if (old != null) {
+            replacedTx = removeTx(old);
+        }
 
-            LinkedHashSet<ByteArrayWrapper> lhs;
-            synchronized (timeMap) {
-                if (timeMap.get(timestamp) != null) {
-                    lhs = timeMap.get(timestamp);
-                } else {
-                    lhs = new LinkedHashSet<>();
-                }
+        if (LOG.isTraceEnabled()) {
+            LOG.trace("AbstractTxPool.addTx nonce:[{}] hash:[{}] nrgCharge:[{}]", ts.nonce,
+                    ByteUtils.toHexString(bw.getData()), ts.nrgCharge);
+        }
 
-                lhs.add(e.getKey());
+        as.putTx(ts.nonce, bw);
+        this.mainMap.put(bw, ts);
+        this.shortIdView.put(shortId(bw.getData()), bw);
+        this.poolBytes += ts.size;
 
-                if (LOG.isTraceEnabled()) {
-                    LOG.trace("AbstractTxPool.sortTxn Put txHash into timeMap: ts:[{}] size:[{}]", timestamp,
-                            lhs.size());
-                }
+        long timestamp = ts.timestamp / multiplyM;
+        this.timeView.computeIfAbsent(timestamp, k -> new LinkedHashSet<>()).add(bw);
 
-                timeMap.put(timestamp, lhs);
+        return replacedTx;
+    }
 
-                if (replacedTx != null) {
-                    long t = replacedTx.getTimeStampBI().longValue() / multiplyM;
-                    if (timeMap.get(t) != null) {
-                        timeMap.get(t).remove(ByteArrayWrapper.wrap(replacedTx.getHash()));
-                    }
-                }
+    /**
+     * Drop the transaction from the mainMap and timeView. The nonce map of the
+     * sender is left to the caller.
+     */
+    protected TX removeTx(ByteArrayWrapper bw) {
+        TXState ts = this.mainMap.remove(bw);
+        if (ts == null) {
+            return null;
+        }
+        this.shortIdView.remove(shortId(bw.getData()), bw);
+        this.poolBytes -= ts.size;
+
+        long timestamp = ts.timestamp / multiplyM;
+        synchronized (this.timeView) {
+            LinkedHashSet<ByteArrayWrapper> lhs = this.timeView.get(timestamp);
+            if (lhs != null && lhs.remove(bw) && lhs.isEmpty()) {
+                this.timeView.remove(timestamp);
             }
+        }
 
-            ts.setSorted();
-        });
+        return ts.getTx();
+    }
 
-        if (!updatedTx.isEmpty()) {
-            for (Map.Entry<ITransaction, Long> en : updatedTx.entrySet()) {
-                ByteArrayWrapper bw = ByteArrayWrapper.wrap(en.getKey().getHash());
-                if (this.timeView.get(en.getValue()) != null) {
-                    this.timeView.get(en.getValue()).remove(bw);
-                }
+    /**
+     * @return the pool tx whose hash starts with the given short id, or null
+     */
+    protected TX getShortIdTx(long shortId) {
+        ByteArrayWrapper bw = this.shortIdView.get(shortId);
+        TXState ts = bw == null ? null : this.mainMap.get(bw);
+        return ts == null ? null : ts.getTx();
+    }
 
-                lock.writeLock().lock();
-                this.mainMap.remove(bw);
-                lock.writeLock().unlock();
-            }
+    private static long shortId(byte[] hash) {
+        long id = 0;
+        for (int i = 0; i < Long.BYTES; i++) {
+            id = (id << 8) | (hash[i] & 0xFF);
         }
+        return id;
+    }
 
-        if (!accMap.isEmpty()) {
+    /**
+     * @return the pool tx with the given sender and nonce, or null
+     */
+    protected TX getAccTx(Address acc, long nonce) {
+        AccountState as = this.accountView.get(acc);
+        ByteArrayWrapper bw = as == null ? null : as.getTx(nonce);
+        TXState ts = bw == null ? null : this.mainMap.get(bw);
+        return ts == null ? null : ts.getTx();
+    }
 
-            timeMap.entrySet().parallelStream().forEach(e -> {
-                if (this.timeView.get(e.getKey()) == null) {
-                    this.timeView.put(e.getKey(), e.getValue());
-                } else {
-                    this.timeView.get(e.getKey()).addAll(e.getValue());
-                }
-            });
+    /**
+     * @return true if the tx pays enough to replace the pool tx with the same
+     * sender and nonce
+     */
+    protected boolean isReplaceableImpl(TX poolTx, TX tx) {
+        long price = poolTx.getNrgPrice();
+        long bump = price / 100 * priceBump + price % 100 * priceBump / 100;
+        long minPrice = price + bump < price ? Long.MAX_VALUE : price + bump;
+        return tx.getNrgPrice() >= minPrice;
+    }
 
-            accMap.entrySet().parallelStream().forEach(e -> {
-                lock.writeLock().lock();
-                this.accountView.computeIfAbsent(e.getKey(), k -> new AccountState());
-                this.accountView.get(e.getKey()).updateMap(e.getValue());
-                lock.writeLock().unlock();
-            });
+    private boolean isOverBudget(int extraTx, long extraBytes) {
+        return this.mainMap.size() + extraTx > poolSizeMax || this.poolBytes + extraBytes > poolBytesMax;
+    }
 
-            updateAccPoolState();
-            updateFeeMap();
+    /**
+     * The next eviction victim: the highest nonce tx of the account whose
+     * first executable group pays the least. Only the tail of an account is
+     * ever evicted, so no executable tx is left behind a nonce gap.
+     */
+    private TXState evictionCandidate() {
+        if (this.feeIndex.isEmpty()) {
+            return null;
         }
-    }
 
-    protected SortedMap<Long, LinkedHashSet<ByteArrayWrapper>> getTimeView() {
-        return this.timeView;
+        AccountState as = this.senders[this.feeIndex.last().sender];
+        return this.mainMap.get(as.getTx(as.getLastNonce()));
     }
 
-    protected void updateAccPoolState() {
-
-        // iterate tx by account
-        List<Address> clearAddr = new ArrayList<>();
-        for (Entry<Address, AccountState> e : this.accountView.entrySet()) {
-            AccountState as = e.getValue();
-            if (as.isDirty()) {
-
-                if (as.getMap().isEmpty()) {
-                    this.poolStateView.remove(e.getKey());
-                    clearAddr.add(e.getKey());
-                } else {
-                    // checking AccountState given by account
-                    List<PoolState> psl = this.poolStateView.get(e.getKey());
-                    if (psl == null) {
-                        psl = new LinkedList<>();
-                    }
-
-                    List<PoolState> newPoolState = new LinkedList<>();
-                    // Checking new tx has been include into old pools.
-                    BigInteger txNonceStart = as.getFirstNonce();
-
-                    if (txNonceStart != null) {
-                        if (LOG.isTraceEnabled()) {
-                            LOG.trace("AbstractTxPool.updateAccPoolState fn [{}]", txNonceStart.toString());
-                        }
-                        for (PoolState ps : psl) {
-                            // check the previous txn status in the old
-                            // PoolState
-                            if (isClean(ps, as) && ps.firstNonce.equals(txNonceStart) && ps.combo == seqTxCountMax) {
-                                ps.resetInFeePool();
-                                newPoolState.add(ps);
-
-                                if (LOG.isTraceEnabled()) {
-                                    LOG.trace("AbstractTxPool.updateAccPoolState add fn [{}]",
-                                            ps.firstNonce.toString());
-                                }
-
-                                txNonceStart = txNonceStart.add(BigInteger.valueOf(seqTxCountMax));
-                            } else {
-                                // remove old poolState in the feeMap
-                                if (this.feeView.get(ps.getFee()) != null) {
-
-                                    if (e.getValue().getMap().get(ps.firstNonce) != null) {
-                                        this.feeView.get(ps.getFee())
-                                                .remove(e.getValue().getMap().get(ps.firstNonce).getKey());
-                                    }
-
-                                    if (LOG.isTraceEnabled()) {
-                                        LOG.trace("AbstractTxPool.updateAccPoolState remove fn [{}]",
-                                                ps.firstNonce.toString());
-                                    }
-
-                                    if (this.feeView.get(ps.getFee()).isEmpty()) {
-                                        this.feeView.remove(ps.getFee());
-                                    }
-                                }
-                            }
-                        }
-                    }
-
-                    int cnt = 0;
-                    BigInteger fee = BigInteger.ZERO;
-                    BigInteger totalFee = BigInteger.ZERO;
-
-                    for (Entry<BigInteger, SimpleEntry<ByteArrayWrapper, BigInteger>> en : as.getMap().entrySet()) {
-                        if (LOG.isTraceEnabled()) {
-                            LOG.trace(
-                                    "AbstractTxPool.updateAccPoolState mapsize[{}] nonce:[{}] cnt[{}] txNonceStart[{}]",
-                                    as.getMap().size(), en.getKey().toString(), cnt,
-                                    txNonceStart != null ? txNonceStart.toString() : null);
-                        }
-                        if (en.getKey()
-                                .equals(txNonceStart != null ? txNonceStart.add(BigInteger.valueOf(cnt)) : null)) {
-                            if (en.getValue().getValue().compareTo(fee) > -1) {
-                                fee = en.getValue().getValue();
-                                totalFee = totalFee.add(fee);
-
-                                if (++cnt == seqTxCountMax) {
-                                    if (LOG.isTraceEnabled()) {
-                                        LOG.trace(
-                                                "AbstractTxPool.updateAccPoolState case1 - nonce:[{}] totalFee:[{}] cnt:[{}]",
-                                                txNonceStart, totalFee.toString(), cnt);
-                                    }
-                                    newPoolState
-                                            .add(new PoolState(txNonceStart, totalFee.divide(BigInteger.valueOf(cnt)),
-                                                    cnt));
-
-                                    txNonceStart = en.getKey().add(BigInteger.ONE);
-                                    totalFee = BigInteger.ZERO;
-                                    fee = BigInteger.ZERO;
-                                    cnt = 0;
-                                }
-                            } else {
-                                if (LOG.isTraceEnabled()) {
-                                    LOG.trace(
-                                            "AbstractTxPool.updateAccPoolState case2 - nonce:[{}] totalFee:[{}] cnt:[{}]",
-                                            txNonceStart, totalFee.toString(), cnt);
-                                }
-                                newPoolState.add(new PoolState(txNonceStart, totalFee.divide(BigInteger.valueOf(cnt)),
-                                        cnt));
-
-                                // next PoolState
-                                txNonceStart = en.getKey();
-                                fee = en.getValue().getValue();
-                                totalFee = fee;
-                                cnt = 1;
-                            }
-                        }
-                    }
-
-                    if (totalFee.signum() == 1) {
-
-                        if (LOG.isTraceEnabled()) {
-                            LOG.trace(
-                                    "AbstractTxPool.updateAccPoolState case3 - nonce:[{}] totalFee:[{}] cnt:[{}] bw:[{}]",
-                                    txNonceStart, totalFee.toString(), cnt, e.getKey().toString());
-                        }
-
-                        newPoolState.add(new PoolState(txNonceStart, totalFee.divide(BigInteger.valueOf(cnt)), cnt));
-                    }
-
-                    this.poolStateView.put(e.getKey(), newPoolState);
-
-                    if (LOG.isTraceEnabled()) {
-                        this.poolStateView.forEach((k, v) -> v.forEach(l -> {
-                            LOG.trace("AbstractTxPool.updateAccPoolState - the first nonce of the poolState list:[{}]",
-                                    l.firstNonce);
-                        }));
-                    }
-                    as.sorted();
-                }
+    /**
+     * @return true if the pool has room for the tx, or the energy charge of the
+     * tx, the key of the feeIndex, outbids the one of the next eviction victim
+     */
+    protected boolean hasRoomImpl(TX tx) {
+        lock.readLock().lock();
+        try {
+            if (!isOverBudget(1, tx.getEncoded().length)) {
+                return true;
             }
-        }
 
-        if (!clearAddr.isEmpty()) {
-            clearAddr.forEach(addr -> {
-                lock.writeLock().lock();
-                this.accountView.remove(addr);
-                lock.writeLock().unlock();
-                this.bestNonce.remove(addr);
-            });
+            TXState victim = evictionCandidate();
+            return victim != null && nrgCharge(tx) > victim.nrgCharge;
+        } finally {
+            lock.readLock().unlock();
         }
     }
 
-    private boolean isClean(PoolState ps, AccountState as) {
-        if (ps == null || as == null) {
-            throw new NullPointerException();
-        }
-
-        for (BigInteger bi = ps.getFirstNonce();
-             bi.compareTo(ps.firstNonce.add(BigInteger.valueOf(ps.getCombo()))) < 0; bi = bi.add(BigInteger.ONE)) {
-            if (!as.getMap().containsKey(bi)) {
-                return false;
+    /**
+     * Evict the lowest paying executable txs until the pool is back within its
+     * budgets. Each round is a lookup at the tail of the feeIndex plus the
+     * PoolState rebuild of the victim account. The caller must hold the
+     * write lock.
+     *
+     * @return the evicted transactions
+     */
+    protected List<TX> evictUnderPressure() {
+        List<TX> rtn = new ArrayList<>();
+        TXState victim;
+        while (isOverBudget(0, 0) && (victim = evictionCandidate()) != null) {
+            Address acc = victim.getTx().getFrom();
+            AccountState as = this.accountView.get(acc);
+            removeTx(as.removeTx(victim.nonce));
+            as.truncateBestNonce(victim.nonce);
+            updateAccPoolState(acc);
+            rtn.add(victim.getTx());
+
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("AbstractTxPool.evict acc[{}] nonce[{}] nrgPrice[{}]", acc, victim.nonce,
+                        victim.getTx().getNrgPrice());
             }
         }
 
-        return true;
+        this.evicted.addAll(rtn);
+        return rtn;
     }
 
-    protected void updateFeeMap() {
-        for (Entry<Address, List<PoolState>> e : this.poolStateView.entrySet()) {
-            ByteArrayWrapper dependTx = null;
-            for (PoolState ps : e.getValue()) {
-
-                if (LOG.isTraceEnabled()) {
-                    LOG.trace("updateFeeMap addr[{}] inFp[{}] fn[{}] cb[{}] fee[{}]", e.getKey().toString(),
-                            ps.isInFeePool(), ps.getFirstNonce().toString(), ps.getCombo(), ps.getFee().toString());
-                }
+    protected SortedMap<Long, LinkedHashSet<ByteArrayWrapper>> getTimeView() {
+        return this.timeView;
+    }
 
-                if (ps.isInFeePool()) {
-                    dependTx = this.accountView.get(e.getKey()).getMap().get(ps.getFirstNonce()).getKey();
-                    if (LOG.isTraceEnabled()) {
-                        LOG.trace("updateFeeMap isInFeePool [{}]", dependTx.toString());
-                    }
-                } else {
+    /**
+     * Rebuild the PoolState groups of the given account from its nonce map and
+     * move its entry in the feeIndex. Only this account is touched, so the
+     * cost is bounded by its own pending transactions. The caller must hold
+     * the write lock.
+     */
+    protected void updateAccPoolState(Address acc) {
 
-                    TxDependList<ByteArrayWrapper> txl = new TxDependList<>();
-                    BigInteger timestamp = BigInteger.ZERO;
-                    for (BigInteger i = ps.firstNonce;
-                         i.compareTo(ps.firstNonce.add(BigInteger.valueOf(ps.combo))) < 0; i = i.add(BigInteger.ONE)) {
+        AccountState as = this.accountView.get(acc);
+        if (as == null) {
+            return;
+        }
 
-                        ByteArrayWrapper bw = this.accountView.get(e.getKey()).getMap().get(i).getKey();
-                        if (i.equals(ps.firstNonce)) {
-                            timestamp = this.mainMap.get(bw).getTx().getTimeStampBI();
-                        }
+        int id = as.getId();
+        if (this.feeHeads[id] != null) {
+            this.feeIndex.remove(this.feeHeads[id]);
+            this.feeHeads[id] = null;
+        }
 
-                        txl.addTx(bw);
-                    }
+        if (as.isEmpty()) {
+            this.accountView.remove(acc);
+            releaseId(id);
+            return;
+        }
 
-                    if (!txl.isEmpty()) {
-                        txl.setDependTx(dependTx);
-                        dependTx = txl.getTxList().get(0);
-                        txl.setAddress(e.getKey());
-                        txl.setTimeStamp(timestamp);
-                    }
+        as.clearPoolState();
+        long txNonceStart = 0;
+        long nextNonce = as.getFirstNonce();
+        long fee = 0;
+        long totalFee = 0;
+        int cnt = 0;
+
+        for (int i = 0; i < as.size(); i++) {
+            // the transactions after a nonce gap can not be executed yet
+            if (as.nonceAt(i) != nextNonce) {
+                break;
+            }
 
-                    if (this.feeView.get(ps.fee) == null) {
-                        Map<ByteArrayWrapper, TxDependList<ByteArrayWrapper>> set = new LinkedHashMap<>();
-                        set.put(txl.getTxList().get(0), txl);
+            long nrgCharge = this.mainMap.get(as.txAt(i)).nrgCharge;
+            if (cnt > 0 && nrgCharge < fee) {
+                as.addPoolState(txNonceStart, totalFee / cnt, cnt);
+                totalFee = 0;
+                cnt = 0;
+            }
 
-                        if (LOG.isTraceEnabled()) {
-                            LOG.trace("updateFeeMap new feeView put fee[{}]", ps.fee);
-                        }
+            if (cnt == 0) {
+                txNonceStart = nextNonce;
+            }
 
-                        this.feeView.put(ps.fee, set);
-                    } else {
+            fee = nrgCharge;
+            totalFee = totalFee + nrgCharge < totalFee ? Long.MAX_VALUE : totalFee + nrgCharge;
+            nextNonce++;
 
-                        if (LOG.isTraceEnabled()) {
-                            LOG.trace("updateFeeMap update feeView put fee[{}]", ps.fee);
-                        }
+            if (++cnt == seqTxCountMax) {
+                as.addPoolState(txNonceStart, totalFee / cnt, cnt);
+                totalFee = 0;
+                fee = 0;
+                cnt = 0;
+            }
+        }
 
-                        this.feeView.get(ps.fee).put(txl.getTxList().get(0), txl);
-                    }
+        if (cnt > 0) {
+            as.addPoolState(txNonceStart, totalFee / cnt, cnt);
+        }
 
-                    ps.setInFeePool();
-                }
+        if (LOG.isTraceEnabled()) {
+            for (int i = 0; i < as.getPoolStateCount(); i++) {
+                LOG.trace("AbstractTxPool.updateAccPoolState addr[{}] fn[{}] cb[{}] fee[{}]", acc,
+                        as.getPoolStateFirstNonce(i), as.getPoolStateCombo(i), as.getPoolStateFee(i));
             }
         }
+
+        TXState first = this.mainMap.get(as.getTx(as.getPoolStateFirstNonce(0)));
+        FeeKey head = new FeeKey(id, as.getPoolStateFee(0), first.timestamp);
+        this.feeHeads[id] = head;
+        this.feeIndex.add(head);
     }
 
-    protected void setBestNonce(Address addr, BigInteger bn) {
-        if (addr == null || bn == null) {
+    /**
+     * Walk the executable transactions of the account in nonce order, carrying
+     * the fee of the PoolState each one belongs to. The caller must hold the
+     * read lock while the cursor is in use, until it is detached.
+     *
+     * @return the cursor positioned on the first transaction, or null
+     */
+    protected TxCursor openCursor(int id) {
+        AccountState as = this.senders[id];
+        if (as == null) {
+            return null;
+        }
+
+        TxCursor c = new TxCursor(as);
+        return c.load() ? c : null;
+    }
+
+    protected void setBestNonce(Address addr, long bn) {
+        if (addr == null) {
             throw new NullPointerException();
         }
 
+        AccountState as = getAccView(addr);
         if (LOG.isTraceEnabled()) {
-            LOG.trace("addr[{}] bn[{}] txnonce[{}]", addr.toString(),
-                    bestNonce.get(addr) == null ? "-1" : bestNonce.get(addr).toString(), bn.toString());
+            LOG.trace("addr[{}] bn[{}] txnonce[{}]", addr.toString(), as.getBestNonce(), bn);
         }
 
-        if (bestNonce.get(addr) == null || bestNonce.get(addr).compareTo(bn) < 0) {
-            bestNonce.put(addr, bn);
-        }
+        as.setBestNonce(bn);
     }
 
-    protected BigInteger getBestNonce(Address addr) {
-        if (addr == null || bestNonce.get(addr) == null) {
-            return BigInteger.ONE.negate();
-        }
-
-        return bestNonce.get(addr);
+    protected long getBestNonce(Address addr) {
+        AccountState as = addr == null ? null : this.accountView.get(addr);
+        return as == null ? -1 : as.getBestNonce();
     }
 
     protected class TXState {
-        private boolean sorted = false;
-        private TX tx;
+        private final TX tx;
+        private final long nonce;
+        private final long nrgCharge;
+        private final long timestamp;
+        private final int size;
 
         public TXState(TX tx) {
             this.tx = tx;
+            this.nonce = toLong(tx.getNonceBI());
+            this.nrgCharge = nrgCharge(tx);
+            this.timestamp = toLong(tx.getTimeStampBI());
+            this.size = tx.getEncoded().length;
         }
 
         public TX getTx() {
             return this.tx;
         }
 
-        boolean sorted() {
-            return this.sorted;
+        public long getNonce() {
+            return nonce;
         }
 
-        void setSorted() {
-            this.sorted = true;
+        public long getNrgCharge() {
+            return nrgCharge;
         }
     }
 
-    protected class PoolState {
-        private final AtomicBoolean inFeePool = new AtomicBoolean(false);
-        private BigInteger fee;
-        private BigInteger firstNonce;
-        private int combo;
+    /**
+     * Ordering key of the fee index: higher fee first, then older timestamp,
+     * then the account id to keep the keys unique.
+     */
+    protected static class FeeKey implements Comparable<FeeKey> {
+        protected final int sender;
+        protected long fee;
+        protected long timestamp;
 
-        PoolState(BigInteger nonce, BigInteger fee, int combo) {
-            this.firstNonce = nonce;
-            this.combo = combo;
+        FeeKey(int sender, long fee, long timestamp) {
+            this.sender = sender;
             this.fee = fee;
+            this.timestamp = timestamp;
         }
 
-        public boolean contains(BigInteger bi) {
-            return (bi.compareTo(firstNonce) > -1) && (bi.compareTo(firstNonce.add(BigInteger.valueOf(combo))) < 0);
+        public int getSender() {
+            return sender;
         }
 
-        public BigInteger getFee() {
-            return fee;
+        @Override
+        public int compareTo(FeeKey o) {
+            int c = Long.compare(o.fee, this.fee);
+            if (c != 0) {
+                return c;
+            }
+
+            c = Long.compare(this.timestamp, o.timestamp);
+            return c != 0 ? c : Integer.compare(this.sender, o.sender);
         }
+    }
+
+    protected class TxCursor extends FeeKey {
+        private final AccountState as;
+        private int group;
+        private int offset;
+        private TXState state;
+
+        // the remaining transactions once the cursor is detached from the pool
+        private List<TXState> states;
+        private long[] fees;
+        private int pos;
 
-        BigInteger getFirstNonce() {
-            return firstNonce;
+        TxCursor(AccountState as) {
+            super(as.getId(), 0, 0);
+            this.as = as;
         }
 
-        int getCombo() {
-            return combo;
+        public TX getTx() {
+            return state.getTx();
         }
 
-        boolean isInFeePool() {
-            return inFeePool.get();
+        /**
+         * Move to the next nonce of the account.
+         *
+         * @return false when the account has no executable transaction left
+         */
+        public boolean next() {
+            if (states != null) {
+                if (++pos == states.size()) {
+                    return false;
+                }
+                this.state = states.get(pos);
+                this.fee = fees[pos];
+                this.timestamp = state.timestamp;
+                return true;
+            }
+
+            if (++offset == as.getPoolStateCombo(group)) {
+                group++;
+                offset = 0;
+            }
+            return load();
         }
 
-        void setInFeePool() {
-            inFeePool.set(true);
+        /**
+         * Copy the remaining transactions out of the account, so the cursor can
+         * still be walked once the read lock is released. The caller must hold
+         * the read lock.
+         */
+        public TxCursor detach() {
+            List<TXState> copy = new ArrayList<>();
+            long[] copyFees = new long[8];
+            do {
+                if (copy.size() == copyFees.length) {
+                    copyFees = Arrays.copyOf(copyFees, copyFees.length << 1);
+                }
+                copyFees[copy.size()] = fee;
+                copy.add(state);
+            } while (next());
+
+            this.states = copy;
+            this.fees = copyFees;
+            this.pos = 0;
+            this.state = copy.get(0);
+            this.fee = fees[0];
+            this.timestamp = state.timestamp;
+            return this;
         }
 
-        void resetInFeePool() {
-            inFeePool.set(false);
+        private boolean load() {
+            if (group >= as.getPoolStateCount()) {
+                return false;
+            }
+
+            ByteArrayWrapper bw = as.getTx(as.getPoolStateFirstNonce(group) + offset);
+            TXState ts = bw == null ? null : mainMap.get(bw);
+            if (ts == null) {
+                LOG.error("AbstractTxPool.TxCursor can't find the tx of acc[{}] in the pool", as.getId());
+                return false;
+            }
+
+            this.state = ts;
+            this.fee = as.getPoolStateFee(group);
+            this.timestamp = ts.timestamp;
+            return true;
         }
     }
 }
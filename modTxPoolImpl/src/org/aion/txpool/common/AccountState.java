@@ -26,43 +26,190 @@ package org.aion.txpool.common;
 
 import org.aion.base.util.ByteArrayWrapper;
 
-import java.math.BigInteger;
-import java.util.*;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
+/**
+ * Pending transactions of one sender. The account is addressed inside the pool
+ * by a compact int id; nonces, fees and the continuous nonce groups (PoolState)
+ * are kept in primitive fields so the pool does no BigInteger arithmetic. The
+ * txs are kept in arrays sorted by nonce, which new txs almost always append to.
+ */
 public class AccountState {
-    private final SortedMap<BigInteger, AbstractMap.SimpleEntry<ByteArrayWrapper, BigInteger>> txMap = Collections
-            .synchronizedSortedMap(new TreeMap<>());
-    private final AtomicBoolean dirty = new AtomicBoolean(false);
-
-    public void updateMap(Map<BigInteger, AbstractMap.SimpleEntry<ByteArrayWrapper, BigInteger>> map) {
-        if (map != null && !map.isEmpty()) {
-            txMap.putAll(map);
-            setDirty();
+    private final int id;
+    private long[] nonces = new long[4];
+    private ByteArrayWrapper[] txs = new ByteArrayWrapper[4];
+    private int txCount;
+    private long bestNonce = -1;
+
+    // PoolState: continuous nonce groups starting at the first nonce
+    private long[] psFirstNonce = new long[4];
+    private long[] psFee = new long[4];
+    private int[] psCombo = new int[4];
+    private int psCount;
+
+    public AccountState(int id) {
+        this.id = id;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public int size() {
+        return txCount;
+    }
+
+    public boolean isEmpty() {
+        return txCount == 0;
+    }
+
+    public long getFirstNonce() {
+        return txCount == 0 ? -1 : nonces[0];
+    }
+
+    public long getLastNonce() {
+        return txCount == 0 ? -1 : nonces[txCount - 1];
+    }
+
+    /**
+     * @return the nonce of the i-th tx in nonce order
+     */
+    public long nonceAt(int i) {
+        return nonces[i];
+    }
+
+    /**
+     * @return the hash of the i-th tx in nonce order
+     */
+    public ByteArrayWrapper txAt(int i) {
+        return txs[i];
+    }
+
+    public ByteArrayWrapper getTx(long nonce) {
+        int i = indexOf(nonce);
+        return i < 0 ? null : txs[i];
+    }
+
+    /**
+     * @return the tx hash previously held at the nonce, or null
+     */
+    public ByteArrayWrapper putTx(long nonce, ByteArrayWrapper bw) {
+        int i = txCount > 0 && nonce > nonces[txCount - 1] ? -(txCount + 1) : indexOf(nonce);
+        if (i >= 0) {
+            ByteArrayWrapper old = txs[i];
+            txs[i] = bw;
+            return old;
+        }
+
+        i = -(i + 1);
+        if (txCount == nonces.length) {
+            nonces = Arrays.copyOf(nonces, txCount << 1);
+            txs = Arrays.copyOf(txs, txCount << 1);
         }
+        System.arraycopy(nonces, i, nonces, i + 1, txCount - i);
+        System.arraycopy(txs, i, txs, i + 1, txCount - i);
+        nonces[i] = nonce;
+        txs[i] = bw;
+        txCount++;
+        return null;
     }
 
-    public void setDirty() {
-        dirty.set(true);
+    /**
+     * @return the removed tx hash, or null if there is no tx at the nonce
+     */
+    public ByteArrayWrapper removeTx(long nonce) {
+        int i = indexOf(nonce);
+        if (i < 0) {
+            return null;
+        }
+
+        ByteArrayWrapper old = txs[i];
+        System.arraycopy(nonces, i + 1, nonces, i, txCount - i - 1);
+        System.arraycopy(txs, i + 1, txs, i, txCount - i - 1);
+        txs[--txCount] = null;
+        return old;
     }
 
-    public SortedMap<BigInteger, AbstractMap.SimpleEntry<ByteArrayWrapper, BigInteger>> getMap() {
-        return txMap;
+    /**
+     * Remove every tx with a nonce below the given one.
+     *
+     * @return the removed tx hashes in nonce order
+     */
+    public List<ByteArrayWrapper> removeBelow(long nonce) {
+        int n = indexOf(nonce);
+        n = n < 0 ? -(n + 1) : n;
+
+        List<ByteArrayWrapper> removed = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            removed.add(txs[i]);
+        }
+
+        System.arraycopy(nonces, n, nonces, 0, txCount - n);
+        System.arraycopy(txs, n, txs, 0, txCount - n);
+        Arrays.fill(txs, txCount - n, txCount, null);
+        txCount -= n;
+        return removed;
     }
 
-    public void sorted() {
-        dirty.set(false);
+    /**
+     * @return the index of the nonce, or (-(insertion point) - 1) if absent
+     */
+    private int indexOf(long nonce) {
+        return Arrays.binarySearch(nonces, 0, txCount, nonce);
     }
 
-    public BigInteger getFirstNonce() {
-        return txMap.isEmpty() ? null : txMap.firstKey();
+    public long getBestNonce() {
+        return bestNonce;
     }
 
-    public boolean isDirty() {
-        return dirty.get();
+    public void setBestNonce(long bestNonce) {
+        if (bestNonce > this.bestNonce) {
+            this.bestNonce = bestNonce;
+        }
     }
 
-    public boolean isEmpty() {
-        return txMap.isEmpty();
+    /**
+     * The tx at the given nonce and every nonce above it left the pool.
+     */
+    public void truncateBestNonce(long nonce) {
+        if (this.bestNonce >= nonce) {
+            this.bestNonce = nonce - 1;
+        }
+    }
+
+    public void clearPoolState() {
+        psCount = 0;
+    }
+
+    public void addPoolState(long firstNonce, long fee, int combo) {
+        if (psCount == psCombo.length) {
+            int len = psCount << 1;
+            psFirstNonce = Arrays.copyOf(psFirstNonce, len);
+            psFee = Arrays.copyOf(psFee, len);
+            psCombo = Arrays.copyOf(psCombo, len);
+        }
+
+        psFirstNonce[psCount] = firstNonce;
+        psFee[psCount] = fee;
+        psCombo[psCount] = combo;
+        psCount++;
+    }
+
+    public int getPoolStateCount() {
+        return psCount;
+    }
+
+    public long getPoolStateFirstNonce(int i) {
+        return psFirstNonce[i];
+    }
+
+    public long getPoolStateFee(int i) {
+        return psFee[i];
+    }
+
+    public int getPoolStateCombo(int i) {
+        return psCombo[i];
     }
 }
@@ -31,17 +31,19 @@ import org.aion.base.util.TimeInstant;
 import org.aion.txpool.ITxPool;
 import org.aion.txpool.common.AbstractTxPool;
 import org.aion.txpool.common.AccountState;
-import org.aion.txpool.common.TxDependList;
 import org.spongycastle.pqc.math.linearalgebra.ByteUtils;
 
 import java.math.BigInteger;
 import java.util.*;
-import java.util.Map.Entry;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @SuppressWarnings("unchecked") public class TxPoolA0<TX extends ITransaction> extends AbstractTxPool<TX>
         implements ITxPool<TX> {
 
+    // the accounts copied out of the pool per read lock while streaming
+    private static final int STREAM_BATCH = 64;
+
     public TxPoolA0() {
         super();
     }
@@ -84,6 +86,23 @@ import java.util.stream.Collectors;
                 seqTxCountMax = SEQ_TX_MAX;
             }
         }
+
+        if (Optional.ofNullable(config.get(PROP_TX_PRICE_BUMP)).isPresent()) {
+            priceBump = Integer.valueOf(config.get(PROP_TX_PRICE_BUMP).toString());
+            if (priceBump < 0) {
+                priceBump = 0;
+            } else if (priceBump > PRICE_BUMP_MAX) {
+                priceBump = PRICE_BUMP_MAX;
+            }
+        }
+
+        if (Optional.ofNullable(config.get(PROP_POOL_SIZE_MAX)).isPresent()) {
+            poolSizeMax = Math.max(1, Integer.valueOf(config.get(PROP_POOL_SIZE_MAX).toString()));
+        }
+
+        if (Optional.ofNullable(config.get(PROP_POOL_BYTES_MAX)).isPresent()) {
+            poolBytesMax = Math.max(BLK_SIZE_MIN, Long.valueOf(config.get(PROP_POOL_BYTES_MAX).toString()));
+        }
     }
 
     /**
@@ -94,12 +113,17 @@ import java.util.stream.Collectors;
      */
     public List<BigInteger> getNonceList(Address acc) {
 
-        List<BigInteger> nl = Collections.synchronizedList(new ArrayList<>());
         lock.readLock().lock();
-        this.getAccView(acc).getMap().entrySet().parallelStream().forEach(e -> nl.add(e.getKey()));
-        lock.readLock().unlock();
-
-        return nl.parallelStream().sorted().collect(Collectors.toList());
+        try {
+            AccountState as = this.getFullAcc().get(acc);
+            List<BigInteger> nl = new ArrayList<>();
+            for (int i = 0; as != null && i < as.size(); i++) {
+                nl.add(BigInteger.valueOf(as.nonceAt(i)));
+            }
+            return nl;
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
     @Override public TX add(TX tx) {
@@ -113,72 +137,87 @@ import java.util.stream.Collectors;
      * @return
      */
     public List<BigInteger> getFeeList() {
-        List<BigInteger> nl = Collections.synchronizedList(new ArrayList<>());
-
-        this.getFeeView().entrySet().parallelStream().forEach(e -> nl.add(e.getKey()));
-
-        return nl.parallelStream().sorted(Collections.reverseOrder()).collect(Collectors.toList());
+        lock.readLock().lock();
+        try {
+            Set<Long> fee = new TreeSet<>(Collections.reverseOrder());
+            for (AccountState as : this.getFullAcc().values()) {
+                for (int i = 0; i < as.getPoolStateCount(); i++) {
+                    fee.add(as.getPoolStateFee(i));
+                }
+            }
+            return fee.stream().map(BigInteger::valueOf).collect(Collectors.toList());
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
     @Override public List<TX> add(List<TX> txl) {
 
         List<TX> newPendingTx = new ArrayList<>();
-        Map<ByteArrayWrapper, TXState> mainMap = new HashMap<>();
-        for (TX tx : txl) {
-
-            ByteArrayWrapper bw = ByteArrayWrapper.wrap(tx.getHash());
-            if (this.getMainMap().get(bw) != null) {
-                if (LOG.isWarnEnabled()) {
-                    LOG.warn("The tx hash existed in the pool! [{}]", ByteUtils.toHexString(bw.getData()));
-                }
-                continue;
-            }
+        Set<Address> updatedAcc = new HashSet<>();
 
-            if (LOG.isTraceEnabled()) {
-                LOG.trace("Put tx into mainMap: hash:[{}] tx:[{}]", ByteUtils.toHexString(bw.getData()), tx.toString());
-            }
-
-            mainMap.put(bw, new TXState(tx));
-
-            BigInteger txNonce = tx.getNonceBI();
-            BigInteger bn = getBestNonce(tx.getFrom());
+        lock.writeLock().lock();
+        try {
+            for (TX tx : txl) {
 
-            if (bn != null && txNonce.compareTo(bn) < 1) {
-                if (LOG.isDebugEnabled()) {
-                    LOG.debug("repay tx, do snapshot!");
+                ByteArrayWrapper bw = ByteArrayWrapper.wrap(tx.getHash());
+                if (this.getMainMap().get(bw) != null) {
+                    if (LOG.isWarnEnabled()) {
+                        LOG.warn("The tx hash existed in the pool! [{}]", ByteUtils.toHexString(bw.getData()));
+                    }
+                    continue;
                 }
-                snapshot();
-            }
 
-            AbstractMap.SimpleEntry<ByteArrayWrapper, BigInteger> entry = this.getAccView(tx.getFrom()).getMap()
-                    .get(txNonce);
-            if (entry != null) {
                 if (LOG.isTraceEnabled()) {
-                    LOG.trace("repay tx, remove previous tx!");
+                    LOG.trace("Put tx into mainMap: hash:[{}] tx:[{}]", ByteUtils.toHexString(bw.getData()),
+                            tx.toString());
                 }
-                List oldTx = remove(Collections.singletonList(this.getMainMap().get(entry.getKey()).getTx()));
 
-                if (oldTx != null && !oldTx.isEmpty()) {
-                    newPendingTx.add((TX) oldTx.get(0));
+                TX poolTx = getAccTx(tx.getFrom(), toLong(tx.getNonceBI()));
+                if (poolTx != null && !isReplaceableImpl(poolTx, tx)) {
+                    if (LOG.isDebugEnabled()) {
+                        LOG.debug("The tx nrgPrice[{}] can't replace the pool tx nrgPrice[{}]! [{}]", tx.getNrgPrice(),
+                                poolTx.getNrgPrice(), ByteUtils.toHexString(bw.getData()));
+                    }
+                    continue;
                 }
-            } else {
-                if (LOG.isTraceEnabled()) {
-                    LOG.trace("new tx! n[{}]", tx.getNonceBI().toString());
+
+                TX oldTx = addTx(bw, tx);
+                if (oldTx != null) {
+                    if (LOG.isTraceEnabled()) {
+                        LOG.trace("repay tx, remove previous tx!");
+                    }
+                    newPendingTx.add((TX) oldTx.clone());
+                } else {
+                    if (LOG.isTraceEnabled()) {
+                        LOG.trace("new tx! n[{}]", tx.getNonceBI().toString());
+                    }
+                    newPendingTx.add(tx);
                 }
-                newPendingTx.add(tx);
+
+                updatedAcc.add(tx.getFrom());
+                setBestNonce(tx.getFrom(), this.getMainMap().get(bw).getNonce());
             }
 
-            setBestNonce(tx.getFrom(), txNonce);
-        }
+            updatedAcc.forEach(this::updateAccPoolState);
 
-        this.getMainMap().putAll(mainMap);
+            // a tx evicted right away never made it into the pool
+            List<TX> evictedTx = evictUnderPressure();
+            if (!evictedTx.isEmpty()) {
+                Set<TX> evictedSet = Collections.newSetFromMap(new IdentityHashMap<>());
+                evictedSet.addAll(evictedTx);
+                newPendingTx.removeIf(evictedSet::contains);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
 
         if (LOG.isTraceEnabled()) {
             LOG.trace("new add tx! np[{}] tx[{}]", newPendingTx.size(), txl.size());
         }
 
-        if (newPendingTx.size() != txl.size()) {
-            LOG.error("error");
+        if (newPendingTx.size() != txl.size() && LOG.isDebugEnabled()) {
+            LOG.debug("txs rejected or evicted on add! np[{}] tx[{}]", newPendingTx.size(), txl.size());
         }
 
         return newPendingTx;
@@ -188,73 +227,43 @@ import java.util.stream.Collectors;
         return this.getOutdatedListImpl();
     }
 
-    @Override public List<TX> remove(Map<Address, BigInteger> accNonce) {
-
-        List<ByteArrayWrapper> bwList = new ArrayList<>();
-        for (Map.Entry<Address, BigInteger> en1 : accNonce.entrySet()) {
-            AccountState as = this.getAccView(en1.getKey());
-            lock.writeLock().lock();
-            Iterator<Map.Entry<BigInteger, AbstractMap.SimpleEntry<ByteArrayWrapper, BigInteger>>> it = as.getMap()
-                    .entrySet().iterator();
-
-            while (it.hasNext()) {
-                Map.Entry<BigInteger, AbstractMap.SimpleEntry<ByteArrayWrapper, BigInteger>> en = it.next();
-                if (en1.getValue().compareTo(en.getKey()) > 0) {
-                    bwList.add(en.getValue().getKey());
-                    it.remove();
-                } else {
-                    break;
-                }
-            }
-            lock.writeLock().unlock();
-
-            Set<BigInteger> fee = Collections.synchronizedSet(new HashSet<>());
-            if (this.getPoolStateView(en1.getKey()) != null) {
-                this.getPoolStateView(en1.getKey()).parallelStream().forEach(ps -> fee.add(ps.getFee()));
-            }
+    @Override public List<TX> getEvictedList() {
+        return this.getEvictedListImpl();
+    }
 
-            fee.parallelStream().forEach(bi -> {
-                if (this.getFeeView().get(bi) != null) {
-                    this.getFeeView().get(bi).entrySet().removeIf(
-                            byteArrayWrapperTxDependListEntry -> byteArrayWrapperTxDependListEntry.getValue()
-                                    .getAddress().equals(en1.getKey()));
+    @Override public boolean isReplaceable(TX poolTx, TX tx) {
+        return this.isReplaceableImpl(poolTx, tx);
+    }
 
-                    if (this.getFeeView().get(bi).isEmpty()) {
-                        this.getFeeView().remove(bi);
-                    }
-                }
-            });
+    @Override public boolean hasRoom(TX tx) {
+        return this.hasRoomImpl(tx);
+    }
 
-            as.setDirty();
-        }
+    @Override public List<TX> remove(Map<Address, BigInteger> accNonce) {
 
-        List<TX> removedTxl = Collections.synchronizedList(new ArrayList<>());
-        bwList.parallelStream().forEach(bw -> {
-            if (this.getMainMap().get(bw) != null) {
-                ITransaction tx = this.getMainMap().get(bw).getTx().clone();
-                removedTxl.add((TX) tx);
+        List<TX> removedTxl = new ArrayList<>();
 
-                long timestamp = tx.getTimeStampBI().longValue() / multiplyM;
-                synchronized (this.getTimeView().get(timestamp)) {
-                    if (this.getTimeView().get(timestamp) == null) {
-                        LOG.error("Txpool.remove can't find the timestamp in the map [{}]", tx.toString());
-                        return;
-                    }
+        lock.writeLock().lock();
+        try {
+            for (Map.Entry<Address, BigInteger> en1 : accNonce.entrySet()) {
+                AccountState as = this.getFullAcc().get(en1.getKey());
+                if (as == null) {
+                    continue;
+                }
 
-                    this.getTimeView().get(timestamp).remove(bw);
-                    if (this.getTimeView().get(timestamp).isEmpty()) {
-                        this.getTimeView().remove(timestamp);
+                // every nonce below the account nonce has been sealed
+                for (ByteArrayWrapper bw : as.removeBelow(toLong(en1.getValue()))) {
+                    TX tx = removeTx(bw);
+                    if (tx != null) {
+                        removedTxl.add((TX) tx.clone());
                     }
                 }
 
-                lock.writeLock().lock();
-                this.getMainMap().remove(bw);
-                lock.writeLock().unlock();
+                updateAccPoolState(en1.getKey());
             }
-        });
-
-        this.updateAccPoolState();
-        this.updateFeeMap();
+        } finally {
+            lock.writeLock().unlock();
+        }
 
         if (LOG.isInfoEnabled()) {
             LOG.info("TxPoolA0.remove {} TX", removedTxl.size());
@@ -265,73 +274,39 @@ import java.util.stream.Collectors;
 
     @Override @Deprecated public List<TX> remove(List<TX> txs) {
 
-        List<TX> removedTxl = Collections.synchronizedList(new ArrayList<>());
-        Set<Address> checkedAddress = Collections.synchronizedSet(new HashSet<>());
+        List<TX> removedTxl = new ArrayList<>();
+        Set<Address> checkedAddress = new HashSet<>();
 
-        for (TX tx : txs) {
-            ByteArrayWrapper bw = ByteArrayWrapper.wrap(tx.getHash());
-            lock.writeLock().lock();
-            try {
-                if (this.getMainMap().remove(bw) == null) {
+        lock.writeLock().lock();
+        try {
+            for (TX tx : txs) {
+                ByteArrayWrapper bw = ByteArrayWrapper.wrap(tx.getHash());
+                TXState ts = this.getMainMap().get(bw);
+                if (ts == null || removeTx(bw) == null) {
                     continue;
                 }
-            } finally {
-                lock.writeLock().unlock();
-            }
-
-            //noinspection unchecked
-            removedTxl.add((TX) tx.clone());
 
-            if (LOG.isTraceEnabled()) {
-                LOG.trace("TxPoolA0.remove:[{}] nonce:[{}]", ByteUtils.toHexString(tx.getHash()),
-                        tx.getNonceBI().toString());
-            }
+                //noinspection unchecked
+                removedTxl.add((TX) tx.clone());
 
-            long timestamp = tx.getTimeStampBI().longValue() / multiplyM;
-            if (this.getTimeView().get(timestamp) != null) {
-                if (this.getTimeView().get(timestamp).remove(bw)) {
-                    if (this.getTimeView().get(timestamp).isEmpty()) {
-                        this.getTimeView().remove(timestamp);
-                    }
+                if (LOG.isTraceEnabled()) {
+                    LOG.trace("TxPoolA0.remove:[{}] nonce:[{}]", ByteUtils.toHexString(tx.getHash()),
+                            tx.getNonceBI().toString());
                 }
-            }
-
-            // remove the all transactions belong to the given address in the feeView
-            Address address = tx.getFrom();
-            Set<BigInteger> fee = Collections.synchronizedSet(new HashSet<>());
-            if (!checkedAddress.contains(address)) {
 
-                if (this.getPoolStateView(tx.getFrom()) != null) {
-                    this.getPoolStateView(tx.getFrom()).parallelStream().forEach(ps -> fee.add(ps.getFee()));
+                AccountState as = this.getFullAcc().get(tx.getFrom());
+                if (as != null && bw.equals(as.getTx(ts.getNonce()))) {
+                    as.removeTx(ts.getNonce());
                 }
 
-                fee.parallelStream().forEach(bi -> {
-                    if (this.getFeeView().get(bi) != null) {
-                        this.getFeeView().get(bi).entrySet().removeIf(
-                                byteArrayWrapperTxDependListEntry -> byteArrayWrapperTxDependListEntry.getValue()
-                                        .getAddress().equals(address));
-
-                        if (this.getFeeView().get(bi).isEmpty()) {
-                            this.getFeeView().remove(bi);
-                        }
-                    }
-                });
-
-                checkedAddress.add(address);
+                checkedAddress.add(tx.getFrom());
             }
 
-            AccountState as = this.getAccView(tx.getFrom());
-
-            lock.writeLock().lock();
-            as.getMap().remove(tx.getNonceBI());
+            checkedAddress.forEach(this::updateAccPoolState);
+        } finally {
             lock.writeLock().unlock();
-
-            as.setDirty();
         }
 
-        this.updateAccPoolState();
-        this.updateFeeMap();
-
         if (LOG.isDebugEnabled()) {
             LOG.debug("TxPoolA0.remove TX remove [{}] removed [{}]", txs.size(), removedTxl.size());
         }
@@ -361,18 +336,26 @@ import java.util.stream.Collectors;
         }
     }
 
+    @Override public TX getByShortId(long shortId) {
+        lock.readLock().lock();
+        try {
+            return getShortIdTx(shortId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
     @Override public TX getPoolTx(Address from, BigInteger txNonce) {
         if (from == null || txNonce == null) {
             LOG.error("TxPoolA0.getPoolTx null args");
             return null;
         }
 
-        sortTxn();
-
         lock.readLock().lock();
         try {
-            AbstractMap.SimpleEntry<ByteArrayWrapper, BigInteger> entry = this.getAccView(from).getMap().get(txNonce);
-            return (entry == null ? null : this.getMainMap().get(entry.getKey()).getTx());
+            AccountState as = this.getFullAcc().get(from);
+            ByteArrayWrapper bw = as == null ? null : as.getTx(toLong(txNonce));
+            return (bw == null ? null : this.getMainMap().get(bw).getTx());
         } finally {
             lock.readLock().unlock();
         }
@@ -380,19 +363,24 @@ import java.util.stream.Collectors;
 
     @Override public List<TX> snapshotAll() {
 
-        sortTxn();
         removeTimeoutTxn();
 
         List<TX> rtn = new ArrayList<>();
-        for (Map.Entry<Address, AccountState> as : this.getFullAcc().entrySet()) {
-            for (Map.Entry<ByteArrayWrapper, BigInteger> txMap : as.getValue().getMap().values()) {
-                if (this.getMainMap().get(txMap.getKey()) == null) {
-                    LOG.error("can't find the tx in the mainMap");
-                    continue;
-                }
+        lock.readLock().lock();
+        try {
+            for (AccountState as : this.getFullAcc().values()) {
+                for (int i = 0; i < as.size(); i++) {
+                    ByteArrayWrapper bw = as.txAt(i);
+                    if (this.getMainMap().get(bw) == null) {
+                        LOG.error("can't find the tx in the mainMap");
+                        continue;
+                    }
 
-                rtn.add((TX) this.getMainMap().get(txMap.getKey()).getTx().clone());
+                    rtn.add((TX) this.getMainMap().get(bw).getTx().clone());
+                }
             }
+        } finally {
+            lock.readLock().unlock();
         }
 
         if (LOG.isInfoEnabled()) {
@@ -406,122 +394,53 @@ import java.util.stream.Collectors;
         return rtn;
     }
 
+    /**
+     * Merge the accounts of the feeIndex into a block candidate list. Every
+     * account keeps its nonce order; between accounts the higher fee and then
+     * the older timestamp wins. The feeIndex is only consumed lazily, so the
+     * cost follows the number of picked transactions rather than the pool size.
+     */
     public List<TX> snapshot() {
 
-        sortTxn();
         removeTimeoutTxn();
 
-        int cnt_txSz = 0;
-        long cnt_nrg = 0;
+        int[] cnt_txSz = new int[1];
+        long[] cnt_nrg = new long[1];
         List<TX> rtn = new ArrayList<>();
-        Set<ByteArrayWrapper> snapshotSet = new HashSet<>();
-        Map<ByteArrayWrapper, Entry<ByteArrayWrapper, TxDependList<ByteArrayWrapper>>> nonPickedTx = new HashMap<>();
-        for (Entry<BigInteger, Map<ByteArrayWrapper, TxDependList<ByteArrayWrapper>>> e : this.getFeeView()
-                .entrySet()) {
 
-            if (LOG.isTraceEnabled()) {
-                LOG.trace("snapshot  fee[{}]", e.getKey().toString());
-            }
-
-            SortedMap<BigInteger, Entry<ByteArrayWrapper, TxDependList<ByteArrayWrapper>>> timeTxDep = Collections
-                    .synchronizedSortedMap(new TreeMap<>());
-            for (Entry<ByteArrayWrapper, TxDependList<ByteArrayWrapper>> pair : e.getValue().entrySet()) {
-                BigInteger ts = pair.getValue().getTimeStamp();
-                while (timeTxDep.get(ts.add(BigInteger.ONE)) != null) {
-                    ts = ts.add(BigInteger.ONE);
+        lock.readLock().lock();
+        try {
+            Iterator<FeeKey> heads = this.getFeeIndex().iterator();
+            merge(() -> nextCursor(heads), itx -> {
+                cnt_txSz[0] += itx.getEncoded().length;
+                cnt_nrg[0] += itx.getNrgConsume();
+                if (LOG.isTraceEnabled()) {
+                    LOG.trace("from:[{}] nonce:[{}] txSize: txSize[{}] nrgConsume[{}]", itx.getFrom().toString(),
+                            itx.getNonceBI().toString(), itx.getEncoded().length, itx.getNrgConsume());
                 }
-                timeTxDep.put(ts, pair);
-            }
-
-            for (Entry<ByteArrayWrapper, TxDependList<ByteArrayWrapper>> pair : timeTxDep.values()) {
-                // Check the small nonce tx must been picked before put the high nonce tx
-                ByteArrayWrapper dependTx = pair.getValue().getDependTx();
-                if (dependTx == null || snapshotSet.contains(dependTx)) {
-                    boolean firstTx = true;
-                    for (ByteArrayWrapper bw : pair.getValue().getTxList()) {
-                        ITransaction itx = this.getMainMap().get(bw).getTx();
-
-                        cnt_txSz += itx.getEncoded().length;
-                        cnt_nrg += itx.getNrgConsume();
-                        if (LOG.isTraceEnabled()) {
-                            LOG.trace("from:[{}] nonce:[{}] txSize: txSize[{}] nrgConsume[{}]",
-                                    itx.getFrom().toString(), itx.getNonceBI().toString(), itx.getEncoded().length,
-                                    itx.getNrgConsume());
-                        }
 
-                        if (cnt_txSz < blkSizeLimit && cnt_nrg < blkNrgLimit.get()) {
-                            try {
-                                rtn.add((TX) itx.clone());
-                                if (firstTx) {
-                                    snapshotSet.add(bw);
-                                    firstTx = false;
-                                }
-                            } catch (Exception ex) {
-                                ex.printStackTrace();
-
-                                if (LOG.isErrorEnabled()) {
-                                    LOG.error("TxPoolA0.snapshot  exception[{}], return [{}] TX", ex.toString(),
-                                            rtn.size());
-                                }
-                                return rtn;
-                            }
-                        } else {
-                            if (LOG.isDebugEnabled()) {
-                                LOG.debug("Reach blockLimit: txSize[{}], nrgConsume[{}], tx#[{}]", cnt_txSz, cnt_nrg,
-                                        rtn.size());
-                            }
-
-                            return rtn;
-                        }
-                    }
+                if (cnt_txSz[0] < blkSizeLimit && cnt_nrg[0] < blkNrgLimit.get()) {
+                    try {
+                        rtn.add((TX) itx.clone());
+                    } catch (Exception ex) {
+                        ex.printStackTrace();
 
-                    ByteArrayWrapper ancestor = pair.getKey();
-                    while (nonPickedTx.get(ancestor) != null) {
-                        firstTx = true;
-                        for (ByteArrayWrapper bw : nonPickedTx.get(ancestor).getValue().getTxList()) {
-                            ITransaction itx = this.getMainMap().get(bw).getTx();
-
-                            cnt_txSz += itx.getEncoded().length;
-                            cnt_nrg += itx.getNrgConsume();
-                            if (LOG.isTraceEnabled()) {
-                                LOG.trace("from:[{}] nonce:[{}] txSize: txSize[{}] nrgConsume[{}]",
-                                        itx.getFrom().toString(), itx.getNonceBI().toString(), itx.getEncoded().length,
-                                        itx.getNrgConsume());
-                            }
-
-                            if (cnt_txSz < blkSizeLimit && cnt_nrg < blkNrgLimit.get()) {
-                                try {
-                                    rtn.add((TX) itx.clone());
-                                    if (firstTx) {
-                                        snapshotSet.add(bw);
-                                        firstTx = false;
-                                    }
-                                } catch (Exception ex) {
-                                    ex.printStackTrace();
-
-                                    if (LOG.isErrorEnabled()) {
-                                        LOG.error("TxPoolA0.snapshot  exception[{}], return [{}] TX", ex.toString(),
-                                                rtn.size());
-                                    }
-                                    return rtn;
-                                }
-                            } else {
-                                if (LOG.isDebugEnabled()) {
-                                    LOG.debug("Reach blockLimit: txSize[{}], nrgConsume[{}], tx#[{}]", cnt_txSz,
-                                            cnt_nrg, rtn.size());
-                                }
-
-                                return rtn;
-                            }
+                        if (LOG.isErrorEnabled()) {
+                            LOG.error("TxPoolA0.snapshot  exception[{}], return [{}] TX", ex.toString(), rtn.size());
                         }
-
-                        ancestor = nonPickedTx.get(ancestor).getKey();
+                        return Pick.STOP;
                     }
+                    return Pick.NEXT;
                 } else {
-                    // one low fee small nonce tx has been picked,and then search from this map.
-                    nonPickedTx.put(pair.getValue().getDependTx(), pair);
+                    if (LOG.isDebugEnabled()) {
+                        LOG.debug("Reach blockLimit: txSize[{}], nrgConsume[{}], tx#[{}]", cnt_txSz[0], cnt_nrg[0],
+                                rtn.size());
+                    }
+                    return Pick.STOP;
                 }
-            }
+            });
+        } finally {
+            lock.readLock().unlock();
         }
 
         if (LOG.isInfoEnabled()) {
@@ -531,26 +450,119 @@ import java.util.stream.Collectors;
         return rtn;
     }
 
+    /**
+     * Stream the pool txs in the {@link #snapshot()} order. The accounts are
+     * copied out of the feeIndex a batch at a time under the read lock, and
+     * the visitor runs with the lock released, so a slow visitor doesn't hold
+     * up the pool. A tx may leave the pool before it is visited.
+     */
+    @Override public void streamSnapshot(TxVisitor<TX> visitor) {
+
+        removeTimeoutTxn();
+
+        Deque<TxCursor> batch = new ArrayDeque<>();
+        Set<Address> loaded = new HashSet<>();
+        FeeKey[] last = new FeeKey[1];
+
+        merge(() -> {
+            if (batch.isEmpty()) {
+                loadBatch(last, loaded, batch);
+            }
+            return batch.poll();
+        }, visitor);
+    }
+
+    /**
+     * Copy the next accounts of the feeIndex, following the last key loaded.
+     * An account re-keyed since an earlier batch is not loaded twice. The
+     * accounts are told apart by address, a compact id freed between two
+     * batches can come back for another account.
+     */
+    private void loadBatch(FeeKey[] last, Set<Address> loaded, Deque<TxCursor> batch) {
+        lock.readLock().lock();
+        try {
+            NavigableSet<FeeKey> index = this.getFeeIndex();
+            Iterator<FeeKey> heads = (last[0] == null ? index : index.tailSet(last[0], false)).iterator();
+            while (heads.hasNext() && batch.size() < STREAM_BATCH) {
+                FeeKey head = heads.next();
+                last[0] = head;
+
+                TxCursor c = openCursor(head.getSender());
+                if (c != null && loaded.add(c.getTx().getFrom())) {
+                    batch.add(c.detach());
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The k-way merge behind the snapshot. The accounts come from the heads
+     * supplier in feeIndex order, which returns null when it runs out.
+     */
+    private void merge(Supplier<TxCursor> heads, TxVisitor<TX> visitor) {
+        PriorityQueue<TxCursor> candidates = new PriorityQueue<>();
+        TxCursor nextHead = heads.get();
+        if (nextHead != null) {
+            candidates.add(nextHead);
+        }
+
+        while (!candidates.isEmpty()) {
+            TxCursor c = candidates.poll();
+            if (c == nextHead) {
+                // the account comes from the index, bring the next one in line
+                nextHead = heads.get();
+                if (nextHead != null) {
+                    candidates.add(nextHead);
+                }
+            }
+
+            Pick pick = visitor.visit(c.getTx());
+            if (pick == Pick.STOP) {
+                return;
+            }
+
+            // a skipped sender simply leaves its cursor out of the queue
+            if (pick == Pick.NEXT && c.next()) {
+                candidates.add(c);
+            }
+        }
+    }
+
+    private TxCursor nextCursor(Iterator<FeeKey> heads) {
+        while (heads.hasNext()) {
+            TxCursor c = openCursor(heads.next().getSender());
+            if (c != null) {
+                return c;
+            }
+        }
+        return null;
+    }
+
     @Override public String getVersion() {
         return "0.1.0";
     }
 
     public BigInteger bestPoolNonce(Address addr) {
-        return getBestNonce(addr);
+        return BigInteger.valueOf(getBestNonce(addr));
     }
 
     private void removeTimeoutTxn() {
 
         long ts = TimeInstant.now().toEpochSec() - txn_timeout;
-        List<TX> txl = Collections.synchronizedList(new ArrayList<>());
+        List<TX> txl = new ArrayList<>();
 
-        this.getTimeView().entrySet().parallelStream().forEach(e -> {
-            if (e.getKey() < ts) {
-                for (ByteArrayWrapper bw : e.getValue()) {
+        lock.readLock().lock();
+        try {
+            for (LinkedHashSet<ByteArrayWrapper> lhs : this.getTimeView().headMap(ts).values()) {
+                for (ByteArrayWrapper bw : lhs) {
                     txl.add(this.getMainMap().get(bw).getTx());
                 }
             }
-        });
+        } finally {
+            lock.readLock().unlock();
+        }
 
         if (txl.isEmpty()) {
             return;
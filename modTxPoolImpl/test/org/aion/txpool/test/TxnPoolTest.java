@@ -47,6 +47,7 @@ import org.junit.Test;
 import org.spongycastle.pqc.math.linearalgebra.ByteUtils;
 
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.util.*;
 
 import static junit.framework.TestCase.assertEquals;
@@ -204,6 +205,12 @@ public class TxnPoolTest {
                 ByteUtils.fromHexString("1"), ByteUtils.fromHexString("1"), 10000L, 1L);
     }
 
+    private ITransaction genTransaction(byte[] nonce, int _index, long price) {
+        return new AionTransaction(nonce, Address.wrap(key.get(_index).getAddress()),
+                Address.wrap("0000000000000000000000000000000000000000000000000000000000000001"),
+                ByteUtils.fromHexString("1"), ByteUtils.fromHexString("1"), 10000L, price);
+    }
+
     private ITransaction genTransactionRandomPrice(byte[] nonce, long price) {
         return new AionTransaction(nonce, Address.wrap(key.get(0).getAddress()),
                 Address.wrap("0000000000000000000000000000000000000000000000000000000000000001"),
@@ -887,6 +894,178 @@ public class TxnPoolTest {
         assertTrue(nl.get(1).compareTo(BigInteger.valueOf(325 / 25)) == 0);
     }
 
+    @Test
+    public void snapshotFeeOrderAcrossAccounts() {
+        Properties config = new Properties();
+        config.put("txn-timeout", "100");
+
+        TxPoolA0<ITransaction> tp = new TxPoolA0<>(config);
+
+        List<ITransaction> txnl = new ArrayList<>();
+        for (int k = 0; k < 3; k++) {
+            for (int i = 0; i < 2; i++) {
+                byte[] nonce = new byte[Long.BYTES];
+                nonce[Long.BYTES - 1] = (byte) i;
+                ITransaction txn = genTransaction(nonce, k);
+                ((AionTransaction) txn).sign(key.get(k));
+                txn.setNrgConsume(10 * (k + 1));
+                txnl.add(txn);
+            }
+        }
+        tp.add(txnl);
+
+        // the highest fee account goes first, each account keeps its nonce order
+        List<ITransaction> txl = tp.snapshot();
+        assertTrue(txl.size() == 6);
+        for (int i = 0; i < 6; i++) {
+            assertTrue(txl.get(i).equals(txnl.get((2 - i / 2) * 2 + i % 2)));
+        }
+
+        // the fee index follows the removal without a resort
+        Map<Address, BigInteger> account = new HashMap<>();
+        account.put(txnl.get(4).getFrom(), BigInteger.valueOf(2));
+        tp.remove(account);
+
+        txl = tp.snapshot();
+        assertTrue(txl.size() == 4);
+        assertTrue(txl.get(0).equals(txnl.get(2)));
+        assertTrue(tp.getFeeList().get(0).compareTo(BigInteger.valueOf(20)) == 0);
+    }
+
+    @Test
+    public void snapshotSkipNonceGap() {
+        Properties config = new Properties();
+        config.put("txn-timeout", "100");
+
+        TxPoolA0<ITransaction> tp = new TxPoolA0<>(config);
+
+        List<ITransaction> txnl = new ArrayList<>();
+        for (int i : new int[] { 0, 1, 3 }) {
+            byte[] nonce = new byte[Long.BYTES];
+            nonce[Long.BYTES - 1] = (byte) i;
+            ITransaction txn = genTransaction(nonce);
+            ((AionTransaction) txn).sign(key.get(0));
+            txn.setNrgConsume(100);
+            txnl.add(txn);
+        }
+        tp.add(txnl);
+
+        assertTrue(tp.size() == 3);
+        assertTrue(tp.snapshot().size() == 2);
+
+        byte[] nonce = new byte[Long.BYTES];
+        nonce[Long.BYTES - 1] = (byte) 2;
+        ITransaction txn = genTransaction(nonce);
+        ((AionTransaction) txn).sign(key.get(0));
+        txn.setNrgConsume(100);
+        tp.add(txn);
+
+        List<ITransaction> txl = tp.snapshot();
+        assertTrue(txl.size() == 4);
+        long n = 0;
+        for (ITransaction tx : txl) {
+            assertTrue((new BigInteger(tx.getNonce())).longValue() == n++);
+        }
+    }
+
+    @Test
+    public void feeOverflowTest() {
+        Properties config = new Properties();
+        config.put("txn-timeout", "100");
+
+        TxPoolA0<ITransaction> tp = new TxPoolA0<>(config);
+
+        List<ITransaction> txnl = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            byte[] nonce = new byte[Long.BYTES];
+            nonce[Long.BYTES - 1] = (byte) i;
+            ITransaction txn = genTransactionRandomPrice(nonce, Long.MAX_VALUE / 2);
+            ((AionTransaction) txn).sign(key.get(0));
+            txn.setNrgConsume(3);
+            txnl.add(txn);
+        }
+        tp.add(txnl);
+
+        // the energy charge saturates instead of wrapping to a negative fee
+        List<BigInteger> nl = tp.getFeeList();
+        assertTrue(nl.size() == 1);
+        assertTrue(nl.get(0).compareTo(BigInteger.valueOf(Long.MAX_VALUE / 2)) == 0);
+        assertTrue(tp.snapshot().size() == 2);
+        assertTrue(tp.bestPoolNonce(txnl.get(0).getFrom()).compareTo(BigInteger.ONE) == 0);
+    }
+
+    @Test
+    public void priceBumpTest() {
+        Properties config = new Properties();
+        config.put("txn-timeout", "100");
+        config.put(ITxPool.PROP_TX_PRICE_BUMP, "100");
+
+        TxPoolA0<ITransaction> tp = new TxPoolA0<>(config);
+
+        byte[] nonce = new byte[Long.BYTES];
+        ITransaction txn = genTransactionRandomPrice(nonce, 10L);
+        ((AionTransaction) txn).sign(key.get(0));
+        txn.setNrgConsume(100);
+        tp.add(txn);
+
+        ITransaction low = genTransactionRandomPrice(nonce, 19L);
+        ((AionTransaction) low).sign(key.get(0));
+        low.setNrgConsume(100);
+        assertTrue(!tp.isReplaceable(txn, low));
+        tp.add(low);
+        assertTrue(tp.size() == 1);
+        assertTrue(tp.getPoolTx(txn.getFrom(), BigInteger.ZERO).equals(txn));
+
+        ITransaction high = genTransactionRandomPrice(nonce, 20L);
+        ((AionTransaction) high).sign(key.get(0));
+        high.setNrgConsume(100);
+        assertTrue(tp.isReplaceable(txn, high));
+        tp.add(high);
+        assertTrue(tp.size() == 1);
+        assertTrue(tp.getPoolTx(txn.getFrom(), BigInteger.ZERO).equals(high));
+    }
+
+    @Test
+    public void evictLowestFeeTest() {
+        Properties config = new Properties();
+        config.put("txn-timeout", "100");
+        config.put(ITxPool.PROP_POOL_SIZE_MAX, "5");
+
+        TxPoolA0<ITransaction> tp = new TxPoolA0<>(config);
+
+        List<ITransaction> txnl = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            // account 0 pays 10, account 1 pays 1
+            int acc = i < 3 ? 0 : 1;
+            ITransaction txn = genTransaction(BigInteger.valueOf(i < 3 ? i : i - 3).toByteArray(), acc,
+                    acc == 0 ? 10L : 1L);
+            ((AionTransaction) txn).sign(key.get(acc));
+            txn.setNrgConsume(100);
+            txnl.add(txn);
+        }
+        tp.add(txnl);
+        assertTrue(tp.size() == 5);
+        assertTrue(tp.getEvictedList().isEmpty());
+
+        ITransaction cheap = genTransaction(BigInteger.ZERO.toByteArray(), 2, 1L);
+        ((AionTransaction) cheap).sign(key.get(2));
+        assertTrue(!tp.hasRoom(cheap));
+
+        ITransaction txn = genTransaction(BigInteger.ZERO.toByteArray(), 2, 5L);
+        ((AionTransaction) txn).sign(key.get(2));
+        txn.setNrgConsume(100);
+        assertTrue(tp.hasRoom(txn));
+        tp.add(txn);
+
+        // the highest nonce tx of the lowest paying account made room
+        List<ITransaction> evicted = tp.getEvictedList();
+        assertTrue(tp.size() == 5);
+        assertTrue(evicted.size() == 1);
+        assertTrue(evicted.get(0).equals(txnl.get(4)));
+        assertTrue(tp.bestPoolNonce(txnl.get(4).getFrom()).compareTo(BigInteger.ZERO) == 0);
+        assertTrue(tp.getPoolTx(txn.getFrom(), BigInteger.ZERO) != null);
+    }
+
     @Test
     //@Ignore
     /* 100K new transactions in pool around 1200ms (cold-call)
@@ -1167,6 +1346,56 @@ public class TxnPoolTest {
         assertEquals(400, tp.snapshotAll().size());
     }
 
+    @Test
+    public void streamSnapshotTest() {
+        Properties config = new Properties();
+        config.put("txn-timeout", "100");
+
+        ITxPool<ITransaction> tp = new TxPoolA0<>(config);
+
+        List<ITransaction> txnl = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            for (int k = 0; k < 3; k++) {
+                AionTransaction tx = (AionTransaction) genTransaction(BigInteger.valueOf(i).toByteArray(), k, 3L - k);
+                tx.setNrgConsume(100L);
+                tx.sign(key.get(k));
+                txnl.add(tx);
+            }
+        }
+        tp.add(txnl);
+        assertEquals(9, tp.size());
+
+        // the stream follows the snapshot order
+        List<ITransaction> streamed = new ArrayList<>();
+        tp.streamSnapshot(tx -> {
+            streamed.add(tx);
+            return ITxPool.Pick.NEXT;
+        });
+        List<ITransaction> snapshot = tp.snapshot();
+        assertEquals(snapshot.size(), streamed.size());
+        for (int i = 0; i < snapshot.size(); i++) {
+            assertTrue(Arrays.equals(snapshot.get(i).getHash(), streamed.get(i).getHash()));
+        }
+
+        // skipping a sender drops its later nonces only
+        Address skipped = Address.wrap(key.get(0).getAddress());
+        List<ITransaction> skip = new ArrayList<>();
+        tp.streamSnapshot(tx -> {
+            skip.add(tx);
+            return tx.getFrom().equals(skipped) ? ITxPool.Pick.SKIP_SENDER : ITxPool.Pick.NEXT;
+        });
+        assertEquals(7, skip.size());
+        assertEquals(1, skip.stream().filter(tx -> tx.getFrom().equals(skipped)).count());
+
+        // stop ends the stream at once
+        List<ITransaction> stop = new ArrayList<>();
+        tp.streamSnapshot(tx -> {
+            stop.add(tx);
+            return stop.size() == 4 ? ITxPool.Pick.STOP : ITxPool.Pick.NEXT;
+        });
+        assertEquals(4, stop.size());
+    }
+
     @Test
     public void testRemove2() {
         ECKeyFac.setType(ECKeyFac.ECKeyType.ED25519);
@@ -1205,4 +1434,34 @@ public class TxnPoolTest {
         assertEquals(1, tp.snapshot().size());
         assertEquals(1, tp.snapshotAll().size());
     }
+
+    @Test
+    public void shortIdTest() {
+        ECKeyFac.setType(ECKeyFac.ECKeyType.ED25519);
+        ECKey key = ECKeyFac.inst().create();
+
+        List<AionTransaction> txs = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            AionTransaction tx = new AionTransaction(BigInteger.valueOf(i).toByteArray(), Address.wrap(key.getAddress()),
+                    Address.wrap("0000000000000000000000000000000000000000000000000000000000000001"),
+                    ByteUtils.fromHexString("1"), ByteUtils.fromHexString("1"), 10000L, 1L);
+            tx.sign(key);
+            tx.setNrgConsume(100L);
+            txs.add(tx);
+        }
+
+        Properties config = new Properties();
+        ITxPool<AionTransaction> tp = new TxPoolA0<>(config);
+        tp.add(txs);
+
+        for (AionTransaction tx : txs) {
+            assertTrue(tp.getByShortId(ByteBuffer.wrap(tx.getHash()).getLong()) == tx);
+        }
+
+        tp.remove(txs.subList(0, 5));
+        for (int i = 0; i < txs.size(); i++) {
+            AionTransaction found = tp.getByShortId(ByteBuffer.wrap(txs.get(i).getHash()).getLong());
+            assertTrue(i < 5 ? found == null : found == txs.get(i));
+        }
+    }
 }